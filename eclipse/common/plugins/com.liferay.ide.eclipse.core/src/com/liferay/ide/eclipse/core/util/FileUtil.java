@@ -29,6 +29,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -50,6 +52,37 @@ import org.xml.sax.ErrorHandler;
  */
 public class FileUtil {
 
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	public static String checksum(byte[] bytes, int offset, int length) {
+		MessageDigest digest = newMessageDigest();
+		digest.update(bytes, offset, length);
+
+		return toHexString(digest.digest());
+	}
+
+	public static String checksum(File file)
+		throws IOException {
+
+		MessageDigest digest = newMessageDigest();
+
+		InputStream in = new FileInputStream(file);
+
+		try {
+			byte[] buffer = new byte[8192];
+			int read = 0;
+
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		return toHexString(digest.digest());
+	}
+
 	public static void clearContents(File versionFile) {
 		if (versionFile != null && versionFile.exists()) {
 			try {
@@ -139,6 +172,16 @@ public class FileUtil {
 
 	}
 
+	public static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every java runtime is required to provide MD5
+			throw new IllegalStateException(e);
+		}
+	}
+
 	public static String readContents(File file) {
 		return readContents(file, false);
 	}
@@ -285,6 +328,17 @@ public class FileUtil {
 		}
 	}
 
+	public static String toHexString(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+
+		return new String(chars);
+	}
+
 	public static String validateNewFolder(IFolder docroot, String folderValue) {
 		if (docroot == null || folderValue == null) {
 			return null;
@@ -35,6 +35,12 @@ public interface ISDKConstants {
 
 	static final String _THEME_PLUGIN_PROJECT_SUFFIX = "-theme";
 
+	public static final boolean ANT_DAEMON_ENABLED = __defaultPrefs.getBoolean( "ant.daemon.enabled", true );
+
+	public static final int ANT_DAEMON_IDLE_TIMEOUT = __defaultPrefs.getInt( "ant.daemon.idle.timeout", 900000 );
+
+	public static final int ANT_DAEMON_MAX_BUILDS = __defaultPrefs.getInt( "ant.daemon.max.builds", 50 );
+
 	public static final String[] ANT_LIBRARIES = __defaultPrefs.get( "ant.libraries", "" ).split( "," );
 
 	public static final String[] BINARY_PLUGIN_EXTENSIONS = { "*.war" };
@@ -45,6 +51,8 @@ public interface ISDKConstants {
 		"*" + _THEME_PLUGIN_PROJECT_SUFFIX + "*.war", "*" + _PORTLET_PLUGIN_PROJECT_SUFFIX + "*.war",
 		"*" + _LAYOUTTPL_PLUGIN_PROJECT_SUFFIX + "*.war" };
 
+	public static final int BUILD_MAX_PARALLEL = __defaultPrefs.getInt( "build.max.parallel", 0 );
+
 	public static final String EXT_PLUGIN_ANT_BUILD = __defaultPrefs.get( "ext.plugin.ant.build", null );
 
 	public static final String EXT_PLUGIN_PROJECT_FOLDER = "ext";
@@ -37,7 +37,9 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.dialogs.IDialogConstants;
@@ -110,7 +112,19 @@ public class SDK {
 	public IStatus buildLanguage(
 		IProject project, IFile langFile, Map<String, String> overrideProperties,
 		Map<String, String> appServerProperties ) {
+
+		return buildLanguage( project, langFile, overrideProperties, appServerProperties, null );
+	}
+
+	/**
+	 * @param monitor checked for cancel while the build runs in the Ant daemon, may be null
+	 */
+	public IStatus buildLanguage(
+		IProject project, IFile langFile, Map<String, String> overrideProperties,
+		Map<String, String> appServerProperties, IProgressMonitor monitor ) {
+
 		SDKHelper antHelper = new SDKHelper(this);
+		antHelper.setProgressMonitor( monitor );
 
 		try {
 			persistAppServerProperties( appServerProperties );
@@ -132,6 +146,9 @@ public class SDK {
 				project.getFile(ISDKConstants.PROJECT_BUILD_XML).getRawLocation(), ISDKConstants.TARGET_BUILD_LANG_CMD,
 				properties, true);
 		}
+		catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
 		catch (Exception e) {
 			return SDKPlugin.createErrorStatus(e);
 		}
@@ -142,7 +159,19 @@ public class SDK {
 	public IStatus buildService(
 		IProject project, IFile serviceXmlFile, Map<String, String> overrideProperties,
 		Map<String, String> appServerProperties ) {
+
+		return buildService( project, serviceXmlFile, overrideProperties, appServerProperties, null );
+	}
+
+	/**
+	 * @param monitor checked for cancel while the build runs in the Ant daemon, may be null
+	 */
+	public IStatus buildService(
+		IProject project, IFile serviceXmlFile, Map<String, String> overrideProperties,
+		Map<String, String> appServerProperties, IProgressMonitor monitor ) {
+
 		SDKHelper antHelper = new SDKHelper(this);
+		antHelper.setProgressMonitor( monitor );
 
 		try {
 			persistAppServerProperties( appServerProperties );
@@ -162,6 +191,9 @@ public class SDK {
 				project.getFile(ISDKConstants.PROJECT_BUILD_XML).getRawLocation(), ISDKConstants.TARGET_BUILD_SERVICE,
 				properties, true);
 		}
+		catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
 		catch (Exception e) {
 			return SDKPlugin.createErrorStatus(e);
 		}
@@ -172,7 +204,19 @@ public class SDK {
 	public IStatus buildWSDD(
 		IProject project, IFile serviceXmlFile, Map<String, String> overrideProperties,
 		Map<String, String> appServerProperties ) {
+
+		return buildWSDD( project, serviceXmlFile, overrideProperties, appServerProperties, null );
+	}
+
+	/**
+	 * @param monitor checked for cancel while the build runs in the Ant daemon, may be null
+	 */
+	public IStatus buildWSDD(
+		IProject project, IFile serviceXmlFile, Map<String, String> overrideProperties,
+		Map<String, String> appServerProperties, IProgressMonitor monitor ) {
+
 		SDKHelper antHelper = new SDKHelper(this);
+		antHelper.setProgressMonitor( monitor );
 
 		try {
 			persistAppServerProperties( appServerProperties );
@@ -192,6 +236,9 @@ public class SDK {
 				project.getFile(ISDKConstants.PROJECT_BUILD_XML).getRawLocation(), ISDKConstants.TARGET_BUILD_WSDD,
 				properties, true);
 		}
+		catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		}
 		catch (Exception e) {
 			return SDKPlugin.createErrorStatus(e);
 		}
@@ -505,7 +552,11 @@ public class SDK {
 		// setRuntime(sdkElement.getString("runtime"));
 	}
 
-	protected void persistAppServerProperties(Map<String, String> properties)
+	/**
+	 * Builds of several projects of the SDK run at the same time, so the user build file is written by one of them at a
+	 * time and only if the properties differ from the ones already in there.
+	 */
+	protected synchronized void persistAppServerProperties(Map<String, String> properties)
 		throws FileNotFoundException, IOException, ConfigurationException {
 
 		IPath loc = getLocation();
@@ -526,6 +577,20 @@ public class SDK {
 
 			PropertiesConfiguration propsConfig = new PropertiesConfiguration(userBuildFile);
 
+			boolean upToDate = true;
+
+			for (String key : properties.keySet()) {
+				if (properties.get(key) != null && !properties.get(key).equals(propsConfig.getString(key))) {
+					upToDate = false;
+
+					break;
+				}
+			}
+
+			if (upToDate) {
+				return;
+			}
+
 			String header = propsConfig.getHeader();
 
 			boolean shouldUpdateBuildFile = false;
@@ -17,6 +17,8 @@ package com.liferay.ide.eclipse.sdk;
 
 import com.liferay.ide.eclipse.core.CorePlugin;
 import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.sdk.job.SDKBuildScheduler;
+import com.liferay.ide.eclipse.sdk.util.SDKAntDaemon;
 
 import java.io.File;
 import java.util.HashMap;
@@ -107,6 +109,9 @@ public class SDKPlugin extends AbstractUIPlugin {
 	public void stop(BundleContext context)
 		throws Exception {
 
+		SDKBuildScheduler.shutdown();
+		SDKAntDaemon.stopAll();
+
 		// delete tmp folder
 		File createDir = getDefault().getStateLocation().append("create").toFile();
 
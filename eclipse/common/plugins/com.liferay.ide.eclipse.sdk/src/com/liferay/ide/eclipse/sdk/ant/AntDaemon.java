@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.sdk.ant;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+import org.apache.tools.ant.DefaultLogger;
+import org.apache.tools.ant.DemuxOutputStream;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+
+/**
+ * A long lived Ant process that runs the targets of a Plugins SDK on request, so the JVM startup and the loading of
+ * Ant and its tasks is paid once instead of on every SDK operation. This class runs in the daemon JVM and must not use
+ * anything but the JDK and Ant.
+ * <p>
+ * The daemon listens on a loopback port and writes the port and a random token to the file given as the first
+ * argument. A request is a line per item, every item but the token URL encoded:
+ *
+ * <pre>
+ * &lt;token&gt;
+ * build &lt;build file&gt;
+ * target &lt;target&gt;
+ * property &lt;name&gt; &lt;value&gt;
+ * run
+ * </pre>
+ *
+ * The answer is the output of the build, one <code>out</code> or <code>err</code> line per line, followed by
+ * <code>done ok</code> or <code>done failed &lt;message&gt;</code>. Requests are served one after the other; every
+ * request is built in a new Ant project, since the properties of a project can not be changed once set. The daemon
+ * exits after being idle for the time given as the second argument, in milliseconds, or on a <code>shutdown</code>
+ * request.
+ * <p>
+ * Every project loads the task definitions of the SDK in new class loaders, which the JVM does not always give back.
+ * So the daemon also exits after the number of builds given as the optional third argument, or once a memory pool is
+ * almost full. It closes its port before it answers the last build, so the IDE starts a new daemon for the next one.
+ *
+ * @author Greg Amerson
+ */
+public class AntDaemon {
+
+	public static final String ENCODING = "UTF-8";
+
+	private static final double MEMORY_LIMIT = 0.8;
+
+	public static void main( String[] args ) throws Exception {
+		if ( args.length < 2 ) {
+			System.err.println( "Usage: AntDaemon <port file> <idle timeout> [<max builds>]" );
+			System.exit( 1 );
+		}
+
+		int maxBuilds = args.length > 2 ? Integer.parseInt( args[2] ) : 0;
+
+		AntDaemon daemon = new AntDaemon( Integer.parseInt( args[1] ), maxBuilds );
+
+		daemon.start( new File( args[0] ) );
+		daemon.serve();
+
+		System.exit( 0 );
+	}
+
+	private static String decode( String value ) throws UnsupportedEncodingException {
+		return URLDecoder.decode( value, ENCODING );
+	}
+
+	private int builds = 0;
+
+	private final int idleTimeout;
+
+	private final int maxBuilds;
+
+	private ServerSocket serverSocket;
+
+	private String token;
+
+	/**
+	 * @param maxBuilds the number of builds after which the daemon exits, or 0 for no limit
+	 */
+	public AntDaemon( int idleTimeout, int maxBuilds ) {
+		this.idleTimeout = idleTimeout;
+		this.maxBuilds = maxBuilds;
+	}
+
+	/**
+	 * Runs the targets of a build file, sending the log of the build to the given writer.
+	 *
+	 * @return null if the build succeeded or the message of the failure
+	 */
+	public String runBuild( File buildFile, Vector<String> targets, Map<String, String> properties, Writer writer )
+		throws UnsupportedEncodingException {
+
+		Project project = new Project();
+
+		PrintStream out = new PrintStream( new LineOutputStream( writer, "out" ), true, ENCODING );
+		PrintStream err = new PrintStream( new LineOutputStream( writer, "err" ), true, ENCODING );
+
+		DefaultLogger logger = new DefaultLogger();
+
+		logger.setMessageOutputLevel( Project.MSG_INFO );
+		logger.setOutputPrintStream( out );
+		logger.setErrorPrintStream( err );
+		logger.setEmacsMode( false );
+
+		project.addBuildListener( logger );
+
+		PrintStream systemOut = System.out;
+		PrintStream systemErr = System.err;
+
+		// tasks that print to the console end up in the log of their project, as with the Ant command line
+		System.setOut( new PrintStream( new DemuxOutputStream( project, false ) ) );
+		System.setErr( new PrintStream( new DemuxOutputStream( project, true ) ) );
+
+		Throwable failure = null;
+
+		try {
+			project.fireBuildStarted();
+			project.init();
+
+			for ( Map.Entry<String, String> property : properties.entrySet() ) {
+				project.setUserProperty( property.getKey(), property.getValue() );
+			}
+
+			project.setUserProperty( "ant.file", buildFile.getAbsolutePath() );
+
+			ProjectHelper.configureProject( project, buildFile );
+
+			if ( targets.isEmpty() && project.getDefaultTarget() != null ) {
+				targets.add( project.getDefaultTarget() );
+			}
+
+			project.executeTargets( targets );
+		}
+		catch ( Throwable t ) {
+			failure = t;
+		}
+		finally {
+			System.out.flush();
+			System.err.flush();
+
+			System.setOut( systemOut );
+			System.setErr( systemErr );
+
+			project.fireBuildFinished( failure );
+
+			out.flush();
+			err.flush();
+		}
+
+		if ( failure == null ) {
+			return null;
+		}
+
+		return failure.getMessage() != null ? failure.getMessage() : failure.toString();
+	}
+
+	/**
+	 * Serves requests until the daemon has been idle for too long or is asked to shut down.
+	 */
+	public void serve() throws IOException {
+		try {
+			while ( true ) {
+				Socket socket = null;
+
+				try {
+					socket = serverSocket.accept();
+				}
+				catch ( SocketTimeoutException e ) {
+					return;
+				}
+
+				try {
+					if ( !handle( socket ) ) {
+						return;
+					}
+				}
+				catch ( IOException e ) {
+					// the IDE went away in the middle of a request, wait for the next one
+				}
+				finally {
+					socket.close();
+				}
+			}
+		}
+		finally {
+			serverSocket.close();
+		}
+	}
+
+	/**
+	 * Opens the port of the daemon and tells the IDE about it through the port file.
+	 */
+	public void start( File portFile ) throws IOException {
+		serverSocket = new ServerSocket( 0, 50, InetAddress.getByName( "127.0.0.1" ) );
+		serverSocket.setSoTimeout( idleTimeout );
+
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes( bytes );
+
+		StringBuffer buffer = new StringBuffer();
+
+		for ( byte b : bytes ) {
+			buffer.append( Integer.toHexString( ( b & 0xff ) | 0x100 ).substring( 1 ) );
+		}
+
+		token = buffer.toString();
+
+		// written next to the port file first, so the IDE never reads half of it
+		File tempFile = new File( portFile.getPath() + ".tmp" );
+		Writer writer = new OutputStreamWriter( new FileOutputStream( tempFile ), ENCODING );
+
+		try {
+			writer.write( serverSocket.getLocalPort() + " " + token + "\n" );
+		}
+		finally {
+			writer.close();
+		}
+
+		portFile.delete();
+
+		if ( !tempFile.renameTo( portFile ) ) {
+			throw new IOException( "Could not write " + portFile );
+		}
+	}
+
+	/**
+	 * @return false if the daemon was asked to shut down
+	 */
+	private boolean handle( Socket socket ) throws IOException {
+		BufferedReader reader = new BufferedReader( new InputStreamReader( socket.getInputStream(), ENCODING ) );
+		Writer writer = new OutputStreamWriter( socket.getOutputStream(), ENCODING );
+
+		if ( !token.equals( reader.readLine() ) ) {
+			return true;
+		}
+
+		File buildFile = null;
+		Vector<String> targets = new Vector<String>();
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+
+		for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+			StringTokenizer tokens = new StringTokenizer( line, " " );
+
+			if ( !tokens.hasMoreTokens() ) {
+				continue;
+			}
+
+			String command = tokens.nextToken();
+
+			if ( "shutdown".equals( command ) ) {
+				return false;
+			}
+			else if ( "build".equals( command ) ) {
+				buildFile = new File( decode( tokens.nextToken() ) );
+			}
+			else if ( "target".equals( command ) ) {
+				targets.add( decode( tokens.nextToken() ) );
+			}
+			else if ( "property".equals( command ) ) {
+				String name = decode( tokens.nextToken() );
+
+				properties.put( name, tokens.hasMoreTokens() ? decode( tokens.nextToken() ) : "" );
+			}
+			else if ( "run".equals( command ) ) {
+				String failure = null;
+
+				if ( buildFile == null ) {
+					failure = "No build file given";
+				}
+				else {
+					failure = runBuild( buildFile, targets, properties, writer );
+				}
+
+				builds++;
+
+				boolean recycle = isWornOut();
+
+				if ( recycle ) {
+					// no new request can reach this daemon once the IDE has the answer
+					serverSocket.close();
+				}
+
+				synchronized ( writer ) {
+					writer.write( failure == null ? "done ok\n" : "done failed " + failure.replace( '\n', ' ' ) + "\n" );
+					writer.flush();
+				}
+
+				return !recycle;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return true if the daemon has run its number of builds or a memory pool, like the permanent generation that
+	 *         holds the classes of the task definitions, is almost full
+	 */
+	private boolean isWornOut() {
+		if ( maxBuilds > 0 && builds >= maxBuilds ) {
+			return true;
+		}
+
+		for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+			// the heap is only full if it still is after a collection, other pools are not collected that way
+			MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : pool.getUsage();
+
+			if ( usage != null && usage.getMax() > 0 && usage.getUsed() > usage.getMax() * MEMORY_LIMIT ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Sends what is written to it to the IDE a line at a time, with the kind of the stream in front.
+	 */
+	private static class LineOutputStream extends OutputStream {
+
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		private final String prefix;
+
+		private final Writer writer;
+
+		LineOutputStream( Writer writer, String prefix ) {
+			this.writer = writer;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			if ( line.size() > 0 ) {
+				sendLine();
+			}
+		}
+
+		@Override
+		public synchronized void write( int b ) throws IOException {
+			if ( b == '\n' ) {
+				sendLine();
+			}
+			else if ( b != '\r' ) {
+				line.write( b );
+			}
+		}
+
+		private void sendLine() throws IOException {
+			String text = new String( line.toByteArray(), ENCODING );
+
+			line.reset();
+
+			synchronized ( writer ) {
+				writer.write( prefix + " " + text + "\n" );
+				writer.flush();
+			}
+		}
+	}
+
+}
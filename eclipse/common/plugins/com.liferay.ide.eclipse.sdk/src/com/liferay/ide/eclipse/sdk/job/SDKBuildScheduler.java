@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.sdk.job;
+
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
+import com.liferay.ide.eclipse.sdk.SDKPlugin;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Runs SDK builds in the background: one after the other for the same project, since they write to the same project
+ * folder, and in parallel for different projects, up to {@link ISDKConstants#BUILD_MAX_PARALLEL} builds or the number
+ * of processors if that is not set. A build that is requested again while the same build is still waiting is not
+ * queued twice; both requests get the same future. The next build of a project is only started once the one before
+ * it has returned. The scheduler never interrupts a build that has started; one that runs in the Ant daemon stops
+ * when the monitor it was given is canceled.
+ *
+ * @author Greg Amerson
+ */
+public class SDKBuildScheduler {
+
+	private static SDKBuildScheduler instance;
+
+	public static synchronized SDKBuildScheduler getInstance() {
+		if ( instance == null ) {
+			int maxParallel = ISDKConstants.BUILD_MAX_PARALLEL;
+
+			if ( maxParallel <= 0 ) {
+				maxParallel = Runtime.getRuntime().availableProcessors();
+			}
+
+			instance = new SDKBuildScheduler( maxParallel );
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Cancels the builds that have not started yet, the running ones are left to finish.
+	 */
+	public static synchronized void shutdown() {
+		if ( instance != null ) {
+			instance.cancelWaiting();
+			instance.executor.shutdown();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Waits for a build to finish, giving up if the monitor is canceled. Giving up only stops this wait: the build is
+	 * dropped only if it has not started yet and nobody else is waiting for it.
+	 */
+	public static IStatus waitFor( Future<IStatus> build, IProgressMonitor monitor ) {
+		while ( true ) {
+			if ( monitor != null && monitor.isCanceled() ) {
+				abandon( build );
+
+				return Status.CANCEL_STATUS;
+			}
+
+			try {
+				IStatus retval = build.get( 200, TimeUnit.MILLISECONDS );
+
+				return retval != null ? retval : Status.OK_STATUS;
+			}
+			catch ( TimeoutException e ) {
+				// check for cancel again
+			}
+			catch ( CancellationException e ) {
+				return Status.CANCEL_STATUS;
+			}
+			catch ( InterruptedException e ) {
+				abandon( build );
+
+				Thread.currentThread().interrupt();
+
+				return Status.CANCEL_STATUS;
+			}
+			catch ( ExecutionException e ) {
+				return SDKPlugin.createErrorStatus( e.getCause() );
+			}
+		}
+	}
+
+	private static void abandon( Future<IStatus> build ) {
+		if ( build instanceof Build ) {
+			( (Build) build ).abandon();
+		}
+	}
+
+	private final ExecutorService executor;
+
+	/**
+	 * Builds that have not started yet by their key.
+	 */
+	private final Map<String, Build> pending = new HashMap<String, Build>();
+
+	/**
+	 * Builds by project, the first one of a project is running or about to.
+	 */
+	private final Map<String, LinkedList<Build>> queues = new HashMap<String, LinkedList<Build>>();
+
+	protected SDKBuildScheduler( int maxParallel ) {
+		executor = Executors.newFixedThreadPool( maxParallel, new ThreadFactory() {
+
+			private int count = 0;
+
+			public synchronized Thread newThread( Runnable runnable ) {
+				Thread retval = new Thread( runnable, "Liferay SDK build " + ( ++count ) );
+
+				retval.setDaemon( true );
+
+				return retval;
+			}
+		} );
+	}
+
+	/**
+	 * Queues a build of a project.
+	 *
+	 * @param project the project the build writes to
+	 * @param key what the build does and with which input, for example the target and the file it is run for; a build
+	 *            with the same project and key that is still waiting is reused
+	 * @param build runs the build
+	 * @return the status of the build once it has run
+	 */
+	public synchronized Future<IStatus> schedule( IProject project, String key, Callable<IStatus> build ) {
+		String projectName = project.getName();
+		String buildKey = projectName + "|" + key;
+
+		Build retval = pending.get( buildKey );
+
+		if ( retval != null ) {
+			retval.waiters++;
+
+			return retval;
+		}
+
+		retval = new Build( projectName, buildKey, build );
+
+		pending.put( buildKey, retval );
+
+		LinkedList<Build> queue = queues.get( projectName );
+
+		if ( queue == null ) {
+			queue = new LinkedList<Build>();
+
+			queues.put( projectName, queue );
+		}
+
+		queue.add( retval );
+
+		if ( queue.size() == 1 ) {
+			executor.execute( retval );
+		}
+
+		return retval;
+	}
+
+	private synchronized void abandon( Build build ) {
+		if ( --build.waiters > 0 || build.started || build.isDone() ) {
+			return;
+		}
+
+		if ( pending.get( build.key ) == build ) {
+			pending.remove( build.key );
+		}
+
+		// the build never ran, so canceling it stops nothing that is under way
+		build.cancel( false );
+
+		LinkedList<Build> queue = queues.get( build.projectName );
+
+		// the first build of a project has been handed to the executor and leaves the queue once run() returns
+		if ( queue != null && queue.getFirst() != build ) {
+			queue.remove( build );
+		}
+	}
+
+	private synchronized void cancelWaiting() {
+		for ( LinkedList<Build> queue : queues.values() ) {
+			for ( Build build : queue ) {
+				if ( !build.started ) {
+					build.cancel( false );
+				}
+			}
+		}
+
+		pending.clear();
+	}
+
+	private synchronized void finished( Build build ) {
+		if ( pending.get( build.key ) == build ) {
+			pending.remove( build.key );
+		}
+
+		LinkedList<Build> queue = queues.get( build.projectName );
+
+		if ( queue == null ) {
+			return;
+		}
+
+		// only the first build of a project has been handed to the executor
+		boolean first = !queue.isEmpty() && queue.getFirst() == build;
+
+		queue.remove( build );
+
+		if ( queue.isEmpty() ) {
+			queues.remove( build.projectName );
+		}
+		else if ( first && !executor.isShutdown() ) {
+			executor.execute( queue.getFirst() );
+		}
+	}
+
+	private synchronized boolean started( Build build ) {
+		if ( build.isDone() ) {
+			return false;
+		}
+
+		build.started = true;
+
+		// from now on a new request has to build again, the input may have changed
+		if ( pending.get( build.key ) == build ) {
+			pending.remove( build.key );
+		}
+
+		return true;
+	}
+
+	private class Build extends FutureTask<IStatus> {
+
+		private final String key;
+
+		private final String projectName;
+
+		/**
+		 * Set once the build has been taken up by a thread, guarded by the scheduler.
+		 */
+		private boolean started = false;
+
+		/**
+		 * The callers that still wait for the build before it started, guarded by the scheduler.
+		 */
+		private int waiters = 1;
+
+		Build( String projectName, String key, Callable<IStatus> build ) {
+			super( build );
+
+			this.projectName = projectName;
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if ( started( this ) ) {
+					super.run();
+				}
+			}
+			finally {
+				// the next build of the project may only start once this one is really over
+				finished( this );
+			}
+		}
+
+		void abandon() {
+			SDKBuildScheduler.this.abandon( this );
+		}
+	}
+
+}
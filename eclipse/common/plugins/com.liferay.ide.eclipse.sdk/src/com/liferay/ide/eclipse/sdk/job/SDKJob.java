@@ -21,8 +21,12 @@ import com.liferay.ide.eclipse.sdk.util.SDKUtil;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.jobs.Job;
 
 /**
@@ -30,12 +34,78 @@ import org.eclipse.core.runtime.jobs.Job;
  */
 public abstract class SDKJob extends Job {
 
+	/**
+	 * Builds of several projects run at the same time, so auto building is turned off by the first one and restored by
+	 * the last one that is done.
+	 */
+	private static int autoBuildSuspensions = 0;
+
+	private static boolean saveAutoBuild;
+
+	/**
+	 * Restores auto building after {@link #suspendAutoBuild()} once no other build has it suspended.
+	 */
+	protected static synchronized void resumeAutoBuild()
+		throws CoreException {
+
+		if (--autoBuildSuspensions > 0) {
+			return;
+		}
+
+		IWorkspaceDescription desc = ResourcesPlugin.getWorkspace().getDescription();
+
+		desc.setAutoBuilding(saveAutoBuild);
+
+		ResourcesPlugin.getWorkspace().setDescription(desc);
+	}
+
+	/**
+	 * Turns auto building off while an SDK build writes to a project outside of the workspace lock, so the workspace
+	 * does not build the half written files. Every successful call has to be followed by {@link #resumeAutoBuild()}.
+	 */
+	protected static synchronized void suspendAutoBuild()
+		throws CoreException {
+
+		if (autoBuildSuspensions > 0) {
+			autoBuildSuspensions++;
+
+			return;
+		}
+
+		IWorkspaceDescription desc = ResourcesPlugin.getWorkspace().getDescription();
+
+		boolean autoBuilding = desc.isAutoBuilding();
+
+		desc.setAutoBuilding(false);
+
+		ResourcesPlugin.getWorkspace().setDescription(desc);
+
+		// only counted once auto building is off, a suspension that failed is not resumed
+		saveAutoBuild = autoBuilding;
+		autoBuildSuspensions = 1;
+	}
+
 	protected IProject project;
 
 	public SDKJob(String name) {
 		super(name);
 	}
 
+	/**
+	 * Turns the status of a build that did not succeed into an exception, a canceled build cancels the job.
+	 */
+	protected void assertStatus(IStatus status)
+		throws CoreException {
+
+		if (status.getSeverity() == IStatus.CANCEL) {
+			throw new OperationCanceledException();
+		}
+
+		if (status.getSeverity() == IStatus.ERROR) {
+			throw new CoreException(status);
+		}
+	}
+
 	protected IProject getProject() {
 		return this.project;
 	}
@@ -0,0 +1,573 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.sdk.util;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
+import com.liferay.ide.eclipse.sdk.SDK;
+import com.liferay.ide.eclipse.sdk.SDKPlugin;
+import com.liferay.ide.eclipse.sdk.ant.AntDaemon;
+import com.liferay.ide.eclipse.ui.util.LaunchHelper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.ant.core.AntCorePlugin;
+import org.eclipse.ant.core.AntCorePreferences;
+import org.eclipse.ant.core.IAntClasspathEntry;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IStreamsProxy;
+import org.eclipse.jdt.internal.debug.ui.classpath.ClasspathModel;
+import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
+import org.eclipse.jdt.launching.JavaRuntime;
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleManager;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * Runs the Ant targets of a Plugins SDK in a long lived {@link AntDaemon} instead of a new JVM per target. There is
+ * a daemon per SDK and set of VM arguments for every build that runs at the same time. A daemon is started on the
+ * first request and restarted when a build file in the root of the SDK or one of its Ant libraries changes, since
+ * tasks loaded from them may keep state between builds.
+ * The daemon stops by itself after {@link ISDKConstants#ANT_DAEMON_IDLE_TIMEOUT} milliseconds without a request, and
+ * after {@link ISDKConstants#ANT_DAEMON_MAX_BUILDS} builds or when it runs low on memory; the next request starts a
+ * new one.
+ * <p>
+ * The output of every build is shown in the console of the SDK and written to sdk.log in the state location, the same
+ * as for the Ant launches. The console is only brought to front when a build fails. A build that is canceled stops
+ * its daemon, since a running Ant build can not be interrupted otherwise.
+ *
+ * @author Greg Amerson
+ */
+@SuppressWarnings( "restriction" )
+public class SDKAntDaemon extends LaunchHelper {
+
+	private static final String DAEMON_FOLDER = "ant-daemon";
+
+	private static final Map<String, List<SDKAntDaemon>> daemons = new HashMap<String, List<SDKAntDaemon>>();
+
+	private static final Object logLock = new Object();
+
+	private static int runningBuilds = 0;
+
+	private static final int READ_TIMEOUT = 500;
+
+	private static final long START_TIMEOUT = 60000;
+
+	/**
+	 * Returns a daemon of an SDK for the given VM arguments that is not running a build, preferring one that is
+	 * already started. The daemon is reserved for the caller until it is given back with {@link #release()}.
+	 */
+	public static synchronized SDKAntDaemon acquire( SDK sdk, String vmArgs ) {
+		String key = sdk.getLocation().toOSString() + "|" + vmArgs;
+		List<SDKAntDaemon> pool = daemons.get( key );
+
+		if ( pool == null ) {
+			pool = new ArrayList<SDKAntDaemon>();
+
+			daemons.put( key, pool );
+		}
+
+		SDKAntDaemon retval = null;
+
+		for ( SDKAntDaemon daemon : pool ) {
+			if ( !daemon.busy && ( retval == null || ( daemon.isRunning() && !retval.isRunning() ) ) ) {
+				retval = daemon;
+			}
+		}
+
+		if ( retval == null ) {
+			// builds of several projects of the SDK run at the same time, each in a daemon of its own
+			retval = new SDKAntDaemon( sdk, vmArgs, key + "|" + pool.size() );
+
+			pool.add( retval );
+		}
+
+		retval.busy = true;
+
+		return retval;
+	}
+
+	/**
+	 * Stops the daemons of all SDKs.
+	 */
+	public static synchronized void stopAll() {
+		for ( List<SDKAntDaemon> pool : daemons.values() ) {
+			for ( SDKAntDaemon daemon : pool ) {
+				daemon.stop();
+			}
+		}
+
+		daemons.clear();
+	}
+
+	private boolean busy = false;
+
+	private final String key;
+
+	private ILaunch launch;
+
+	private int port;
+
+	private final SDK sdk;
+
+	private Map<String, String> stamp;
+
+	private String token;
+
+	private final String vmArgs;
+
+	protected SDKAntDaemon( SDK sdk, String vmArgs, String key ) {
+		super( IJavaLaunchConfigurationConstants.ID_JAVA_APPLICATION );
+
+		this.sdk = sdk;
+		this.vmArgs = vmArgs;
+		this.key = key;
+
+		setMainClass( AntDaemon.class.getName() );
+		setLaunchSync( false );
+		setLaunchCaptureInConsole( false );
+		setLaunchInBackground( true );
+		setLaunchIsPrivate( true );
+	}
+
+	/**
+	 * Gives the daemon back after {@link #acquire(SDK, String)}.
+	 */
+	public void release() {
+		synchronized ( SDKAntDaemon.class ) {
+			busy = false;
+		}
+	}
+
+	public synchronized boolean isRunning() {
+		return launch != null && !launch.isTerminated();
+	}
+
+	/**
+	 * Runs targets of a build file in the daemon, starting the daemon if needed.
+	 *
+	 * @param targets the targets, separated by commas
+	 * @param monitor checked for cancel while the build runs, may be null
+	 * @return false if the daemon could not be started and the targets have to be run some other way
+	 * @throws CoreException if the build failed
+	 * @throws OperationCanceledException if the monitor was canceled, the daemon has been stopped then
+	 */
+	public synchronized boolean runTarget(
+		IPath buildFile, String targets, Map<String, String> properties, IProgressMonitor monitor )
+		throws CoreException {
+
+		if ( isRunning() && !getStamp().equals( stamp ) ) {
+			stop();
+		}
+
+		for ( int attempt = 0; attempt < 2; attempt++ ) {
+			if ( !isRunning() ) {
+				try {
+					start();
+				}
+				catch ( Exception e ) {
+					SDKPlugin.logError( e );
+
+					stop();
+
+					return false;
+				}
+			}
+
+			Socket socket = null;
+
+			try {
+				socket = new Socket( InetAddress.getByName( "127.0.0.1" ), port );
+			}
+			catch ( IOException e ) {
+				// the daemon went idle just now, start a new one
+				stop();
+
+				continue;
+			}
+
+			try {
+				run( socket, buildFile, targets, properties, monitor );
+			}
+			finally {
+				try {
+					socket.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	public synchronized void stop() {
+		if ( launch != null && !launch.isTerminated() ) {
+			try {
+				launch.terminate();
+			}
+			catch ( CoreException e ) {
+				SDKPlugin.logError( e );
+			}
+		}
+
+		launch = null;
+		stamp = null;
+	}
+
+	@Override
+	protected void addUserEntries( ClasspathModel model ) throws CoreException {
+		AntCorePreferences prefs = AntCorePlugin.getPlugin().getPreferences();
+
+		for ( IAntClasspathEntry entry : prefs.getAntHomeClasspathEntries() ) {
+			model.addEntry( ClasspathModel.USER, JavaRuntime.newStringVariableClasspathEntry( entry.getLabel() ) );
+		}
+
+		for ( IAntClasspathEntry entry : prefs.getAdditionalClasspathEntries() ) {
+			model.addEntry( ClasspathModel.USER, JavaRuntime.newStringVariableClasspathEntry( entry.getLabel() ) );
+		}
+
+		for ( IPath antLib : sdk.getAntLibraries() ) {
+			if ( antLib.toFile().exists() ) {
+				model.addEntry( ClasspathModel.USER, JavaRuntime.newArchiveRuntimeClasspathEntry( antLib ) );
+			}
+		}
+
+		model.addEntry( ClasspathModel.USER, JavaRuntime.newArchiveRuntimeClasspathEntry( getDaemonClasspath() ) );
+	}
+
+	@Override
+	protected String getNewLaunchConfigurationName() {
+		return sdk.getName() + " Ant daemon";
+	}
+
+	private void closeLog( Writer log ) throws IOException {
+		synchronized ( logLock ) {
+			runningBuilds--;
+
+			log.close();
+		}
+	}
+
+	private MessageConsole getConsole() {
+		String name = "Liferay Plugins SDK (" + sdk.getName() + ")";
+		IConsoleManager manager = ConsolePlugin.getDefault().getConsoleManager();
+
+		for ( IConsole console : manager.getConsoles() ) {
+			if ( console instanceof MessageConsole && name.equals( console.getName() ) ) {
+				return (MessageConsole) console;
+			}
+		}
+
+		MessageConsole retval = new MessageConsole( name, null );
+
+		manager.addConsoles( new IConsole[] { retval } );
+
+		return retval;
+	}
+
+	/**
+	 * The daemon class is loaded from this bundle, or from its output folder when running from a workspace.
+	 */
+	private IPath getDaemonClasspath() throws CoreException {
+		try {
+			File bundleFile = FileLocator.getBundleFile( SDKPlugin.getDefault().getBundle() );
+			File outputDir = new File( bundleFile, "bin" );
+
+			if ( bundleFile.isDirectory() && outputDir.isDirectory() ) {
+				bundleFile = outputDir;
+			}
+
+			return new Path( bundleFile.getAbsolutePath() );
+		}
+		catch ( IOException e ) {
+			throw new CoreException( SDKPlugin.createErrorStatus( e ) );
+		}
+	}
+
+	private File getPortFile() {
+		File daemonDir = SDKPlugin.getDefault().getStateLocation().append( DAEMON_FOLDER ).toFile();
+
+		daemonDir.mkdirs();
+
+		return new File( daemonDir, Integer.toHexString( key.hashCode() ) + ".port" );
+	}
+
+	/**
+	 * The size and time stamp of the files whose change makes the running daemon stale.
+	 */
+	private Map<String, String> getStamp() {
+		List<File> files = new ArrayList<File>();
+
+		File[] buildFiles = sdk.getLocation().toFile().listFiles( new FileFilter() {
+
+			public boolean accept( File file ) {
+				return file.isFile() && file.getName().endsWith( ".xml" );
+			}
+		} );
+
+		if ( buildFiles != null ) {
+			for ( File buildFile : buildFiles ) {
+				files.add( buildFile );
+			}
+		}
+
+		for ( IPath antLib : sdk.getAntLibraries() ) {
+			files.add( antLib.toFile() );
+		}
+
+		Map<String, String> retval = new TreeMap<String, String>();
+
+		for ( File file : files ) {
+			retval.put( file.getAbsolutePath(), file.length() + ":" + file.lastModified() );
+		}
+
+		return retval;
+	}
+
+	/**
+	 * The log is started over by a build unless other builds are still writing to it.
+	 */
+	private Writer openLog() throws IOException {
+		synchronized ( logLock ) {
+			File logFile = SDKPlugin.getDefault().getStateLocation().append( "sdk.log" ).toFile();
+			Writer retval = new FileWriter( logFile, runningBuilds > 0 );
+
+			runningBuilds++;
+
+			return retval;
+		}
+	}
+
+	private String readErrorOutput() {
+		IProcess[] processes = launch != null ? launch.getProcesses() : new IProcess[0];
+		IStreamsProxy streams = processes.length > 0 ? processes[0].getStreamsProxy() : null;
+
+		if ( streams == null ) {
+			return "";
+		}
+
+		return streams.getErrorStreamMonitor().getContents();
+	}
+
+	/**
+	 * Reads a line of the answer of the daemon, checking the monitor while the daemon is quiet.
+	 *
+	 * @return the line or null at the end of the answer
+	 */
+	private String readLine( InputStream in, IProgressMonitor monitor ) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		while ( true ) {
+			if ( monitor != null && monitor.isCanceled() ) {
+				throw new OperationCanceledException();
+			}
+
+			int b = 0;
+
+			try {
+				b = in.read();
+			}
+			catch ( SocketTimeoutException e ) {
+				// nothing has been read, check for cancel again
+				continue;
+			}
+
+			if ( b == -1 ) {
+				return line.size() > 0 ? line.toString( AntDaemon.ENCODING ) : null;
+			}
+
+			if ( b == '\n' ) {
+				return line.toString( AntDaemon.ENCODING );
+			}
+
+			line.write( b );
+		}
+	}
+
+	private void run(
+		Socket socket, IPath buildFile, String targets, Map<String, String> properties, IProgressMonitor monitor )
+		throws CoreException {
+
+		MessageConsole console = getConsole();
+		MessageConsoleStream consoleStream = console.newMessageStream();
+		Writer log = null;
+		String result = null;
+
+		try {
+			Writer writer = new OutputStreamWriter( socket.getOutputStream(), AntDaemon.ENCODING );
+
+			writer.write( token + "\n" );
+			writer.write( "build " + URLEncoder.encode( buildFile.toOSString(), AntDaemon.ENCODING ) + "\n" );
+
+			for ( String target : targets.split( "," ) ) {
+				if ( target.trim().length() > 0 ) {
+					writer.write( "target " + URLEncoder.encode( target.trim(), AntDaemon.ENCODING ) + "\n" );
+				}
+			}
+
+			if ( properties != null ) {
+				for ( String name : properties.keySet() ) {
+					String value = properties.get( name ) != null ? properties.get( name ) : "";
+
+					writer.write( "property " + URLEncoder.encode( name, AntDaemon.ENCODING ) + " " +
+						URLEncoder.encode( value, AntDaemon.ENCODING ) + "\n" );
+				}
+			}
+
+			writer.write( "run\n" );
+			writer.flush();
+
+			log = openLog();
+
+			consoleStream.println( "Buildfile: " + buildFile.toOSString() );
+
+			socket.setSoTimeout( READ_TIMEOUT );
+
+			InputStream in = new BufferedInputStream( socket.getInputStream() );
+
+			for ( String line = readLine( in, monitor ); line != null; line = readLine( in, monitor ) ) {
+				if ( line.startsWith( "done " ) ) {
+					result = line.substring( 5 );
+
+					break;
+				}
+
+				String text = line.length() > 4 ? line.substring( 4 ) : "";
+
+				consoleStream.println( text );
+
+				synchronized ( logLock ) {
+					log.write( text + "\n" );
+					log.flush();
+				}
+			}
+		}
+		catch ( OperationCanceledException e ) {
+			consoleStream.println( "Canceled " + targets );
+
+			stop();
+
+			throw e;
+		}
+		catch ( IOException e ) {
+			throw new CoreException( SDKPlugin.createErrorStatus( e ) );
+		}
+		finally {
+			try {
+				consoleStream.close();
+
+				if ( log != null ) {
+					closeLog( log );
+				}
+			}
+			catch ( IOException e ) {
+			}
+		}
+
+		if ( result == null ) {
+			stop();
+
+			throw new CoreException( SDKPlugin.createErrorStatus( "Ant daemon of " + sdk.getName() +
+				" exited while running " + targets ) );
+		}
+
+		if ( !result.equals( "ok" ) ) {
+			console.activate();
+
+			throw new CoreException( SDKPlugin.createErrorStatus( "Running " + targets + " of " +
+				buildFile.toOSString() + " failed: " + result.substring( result.indexOf( ' ' ) + 1 ) ) );
+		}
+	}
+
+	private void start() throws CoreException, IOException, InterruptedException {
+		File portFile = getPortFile();
+
+		portFile.delete();
+
+		Map<String, String> newStamp = getStamp();
+
+		setLaunchArgs( new String[] {
+			portFile.getAbsolutePath(), String.valueOf( ISDKConstants.ANT_DAEMON_IDLE_TIMEOUT ),
+			String.valueOf( ISDKConstants.ANT_DAEMON_MAX_BUILDS ) } );
+
+		ILaunchConfigurationWorkingCopy config = createLaunchConfiguration();
+
+		String antHome = AntCorePlugin.getPlugin().getPreferences().getAntHome();
+		String args = vmArgs;
+
+		if ( antHome != null ) {
+			args += " \"-Dant.home=" + antHome + "\"";
+		}
+
+		config.setAttribute( IJavaLaunchConfigurationConstants.ATTR_VM_ARGUMENTS, args );
+		config.setAttribute( IJavaLaunchConfigurationConstants.ATTR_WORKING_DIRECTORY, sdk.getLocation().toOSString() );
+
+		launch = config.launch( ILaunchManager.RUN_MODE, null );
+
+		long timeout = System.currentTimeMillis() + START_TIMEOUT;
+
+		while ( !portFile.exists() ) {
+			if ( launch.isTerminated() ) {
+				throw new IOException( "Ant daemon of " + sdk.getName() + " did not start: " + readErrorOutput() );
+			}
+
+			if ( System.currentTimeMillis() > timeout ) {
+				throw new IOException( "Ant daemon of " + sdk.getName() + " did not start within " +
+					( START_TIMEOUT / 1000 ) + " seconds" );
+			}
+
+			Thread.sleep( 100 );
+		}
+
+		String[] portAndToken = FileUtil.readContents( portFile ).trim().split( " " );
+
+		port = Integer.parseInt( portAndToken[0] );
+		token = portAndToken[1];
+		stamp = newStamp;
+	}
+
+}
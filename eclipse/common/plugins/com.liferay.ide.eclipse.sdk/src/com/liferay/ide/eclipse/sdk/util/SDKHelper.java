@@ -16,6 +16,7 @@
 package com.liferay.ide.eclipse.sdk.util;
 
 import com.liferay.ide.eclipse.core.util.CoreUtil;
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
 import com.liferay.ide.eclipse.sdk.SDK;
 import com.liferay.ide.eclipse.sdk.SDKClasspathProvider;
 import com.liferay.ide.eclipse.sdk.SDKPlugin;
@@ -27,6 +28,7 @@ import org.eclipse.ant.internal.ui.IAntUIConstants;
 import org.eclipse.ant.launching.IAntLaunchConstants;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
@@ -58,6 +60,8 @@ public class SDKHelper extends LaunchHelper {
 
 	private String[] additionalVMArgs;
 
+	private IProgressMonitor monitor;
+
 	public SDKHelper(SDK sdk) {
 		super(ANT_LAUNCH_CONFIG_TYPE_ID);
 
@@ -178,6 +182,20 @@ public class SDKHelper extends LaunchHelper {
 			throw new IllegalStateException("Existing launch in progress");
 		}
 
+		// a separate JRE is started once per SDK and kept warm for the next targets
+		if (separateJRE && ISDKConstants.ANT_DAEMON_ENABLED) {
+			SDKAntDaemon daemon = SDKAntDaemon.acquire(sdk, getVMArgumentsAttr());
+
+			try {
+				if (daemon.runTarget(buildFile, targets, properties, monitor)) {
+					return;
+				}
+			}
+			finally {
+				daemon.release();
+			}
+		}
+
 		this.currentBuildFile = buildFile;
 
 		this.currentTargets = targets;
@@ -203,6 +221,13 @@ public class SDKHelper extends LaunchHelper {
 		}
 	}
 
+	/**
+	 * The monitor a build run in the Ant daemon checks for cancel, may be null.
+	 */
+	public void setProgressMonitor( IProgressMonitor monitor ) {
+		this.monitor = monitor;
+	}
+
 	public void setVMArgs( String[] vmargs ) {
 		this.additionalVMArgs = vmargs;
 	}
@@ -1,6 +1,7 @@
 package com.liferay.ide.eclipse.hook.core.model.internal;
 
 import com.liferay.ide.eclipse.server.core.ILiferayRuntime;
+import com.liferay.ide.eclipse.server.util.PortalDescriptorFacts;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
 import java.util.Arrays;
@@ -36,9 +37,14 @@ public class PortalFilterNamesPossibleValuesService extends PossibleValuesServic
 			{
 				ILiferayRuntime liferayRuntime = ServerUtil.getLiferayRuntime( hookFile.getProject() );
 
-				String[] names = liferayRuntime.getServletFilterNames();
+				if ( liferayRuntime != null )
+				{
+					PortalDescriptorFacts facts = PortalDescriptorFacts.getFacts( liferayRuntime.getPortalDir() );
 
-				values.addAll( Arrays.asList( names ) );
+					String[] names = facts.getServletFilterNames();
+
+					values.addAll( Arrays.asList( names ) );
+				}
 			}
 			catch ( Exception e )
 			{
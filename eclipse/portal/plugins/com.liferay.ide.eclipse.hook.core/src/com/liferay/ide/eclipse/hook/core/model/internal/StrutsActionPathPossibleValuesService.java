@@ -22,21 +22,16 @@ import static com.liferay.ide.eclipse.core.util.CoreUtil.empty;
 import com.liferay.ide.eclipse.hook.core.model.IHook;
 import com.liferay.ide.eclipse.hook.core.model.IStrutsAction;
 import com.liferay.ide.eclipse.server.core.ILiferayRuntime;
+import com.liferay.ide.eclipse.server.util.PortalDescriptorFacts;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
-import java.io.File;
+import java.util.Arrays;
 import java.util.SortedSet;
-import java.util.TreeSet;
-
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.sapphire.services.PossibleValuesService;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 
 /**
@@ -45,48 +40,13 @@ import org.w3c.dom.NodeList;
 public class StrutsActionPathPossibleValuesService extends PossibleValuesService
 {
 	private IPath portalDir;
-	private TreeSet<String> possibleValues;
 
 	@Override
 	protected void fillPossibleValues( SortedSet<String> values )
 	{
 		if ( this.portalDir != null && this.portalDir.toFile().exists() )
 		{
-			if ( this.possibleValues == null )
-			{
-				this.possibleValues = new TreeSet<String>();
-				File strutsConfigFile = this.portalDir.append( "WEB-INF/struts-config.xml" ).toFile();
-
-				if ( strutsConfigFile.exists() )
-				{
-					try
-					{
-						Document doc =
-							DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( strutsConfigFile );
-						NodeList actions = doc.getElementsByTagName( "action" );
-
-						if ( actions != null )
-						{
-							for ( int i = 0; i < actions.getLength(); i++ )
-							{
-								Node action = actions.item( i );
-
-								Node path = action.getAttributes().getNamedItem( "path" );
-
-								if ( path != null )
-								{
-									possibleValues.add( path.getNodeValue() );
-								}
-							}
-						}
-					}
-					catch ( Exception e )
-					{
-					}
-				}
-			}
-
-			values.addAll( this.possibleValues );
+			values.addAll( Arrays.asList( PortalDescriptorFacts.getFacts( this.portalDir ).getStrutsActionPaths() ) );
 
 			// add the value that is current set by the user
 			String actionPath = context( IStrutsAction.class ).getStrutsActionPath().getContent( false );
@@ -49,6 +49,12 @@ public class PortletCore extends Plugin {
 
 		return job;
 	}
+
+	public static BuildServiceJob createBuildServiceJob(IFile file, boolean force) {
+		BuildServiceJob job = new BuildServiceJob(file, force);
+
+		return job;
+	}
 	
 	public static BuildWSDDJob createBuildWSDDJob(IFile file) {
 		BuildWSDDJob job = new BuildWSDDJob(file);
@@ -16,16 +16,20 @@
 package com.liferay.ide.eclipse.portlet.core.job;
 
 import com.liferay.ide.eclipse.portlet.core.PortletCore;
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
 import com.liferay.ide.eclipse.sdk.SDK;
+import com.liferay.ide.eclipse.sdk.job.SDKBuildScheduler;
 import com.liferay.ide.eclipse.sdk.job.SDKJob;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IWorkspaceDescription;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -49,25 +53,35 @@ public class BuildLanguageJob extends SDKJob {
 	}
 
 	@Override
-	protected IStatus run(IProgressMonitor monitor) {
+	protected IStatus run(final IProgressMonitor monitor) {
 		monitor.beginTask("Building languages...", 100);
 
-		IWorkspaceDescription desc = ResourcesPlugin.getWorkspace().getDescription();
+		try {
+			suspendAutoBuild();
+		}
+		catch (CoreException e1) {
+			return PortletCore.createErrorStatus(e1);
+		}
 
-		boolean saveAutoBuild = desc.isAutoBuilding();
+		try {
+			final SDK sdk = getSDK();
 
-		desc.setAutoBuilding(false);
+			final IProject project = getProject();
 
-		try {
-			ResourcesPlugin.getWorkspace().setDescription(desc);
+			monitor.worked(10);
 
-			SDK sdk = getSDK();
+			final Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
 
-			IProject project = getProject();
+			Future<IStatus> build =
+				SDKBuildScheduler.getInstance().schedule(
+					project, ISDKConstants.TARGET_BUILD_LANG + " " + langFile.getFullPath(), new Callable<IStatus>() {
 
-			monitor.worked(10);
+						public IStatus call() {
+							return sdk.buildLanguage( project, langFile, null, appServerProperties, monitor );
+						}
+					});
 
-			sdk.buildLanguage( project, langFile, null, ServerUtil.configureAppServerProperties( project ) );
+			assertStatus(SDKBuildScheduler.waitFor(build, monitor));
 
 			monitor.worked(90);
 
@@ -89,11 +103,8 @@ public class BuildLanguageJob extends SDKJob {
 			return PortletCore.createErrorStatus(e1);
 		}
 		finally {
-			desc = ResourcesPlugin.getWorkspace().getDescription();
-			desc.setAutoBuilding(saveAutoBuild);
-
 			try {
-				ResourcesPlugin.getWorkspace().setDescription(desc);
+				resumeAutoBuild();
 			}
 			catch (CoreException e1) {
 				return PortletCore.createErrorStatus(e1);
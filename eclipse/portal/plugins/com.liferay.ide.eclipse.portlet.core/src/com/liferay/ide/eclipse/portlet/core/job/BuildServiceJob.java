@@ -15,15 +15,30 @@
 
 package com.liferay.ide.eclipse.portlet.core.job;
 
+import com.liferay.ide.eclipse.core.util.CoreUtil;
 import com.liferay.ide.eclipse.portlet.core.PortletCore;
+import com.liferay.ide.eclipse.portlet.core.servicebuilder.ServiceBuilderFingerprint;
 import com.liferay.ide.eclipse.project.core.util.ProjectUtil;
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
 import com.liferay.ide.eclipse.sdk.SDK;
+import com.liferay.ide.eclipse.sdk.job.SDKBuildScheduler;
 import com.liferay.ide.eclipse.sdk.job.SDKJob;
+import com.liferay.ide.eclipse.server.core.ILiferayRuntime;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.MessageFormat;
-
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRunnable;
@@ -32,6 +47,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.core.ClasspathContainerInitializer;
 import org.eclipse.jdt.core.IClasspathEntry;
@@ -47,12 +63,29 @@ import org.eclipse.jst.j2ee.internal.common.classpath.J2EEComponentClasspathCont
 @SuppressWarnings("restriction")
 public class BuildServiceJob extends SDKJob {
 
+	protected boolean force;
+
+	/**
+	 * The files of the docroot the build wrote, null if they are not known and the whole project has to be refreshed.
+	 */
+	protected Set<String> generatedPaths;
+
 	protected IFile serviceXmlFile;
 
+	protected boolean upToDate;
+
 	public BuildServiceJob(IFile serviceXmlFile) {
+		this(serviceXmlFile, false);
+	}
+
+	/**
+	 * @param force whether to build even if nothing the build depends on has changed since the last build
+	 */
+	public BuildServiceJob(IFile serviceXmlFile, boolean force) {
 		super("Build services");
 
 		this.serviceXmlFile = serviceXmlFile;
+		this.force = force;
 		setUser(true);
 		setProject(serviceXmlFile.getProject());
 	}
@@ -76,22 +109,33 @@ public class BuildServiceJob extends SDKJob {
 		monitor.beginTask("Building Liferay services...", 100);
 
 		try {
+			// the build runs outside of the workspace lock so that builds of other projects can run at the same time,
+			// without auto building, which would compile the sources while the build still writes them
+			suspendAutoBuild();
+
+			try {
+				runBuildService(monitor);
+			}
+			finally {
+				resumeAutoBuild();
+			}
+
+			if (upToDate) {
+				return Status.OK_STATUS;
+			}
+
 			getWorkspace().run(new IWorkspaceRunnable() {
 
 				public void run(IProgressMonitor monitor)
 					throws CoreException {
 
-					runBuildService(monitor);
-
-					getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+					refreshGeneratedFiles(monitor);
 
 					ResourcesPlugin.getWorkspace().build(IncrementalProjectBuilder.INCREMENTAL_BUILD, monitor);
 
 					updateClasspath(project);
 				}
 			}, monitor);
-
-			getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
 		}
 		catch (CoreException e1) {
 			retval = PortletCore.createErrorStatus(e1);
@@ -100,8 +144,85 @@ public class BuildServiceJob extends SDKJob {
 		return retval == null || retval.isOK() ? Status.OK_STATUS : retval;
 	}
 
-	protected void runBuildService(IProgressMonitor monitor) throws CoreException {
-		SDK sdk = getSDK();
+	/**
+	 * Returns what the outcome of the build depends on besides the files of the plugin. The service builder templates
+	 * are part of portal-impl.jar and the build files of the SDK decide how the service builder is run.
+	 */
+	protected Map<String, String> getBuildEnvironment(SDK sdk, Map<String, String> appServerProperties)
+		throws CoreException {
+
+		Map<String, String> retval = new TreeMap<String, String>(appServerProperties);
+
+		retval.put("sdk.location", sdk.getLocation().toPortableString());
+		retval.put("sdk.version", sdk.getVersion());
+
+		ILiferayRuntime liferayRuntime = ServerUtil.getLiferayRuntime(getProject());
+
+		if (liferayRuntime != null) {
+			retval.put("portal.version", liferayRuntime.getPortalVersion());
+			retval.put(
+				"portal.impl", ServiceBuilderFingerprint.stamp(
+					liferayRuntime.getPortalDir().append("WEB-INF/lib/portal-impl.jar").toFile()));
+		}
+
+		File[] sdkFiles = sdk.getLocation().toFile().listFiles();
+
+		if (sdkFiles != null) {
+			for (File sdkFile : sdkFiles) {
+				if (sdkFile.isFile() && sdkFile.getName().endsWith(".xml")) {
+					retval.put("sdk." + sdkFile.getName(), ServiceBuilderFingerprint.stamp(sdkFile));
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	protected File getFingerprintFile() {
+		return PortletCore.getDefault().getStateLocation().append("service-builder").append(
+			getProject().getName() + ".properties").toFile();
+	}
+
+	/**
+	 * Refreshes the folders of the files the build wrote, or the whole project if those are not known.
+	 */
+	protected void refreshGeneratedFiles(IProgressMonitor monitor)
+		throws CoreException {
+
+		IFolder docroot = CoreUtil.getDocroot(getProject());
+
+		if (generatedPaths == null || docroot == null) {
+			getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+
+			return;
+		}
+
+		Map<IContainer, Integer> containers = new LinkedHashMap<IContainer, Integer>();
+
+		for (String path : generatedPaths) {
+			IContainer container = docroot.getFile(new Path(path)).getParent();
+			int depth = IResource.DEPTH_ONE;
+
+			// folders the build created are not known to the workspace yet
+			while (!container.exists() && container.getParent() != null) {
+				container = container.getParent();
+				depth = IResource.DEPTH_INFINITE;
+			}
+
+			Integer knownDepth = containers.get(container);
+
+			if (knownDepth == null || knownDepth < depth) {
+				containers.put(container, depth);
+			}
+		}
+
+		for (Map.Entry<IContainer, Integer> container : containers.entrySet()) {
+			container.getKey().refreshLocal(container.getValue(), monitor);
+		}
+	}
+
+	protected void runBuildService(final IProgressMonitor monitor) throws CoreException {
+		final SDK sdk = getSDK();
 
 		if (sdk == null) {
 			throw new CoreException(
@@ -110,7 +231,65 @@ public class BuildServiceJob extends SDKJob {
 
 		monitor.worked(50);
 
-		sdk.buildService( getProject(), serviceXmlFile, null, ServerUtil.configureAppServerProperties( project ) );
+		final Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
+
+		IFolder docroot = CoreUtil.getDocroot(getProject());
+
+		final ServiceBuilderFingerprint fingerprint =
+			docroot == null ? null : new ServiceBuilderFingerprint(
+				docroot.getLocation().toFile(), serviceXmlFile.getLocation().toFile(),
+				getBuildEnvironment(sdk, appServerProperties), getFingerprintFile());
+
+		upToDate = false;
+		generatedPaths = null;
+
+		// the fingerprint is checked and recorded in the build, where no other build of the project can run
+		Future<IStatus> build =
+			SDKBuildScheduler.getInstance().schedule(
+				getProject(),
+				ISDKConstants.TARGET_BUILD_SERVICE + " " + serviceXmlFile.getFullPath() + (force ? " force" : ""),
+				new Callable<IStatus>() {
+
+					public IStatus call() {
+						if (fingerprint == null) {
+							return sdk.buildService( getProject(), serviceXmlFile, null, appServerProperties, monitor );
+						}
+
+						try {
+							if (!force && fingerprint.isUpToDate()) {
+								upToDate = true;
+
+								return Status.OK_STATUS;
+							}
+						}
+						catch (IOException e) {
+							PortletCore.logError("Could not check the last service build of " + getProject().getName(), e);
+						}
+
+						fingerprint.buildStarted();
+
+						IStatus status =
+							sdk.buildService( getProject(), serviceXmlFile, null, appServerProperties, monitor );
+
+						if (status == null || status.getSeverity() < IStatus.ERROR) {
+							try {
+								generatedPaths = fingerprint.buildFinished();
+							}
+							catch (IOException e) {
+								PortletCore.logError("Could not record the service build of " + getProject().getName(), e);
+
+								fingerprint.clear();
+							}
+						}
+						else {
+							fingerprint.clear();
+						}
+
+						return status;
+					}
+				});
+
+		assertStatus(SDKBuildScheduler.waitFor(build, monitor));
 
 		monitor.worked(90);
 	}
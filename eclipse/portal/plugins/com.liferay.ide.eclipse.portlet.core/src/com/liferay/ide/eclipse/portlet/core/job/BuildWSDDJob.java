@@ -16,11 +16,15 @@
 package com.liferay.ide.eclipse.portlet.core.job;
 
 import com.liferay.ide.eclipse.portlet.core.PortletCore;
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
 import com.liferay.ide.eclipse.sdk.SDK;
+import com.liferay.ide.eclipse.sdk.job.SDKBuildScheduler;
 import com.liferay.ide.eclipse.sdk.job.SDKJob;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -51,26 +55,46 @@ public class BuildWSDDJob extends SDKJob {
 	}
 
 	@Override
-	protected IStatus run(IProgressMonitor monitor) {
+	protected IStatus run(final IProgressMonitor monitor) {
 		IStatus retval = null;
 
 		monitor.beginTask("Building Liferay web services deployment descriptor...", 100);
 
 		try {
-			getWorkspace().run(new IWorkspaceRunnable() {
+			final SDK sdk = getSDK();
 
-				public void run(IProgressMonitor monitor)
-					throws CoreException {
+			monitor.worked(10);
+
+			final Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
+
+			// the build runs outside of the workspace lock so that builds of other projects can run at the same time,
+			// without auto building, which would compile the sources while the build still writes them
+			suspendAutoBuild();
 
-					SDK sdk = getSDK();
+			try {
+				Future<IStatus> build =
+					SDKBuildScheduler.getInstance().schedule(
+						getProject(), ISDKConstants.TARGET_BUILD_WSDD + " " + serviceXmlFile.getFullPath(),
+						new Callable<IStatus>() {
 
-					monitor.worked(10);
+							public IStatus call() {
+								return sdk.buildWSDD(
+									getProject(), serviceXmlFile, null, appServerProperties, monitor );
+							}
+						});
 
-					Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
+				assertStatus(SDKBuildScheduler.waitFor(build, monitor));
+			}
+			finally {
+				resumeAutoBuild();
+			}
 
-					sdk.buildWSDD( getProject(), serviceXmlFile, null, appServerProperties );
+			monitor.worked(90);
 
-					monitor.worked(90);
+			getWorkspace().run(new IWorkspaceRunnable() {
+
+				public void run(IProgressMonitor monitor)
+					throws CoreException {
 
 					final IProject project = getProject();
 
@@ -26,6 +26,7 @@ import com.liferay.ide.eclipse.server.util.ServerUtil;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
 
@@ -152,7 +153,7 @@ public class NewPortletClassDataModelProvider extends NewWebClassDataModelProvid
 				try {
 					ILiferayRuntime portalRuntime = getLiferayRuntime();
 
-					categories = portalRuntime.getPortletCategories();
+					categories = portalRuntime.getPortletCategories(Locale.getDefault());
 				}
 				catch (Exception e) {
 					e.printStackTrace();
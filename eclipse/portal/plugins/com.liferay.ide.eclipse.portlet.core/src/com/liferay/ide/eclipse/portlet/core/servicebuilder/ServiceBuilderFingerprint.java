@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.portlet.core.servicebuilder;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Remembers what the last successful service build of a plugin was run with and what it wrote, so a build whose
+ * inputs have not changed since can be skipped and the files of a build that did run can be refreshed without
+ * refreshing the whole project.
+ * <p>
+ * The inputs are the service.xml, the custom SQL of the plugin, the <code>*Impl.java</code> classes of its impl
+ * packages, which the service builder reads the methods of the service interfaces from, and the environment of the
+ * build such as the SDK and portal versions. Files are compared by checksum, which is only computed again when the
+ * size or modification time of a file changed. The inputs are recorded after the build, since the service builder
+ * writes some of the impl classes itself.
+ * <p>
+ * The outputs are the files of the docroot that the build added, changed or removed, found by comparing the size
+ * and modification time of every docroot file before and after the build. A build whose outputs have been removed
+ * since is not up to date.
+ *
+ * @author Greg Amerson
+ */
+public class ServiceBuilderFingerprint {
+
+	private static final String CUSTOM_SQL_DIR = "WEB-INF/src/custom-sql/";
+
+	private static final String ENVIRONMENT_PREFIX = "env.";
+
+	private static final String IMPL_CLASS_SUFFIX = "Impl.java";
+
+	private static final String INPUT_PREFIX = "file.";
+
+	private static final String OUTPUT_PREFIX = "output.";
+
+	private static final String SERVICE_XML = "service.xml";
+
+	private static final String SOURCE_DIR = "WEB-INF/src/";
+
+	/**
+	 * Returns the size and modification time of a file, for inputs that are too big to checksum on every build.
+	 */
+	public static String stamp( File file ) {
+		return file.isFile() ? file.length() + ":" + file.lastModified() : "missing";
+	}
+
+	private static String getChecksum( String entry ) {
+		return entry == null ? null : entry.substring( entry.lastIndexOf( ':' ) + 1 );
+	}
+
+	private Map<String, String> before;
+
+	private final File docroot;
+
+	private final Map<String, String> environment;
+
+	private final File serviceXml;
+
+	private final File stateFile;
+
+	/**
+	 * @param docroot the docroot of the plugin
+	 * @param serviceXml the service.xml the build is run for
+	 * @param environment what else the outcome of the build depends on, like the SDK and portal versions
+	 * @param stateFile the file the fingerprint of the last build is kept in
+	 */
+	public ServiceBuilderFingerprint(
+		File docroot, File serviceXml, Map<String, String> environment, File stateFile ) {
+
+		this.docroot = docroot;
+		this.serviceXml = serviceXml;
+		this.environment = environment;
+		this.stateFile = stateFile;
+	}
+
+	/**
+	 * Records the inputs and outputs of a build that succeeded.
+	 *
+	 * @return the paths of the files the build added, changed or removed, relative to the docroot
+	 */
+	public Set<String> buildFinished() throws IOException {
+		Map<String, String> after = snapshotDocroot();
+
+		Set<String> retval = new TreeSet<String>();
+
+		for ( Map.Entry<String, String> file : after.entrySet() ) {
+			if ( before == null || !file.getValue().equals( before.get( file.getKey() ) ) ) {
+				retval.add( file.getKey() );
+			}
+		}
+
+		if ( before != null ) {
+			for ( String path : before.keySet() ) {
+				if ( !after.containsKey( path ) ) {
+					retval.add( path );
+				}
+			}
+		}
+
+		Properties previous = load();
+
+		Map<String, String> state = new TreeMap<String, String>( getInputs( previous ) );
+
+		// outputs of earlier builds that this one left alone are still outputs
+		for ( Object key : previous.keySet() ) {
+			String name = key.toString();
+
+			if ( name.startsWith( OUTPUT_PREFIX ) && after.containsKey( name.substring( OUTPUT_PREFIX.length() ) ) ) {
+				state.put( name, "" );
+			}
+		}
+
+		for ( String path : retval ) {
+			if ( after.containsKey( path ) ) {
+				state.put( OUTPUT_PREFIX + path, "" );
+			}
+		}
+
+		store( state );
+
+		before = null;
+
+		return retval;
+	}
+
+	/**
+	 * Records the state of the docroot before the build.
+	 */
+	public void buildStarted() {
+		before = snapshotDocroot();
+	}
+
+	/**
+	 * Forgets the last build, so the next one is not skipped.
+	 */
+	public void clear() {
+		stateFile.delete();
+	}
+
+	/**
+	 * Returns whether the inputs are the same as for the last successful build and its outputs are still there.
+	 */
+	public boolean isUpToDate() throws IOException {
+		Properties previous = load();
+
+		if ( previous.isEmpty() ) {
+			return false;
+		}
+
+		Map<String, String> inputs = getInputs( previous );
+		int recordedInputs = 0;
+
+		for ( Object key : previous.keySet() ) {
+			String name = key.toString();
+
+			if ( name.startsWith( OUTPUT_PREFIX ) ) {
+				if ( !new File( docroot, name.substring( OUTPUT_PREFIX.length() ) ).exists() ) {
+					return false;
+				}
+
+				continue;
+			}
+
+			recordedInputs++;
+
+			String value = previous.getProperty( name );
+
+			if ( name.startsWith( INPUT_PREFIX ) ) {
+				if ( !getChecksum( value ).equals( getChecksum( inputs.get( name ) ) ) ) {
+					return false;
+				}
+			}
+			else if ( !value.equals( inputs.get( name ) ) ) {
+				return false;
+			}
+		}
+
+		return recordedInputs == inputs.size();
+	}
+
+	private void addInput( String name, File file, Properties previous, Map<String, String> inputs )
+		throws IOException {
+
+		String stamp = stamp( file ) + ":";
+		String entry = previous.getProperty( INPUT_PREFIX + name );
+
+		if ( entry == null || !entry.startsWith( stamp ) ) {
+			entry = stamp + FileUtil.checksum( file );
+		}
+
+		inputs.put( INPUT_PREFIX + name, entry );
+	}
+
+	private void addInputs(
+		File dir, String path, boolean implClassesOnly, Properties previous, Map<String, String> inputs )
+		throws IOException {
+
+		File[] files = dir.listFiles();
+
+		if ( files == null ) {
+			return;
+		}
+
+		for ( File file : files ) {
+			if ( file.isDirectory() ) {
+				addInputs( file, path + file.getName() + "/", implClassesOnly, previous, inputs );
+			}
+			else if ( !implClassesOnly ||
+				( path.endsWith( "/impl/" ) && file.getName().endsWith( IMPL_CLASS_SUFFIX ) ) ) {
+
+				addInput( path + file.getName(), file, previous, inputs );
+			}
+		}
+	}
+
+	private Map<String, String> getInputs( Properties previous ) throws IOException {
+		Map<String, String> retval = new HashMap<String, String>();
+
+		for ( Map.Entry<String, String> entry : environment.entrySet() ) {
+			retval.put( ENVIRONMENT_PREFIX + entry.getKey(), String.valueOf( entry.getValue() ) );
+		}
+
+		if ( serviceXml.isFile() ) {
+			addInput( SERVICE_XML, serviceXml, previous, retval );
+		}
+
+		addInputs( new File( docroot, CUSTOM_SQL_DIR ), CUSTOM_SQL_DIR, false, previous, retval );
+
+		File sourceDir = new File( docroot, SOURCE_DIR );
+		File[] packages = sourceDir.listFiles();
+
+		if ( packages != null ) {
+			for ( File file : packages ) {
+				// custom SQL was added completely above
+				if ( file.isDirectory() && !( SOURCE_DIR + file.getName() + "/" ).equals( CUSTOM_SQL_DIR ) ) {
+					addInputs( file, SOURCE_DIR + file.getName() + "/", true, previous, retval );
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private Properties load() {
+		Properties retval = new Properties();
+
+		if ( stateFile.exists() ) {
+			InputStream in = null;
+
+			try {
+				in = new FileInputStream( stateFile );
+				retval.load( in );
+			}
+			catch ( IOException e ) {
+				// without a record the next build runs
+				retval.clear();
+			}
+			finally {
+				if ( in != null ) {
+					try {
+						in.close();
+					}
+					catch ( IOException e ) {
+					}
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private Map<String, String> snapshotDocroot() {
+		Map<String, String> retval = new HashMap<String, String>();
+
+		snapshotDocroot( docroot, "", retval );
+
+		return retval;
+	}
+
+	private void snapshotDocroot( File dir, String path, Map<String, String> snapshot ) {
+		File[] files = dir.listFiles();
+
+		if ( files == null ) {
+			return;
+		}
+
+		for ( File file : files ) {
+			if ( file.isDirectory() ) {
+				snapshotDocroot( file, path + file.getName() + "/", snapshot );
+			}
+			else {
+				snapshot.put( path + file.getName(), stamp( file ) );
+			}
+		}
+	}
+
+	private void store( Map<String, String> state ) throws IOException {
+		Properties properties = new Properties();
+		properties.putAll( state );
+
+		stateFile.getParentFile().mkdirs();
+
+		File tempFile = new File( stateFile.getParentFile(), stateFile.getName() + ".tmp" );
+		OutputStream out = new FileOutputStream( tempFile );
+
+		try {
+			properties.store( out, "Inputs and outputs of the last service build of " + serviceXml );
+		}
+		finally {
+			out.close();
+		}
+
+		if ( !tempFile.renameTo( stateFile ) ) {
+			stateFile.delete();
+
+			if ( !tempFile.renameTo( stateFile ) ) {
+				throw new IOException( "Could not write " + stateFile );
+			}
+		}
+	}
+
+}
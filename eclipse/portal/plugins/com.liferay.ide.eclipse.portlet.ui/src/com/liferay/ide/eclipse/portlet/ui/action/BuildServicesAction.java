@@ -38,6 +38,14 @@ public class BuildServicesAction extends AbstractObjectAction
 		super();
 	}
 
+	/**
+	 * Returns whether services are built even if nothing they are built from has changed since the last build.
+	 */
+	protected boolean isForce()
+	{
+		return false;
+	}
+
 	public void run( IAction action )
 	{
 		if ( fSelection instanceof IStructuredSelection )
@@ -70,7 +78,7 @@ public class BuildServicesAction extends AbstractObjectAction
 
 			if ( servicesFile != null && servicesFile.exists() )
 			{
-				BuildServiceJob job = PortletCore.createBuildServiceJob( servicesFile );
+				BuildServiceJob job = PortletCore.createBuildServiceJob( servicesFile, isForce() );
 
 				job.schedule();
 			}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.core.support;
+
+import com.liferay.portal.deploy.hot.HookHotDeployListener;
+import com.liferay.portal.kernel.util.ReleaseInfo;
+
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Writes every portal fact the IDE asks for as one properties file, so they can all be read in a single run.
+ *
+ * @author Greg Amerson
+ */
+public class GetPortalMetadata extends PortalSupport {
+
+	@Override
+	void writeOutput(FileWriter writer)
+		throws IOException {
+
+		writeProperty(writer, "version", ReleaseInfo.getVersion());
+		writeProperty(writer, "server.info", ReleaseInfo.getServerInfo());
+
+		StringBuffer hookProperties = new StringBuffer();
+
+		for (String supportedProperty : HookHotDeployListener.SUPPORTED_PROPERTIES) {
+			if (hookProperties.length() > 0) {
+				hookProperties.append(',');
+			}
+
+			hookProperties.append(supportedProperty);
+		}
+
+		writeProperty(writer, "hook.properties", hookProperties.toString());
+	}
+
+	private void writeProperty(FileWriter writer, String key, String value)
+		throws IOException {
+
+		writer.write(key);
+		writer.write('=');
+		writer.write(value.replace("\\", "\\\\"));
+		writer.write('\n');
+	}
+
+}
@@ -15,6 +15,7 @@
 
 package com.liferay.ide.eclipse.server.core;
 
+import java.util.Locale;
 import java.util.Properties;
 
 import org.eclipse.core.runtime.IPath;
@@ -44,6 +45,8 @@ public interface ILiferayRuntime extends IJavaRuntime {
 
 	Properties getPortletCategories();
 
+	Properties getPortletCategories( Locale locale );
+
 	IRuntime getRuntime();
 
 	IPath getRuntimeLocation();
@@ -1,5 +1,6 @@
 package com.liferay.ide.eclipse.server.core;
 
+import java.util.Locale;
 import java.util.Properties;
 
 import org.eclipse.core.runtime.CoreException;
@@ -77,6 +78,10 @@ public class LiferayRuntimeStubDelegate extends RuntimeDelegate implements ILife
 		return getLiferayRuntime().getPortletCategories();
 	}
 
+	public Properties getPortletCategories( Locale locale ) {
+		return getLiferayRuntime().getPortletCategories( locale );
+	}
+
 	public IPath getRuntimeLocation() {
 		return getRuntime().getLocation();
 	}
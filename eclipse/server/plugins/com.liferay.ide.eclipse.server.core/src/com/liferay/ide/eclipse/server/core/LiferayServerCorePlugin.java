@@ -20,12 +20,16 @@ import com.liferay.ide.eclipse.core.util.CoreUtil;
 import com.liferay.ide.eclipse.server.remote.IRemoteConnection;
 import com.liferay.ide.eclipse.server.remote.IRemoteServer;
 import com.liferay.ide.eclipse.server.remote.RemoteConnection;
+import com.liferay.ide.eclipse.server.remote.RemoteConnectionMonitor;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.management.ObjectName;
+
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
@@ -142,6 +146,7 @@ public class LiferayServerCorePlugin extends CorePlugin {
 						IRemoteConnection service = connections.get( server.getId() );
 
 						if ( service != null ) {
+							service.dispose();
 							service = null;
 							connections.put( server.getId(), null );
 						}
@@ -307,6 +312,13 @@ public class LiferayServerCorePlugin extends CorePlugin {
 
 		plugin = this;
 
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+				new RemoteConnectionMonitor(), new ObjectName( RemoteConnectionMonitor.OBJECT_NAME ) );
+		}
+		catch ( Exception e ) {
+			logError( "Could not register remote connection monitor.", e );
+		}
 	}
 
 	/*
@@ -315,6 +327,23 @@ public class LiferayServerCorePlugin extends CorePlugin {
 	 */
 	public void stop(BundleContext context)
 		throws Exception {
+		if ( connections != null ) {
+			for ( IRemoteConnection connection : connections.values() ) {
+				if ( connection != null ) {
+					connection.dispose();
+				}
+			}
+
+			connections.clear();
+		}
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+				new ObjectName( RemoteConnectionMonitor.OBJECT_NAME ) );
+		}
+		catch ( Exception e ) {
+		}
+
 		plugin = null;
 
 		super.stop(context);
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.server.util.PartialArchiveWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.httpclient.methods.multipart.PartBase;
+import org.apache.commons.httpclient.util.EncodingUtil;
+
+/**
+ * Multipart part whose content is a partial archive written directly into the request body. The length is unknown up
+ * front so the request is sent with chunked transfer encoding and no temp file is needed.
+ * 
+ * @author Greg Amerson
+ */
+public class ArchiveStreamPart extends PartBase {
+
+	private final String fileName;
+	private final PartialArchiveWriter writer;
+
+	public ArchiveStreamPart( String name, String fileName, PartialArchiveWriter writer ) {
+		super( name, "application/octet-stream", null, "binary" );
+
+		this.fileName = fileName;
+		this.writer = writer;
+	}
+
+	@Override
+	protected long lengthOfData() throws IOException {
+		return -1;
+	}
+
+	@Override
+	protected void sendData( OutputStream out ) throws IOException {
+		writer.write( out );
+	}
+
+	@Override
+	protected void sendDispositionHeader( OutputStream out ) throws IOException {
+		super.sendDispositionHeader( out );
+
+		out.write( EncodingUtil.getAsciiBytes( "; filename=\"" + fileName + "\"" ) );
+	}
+
+}
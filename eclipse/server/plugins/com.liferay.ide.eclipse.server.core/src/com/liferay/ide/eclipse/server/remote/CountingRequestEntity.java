@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * Counts the bytes written by the wrapped request entity.
+ * 
+ * @author Greg Amerson
+ */
+public class CountingRequestEntity implements RequestEntity {
+
+	private long count = 0;
+	private final RequestEntity entity;
+
+	public CountingRequestEntity( RequestEntity entity ) {
+		this.entity = entity;
+	}
+
+	public long getContentLength() {
+		return entity.getContentLength();
+	}
+
+	public String getContentType() {
+		return entity.getContentType();
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public boolean isRepeatable() {
+		return entity.isRepeatable();
+	}
+
+	public void writeRequest( OutputStream out ) throws IOException {
+		entity.writeRequest( new FilterOutputStream( out ) {
+
+			@Override
+			public void write( byte[] b, int off, int len ) throws IOException {
+				out.write( b, off, len );
+				count += len;
+			}
+
+			@Override
+			public void write( int b ) throws IOException {
+				out.write( b );
+				count++;
+			}
+		} );
+	}
+
+}
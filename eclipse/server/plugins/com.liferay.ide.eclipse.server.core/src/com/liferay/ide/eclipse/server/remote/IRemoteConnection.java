@@ -15,7 +15,10 @@
 
 package com.liferay.ide.eclipse.server.remote;
 
+import com.liferay.ide.eclipse.server.util.PartialArchiveWriter;
+
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -24,10 +27,25 @@ import org.eclipse.core.runtime.IProgressMonitor;
  */
 public interface IRemoteConnection {
 
+	void dispose();
+
 	int getDebugPort();
 
+	/**
+	 * Returns the path to content hash manifest of the plugin as it was last uploaded, or null if the plugin is not
+	 * installed or the server manager does not support manifests.
+	 */
+	Map<String, String> getDeployedManifest( String appName );
+
 	List<String> getLiferayPlugins();
 
+	/**
+	 * Returns the installed/started state of every plugin on the server in a single request. Server manager versions
+	 * that do not support the bulk query fall back to one request per name in <code>appNames</code> (or per installed
+	 * plugin if <code>appNames</code> is null).
+	 */
+	Map<String, RemotePluginState> getLiferayPluginStates( List<String> appNames );
+
 	String getManagerURI();
 
 	String getPassword();
@@ -58,4 +76,6 @@ public interface IRemoteConnection {
 
 	Object updateApplication( String appName, String absolutePath, IProgressMonitor monitor );
 
+	Object updateApplication( String appName, PartialArchiveWriter partialArchive, IProgressMonitor monitor );
+
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fixed size byte buffer between a log reader thread and the console. When the console falls behind the oldest bytes
+ * are dropped, so a chatty server can never grow the buffer beyond its capacity.
+ * 
+ * @author Greg Amerson
+ */
+public class LogRingBuffer {
+
+	private final byte[] buffer;
+	private boolean closed = false;
+	private long dropped = 0;
+	private int head = 0;
+	private int size = 0;
+
+	public LogRingBuffer( int capacity ) {
+		this.buffer = new byte[capacity];
+	}
+
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	public synchronized long getDroppedBytes() {
+		return dropped;
+	}
+
+	public InputStream getInputStream() {
+		return new InputStream() {
+
+			@Override
+			public int available() {
+				synchronized( LogRingBuffer.this ) {
+					return size;
+				}
+			}
+
+			@Override
+			public void close() {
+				LogRingBuffer.this.close();
+			}
+
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+
+				return read( b, 0, 1 ) == -1 ? -1 : ( b[0] & 0xff );
+			}
+
+			@Override
+			public int read( byte[] b, int off, int len ) throws IOException {
+				return LogRingBuffer.this.read( b, off, len );
+			}
+		};
+	}
+
+	public synchronized void write( byte[] b, int off, int len ) {
+		if ( closed ) {
+			return;
+		}
+
+		if ( len > buffer.length ) {
+			dropped += len - buffer.length;
+			off += len - buffer.length;
+			len = buffer.length;
+		}
+
+		int overflow = size + len - buffer.length;
+
+		if ( overflow > 0 ) {
+			head = ( head + overflow ) % buffer.length;
+			size -= overflow;
+			dropped += overflow;
+		}
+
+		int tail = ( head + size ) % buffer.length;
+		int first = Math.min( len, buffer.length - tail );
+
+		System.arraycopy( b, off, buffer, tail, first );
+		System.arraycopy( b, off + first, buffer, 0, len - first );
+
+		size += len;
+
+		notifyAll();
+	}
+
+	protected synchronized int read( byte[] b, int off, int len ) throws IOException {
+		while ( size == 0 && !closed ) {
+			try {
+				wait();
+			}
+			catch ( InterruptedException e ) {
+				return -1;
+			}
+		}
+
+		if ( size == 0 ) {
+			return -1;
+		}
+
+		int count = Math.min( len, size );
+		int first = Math.min( count, buffer.length - head );
+
+		System.arraycopy( buffer, head, b, off, first );
+		System.arraycopy( buffer, 0, b, off + first, count - first );
+
+		head = ( head + count ) % buffer.length;
+		size -= count;
+
+		return count;
+	}
+
+}
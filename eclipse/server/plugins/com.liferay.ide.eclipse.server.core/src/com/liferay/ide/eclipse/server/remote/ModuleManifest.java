@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.core.ILiferayConstants;
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+import com.liferay.ide.eclipse.server.util.ResourceHashCache;
+import com.liferay.ide.eclipse.server.util.ServerUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+
+/**
+ * Path to content hash manifest of the resources of a module, used to compare a workspace module with what is deployed
+ * on a remote server. Hashes are cached per module in the plugin state location by (path, size, last modified).
+ * <p>
+ * The deployed plugin also holds files the module never had, such as the libraries and tag library descriptors the
+ * deployer adds. So that those are left alone, the paths of every successful publish are recorded per server as well
+ * and only a path recorded for the same server is ever removed from the deployed plugin.
+ * <p>
+ * The deployer also rewrites the descriptors of a plugin, so their deployed copies never match the module. They are
+ * left out of the comparison and checked against the hashes recorded at the last publish instead; a plugin whose
+ * descriptors changed has to be deployed in full.
+ * 
+ * @author Greg Amerson
+ */
+public class ModuleManifest {
+
+	private static final String[] DESCRIPTORS = {
+		"WEB-INF/web.xml", "WEB-INF/portlet.xml", "WEB-INF/" + ILiferayConstants.LIFERAY_PLUGIN_PACKAGE_PROPERTIES_FILE,
+		"WEB-INF/" + ILiferayConstants.LIFERAY_PLUGIN_PACKAGE_PROPERTIES_XML_FILE };
+
+	public static ModuleManifest create( IServer server, IModule module, IModuleResource[] resources )
+		throws IOException {
+
+		File cacheFile = getStateLocation().append( module.getName() + ".properties" ).toFile();
+
+		ResourceHashCache cache = new ResourceHashCache( cacheFile );
+
+		ModuleManifest manifest = new ModuleManifest( getPublishedFile( server, module ) );
+		manifest.addResources( resources, cache );
+
+		cache.retainAll( manifest.hashes.keySet() );
+		cache.save();
+
+		return manifest;
+	}
+
+	/**
+	 * Records the paths of a module that was deployed in full, so a later partial update may remove them, and the
+	 * hashes of its descriptors, so a later partial update knows whether they changed.
+	 */
+	public static void published( IServer server, IModule module, IModuleResource[] resources ) throws IOException {
+		Map<String, String> paths = new TreeMap<String, String>();
+
+		addPaths( resources, paths );
+
+		storePublishedPaths( getPublishedFile( server, module ), paths );
+	}
+
+	private static void addPaths( IModuleResource[] resources, Map<String, String> paths ) throws IOException {
+		if ( resources == null ) {
+			return;
+		}
+
+		for ( IModuleResource resource : resources ) {
+			if ( resource instanceof IModuleFolder ) {
+				addPaths( ( (IModuleFolder) resource ).members(), paths );
+			}
+			else if ( resource instanceof IModuleFile ) {
+				String key = getKey( resource );
+				File file = ServerUtil.getFile( (IModuleFile) resource );
+
+				// only the descriptors are compared with the record, everything else is hashed when it is needed
+				paths.put( key, isDescriptor( key ) && file != null && file.exists() ? FileUtil.checksum( file ) : "" );
+			}
+		}
+	}
+
+	private static String getKey( IModuleResource resource ) {
+		IPath path = resource.getModuleRelativePath().append( resource.getName() );
+
+		return path.makeRelative().toPortableString();
+	}
+
+	/**
+	 * Returns the file the paths published to a server are recorded in. Two servers, or a server group and one of its
+	 * members, hold different deployments of the same module, so the record is kept per server.
+	 */
+	private static File getPublishedFile( IServer server, IModule module ) {
+		return getStateLocation().append( "published" ).append( toFileName( server.getId() ) ).append(
+			toFileName( module.getId() ) + ".properties" ).toFile();
+	}
+
+	private static Map<String, String> getPublishedPaths( File file ) {
+		Map<String, String> retval = new TreeMap<String, String>();
+
+		if ( file.exists() ) {
+			Properties paths = new Properties();
+			InputStream in = null;
+
+			try {
+				in = new FileInputStream( file );
+				paths.load( in );
+
+				for ( Object path : paths.keySet() ) {
+					retval.put( path.toString(), paths.getProperty( path.toString() ) );
+				}
+			}
+			catch ( IOException e ) {
+				// without a record nothing is removed until the next successful publish
+				retval.clear();
+			}
+			finally {
+				if ( in != null ) {
+					try {
+						in.close();
+					}
+					catch ( IOException e ) {
+					}
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private static IPath getStateLocation() {
+		return LiferayServerCorePlugin.getDefault().getStateLocation().append( "manifest-cache" );
+	}
+
+	private static boolean isDescriptor( String path ) {
+		for ( String descriptor : DESCRIPTORS ) {
+			if ( descriptor.equals( path ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static void storePublishedPaths( File file, Map<String, String> paths ) throws IOException {
+		Properties properties = new Properties();
+		properties.putAll( paths );
+
+		file.getParentFile().mkdirs();
+
+		File tempFile = new File( file.getPath() + ".tmp" );
+		OutputStream out = new FileOutputStream( tempFile );
+
+		try {
+			properties.store( out, "Paths of the last publish" );
+		}
+		finally {
+			out.close();
+		}
+
+		file.delete();
+
+		if ( !tempFile.renameTo( file ) ) {
+			throw new IOException( "Could not write " + file );
+		}
+	}
+
+	private static String toFileName( String id ) {
+		return id.replaceAll( "[^\\w.-]", "_" );
+	}
+
+	private final Map<String, File> files = new TreeMap<String, File>();
+	private final Map<String, String> hashes = new TreeMap<String, String>();
+	private final File publishedFile;
+	private final Map<String, String> publishedPaths;
+
+	private ModuleManifest( File publishedFile ) {
+		this.publishedFile = publishedFile;
+		this.publishedPaths = getPublishedPaths( publishedFile );
+	}
+
+	/**
+	 * Returns the files whose content differs from, or is missing in, the deployed manifest, apart from the
+	 * descriptors.
+	 */
+	public Map<String, File> getChangedFiles( Map<String, String> deployedManifest ) {
+		Map<String, File> retval = new TreeMap<String, File>();
+
+		for ( String path : hashes.keySet() ) {
+			if ( !isDescriptor( path ) && !hashes.get( path ).equals( deployedManifest.get( path ) ) ) {
+				retval.put( path, files.get( path ) );
+			}
+		}
+
+		return retval;
+	}
+
+	public Map<String, String> getHashes() {
+		return hashes;
+	}
+
+	/**
+	 * Returns the deployed paths that an earlier publish of the module wrote and that no longer exist in the module.
+	 */
+	public List<String> getRemovedPaths( Map<String, String> deployedManifest ) {
+		List<String> retval = new ArrayList<String>();
+
+		for ( String path : deployedManifest.keySet() ) {
+			if ( !hashes.containsKey( path ) && !isDescriptor( path ) && publishedPaths.containsKey( path ) ) {
+				retval.add( path );
+			}
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Returns whether a descriptor was added, changed or removed since the last recorded publish. Without a record
+	 * that can not be told, so the descriptors count as changed.
+	 */
+	public boolean isDescriptorChanged() {
+		for ( String descriptor : DESCRIPTORS ) {
+			String hash = hashes.get( descriptor );
+			String publishedHash = publishedPaths.get( descriptor );
+
+			if ( hash == null ? publishedHash != null : !hash.equals( publishedHash ) ) {
+				return true;
+			}
+		}
+
+		return publishedPaths.isEmpty();
+	}
+
+	/**
+	 * Records the paths of this manifest once the deployed plugin has been brought up to date with it.
+	 */
+	public void published() throws IOException {
+		storePublishedPaths( publishedFile, hashes );
+	}
+
+	private void addResources( IModuleResource[] resources, ResourceHashCache cache ) throws IOException {
+		if ( resources == null ) {
+			return;
+		}
+
+		for ( IModuleResource resource : resources ) {
+			if ( resource instanceof IModuleFolder ) {
+				addResources( ( (IModuleFolder) resource ).members(), cache );
+			}
+			else if ( resource instanceof IModuleFile ) {
+				File file = ServerUtil.getFile( (IModuleFile) resource );
+
+				if ( file != null && file.exists() ) {
+					String key = getKey( resource );
+
+					files.put( key, file );
+					hashes.put( key, cache.getHash( key, file ) );
+				}
+			}
+		}
+	}
+
+}
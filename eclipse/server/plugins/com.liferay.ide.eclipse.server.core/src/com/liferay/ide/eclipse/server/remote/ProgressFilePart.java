@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.apache.commons.httpclient.methods.multipart.FilePart;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Multipart file part that reports the bytes written to a progress monitor and aborts the request when the monitor is
+ * canceled.
+ * 
+ * @author Greg Amerson
+ */
+public class ProgressFilePart extends FilePart {
+
+	private final IProgressMonitor monitor;
+	private final String taskName;
+
+	public ProgressFilePart( String name, File file, IProgressMonitor monitor ) throws FileNotFoundException {
+		super( name, file );
+
+		this.monitor = monitor;
+		this.taskName = "Uploading " + file.getName();
+	}
+
+	@Override
+	protected void sendData( OutputStream out ) throws IOException {
+		if ( monitor == null ) {
+			super.sendData( out );
+			return;
+		}
+
+		final long total = lengthOfData();
+
+		super.sendData( new FilterOutputStream( out ) {
+
+			private long sent = 0;
+
+			@Override
+			public void write( byte[] b, int off, int len ) throws IOException {
+				if ( monitor.isCanceled() ) {
+					throw new InterruptedIOException( "Upload canceled." );
+				}
+
+				out.write( b, off, len );
+				sent += len;
+
+				monitor.subTask( RemoteUploader.formatProgress( taskName, sent, total ) );
+			}
+
+		} );
+	}
+
+}
@@ -16,22 +16,37 @@
 package com.liferay.ide.eclipse.server.remote;
 
 
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+import com.liferay.ide.eclipse.server.util.PartialArchiveWriter;
+
 import java.io.File;
+import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.DeleteMethod;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
-import org.apache.commons.httpclient.methods.multipart.FilePart;
 import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
 import org.apache.commons.httpclient.methods.multipart.Part;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -41,6 +56,59 @@ import org.json.JSONObject;
  */
 public class RemoteConnection implements IRemoteConnection {
 
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	public static final int CONNECT_TIMEOUT = _defaultPrefs.getInt( "remote.connect.timeout", 10000 );
+
+	public static final long IDLE_CONNECTION_TIMEOUT = _defaultPrefs.getLong( "remote.idle.connection.timeout", 30000 );
+
+	public static final long IDLE_CONNECTION_CHECK_INTERVAL =
+		_defaultPrefs.getLong( "remote.idle.connection.check.interval", 10000 );
+
+	public static final int MAX_CONNECTIONS_PER_HOST = _defaultPrefs.getInt( "remote.max.connections.per.host", 4 );
+
+	public static final long PLUGIN_STATES_REPROBE_INTERVAL =
+		_defaultPrefs.getLong( "remote.plugin.states.reprobe.interval", 300000 );
+
+	public static final int READ_TIMEOUT = _defaultPrefs.getInt( "remote.read.timeout", 60000 );
+
+	private static final int LOG_TAIL_CONNECTIONS = 2;
+
+	private static IdleConnectionTimeoutThread idleConnectionThread;
+
+	private static int idleConnectionManagers = 0;
+
+	private static synchronized void registerIdleConnectionManager( MultiThreadedHttpConnectionManager manager ) {
+		if ( idleConnectionThread == null ) {
+			idleConnectionThread = new IdleConnectionTimeoutThread();
+			idleConnectionThread.setName( "Liferay remote connection reaper" );
+			idleConnectionThread.setConnectionTimeout( IDLE_CONNECTION_TIMEOUT );
+			idleConnectionThread.setTimeoutInterval( IDLE_CONNECTION_CHECK_INTERVAL );
+			idleConnectionThread.start();
+		}
+
+		idleConnectionThread.addConnectionManager( manager );
+		idleConnectionManagers++;
+	}
+
+	private static synchronized void unregisterIdleConnectionManager( MultiThreadedHttpConnectionManager manager ) {
+		if ( idleConnectionThread != null ) {
+			idleConnectionThread.removeConnectionManager( manager );
+
+			if ( --idleConnectionManagers <= 0 ) {
+				idleConnectionThread.shutdown();
+				idleConnectionThread = null;
+				idleConnectionManagers = 0;
+			}
+		}
+	}
+
+	private long bulkPluginStatesReprobeTime = 0;
+	private boolean bulkPluginStatesSupported = true;
+	private boolean chunkedUploadSupported = true;
+	private MultiThreadedHttpConnectionManager connectionManager;
 	private GetMethod debugPortMethod;
 	private String host;
 	private HttpClient httpClient;
@@ -48,6 +116,7 @@ public class RemoteConnection implements IRemoteConnection {
 	private GetMethod isAliveMethod;
 	private String managerContextPath;
 	private String password;
+	private RemoteConnectionStats stats;
 	private String username;
 
 	public RemoteConnection() {
@@ -58,32 +127,36 @@ public class RemoteConnection implements IRemoteConnection {
 		this.host = host;
 		this.httpPort = httpPort;
 		this.managerContextPath = managerContextPath;
+		this.bulkPluginStatesSupported = true;
+		this.chunkedUploadSupported = true;
 		this.username = username;
 		this.password = pw;
 	}
 
-	public int getDebugPort() {
-		if ( isAlive() ) {
-			try {
-				GetMethod method = getDebugPortMethod();
-				int statusCode = getHttpClient().executeMethod( method );
+	public synchronized void dispose() {
+		httpClient = null;
 
-				if ( statusCode != HttpStatus.SC_OK ) {
-					System.err.println( "Method failed: " + method.getStatusLine() );
-				}
-				else {
-					// Read the response body.
-					byte[] body = method.getResponseBody();
+		if ( stats != null ) {
+			stats.dispose();
+			stats = null;
+		}
 
-					String response = new String( body );
-					JSONObject jsonObject = new JSONObject( response );
+		if ( connectionManager != null ) {
+			unregisterIdleConnectionManager( connectionManager );
+			connectionManager.shutdown();
+			connectionManager = null;
+		}
+	}
 
-					if ( isSuccess( jsonObject ) ) {
-						String debugPortOutput = getJSONOutput( jsonObject );
+	public int getDebugPort() {
+		if ( isAlive() ) {
+			try {
+				JSONObject jsonObject = invokeJSONMethod( getDebugPortMethod() );
 
-						return Integer.parseInt( new String( debugPortOutput ) );
-					}
+				if ( jsonObject != null && isSuccess( jsonObject ) ) {
+					String debugPortOutput = getJSONOutput( jsonObject );
 
+					return Integer.parseInt( new String( debugPortOutput ) );
 				}
 			}
 			catch ( Exception e ) {
@@ -95,30 +168,44 @@ public class RemoteConnection implements IRemoteConnection {
 		return -1;
 	}
 
-	public List<String> getLiferayPlugins() {
-		List<String> retval = new ArrayList<String>();
-
+	@SuppressWarnings( "unchecked" )
+	public Map<String, String> getDeployedManifest( String appName ) {
 		try {
-			GetMethod method = new GetMethod( getPluginsURI() );
+			JSONObject json = invokeJSONMethod( new GetMethod( getPluginURI( appName ) + "/manifest" ) );
 
-			int statusCode = getHttpClient().executeMethod( method );
+			if ( json != null && isSuccess( json ) ) {
+				Map<String, String> retval = new HashMap<String, String>();
 
-			if ( statusCode != HttpStatus.SC_OK ) {
-				System.err.println( "Method failed: " + method.getStatusLine() );
+				JSONObject jsonManifest = new JSONObject( getJSONOutput( json ) );
+				Iterator<String> paths = jsonManifest.keys();
+
+				while ( paths.hasNext() ) {
+					String path = paths.next();
+					retval.put( path, jsonManifest.getString( path ) );
+				}
+
+				return retval;
 			}
-			else {
-				// Read the response body.
-				byte[] body = method.getResponseBody();
+		}
+		catch ( Exception e ) {
+			// not installed or manifests not supported by this server manager
+		}
 
-				JSONObject json = new JSONObject( new String( body ) );
+		return null;
+	}
 
-				if ( isSuccess( json ) ) {
-					String output = getJSONOutput( json );
-					JSONArray jsonPlugins = new JSONArray( output );
+	public List<String> getLiferayPlugins() {
+		List<String> retval = new ArrayList<String>();
 
-					for ( int i = 0; i < jsonPlugins.length(); i++ ) {
-						retval.add( jsonPlugins.get( i ).toString() );
-					}
+		try {
+			JSONObject json = invokeJSONMethod( new GetMethod( getPluginsURI() ) );
+
+			if ( json != null && isSuccess( json ) ) {
+				String output = getJSONOutput( json );
+				JSONArray jsonPlugins = new JSONArray( output );
+
+				for ( int i = 0; i < jsonPlugins.length(); i++ ) {
+					retval.add( jsonPlugins.get( i ).toString() );
 				}
 			}
 		}
@@ -129,6 +216,60 @@ public class RemoteConnection implements IRemoteConnection {
 		return retval;
 	}
 
+	@SuppressWarnings( "unchecked" )
+	public Map<String, RemotePluginState> getLiferayPluginStates( List<String> appNames ) {
+		if ( !bulkPluginStatesSupported && System.currentTimeMillis() >= bulkPluginStatesReprobeTime ) {
+			// a 404 may only have meant the manager was being redeployed, so ask again once in a while
+			bulkPluginStatesSupported = true;
+		}
+
+		if ( bulkPluginStatesSupported ) {
+			GetMethod method = new GetMethod( getPluginStatesURI() );
+
+			try {
+				JSONObject json = invokeJSONMethod( method );
+
+				if ( json == null ) {
+					if ( isNotSupported( method ) ) {
+						disableBulkPluginStates();
+					}
+				}
+				else if ( isSuccess( json ) ) {
+					String output = getJSONOutput( json ).trim();
+
+					if ( output.startsWith( "{" ) ) {
+						Map<String, RemotePluginState> retval = new HashMap<String, RemotePluginState>();
+
+						JSONObject jsonStates = new JSONObject( output );
+						Iterator<String> names = jsonStates.keys();
+
+						while ( names.hasNext() ) {
+							String name = names.next();
+							JSONObject jsonState = jsonStates.getJSONObject( name );
+
+							retval.put( name, new RemotePluginState(
+								jsonState.optBoolean( "installed", true ), jsonState.optBoolean( "started" ) ) );
+						}
+
+						return retval;
+					}
+
+					if ( output.startsWith( "[" ) ) {
+						// older server manager versions ignore the query and answer with the plain plugin list
+						disableBulkPluginStates();
+					}
+				}
+
+				// anything else may be a passing failure, so only this call falls back to asking plugin by plugin
+			}
+			catch ( Exception e ) {
+				e.printStackTrace();
+			}
+		}
+
+		return getLiferayPluginStatesFallback( appNames );
+	}
+
 	public String getManagerURI() {
 		return "http://" + host + ":" + httpPort + managerContextPath;
 	}
@@ -151,15 +292,28 @@ public class RemoteConnection implements IRemoteConnection {
 	}
 
 	public Object installApplication( String absolutePath, String appName, IProgressMonitor submon ) {
-		try {
-			File f = new File( absolutePath );
+		File f = new File( absolutePath );
 
-			PostMethod filePost = new PostMethod( getDeployURI( appName ) );
+		if ( chunkedUploadSupported ) {
+			try {
+				return new RemoteUploader( this, appName, f, submon ).upload( true );
+			}
+			catch ( UnsupportedOperationException e ) {
+				chunkedUploadSupported = false;
+			}
+			catch ( Exception e ) {
+				e.printStackTrace();
+				return e.getMessage();
+			}
+		}
 
-			Part[] parts = { new FilePart( "deployWar", f ) };
+		PostMethod filePost = new PostMethod( getDeployURI( appName ) );
+
+		try {
+			Part[] parts = { new ProgressFilePart( "deployWar", f, submon ) };
 			filePost.setRequestEntity( new MultipartRequestEntity( parts, filePost.getParams() ) );
 
-			int status = getHttpClient().executeMethod( filePost );
+			int status = executeMethod( filePost );
 
 			if ( status != HttpStatus.SC_OK ) {
 				System.err.println( "Method failed: " + filePost.getStatusLine() );
@@ -172,32 +326,24 @@ public class RemoteConnection implements IRemoteConnection {
 			if ( isSuccess( json ) ) {
 				System.out.println( "installApplication: Sucess.\n\n" );
 			}
-
-			filePost.releaseConnection();
 		}
 		catch ( Exception e ) {
 			e.printStackTrace();
 			return e.getMessage();
 		}
+		finally {
+			filePost.releaseConnection();
+		}
 
 		return null;
 	}
 
 	public boolean isAlive() {
 		try {
-			GetMethod method = getIsAliveMethod();
-			int statusCode = getHttpClient().executeMethod( method );
-
-			if ( statusCode != HttpStatus.SC_OK ) {
-				System.err.println( "Method failed: " + method.getStatusLine() );
-			}
-			else {
-				// Read the response body.
-				byte[] body = method.getResponseBody();
+			JSONObject json = invokeJSONMethod( getIsAliveMethod() );
 
-				if ( isSuccess( new JSONObject( new String( body ) ) ) ) {
-					return true;
-				}
+			if ( json != null && isSuccess( json ) ) {
+				return true;
 			}
 		}
 		catch ( Exception e ) {
@@ -208,88 +354,37 @@ public class RemoteConnection implements IRemoteConnection {
 	}
 
 	public boolean isAppInstalled( String appName ) {
-		try {
-			GetMethod method = new GetMethod( getPluginURI( appName ) );
-
-			int statusCode = getHttpClient().executeMethod( method );
-
-			if ( statusCode != HttpStatus.SC_OK ) {
-				System.err.println( "Method failed: " + method.getStatusLine() );
-			}
-			else {
-				// Read the response body.
-				byte[] body = method.getResponseBody();
-
-				JSONObject json = new JSONObject( new String( body ) );
-
-				if ( isSuccess( json ) ) {
-					String output = getJSONOutput( json );
-					JSONObject jsonOutput = new JSONObject( output );
-
-					Boolean installed = Boolean.parseBoolean( jsonOutput.getString( "installed" ) );
-
-					if ( installed ) {
-						return true;
-					}
-				}
-			}
-		}
-		catch ( Exception e ) {
-			e.printStackTrace();
-		}
-
-		return false;
+		return getPluginProperty( appName, "installed" );
 	}
 
 	public boolean isLiferayPluginStarted( String appName ) {
-		try {
-			GetMethod method = new GetMethod( getPluginURI( appName ) );
-
-			int statusCode = getHttpClient().executeMethod( method );
-
-			if ( statusCode != HttpStatus.SC_OK ) {
-				System.err.println( "Method failed: " + method.getStatusLine() );
-			}
-			else {
-				// Read the response body.
-				byte[] body = method.getResponseBody();
-
-				JSONObject json = new JSONObject( new String( body ) );
-
-				if ( isSuccess( json ) ) {
-					String output = getJSONOutput( json );
-
-					JSONObject jsonOutput = new JSONObject( output );
-
-					Boolean installed = Boolean.parseBoolean( jsonOutput.getString( "started" ) );
-
-					if ( installed ) {
-						return true;
-					}
-				}
-			}
-		}
-		catch ( Exception e ) {
-			e.printStackTrace();
-		}
-
-		return false;
+		return getPluginProperty( appName, "started" );
 	}
 
 	public void setHost( String host ) {
 		this.host = host;
+		this.bulkPluginStatesSupported = true;
+		this.chunkedUploadSupported = true;
+		this.httpClient = null;
 		this.isAliveMethod = null;
 		this.debugPortMethod = null;
+		updateStatsLabel();
 	}
 
 	public void setHttpPort( String httpPort ) {
 		this.httpPort = httpPort;
+		this.bulkPluginStatesSupported = true;
+		this.chunkedUploadSupported = true;
+		this.httpClient = null;
 		this.isAliveMethod = null;
 		this.debugPortMethod = null;
+		updateStatsLabel();
 	}
 
 	public void setManagerContextPath( String managerContextPath ) {
 		this.managerContextPath = managerContextPath;
+		this.bulkPluginStatesSupported = true;
+		this.chunkedUploadSupported = true;
 		this.isAliveMethod = null;
 		this.debugPortMethod = null;
 	}
@@ -305,10 +400,10 @@ public class RemoteConnection implements IRemoteConnection {
 	}
 
 	public Object uninstallApplication( String appName, IProgressMonitor monitor ) {
-		try {
-			DeleteMethod undeployMethod = new DeleteMethod( getUndeployURI( appName ) );
+		DeleteMethod undeployMethod = new DeleteMethod( getUndeployURI( appName ) );
 
-			int status = getHttpClient().executeMethod( undeployMethod );
+		try {
+			int status = executeMethod( undeployMethod );
 
 			if ( status != HttpStatus.SC_OK ) {
 				System.err.println( "Method failed: " + undeployMethod.getStatusLine() );
@@ -319,26 +414,41 @@ public class RemoteConnection implements IRemoteConnection {
 			if ( isSuccess( new JSONObject( responseString ) ) ) {
 				System.out.println( "uninstallApplication: success." );
 			}
-
-			undeployMethod.releaseConnection();
 		}
 		catch ( Exception e ) {
 			e.printStackTrace();
 			return e.getMessage();
 		}
+		finally {
+			undeployMethod.releaseConnection();
+		}
 
 		return null;
 	}
 
 	public Object updateApplication( String appName, String absolutePath, IProgressMonitor monitor ) {
-		try {
-			File f = new File( absolutePath );
+		File f = new File( absolutePath );
 
-			PutMethod filePut = new PutMethod( getUpdateURI( appName ) );
-			Part[] parts = { new FilePart( f.getName(), f ) };
+		if ( chunkedUploadSupported ) {
+			try {
+				return new RemoteUploader( this, appName, f, monitor ).upload( false );
+			}
+			catch ( UnsupportedOperationException e ) {
+				chunkedUploadSupported = false;
+			}
+			catch ( Exception e ) {
+				e.printStackTrace();
+				return e.getMessage();
+			}
+		}
+
+		PutMethod filePut = new PutMethod( getUpdateURI( appName ) );
+
+		try {
+			Part[] parts = { new ProgressFilePart( f.getName(), f, monitor ) };
 			filePut.setRequestEntity( new MultipartRequestEntity( parts, filePut.getParams() ) );
 
-			int status = getHttpClient().executeMethod( filePut );
+			int status = executeMethod( filePut );
 			if ( status != HttpStatus.SC_OK ) {
 				System.err.println( "Method failed: " + filePut.getStatusLine() );
 			}
@@ -347,17 +457,51 @@ public class RemoteConnection implements IRemoteConnection {
 			if ( isSuccess( new JSONObject( responseString ) ) ) {
 				System.out.println( "updateApplication: success." );
 			}
-
+		}
+		catch ( Exception e ) {
+			e.printStackTrace();
+			return e.getMessage();
+		}
+		finally {
 			filePut.releaseConnection();
 		}
+
+		return null;
+	}
+
+	public Object updateApplication( String appName, PartialArchiveWriter partialArchive, IProgressMonitor monitor ) {
+		PutMethod filePut = new PutMethod( getUpdateURI( appName ) );
+
+		try {
+			Part[] parts = { new ArchiveStreamPart( appName + ".war", appName + ".war", partialArchive ) };
+			filePut.setRequestEntity( new MultipartRequestEntity( parts, filePut.getParams() ) );
+
+			int status = executeMethod( filePut );
+			if ( status != HttpStatus.SC_OK ) {
+				System.err.println( "Method failed: " + filePut.getStatusLine() );
+			}
+
+			String responseString = filePut.getResponseBodyAsString();
+			if ( isSuccess( new JSONObject( responseString ) ) ) {
+				System.out.println( "updateApplication: success." );
+			}
+		}
 		catch ( Exception e ) {
 			e.printStackTrace();
 			return e.getMessage();
 		}
+		finally {
+			filePut.releaseConnection();
+		}
 
 		return null;
 	}
 
+	private void disableBulkPluginStates() {
+		bulkPluginStatesSupported = false;
+		bulkPluginStatesReprobeTime = System.currentTimeMillis() + PLUGIN_STATES_REPROBE_INTERVAL;
+	}
+
 	private GetMethod getDebugPortMethod() {
 		if ( debugPortMethod == null ) {
 			// debugPortMethod = new GetMethod( getDebugPortURI() );
@@ -375,13 +519,115 @@ public class RemoteConnection implements IRemoteConnection {
 		return getPluginsURI() + "/" + appName;
 	}
 
-	private HttpClient getHttpClient() {
+	int executeMethod( HttpMethod method ) throws IOException {
+		if ( !RemoteConnectionStats.isEnabled() ) {
+			return getHttpClient().executeMethod( method );
+		}
+
+		return executeMethodWithStats( method );
+	}
+
+	/**
+	 * Latency is measured until the response headers arrive, bytes received are taken from the Content-Length
+	 * header. Streamed responses report their bytes through {@link #recordBytesReceived(HttpMethod, long)}.
+	 */
+	private int executeMethodWithStats( HttpMethod method ) throws IOException {
+		CountingRequestEntity countingEntity = null;
+
+		if ( method instanceof EntityEnclosingMethod ) {
+			EntityEnclosingMethod entityMethod = (EntityEnclosingMethod) method;
+
+			if ( entityMethod.getRequestEntity() != null ) {
+				countingEntity = new CountingRequestEntity( entityMethod.getRequestEntity() );
+				entityMethod.setRequestEntity( countingEntity );
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		boolean failed = true;
+
+		try {
+			int statusCode = getHttpClient().executeMethod( method );
+			failed = statusCode >= HttpStatus.SC_BAD_REQUEST;
+
+			return statusCode;
+		}
+		finally {
+			long bytesReceived = 0;
+			Header contentLength = method.getResponseHeader( "Content-Length" );
+
+			if ( contentLength != null ) {
+				try {
+					bytesReceived = Long.parseLong( contentLength.getValue().trim() );
+				}
+				catch ( NumberFormatException e ) {
+				}
+			}
+
+			getStats().record(
+				getEndpoint( method ), System.currentTimeMillis() - start,
+				countingEntity != null ? countingEntity.getCount() : 0, bytesReceived, failed );
+		}
+	}
+
+	private String getEndpoint( HttpMethod method ) {
+		return RemoteConnectionStats.getEndpoint( method.getName(), method.getPath(), managerContextPath );
+	}
+
+	synchronized RemoteConnectionStats getStats() {
+		if ( stats == null ) {
+			stats = new RemoteConnectionStats( host + ":" + httpPort );
+		}
+
+		return stats;
+	}
+
+	void recordBytesReceived( HttpMethod method, long bytes ) {
+		if ( RemoteConnectionStats.isEnabled() ) {
+			getStats().recordBytesReceived( getEndpoint( method ), bytes );
+		}
+	}
+
+	void recordRetry( String methodName, String uri ) {
+		if ( RemoteConnectionStats.isEnabled() ) {
+			getStats().recordRetry(
+				RemoteConnectionStats.getEndpoint( methodName, URI.create( uri ).getPath(), managerContextPath ) );
+		}
+	}
+
+	private synchronized void updateStatsLabel() {
+		if ( stats != null ) {
+			stats.setLabel( host + ":" + httpPort );
+		}
+	}
+
+	private synchronized MultiThreadedHttpConnectionManager getConnectionManager() {
+		if ( connectionManager == null ) {
+			connectionManager = new MultiThreadedHttpConnectionManager();
+
+			HttpConnectionManagerParams params = connectionManager.getParams();
+			params.setConnectionTimeout( CONNECT_TIMEOUT );
+			params.setSoTimeout( READ_TIMEOUT );
+			// the output and error log tails each hold a connection open, keep them out of the request budget
+			params.setDefaultMaxConnectionsPerHost( MAX_CONNECTIONS_PER_HOST + LOG_TAIL_CONNECTIONS );
+			params.setMaxTotalConnections( MAX_CONNECTIONS_PER_HOST + LOG_TAIL_CONNECTIONS );
+			params.setStaleCheckingEnabled( true );
+
+			registerIdleConnectionManager( connectionManager );
+		}
+
+		return connectionManager;
+	}
+
+	private synchronized HttpClient getHttpClient() {
 		if ( httpClient == null ) {
-			HttpClient httpClient2 = new HttpClient();
-			httpClient2.getParams().setAuthenticationPreemptive( true );
+			// all clients for this connection share one pooled manager so keep-alive connections survive settings
+			// changes and successive status polls
+			HttpClient newHttpClient = new HttpClient( getConnectionManager() );
+			newHttpClient.getParams().setAuthenticationPreemptive( true );
 			UsernamePasswordCredentials creds = new UsernamePasswordCredentials( username, password );
-			httpClient2.getState().setCredentials( new AuthScope( host, Integer.parseInt( httpPort ) ), creds );
-			return httpClient2;
+			newHttpClient.getState().setCredentials( new AuthScope( host, Integer.parseInt( httpPort ) ), creds );
+			httpClient = newHttpClient;
 		}
 
 		return httpClient;
@@ -400,15 +646,49 @@ public class RemoteConnection implements IRemoteConnection {
 		return getManagerURI() + "/status";
 	}
 
-	private String getJSONOutput( JSONObject json ) throws JSONException {
+	String getJSONOutput( JSONObject json ) throws JSONException {
 		return json.getString( "output" );
 	}
 
+	private Map<String, RemotePluginState> getLiferayPluginStatesFallback( List<String> appNames ) {
+		Map<String, RemotePluginState> retval = new HashMap<String, RemotePluginState>();
+
+		for ( String plugin : getLiferayPlugins() ) {
+			if ( appNames == null || appNames.contains( plugin ) ) {
+				retval.put( plugin, new RemotePluginState( true, isLiferayPluginStarted( plugin ) ) );
+			}
+		}
+
+		return retval;
+	}
+
+	private boolean getPluginProperty( String appName, String property ) {
+		try {
+			JSONObject json = invokeJSONMethod( new GetMethod( getPluginURI( appName ) ) );
+
+			if ( json != null && isSuccess( json ) ) {
+				String output = getJSONOutput( json );
+				JSONObject jsonOutput = new JSONObject( output );
+
+				return Boolean.parseBoolean( jsonOutput.getString( property ) );
+			}
+		}
+		catch ( Exception e ) {
+			e.printStackTrace();
+		}
+
+		return false;
+	}
+
 	private String getPluginsURI() {
 		return getManagerURI() + "/plugins";
 	}
 
-	private String getPluginURI( String appName ) {
+	private String getPluginStatesURI() {
+		return getPluginsURI() + "?state=true";
+	}
+
+	String getPluginURI( String appName ) {
 		return getPluginsURI() + "/" + appName;
 	}
 
@@ -420,7 +700,36 @@ public class RemoteConnection implements IRemoteConnection {
 		return getDeployURI( appName );
 	}
 
-	private boolean isSuccess( JSONObject jsonObject ) throws JSONException {
+	JSONObject invokeJSONMethod( HttpMethod method ) throws IOException, JSONException {
+		try {
+			int statusCode = executeMethod( method );
+
+			if ( statusCode != HttpStatus.SC_OK ) {
+				System.err.println( "Method failed: " + method.getStatusLine() );
+				return null;
+			}
+
+			// Read the response body.
+			return new JSONObject( method.getResponseBodyAsString() );
+		}
+		finally {
+			// hand the keep-alive connection back to the pool
+			method.releaseConnection();
+		}
+	}
+
+	/**
+	 * Returns whether the server answered a method with a status that says it does not know the request at all, as
+	 * opposed to a request that failed this time.
+	 */
+	boolean isNotSupported( HttpMethod method ) {
+		int statusCode = method.getStatusLine() != null ? method.getStatusCode() : 0;
+
+		return statusCode == HttpStatus.SC_NOT_FOUND || statusCode == HttpStatus.SC_METHOD_NOT_ALLOWED ||
+			statusCode == HttpStatus.SC_NOT_IMPLEMENTED;
+	}
+
+	boolean isSuccess( JSONObject jsonObject ) throws JSONException {
 		String success = jsonObject.getString( "status" );
 		return "0".equals( success );
 	}
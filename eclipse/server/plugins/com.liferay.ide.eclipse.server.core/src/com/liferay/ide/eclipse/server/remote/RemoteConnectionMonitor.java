@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.server.remote.RemoteConnectionStats.EndpointStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Greg Amerson
+ */
+public class RemoteConnectionMonitor implements RemoteConnectionMonitorMBean {
+
+	public static final String OBJECT_NAME = "com.liferay.ide:type=RemoteConnectionMonitor";
+
+	public String[] getEndpointSummaries() {
+		List<String> retval = new ArrayList<String>();
+
+		for ( RemoteConnectionStats stats : RemoteConnectionStats.getAll() ) {
+			for ( EndpointStats endpoint : stats.getEndpoints() ) {
+				retval.add( stats.getLabel() + " " + endpoint );
+			}
+		}
+
+		return retval.toArray( new String[0] );
+	}
+
+	public boolean isEnabled() {
+		return RemoteConnectionStats.isEnabled();
+	}
+
+	public void reset() {
+		for ( RemoteConnectionStats stats : RemoteConnectionStats.getAll() ) {
+			stats.reset();
+		}
+	}
+
+	public void setEnabled( boolean enabled ) {
+		RemoteConnectionStats.setEnabled( enabled );
+	}
+
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+/**
+ * JMX view of the remote connection statistics.
+ * 
+ * @author Greg Amerson
+ */
+public interface RemoteConnectionMonitorMBean {
+
+	/**
+	 * One line per connection and endpoint.
+	 */
+	String[] getEndpointSummaries();
+
+	boolean isEnabled();
+
+	void reset();
+
+	void setEnabled( boolean enabled );
+
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+
+/**
+ * Request statistics of one remote connection, grouped by endpoint. Collection is off unless
+ * <code>remote.stats.enabled</code> is set or it is switched on from the statistics view or over JMX; while off the
+ * connection only pays for reading {@link #isEnabled()}.
+ * 
+ * @author Greg Amerson
+ */
+public class RemoteConnectionStats {
+
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	/**
+	 * Upper bounds in ms of the latency histogram buckets, the last bucket holds everything slower.
+	 */
+	public static final long[] LATENCY_BUCKETS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+	private static final List<RemoteConnectionStats> allStats = new CopyOnWriteArrayList<RemoteConnectionStats>();
+
+	private static volatile boolean enabled = _defaultPrefs.getBoolean( "remote.stats.enabled", false );
+
+	public static List<RemoteConnectionStats> getAll() {
+		return new ArrayList<RemoteConnectionStats>( allStats );
+	}
+
+	/**
+	 * Maps a request to its endpoint, e.g. <code>GET /plugins/{app}</code>, so requests for different plugins, upload
+	 * sessions or log offsets add up.
+	 */
+	public static String getEndpoint( String methodName, String path, String managerContextPath ) {
+		if ( path == null ) {
+			path = "";
+		}
+
+		if ( managerContextPath != null && managerContextPath.length() > 0 && path.startsWith( managerContextPath ) ) {
+			path = path.substring( managerContextPath.length() );
+		}
+
+		String[] segments = path.replaceAll( "^/+", "" ).split( "/" );
+
+		if ( segments.length > 1 && "plugins".equals( segments[0] ) ) {
+			segments[1] = "{app}";
+
+			if ( segments.length > 3 && "upload".equals( segments[2] ) ) {
+				segments[3] = "{session}";
+			}
+		}
+		else if ( segments.length > 3 && "server".equals( segments[0] ) && "log".equals( segments[1] ) ) {
+			segments[3] = "{offset}";
+		}
+
+		StringBuilder sb = new StringBuilder( methodName );
+		sb.append( ' ' );
+
+		for ( String segment : segments ) {
+			sb.append( '/' );
+			sb.append( segment );
+		}
+
+		return sb.toString();
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled( boolean enabled ) {
+		RemoteConnectionStats.enabled = enabled;
+	}
+
+	private final Map<String, EndpointStats> endpoints = new TreeMap<String, EndpointStats>();
+	private volatile String label;
+
+	RemoteConnectionStats( String label ) {
+		this.label = label;
+
+		allStats.add( this );
+	}
+
+	/**
+	 * Returns a snapshot of the statistics of every endpoint called so far.
+	 */
+	public synchronized List<EndpointStats> getEndpoints() {
+		List<EndpointStats> retval = new ArrayList<EndpointStats>();
+
+		for ( EndpointStats stats : endpoints.values() ) {
+			retval.add( stats.copy() );
+		}
+
+		return retval;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public synchronized void reset() {
+		endpoints.clear();
+	}
+
+	void dispose() {
+		allStats.remove( this );
+	}
+
+	synchronized void record( String endpoint, long millis, long bytesSent, long bytesReceived, boolean failed ) {
+		EndpointStats stats = getEndpointStats( endpoint );
+
+		stats.calls++;
+		stats.totalMillis += millis;
+		stats.maxMillis = Math.max( stats.maxMillis, millis );
+		stats.bytesSent += bytesSent;
+		stats.bytesReceived += bytesReceived;
+
+		if ( failed ) {
+			stats.failures++;
+		}
+
+		int bucket = 0;
+
+		while ( bucket < LATENCY_BUCKETS.length && millis > LATENCY_BUCKETS[bucket] ) {
+			bucket++;
+		}
+
+		stats.buckets[bucket]++;
+	}
+
+	synchronized void recordBytesReceived( String endpoint, long bytes ) {
+		getEndpointStats( endpoint ).bytesReceived += bytes;
+	}
+
+	synchronized void recordRetry( String endpoint ) {
+		getEndpointStats( endpoint ).retries++;
+	}
+
+	void setLabel( String label ) {
+		this.label = label;
+	}
+
+	private EndpointStats getEndpointStats( String endpoint ) {
+		EndpointStats stats = endpoints.get( endpoint );
+
+		if ( stats == null ) {
+			stats = new EndpointStats( endpoint );
+			endpoints.put( endpoint, stats );
+		}
+
+		return stats;
+	}
+
+	public static class EndpointStats {
+
+		private long[] buckets = new long[LATENCY_BUCKETS.length + 1];
+		private long bytesReceived;
+		private long bytesSent;
+		private long calls;
+		private long failures;
+		private long maxMillis;
+		private final String name;
+		private long retries;
+		private long totalMillis;
+
+		EndpointStats( String name ) {
+			this.name = name;
+		}
+
+		public long getAverageMillis() {
+			return calls > 0 ? totalMillis / calls : 0;
+		}
+
+		public long[] getBuckets() {
+			return buckets.clone();
+		}
+
+		public long getBytesReceived() {
+			return bytesReceived;
+		}
+
+		public long getBytesSent() {
+			return bytesSent;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		public long getMaxMillis() {
+			return maxMillis;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the upper bound of the histogram bucket that contains the given percentile, or the maximum latency
+		 * if that falls in the last bucket.
+		 */
+		public long getPercentileMillis( double percentile ) {
+			long threshold = (long) Math.ceil( calls * percentile / 100 );
+			long count = 0;
+
+			for ( int i = 0; i < LATENCY_BUCKETS.length; i++ ) {
+				count += buckets[i];
+
+				if ( count >= threshold && count > 0 ) {
+					return Math.min( LATENCY_BUCKETS[i], maxMillis );
+				}
+			}
+
+			return maxMillis;
+		}
+
+		public long getRetries() {
+			return retries;
+		}
+
+		@Override
+		public String toString() {
+			return name + " calls=" + calls + " failures=" + failures + " retries=" + retries + " avg=" +
+				getAverageMillis() + "ms p50=" + getPercentileMillis( 50 ) + "ms p95=" + getPercentileMillis( 95 ) +
+				"ms max=" + maxMillis + "ms sent=" + bytesSent + " received=" + bytesReceived;
+		}
+
+		EndpointStats copy() {
+			EndpointStats copy = new EndpointStats( name );
+			copy.buckets = buckets.clone();
+			copy.bytesReceived = bytesReceived;
+			copy.bytesSent = bytesSent;
+			copy.calls = calls;
+			copy.failures = failures;
+			copy.maxMillis = maxMillis;
+			copy.retries = retries;
+			copy.totalMillis = totalMillis;
+
+			return copy;
+		}
+
+	}
+
+}
@@ -20,6 +20,7 @@ import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.Authenticator;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -167,6 +168,7 @@ public class RemoteLogStream extends BufferedInputStream {
 				Thread.sleep(OUTPUT_MONITOR_DELAY);
 			}
 			catch (InterruptedException e) {
+				throw new InterruptedIOException();
 			}
 		}
 	}
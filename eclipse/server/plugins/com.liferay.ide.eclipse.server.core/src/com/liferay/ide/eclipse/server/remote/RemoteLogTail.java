@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.wst.server.core.IServer;
+
+/**
+ * Follows a remote server log over one held-open request instead of polling it. The server manager keeps the request
+ * open for up to <code>remote.log.wait</code> ms, streaming new log bytes as they are written, and the tail simply
+ * asks again from the last offset it received when the response ends or the connection drops. While the server can
+ * not be reached requests are retried with an exponential back-off. Everything read goes into a {@link LogRingBuffer}
+ * so a console that can not keep up loses the oldest output rather than growing without bound.
+ * <p>
+ * Server managers that answer the first tail request with a 404, 405 or 501, or with a successful response that has
+ * no <code>X-Log-Offset</code> header, do not support tailing, in which case the log is followed with the range
+ * polling {@link RemoteLogStream} instead. Once tailing has worked, such answers only mean the server manager is
+ * being redeployed and are retried like a dropped connection, from the same offset.
+ * 
+ * @author Greg Amerson
+ */
+public class RemoteLogTail implements Runnable {
+
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	public static final int LOG_BUFFER_SIZE = _defaultPrefs.getInt( "remote.log.buffer.size", 1024 * 1024 );
+
+	public static final long LOG_MAX_RETRY_DELAY = _defaultPrefs.getLong( "remote.log.max.retry.delay", 30000 );
+
+	public static final long LOG_WAIT = _defaultPrefs.getLong( "remote.log.wait", 30000 );
+
+	private static final String LOG_OFFSET_HEADER = "X-Log-Offset";
+
+	private final LogRingBuffer buffer = new LogRingBuffer( LOG_BUFFER_SIZE );
+	private final RemoteConnection connection;
+	private GetMethod currentMethod;
+	private final String log;
+	private long offset = 0;
+	private final IRemoteServer remoteServer;
+	private final IServer server;
+	private volatile boolean stopped = false;
+	private boolean tailing = false;
+	private Thread thread;
+
+	public RemoteLogTail( IServer server, IRemoteServer remoteServer, RemoteConnection connection, String log ) {
+		this.server = server;
+		this.remoteServer = remoteServer;
+		this.connection = connection;
+		this.log = log;
+	}
+
+	public InputStream getInputStream() {
+		return buffer.getInputStream();
+	}
+
+	public void run() {
+		byte[] bytes = new byte[8192];
+		long retryDelay = RemoteLogStream.OUTPUT_MONITOR_DELAY;
+
+		while ( !stopped ) {
+			try {
+				long read = tail( bytes );
+
+				if ( read == -1 ) {
+					followWithRangePolling( bytes );
+					break;
+				}
+
+				retryDelay = RemoteLogStream.OUTPUT_MONITOR_DELAY;
+
+				// a server that answers without holding the request open must not be asked again straight away
+				if ( read == 0 && !sleep( RemoteLogStream.OUTPUT_MONITOR_DELAY ) ) {
+					break;
+				}
+			}
+			catch ( IOException e ) {
+				// server stopped or connection dropped, try again from the same offset
+				connection.recordRetry( "GET", RemoteLogStream.getLogURI( connection, log ) + "/" + offset );
+
+				if ( !sleep( retryDelay ) ) {
+					break;
+				}
+
+				retryDelay = Math.min( retryDelay * 2, LOG_MAX_RETRY_DELAY );
+			}
+		}
+
+		buffer.close();
+	}
+
+	public synchronized void start() {
+		if ( thread == null ) {
+			thread = new Thread( this, "Liferay remote log tail (" + log + ")" );
+			thread.setDaemon( true );
+			thread.start();
+		}
+	}
+
+	public void stop() {
+		stopped = true;
+
+		synchronized( this ) {
+			if ( currentMethod != null ) {
+				currentMethod.abort();
+			}
+
+			if ( thread != null ) {
+				thread.interrupt();
+			}
+		}
+
+		buffer.close();
+	}
+
+	protected void followWithRangePolling( byte[] bytes ) {
+		InputStream in = new RemoteLogStream( server, remoteServer, connection, log );
+
+		try {
+			int read;
+
+			while ( !stopped && ( read = in.read( bytes, 0, bytes.length ) ) != -1 ) {
+				if ( read > 0 ) {
+					buffer.write( bytes, 0, read );
+				}
+			}
+		}
+		catch ( IOException e ) {
+			// stopped or the server went away for good
+		}
+	}
+
+	/**
+	 * @return the number of log bytes read, or -1 if the server manager does not support tailing
+	 */
+	protected long tail( byte[] bytes ) throws IOException {
+		GetMethod method = new GetMethod( RemoteLogStream.getLogURI( connection, log ) + "/" + offset );
+		method.setQueryString( RemoteLogStream.getFormatQuery().substring( 1 ) + "&wait=" + LOG_WAIT );
+		// the server may legitimately stay quiet for the whole wait
+		method.getParams().setSoTimeout( (int) LOG_WAIT + RemoteConnection.READ_TIMEOUT );
+
+		synchronized( this ) {
+			if ( stopped ) {
+				return 0;
+			}
+
+			currentMethod = method;
+		}
+
+		try {
+			int statusCode = connection.executeMethod( method );
+
+			if ( !tailing && connection.isNotSupported( method ) ) {
+				return -1;
+			}
+
+			if ( statusCode != HttpStatus.SC_OK ) {
+				throw new IOException( "Method failed: " + method.getStatusLine() );
+			}
+
+			Header offsetHeader = method.getResponseHeader( LOG_OFFSET_HEADER );
+
+			if ( offsetHeader == null ) {
+				if ( !tailing ) {
+					return -1;
+				}
+
+				throw new IOException( "Missing " + LOG_OFFSET_HEADER + " header." );
+			}
+
+			try {
+				// the server restarts from 0 when the log was rolled over
+				offset = Long.parseLong( offsetHeader.getValue().trim() );
+			}
+			catch ( NumberFormatException e ) {
+				throw new IOException( "Invalid " + LOG_OFFSET_HEADER + ": " + offsetHeader.getValue() );
+			}
+
+			tailing = true;
+
+			InputStream in = method.getResponseBodyAsStream();
+			long retval = 0;
+
+			if ( in != null ) {
+				int read;
+
+				while ( !stopped && ( read = in.read( bytes ) ) != -1 ) {
+					buffer.write( bytes, 0, read );
+					offset += read;
+					retval += read;
+
+					connection.recordBytesReceived( method, read );
+				}
+			}
+
+			return retval;
+		}
+		finally {
+			synchronized( this ) {
+				currentMethod = null;
+			}
+
+			if ( stopped ) {
+				method.abort();
+			}
+
+			method.releaseConnection();
+		}
+	}
+
+	private boolean sleep( long delay ) {
+		try {
+			Thread.sleep( delay );
+			return true;
+		}
+		catch ( InterruptedException e ) {
+			return false;
+		}
+	}
+
+}
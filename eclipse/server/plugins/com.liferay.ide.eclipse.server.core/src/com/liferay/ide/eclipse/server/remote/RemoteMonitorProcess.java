@@ -17,6 +17,8 @@ package com.liferay.ide.eclipse.server.remote;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugException;
@@ -39,6 +41,7 @@ public class RemoteMonitorProcess extends Process implements IProcess {
 	protected IServer server;
 	protected IStreamsProxy streamsProxy;
 	protected IRemoteServer remoteServer;
+	protected List<RemoteLogTail> logTails = new ArrayList<RemoteLogTail>();
 
 	public RemoteMonitorProcess( IServer server, IRemoteConnection connection, ILaunch launch ) {
 		this.server = server;
@@ -51,6 +54,22 @@ public class RemoteMonitorProcess extends Process implements IProcess {
 		return !isTerminated();
 	}
 
+	protected InputStream createLogStream( String log ) {
+		if ( remoteConnection instanceof RemoteConnection ) {
+			RemoteLogTail logTail = new RemoteLogTail( server, remoteServer, (RemoteConnection) remoteConnection, log );
+
+			synchronized( logTails ) {
+				logTails.add( logTail );
+			}
+
+			logTail.start();
+
+			return logTail.getInputStream();
+		}
+
+		return new RemoteLogStream( server, remoteServer, remoteConnection, log );
+	}
+
 	@Override
 	public void destroy() {
 		System.out.println("destroy");
@@ -75,7 +94,7 @@ public class RemoteMonitorProcess extends Process implements IProcess {
 
 	@Override
 	public InputStream getErrorStream() {
-		return new RemoteLogStream( server, remoteServer, remoteConnection, "error" );
+		return createLogStream( "error" );
 	}
 
 	public int getExitValue()
@@ -86,7 +105,7 @@ public class RemoteMonitorProcess extends Process implements IProcess {
 
 	@Override
 	public InputStream getInputStream() {
-		return new RemoteLogStream( server, remoteServer, remoteConnection, "output" );
+		return createLogStream( "output" );
 	}
 
 	public String getLabel() {
@@ -137,6 +156,14 @@ public class RemoteMonitorProcess extends Process implements IProcess {
 	public void terminate()
 		throws DebugException {
 		remoteConnection = null;
+
+		synchronized( logTails ) {
+			for ( RemoteLogTail logTail : logTails ) {
+				logTail.stop();
+			}
+
+			logTails.clear();
+		}
 		// this.launch.removeProcess(this);
 
 		DebugEvent[] events = {
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+/**
+ * @author Greg Amerson
+ */
+public class RemotePluginState {
+
+	private boolean installed;
+	private boolean started;
+
+	public RemotePluginState( boolean installed, boolean started ) {
+		this.installed = installed;
+		this.started = started;
+	}
+
+	public boolean isInstalled() {
+		return installed;
+	}
+
+	public boolean isStarted() {
+		return started;
+	}
+
+	@Override
+	public String toString() {
+		return "installed=" + installed + ", started=" + started;
+	}
+
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+
+/**
+ * Runs the network half of a multi-module publish in the background so the publish thread can go on packaging the
+ * next module. At most <code>remote.publish.upload.concurrency</code> uploads run against one host at a time, no
+ * matter how many servers or publishes point at it. A failed module is reported in the publish status and does not
+ * stop the others.
+ * 
+ * @author Greg Amerson
+ */
+public class RemotePublishPipeline {
+
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	public static final int PUBLISH_UPLOAD_CONCURRENCY =
+		Math.max( 1, _defaultPrefs.getInt( "remote.publish.upload.concurrency", 2 ) );
+
+	private static final Map<String, Semaphore> hostPermits = new HashMap<String, Semaphore>();
+
+	private static ExecutorService uploadPool;
+
+	private static synchronized Semaphore getHostPermits( String host ) {
+		Semaphore permits = hostPermits.get( host );
+
+		if ( permits == null ) {
+			permits = new Semaphore( PUBLISH_UPLOAD_CONCURRENCY, true );
+			hostPermits.put( host, permits );
+		}
+
+		return permits;
+	}
+
+	private static synchronized ExecutorService getUploadPool() {
+		if ( uploadPool == null ) {
+			// threads mostly wait on the host permits, the permits are what bound the work
+			uploadPool = Executors.newCachedThreadPool( new ThreadFactory() {
+
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "Liferay remote publish" );
+					thread.setDaemon( true );
+
+					return thread;
+				}
+			} );
+		}
+
+		return uploadPool;
+	}
+
+	private final Semaphore permits;
+	private final IProgressMonitor monitor;
+	private final List<IModule[]> modules = new ArrayList<IModule[]>();
+	private final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+	public RemotePublishPipeline( String host, IProgressMonitor monitor ) {
+		this.permits = getHostPermits( host );
+		this.monitor = monitor == null ? new NullProgressMonitor() : monitor;
+	}
+
+	/**
+	 * Queues the network operation for a module.
+	 */
+	public void submit( IModule[] module, final PublishOperation operation ) {
+		Future<Integer> result = getUploadPool().submit( new Callable<Integer>() {
+
+			public Integer call() throws Exception {
+				permits.acquire();
+
+				try {
+					if ( monitor.isCanceled() ) {
+						// nothing was sent, the module is left for the next publish to work out
+						return IServer.PUBLISH_STATE_UNKNOWN;
+					}
+
+					// progress monitors are not thread safe, the background half only gets to see cancellation
+					return operation.run( new NullProgressMonitor() {
+
+						@Override
+						public boolean isCanceled() {
+							return monitor.isCanceled();
+						}
+					} );
+				}
+				finally {
+					permits.release();
+				}
+			}
+		} );
+
+		modules.add( module );
+		results.add( result );
+	}
+
+	/**
+	 * Waits for every queued operation and passes the resulting publish state to <code>callback</code>. Failures are
+	 * added to <code>multi</code> and leave the module to be published in full, since it is not known how much of it
+	 * reached the server.
+	 */
+	public void join( MultiStatus multi, PublishCallback callback ) {
+		for ( int i = 0; i < results.size(); i++ ) {
+			IModule[] module = modules.get( i );
+
+			monitor.subTask(
+				"Waiting for " + module[0].getName() + " (" + ( i + 1 ) + " of " + results.size() + ")..." );
+
+			try {
+				callback.modulePublished( module, toPublishState( results.get( i ).get() ) );
+			}
+			catch ( ExecutionException e ) {
+				Throwable cause = e.getCause();
+				String message = cause instanceof CoreException
+					? ( (CoreException) cause ).getStatus().getMessage() : cause.getMessage();
+
+				multi.add( LiferayServerCorePlugin.createErrorStatus(
+					"Could not publish " + module[0].getName() + ": " + message ) );
+
+				callback.modulePublished( module, IServer.PUBLISH_STATE_FULL );
+			}
+			catch ( InterruptedException e ) {
+				multi.add( LiferayServerCorePlugin.createErrorStatus( "Publishing " + module[0].getName() +
+					" was interrupted." ) );
+
+				callback.modulePublished( module, IServer.PUBLISH_STATE_FULL );
+			}
+		}
+
+		modules.clear();
+		results.clear();
+	}
+
+	private int toPublishState( Integer state ) {
+		if ( state == null ) {
+			return IServer.PUBLISH_STATE_UNKNOWN;
+		}
+
+		switch ( state.intValue() ) {
+		case IServer.PUBLISH_STATE_NONE:
+		case IServer.PUBLISH_STATE_INCREMENTAL:
+		case IServer.PUBLISH_STATE_FULL:
+			return state.intValue();
+
+		default:
+			return IServer.PUBLISH_STATE_UNKNOWN;
+		}
+	}
+
+	public interface PublishOperation {
+
+		/**
+		 * @return the new module publish state, one of the <code>IServer.PUBLISH_STATE_*</code> constants
+		 */
+		int run( IProgressMonitor monitor ) throws CoreException;
+
+	}
+
+	public interface PublishCallback {
+
+		void modulePublished( IModule[] module, int modulePublishState );
+
+	}
+
+}
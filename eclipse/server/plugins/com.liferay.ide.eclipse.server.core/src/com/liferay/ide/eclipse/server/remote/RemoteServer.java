@@ -48,6 +48,8 @@ public class RemoteServer extends ServerDelegate implements IRemoteServerWorking
 
 	public static final String ATTR_REMOTE_SERVER_MODULE_IDS_LIST = "remote-server-module-ids-list";
 
+	public static final String ID = "com.liferay.ide.eclipse.server.remote";
+
 	public RemoteServer() {
 		super();
 	}
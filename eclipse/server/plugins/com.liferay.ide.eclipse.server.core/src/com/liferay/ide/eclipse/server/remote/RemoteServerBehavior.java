@@ -22,11 +22,17 @@ import com.liferay.ide.eclipse.sdk.SDK;
 import com.liferay.ide.eclipse.sdk.util.SDKUtil;
 import com.liferay.ide.eclipse.server.core.ILiferayServerBehavior;
 import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+import com.liferay.ide.eclipse.server.remote.RemotePublishPipeline.PublishCallback;
+import com.liferay.ide.eclipse.server.remote.RemotePublishPipeline.PublishOperation;
 import com.liferay.ide.eclipse.server.util.LiferayPublishHelper;
+import com.liferay.ide.eclipse.server.util.ModuleWarBuilder;
+import com.liferay.ide.eclipse.server.util.PartialArchiveWriter;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 import com.liferay.ide.eclipse.server.util.SocketUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,9 +43,12 @@ import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
@@ -59,9 +68,18 @@ import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
 public class RemoteServerBehavior extends ServerBehaviourDelegate
 	implements ILiferayServerBehavior, IServerLifecycleListener {
 
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	public static final boolean IN_PROCESS_WAR = _defaultPrefs.getBoolean( "remote.in.process.war", true );
+
+	public static final boolean MANIFEST_SYNC = _defaultPrefs.getBoolean( "remote.manifest.sync", true );
+
 	protected ILaunch currentLaunch;
+	protected final Object packageLock = new Object();
+	protected Map<String, RemotePluginState> pluginStates;
 	protected IRemoteConnection remoteConnection;
-	protected Job remoteServerUpdateJob;
 
 	public RemoteServerBehavior() {
 		super();
@@ -107,8 +125,7 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 	public void dispose() {
 		super.dispose();
 
-		remoteServerUpdateJob.cancel();
-		remoteServerUpdateJob = null;
+		RemoteServerUpdateScheduler.getDefault().unregister( this );
 	}
 
 	public int getRemoteServerState( int currentServerState, IProgressMonitor monitor ) {
@@ -191,6 +208,139 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 		setServerState( IServer.STATE_STOPPED );
 	}
 
+	/**
+	 * Packages the module as a WAR in a temp location. Modules with a stock SDK build.xml and no child modules are
+	 * zipped in process, everything else goes through the SDK war target. Only one module is packaged at a time.
+	 */
+	protected File createModuleWar( IModule[] module, IProgressMonitor monitor ) throws CoreException {
+		synchronized( packageLock ) {
+			return doCreateModuleWar( module, monitor );
+		}
+	}
+
+	private File doCreateModuleWar( IModule[] module, IProgressMonitor monitor ) throws CoreException {
+		IProject moduleProject = module[0].getProject();
+
+		IPath deployPath = LiferayServerCorePlugin.getTempLocation( "direct-deploy", "" );
+
+		File warFile = deployPath.append( moduleProject.getName() + ".war" ).toFile();
+		warFile.getParentFile().mkdirs();
+
+		IStatus warStatus = null;
+
+		if ( IN_PROCESS_WAR && ModuleWarBuilder.canBuildInProcess( moduleProject ) &&
+			CoreUtil.isNullOrEmpty( getServer().getChildModules( module, null ) ) ) {
+
+			warStatus = new ModuleWarBuilder( getResources( module ) ).build( warFile, monitor );
+		}
+		else {
+			SDK sdk = SDKUtil.getSDK( moduleProject );
+
+			Map<String, String> properties = new HashMap<String, String>();
+			properties.put( ISDKConstants.PROPERTY_AUTO_DEPLOY_UNPACK_WAR, "false" );
+			properties.put( ISDKConstants.PROPERTY_APP_SERVER_DEPLOY_DIR, deployPath.toOSString() );
+			properties.put( ISDKConstants.PROPERTY_PLUGIN_FILE, warFile.getAbsolutePath() );
+
+			Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( moduleProject );
+
+			warStatus =
+				sdk.war( moduleProject, properties, true, appServerProperties, new String[] { "-Duser.timezone=GMT" } );
+		}
+
+		if ( !warStatus.isOK() || ( !warFile.exists() ) ) {
+			throw new CoreException( warStatus );
+		}
+
+		return warFile;
+	}
+
+	/**
+	 * Works out what publishing the module takes. Packaging a module that is not installed yet happens right away,
+	 * the returned operation only does the remote part.
+	 * 
+	 * @return the operation or null if there is nothing to send to the server
+	 */
+	protected PublishOperation createPublishOperation(
+		int kind, final int deltaKind, final IModule[] module, IProgressMonitor monitor ) throws CoreException {
+
+		boolean shouldPublishModule =
+			LiferayPublishHelper.prePublishModule(
+				this, kind, deltaKind, module, getPublishedResourceDelta( module ), monitor );
+
+		if ( !shouldPublishModule ) {
+			return null;
+		}
+
+		PublishOperation operation = null;
+
+		if ( kind == IServer.PUBLISH_FULL && ( deltaKind == ADDED || deltaKind == CHANGED ) ) {
+			operation = createPublishFullOperation( module, deltaKind, monitor );
+		}
+		else if ( kind == IServer.PUBLISH_FULL && deltaKind == NO_CHANGE ) {
+			// first check to see if this module is even in the list of applications, if it is then we don't need to
+			// actually update it
+			if ( !isModuleInstalled( module ) ) {
+				operation = createPublishFullOperation( module, deltaKind, monitor );
+			}
+		}
+		else if ( kind == IServer.PUBLISH_FULL && deltaKind == REMOVED ) {
+			operation = new PublishOperation() {
+
+				public int run( IProgressMonitor monitor ) throws CoreException {
+					return removeModule( module, monitor );
+				}
+			};
+		}
+		else if ( ( kind == IServer.PUBLISH_AUTO || kind == IServer.PUBLISH_INCREMENTAL ) && deltaKind == CHANGED ) {
+			operation = new PublishOperation() {
+
+				public int run( IProgressMonitor monitor ) throws CoreException {
+					return publishModuleDelta( module, monitor );
+				}
+			};
+		}
+
+		if ( operation == null ) {
+			setModulePublishState( module, IServer.PUBLISH_STATE_UNKNOWN );
+			return null;
+		}
+
+		final PublishOperation publishOperation = operation;
+
+		return new PublishOperation() {
+
+			public int run( IProgressMonitor monitor ) throws CoreException {
+				int modulePublishState = publishOperation.run( monitor );
+
+				// by default, assume the module has published successfully.
+				// this will update the publish state and delta correctly
+				return modulePublishState == -1 ? IServer.PUBLISH_STATE_UNKNOWN : modulePublishState;
+			}
+		};
+	}
+
+	private PublishOperation createPublishFullOperation(
+		final IModule[] module, final int deltaKind, IProgressMonitor monitor ) throws CoreException {
+
+		if ( module.length == 1 && !isModuleInstalled( module ) ) {
+			final File warFile = createModuleWar( module, monitor );
+
+			return new PublishOperation() {
+
+				public int run( IProgressMonitor monitor ) throws CoreException {
+					return installModuleWar( module, warFile, monitor );
+				}
+			};
+		}
+
+		return new PublishOperation() {
+
+			public int run( IProgressMonitor monitor ) throws CoreException {
+				return publishModuleFull( module, deltaKind, monitor );
+			}
+		};
+	}
+
 	protected Job checkRemoteServerState( IProgressMonitor monitor ) {
 		if ( monitor == null ) {
 			monitor = new NullProgressMonitor();
@@ -198,7 +348,7 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 
 		// make sure the server has not been deleted
 		if ( !( getServer().equals( ServerCore.findServer( getServer().getId() ) ) ) ) {
-			remoteServerUpdateJob = null;
+			RemoteServerUpdateScheduler.getDefault().unregister( this );
 			return null;
 		}
 
@@ -239,6 +389,7 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 						if ( wasState == IServer.STATE_STARTED ) {
 							setServerState( IServer.STATE_STARTED );
 							launchServer( monitor );
+							RemoteServerUpdateScheduler.getDefault().pollSoon( RemoteServerBehavior.this );
 						}
 
 						return Status.OK_STATUS;
@@ -292,32 +443,6 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 		return updateServerJob;
 	}
 
-	protected Job createRemoteServerUpdateJob() {
-		return new Job( "Remote server update." ) {
-
-			@Override
-			protected IStatus run( IProgressMonitor monitor ) {
-				Job updateServerJob = checkRemoteServerState( monitor );
-
-				if ( updateServerJob != null ) {
-					updateServerJob.schedule();
-
-					try {
-						updateServerJob.join();
-					}
-					catch ( InterruptedException e ) {
-					}
-				}
-
-				if ( remoteServerUpdateJob != null ) {
-					remoteServerUpdateJob.schedule( getRemoteServerUpdateDelay() );
-				}
-
-				return Status.OK_STATUS;
-			}
-		};
-	}
-
 	protected IRemoteConnection getRemoteConnection() {
 		if ( remoteConnection == null ) {
 			remoteConnection = LiferayServerCorePlugin.getRemoteConnection( getRemoteServer() );
@@ -337,17 +462,43 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 	@Override
 	protected void initialize( IProgressMonitor monitor ) {
 		ServerCore.addServerLifecycleListener( this );
-		remoteServerUpdateJob = createRemoteServerUpdateJob();
 
-		remoteServerUpdateJob.setSystem( true );
-		remoteServerUpdateJob.schedule();
+		RemoteServerUpdateScheduler.getDefault().register( this );
+	}
+
+	protected Map<String, RemotePluginState> getPluginStates() {
+		if ( pluginStates == null ) {
+			pluginStates = getRemoteConnection().getLiferayPluginStates( getModuleAppNames() );
+		}
+
+		return pluginStates;
+	}
+
+	protected List<String> getModuleAppNames() {
+		List<String> appNames = new ArrayList<String>();
+
+		IModule[] modules = getServer().getModules();
+
+		if ( !CoreUtil.isNullOrEmpty( modules ) ) {
+			for ( IModule module : modules ) {
+				if ( module.getProject() != null ) {
+					appNames.add( module.getProject().getName() );
+				}
+			}
+		}
+
+		return appNames;
 	}
 
 	protected boolean isModuleInstalled( IModule[] module ) {
+		Map<String, RemotePluginState> states = getPluginStates();
+
 		for ( IModule m : module ) {
 			String appName = m.getProject().getName();
 
-			if ( getRemoteConnection().isAppInstalled( appName ) ) {
+			RemotePluginState state = states.get( appName );
+
+			if ( state != null && state.isInstalled() ) {
 				return true;
 			}
 		}
@@ -409,10 +560,42 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 		}
 	}
 
+	protected void pollRemoteServerState( IProgressMonitor monitor ) {
+		Job updateServerJob = checkRemoteServerState( monitor );
+
+		if ( updateServerJob != null ) {
+			updateServerJob.schedule();
+
+			try {
+				updateServerJob.join();
+			}
+			catch ( InterruptedException e ) {
+			}
+		}
+	}
+
+	@Override
+	public void publish( int kind, List<IModule[]> modules, IProgressMonitor monitor, IAdaptable info )
+		throws CoreException {
+
+		try {
+			super.publish( kind, modules, monitor, info );
+		}
+		finally {
+			// publishFinish is skipped when the publish is canceled or fails, polling must come back regardless
+			RemoteServerUpdateScheduler.getDefault().resume( this );
+		}
+	}
+
 	@Override
 	protected void publishFinish( IProgressMonitor monitor ) throws CoreException {
 		super.publishFinish( monitor );
 
+		RemoteServerUpdateScheduler.getDefault().pollSoon( this );
+
+		// plugins were installed or removed, next lookup must ask the server again
+		pluginStates = null;
+
 		setServerPublishState( IServer.PUBLISH_STATE_NONE );
 	}
 
@@ -420,40 +603,56 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 	protected void publishModule( int kind, int deltaKind, IModule[] module, IProgressMonitor monitor )
 		throws CoreException {
 
-		boolean shouldPublishModule =
-			LiferayPublishHelper.prePublishModule(
-				this, kind, deltaKind, module, getPublishedResourceDelta( module ), monitor );
+		PublishOperation operation = createPublishOperation( kind, deltaKind, module, monitor );
 
-		if ( !shouldPublishModule ) {
-			return;
+		if ( operation != null ) {
+			setModulePublishState( module, operation.run( monitor ) );
 		}
+	}
 
-		int modulePublishState = -1;
+	/**
+	 * Publishes several modules as a pipeline: each module is packaged on the publish thread while the modules before
+	 * it are still uploading.
+	 */
+	@Override
+	@SuppressWarnings( "rawtypes" )
+	protected void publishModules( int kind, List modules, List deltaKind, MultiStatus multi, IProgressMonitor monitor ) {
+		if ( modules == null || modules.size() < 2 ) {
+			super.publishModules( kind, modules, deltaKind, multi, monitor );
+			return;
+		}
 
-		if ( kind == IServer.PUBLISH_FULL && ( deltaKind == ADDED || deltaKind == CHANGED ) ) {
-			modulePublishState = publishModuleFull( module, deltaKind, monitor );
+		if ( monitor == null ) {
+			monitor = new NullProgressMonitor();
 		}
-		else if ( kind == IServer.PUBLISH_FULL && deltaKind == NO_CHANGE ) {
-			// first check to see if this module is even in the list of applications, if it is then we don't need to
-			// actually update it
-			if ( !isModuleInstalled( module ) ) {
-				modulePublishState = publishModuleFull( module, deltaKind, monitor );
+
+		RemotePublishPipeline pipeline = new RemotePublishPipeline( getServer().getHost(), monitor );
+
+		// fetch the plugin states before the background operations all ask for them
+		getPluginStates();
+
+		for ( int i = 0; i < modules.size() && !monitor.isCanceled(); i++ ) {
+			IModule[] module = (IModule[]) modules.get( i );
+
+			try {
+				PublishOperation operation =
+					createPublishOperation( kind, (Integer) deltaKind.get( i ), module, monitor );
+
+				if ( operation != null ) {
+					pipeline.submit( module, operation );
+				}
+			}
+			catch ( CoreException e ) {
+				multi.add( e.getStatus() );
 			}
-		}
-		else if ( kind == IServer.PUBLISH_FULL && deltaKind == REMOVED ) {
-			modulePublishState = removeModule( module, monitor );
-		}
-		else if ( ( kind == IServer.PUBLISH_AUTO || kind == IServer.PUBLISH_INCREMENTAL ) && deltaKind == CHANGED ) {
-			modulePublishState = publishModuleDelta( module, monitor );
 		}
 
-		if ( modulePublishState == -1 ) {
-			modulePublishState = IServer.PUBLISH_STATE_UNKNOWN;
-		}
+		pipeline.join( multi, new PublishCallback() {
 
-		// by default, assume the module has published successfully.
-		// this will update the publish state and delta correctly
-		setModulePublishState( module, modulePublishState );
+			public void modulePublished( IModule[] module, int modulePublishState ) {
+				setModulePublishState( module, modulePublishState );
+			}
+		} );
 	}
 
 	protected int publishModuleDelta( IModule[] module, IProgressMonitor monitor ) throws CoreException {
@@ -473,7 +672,11 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 
 		monitor.subTask( "Creating partial " + moduleProject.getName() + " update archive..." );
 
-		File partialWar = ServerUtil.createPartialWAR( appName + ".war", delta, "liferay", true );
+		PartialArchiveWriter partialWar = PartialArchiveWriter.forDeltas( delta, "liferay", "", true );
+
+		if ( partialWar.requiresZip64() ) {
+			return publishModuleFull( module, CHANGED, monitor );
+		}
 
 		monitor.worked( 25 );
 
@@ -487,7 +690,7 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 
 		monitor.subTask( "Updating " + moduleProject.getName() + " on Liferay..." );
 
-		Object error = connection.updateApplication( appName, partialWar.getAbsolutePath(), monitor );
+		Object error = connection.updateApplication( appName, partialWar, monitor );
 
 		monitor.worked( 90 );
 
@@ -500,6 +703,82 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 		return IServer.PUBLISH_STATE_NONE;
 	}
 
+	/**
+	 * Compares the module resources with the manifest of the deployed plugin and uploads only the entries that differ.
+	 * 
+	 * @return the new publish state, or -1 if the plugin has to be published in full
+	 */
+	protected int publishModuleManifest( IModule[] module, IProgressMonitor monitor ) throws CoreException {
+		if ( !MANIFEST_SYNC ) {
+			return -1;
+		}
+
+		IProject moduleProject = module[0].getProject();
+		String appName = moduleProject.getName();
+
+		IRemoteConnection connection = getRemoteConnection();
+
+		monitor.subTask( "Comparing " + appName + " with the deployed plugin..." );
+
+		Map<String, String> deployedManifest = connection.getDeployedManifest( appName );
+
+		if ( deployedManifest == null || deployedManifest.isEmpty() ) {
+			return -1;
+		}
+
+		ModuleManifest manifest = null;
+
+		try {
+			manifest = ModuleManifest.create( getServer(), module[0], getResources( module ) );
+		}
+		catch ( IOException e ) {
+			LiferayServerCorePlugin.logError( "Could not compute manifest for " + appName, e );
+			return -1;
+		}
+
+		if ( manifest.isDescriptorChanged() ) {
+			// the deployer has to process the descriptors again
+			return -1;
+		}
+
+		Map<String, File> changedFiles = manifest.getChangedFiles( deployedManifest );
+		List<String> removedPaths = manifest.getRemovedPaths( deployedManifest );
+
+		if ( changedFiles.isEmpty() && removedPaths.isEmpty() ) {
+			return IServer.PUBLISH_STATE_NONE;
+		}
+
+		monitor.subTask( "Creating partial " + appName + " update archive..." );
+
+		PartialArchiveWriter partialWar =
+			PartialArchiveWriter.forFiles( changedFiles, removedPaths, "liferay", true );
+
+		if ( partialWar.requiresZip64() ) {
+			return -1;
+		}
+
+		if ( monitor.isCanceled() ) {
+			return IServer.PUBLISH_STATE_FULL;
+		}
+
+		monitor.subTask( "Updating " + appName + " on Liferay..." );
+
+		Object error = connection.updateApplication( appName, partialWar, monitor );
+
+		if ( error != null ) {
+			throw new CoreException( LiferayServerCorePlugin.createErrorStatus( error.toString() ) );
+		}
+
+		try {
+			manifest.published();
+		}
+		catch ( IOException e ) {
+			LiferayServerCorePlugin.logError( "Could not record the published paths of " + appName, e );
+		}
+
+		return IServer.PUBLISH_STATE_NONE;
+	}
+
 	protected int publishModuleFull( IModule[] module, int deltaKind, IProgressMonitor monitor ) throws CoreException {
 
 		if ( module == null || module.length != 1 ) {
@@ -515,41 +794,55 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 
 		IProject moduleProject = publishModule.getProject();
 
-		IProgressMonitor submon = CoreUtil.newSubMonitor( monitor, 100 );
-		submon.subTask( "Deploying " + moduleProject.getName() + "  to Liferay..." );
+		if ( isModuleInstalled( module ) ) {
+			int manifestPublishState = publishModuleManifest( module, monitor );
 
-		SDK sdk = SDKUtil.getSDK( moduleProject );
+			if ( manifestPublishState != -1 ) {
+				setModuleState( module, IServer.STATE_STARTED );
+				monitor.done();
 
-		Map<String, String> properties = new HashMap<String, String>();
-		properties.put( ISDKConstants.PROPERTY_AUTO_DEPLOY_UNPACK_WAR, "false" );
+				return manifestPublishState;
+			}
+		}
 
-		IPath deployPath = LiferayServerCorePlugin.getTempLocation( "direct-deploy", "" );
+		if ( monitor.isCanceled() ) {
+			return IServer.PUBLISH_STATE_FULL;
+		}
 
-		properties.put( ISDKConstants.PROPERTY_APP_SERVER_DEPLOY_DIR, deployPath.toOSString() );
+		monitor.subTask( "Deploying " + moduleProject.getName() + "..." );
 
-		File warFile = deployPath.append( moduleProject.getName() + ".war" ).toFile();
-		warFile.getParentFile().mkdirs();
+		File warFile = createModuleWar( module, monitor );
 
-		properties.put( ISDKConstants.PROPERTY_PLUGIN_FILE, warFile.getAbsolutePath() );
+		int publishState = installModuleWar( module, warFile, monitor );
 
-		submon.worked( 10 ); // 10% complete
+		if ( MANIFEST_SYNC && publishState == IServer.PUBLISH_STATE_NONE ) {
+			String appName = moduleProject.getName();
 
-		if ( monitor.isCanceled() ) {
-			return IServer.PUBLISH_STATE_FULL;
+			try {
+				ModuleManifest.published( getServer(), module[0], getResources( module ) );
+			}
+			catch ( IOException e ) {
+				LiferayServerCorePlugin.logError( "Could not record the published paths of " + appName, e );
+			}
 		}
 
-		submon.subTask( "Deploying " + moduleProject.getName() + "..." );
+		return publishState;
+	}
 
-		Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( moduleProject );
+	/**
+	 * Uploads a packaged module and installs or updates the plugin with it.
+	 */
+	protected int installModuleWar( IModule[] module, File warFile, IProgressMonitor monitor ) throws CoreException {
+		if ( monitor == null ) {
+			monitor = new NullProgressMonitor();
+		}
 
-		IStatus directDeployStatus =
-			sdk.war( moduleProject, properties, true, appServerProperties, new String[] { "-Duser.timezone=GMT" } );
+		IProject moduleProject = module[0].getProject();
 
-		if ( !directDeployStatus.isOK() || ( !warFile.exists() ) ) {
-			throw new CoreException( directDeployStatus );
-		}
+		IProgressMonitor submon = CoreUtil.newSubMonitor( monitor, 100 );
+		submon.subTask( "Deploying " + moduleProject.getName() + "  to Liferay..." );
 
-		submon.worked( 15 ); // 25% complete
+		submon.worked( 25 ); // 25% complete
 
 		if ( monitor.isCanceled() ) {
 			return IServer.PUBLISH_STATE_FULL;
@@ -620,6 +913,9 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 			throw new CoreException(
 				LiferayServerCorePlugin.createErrorStatus( "Cannot publish to remote server that is not started." ) );
 		}
+
+		// status polls would only compete with the publish for the server manager
+		RemoteServerUpdateScheduler.getDefault().suspend( this );
 	}
 
 	protected int removeModule( IModule[] module, IProgressMonitor monitor ) throws CoreException {
@@ -730,6 +1026,10 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 
 		boolean appStarted = getRemoteConnection().isLiferayPluginStarted( appName );
 
+		return updateModuleState( module, appStarted );
+	}
+
+	protected IStatus updateModuleState( IModule module, boolean appStarted ) {
 		IModule[] module2 = new IModule[] { module };
 
 		setModuleState( module2, appStarted ? IServer.STATE_STARTED : IServer.STATE_STOPPED );
@@ -759,14 +1059,16 @@ public class RemoteServerBehavior extends ServerBehaviourDelegate
 		IModule[] modules = getServer().getModules();
 
 		if ( !CoreUtil.isNullOrEmpty( modules ) ) {
-			List<String> plugins = getRemoteConnection().getLiferayPlugins();
+			pluginStates = getRemoteConnection().getLiferayPluginStates( getModuleAppNames() );
 
 			for ( IModule module : modules ) {
 				if ( ServerUtil.isLiferayProject( module.getProject() ) ) {
 					String appName = module.getProject().getName();
 
-					if ( plugins.contains( appName ) ) {
-						updateModuleState( module );
+					RemotePluginState state = pluginStates.get( appName );
+
+					if ( state != null && state.isInstalled() ) {
+						updateModuleState( module, state.isStarted() );
 					}
 					else {
 						setModuleState( new IModule[] { module }, IServer.STATE_UNKNOWN );
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.core.util.CoreUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.ServerCore;
+import org.eclipse.wst.server.core.internal.ServerPlugin;
+
+/**
+ * A set of remote Liferay servers that modules are published to together, for example the nodes of a cluster. The
+ * group itself only keeps the ids of its member servers, the connection settings come from each member.
+ * 
+ * @author Greg Amerson
+ */
+@SuppressWarnings( "restriction" )
+public class RemoteServerGroup extends RemoteServer {
+
+	public static final String ATTR_MEMBER_SERVER_IDS = "member-server-ids";
+
+	public static final String ID = "com.liferay.ide.eclipse.server.remote.group";
+
+	public static boolean isMemberCandidate( IServer server ) {
+		return server != null && server.getServerType() != null &&
+			RemoteServer.ID.equals( server.getServerType().getId() );
+	}
+
+	public RemoteServerGroup() {
+		super();
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public List<String> getMemberServerIds() {
+		List<String> ids = (List<String>) getAttribute( ATTR_MEMBER_SERVER_IDS, (List<String>) null );
+
+		return ids != null ? ids : new ArrayList<String>();
+	}
+
+	/**
+	 * Returns the member servers that still exist, in the order they were added to the group.
+	 */
+	public List<IServer> getMemberServers() {
+		List<IServer> members = new ArrayList<IServer>();
+
+		for ( String id : getMemberServerIds() ) {
+			IServer member = ServerCore.findServer( id );
+
+			if ( isMemberCandidate( member ) ) {
+				members.add( member );
+			}
+		}
+
+		return members;
+	}
+
+	@Override
+	public void setDefaults( IProgressMonitor monitor ) {
+		String baseName = "Remote Liferay Server Group";
+		String defaultName = baseName;
+
+		int collision = 1;
+		while ( ServerPlugin.isNameInUse( getServer(), defaultName ) ) {
+			defaultName = baseName + " (" + ( collision++ ) + ")";
+		}
+
+		getServerWorkingCopy().setName( defaultName );
+	}
+
+	public void setMemberServerIds( List<String> ids ) {
+		setAttribute( ATTR_MEMBER_SERVER_IDS, ids );
+	}
+
+	@Override
+	public IStatus validate( IProgressMonitor monitor ) {
+		if ( CoreUtil.isNullOrEmpty( getMemberServers() ) ) {
+			return LiferayServerCorePlugin.createErrorStatus( "Select at least one remote Liferay server." );
+		}
+
+		return Status.OK_STATUS;
+	}
+
+}
@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.core.util.CoreUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+import com.liferay.ide.eclipse.server.util.PartialArchiveWriter;
+import com.liferay.ide.eclipse.server.util.ServerUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.ServerCore;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+
+/**
+ * Publishes to every member of a {@link RemoteServerGroup}. Each module is packaged once and the resulting WAR or
+ * partial WAR is uploaded to all members in parallel. The group is started while any member is reachable, and a
+ * module is only considered installed or started when it is on every reachable member.
+ * 
+ * @author Greg Amerson
+ */
+public class RemoteServerGroupBehavior extends RemoteServerBehavior {
+
+	private static final long PROGRESS_REFRESH_DELAY = 500;
+
+	private static ExecutorService memberPool;
+
+	private static synchronized ExecutorService getMemberPool() {
+		if ( memberPool == null ) {
+			memberPool = Executors.newCachedThreadPool( new ThreadFactory() {
+
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "Liferay remote server group" );
+					thread.setDaemon( true );
+
+					return thread;
+				}
+			} );
+		}
+
+		return memberPool;
+	}
+
+	public RemoteServerGroupBehavior() {
+		super();
+	}
+
+	@Override
+	public IStatus canPublish() {
+		// members have their own consoles, the group never has a launch of its own
+		if ( getServer().getServerState() == IServer.STATE_STARTED ) {
+			return Status.OK_STATUS;
+		}
+
+		return Status.CANCEL_STATUS;
+	}
+
+	/**
+	 * Runs the operation against every member in parallel and shows the progress of each member while waiting.
+	 * 
+	 * @throws CoreException with one child status per member that failed
+	 */
+	protected void fanOut( String taskName, final MemberOperation operation, final IProgressMonitor monitor )
+		throws CoreException {
+
+		List<IServer> members = getMemberServers();
+
+		if ( members.isEmpty() ) {
+			throw new CoreException( LiferayServerCorePlugin.createErrorStatus( "Server group " +
+				getServer().getName() + " has no members." ) );
+		}
+
+		List<MemberProgressMonitor> memberMonitors = new ArrayList<MemberProgressMonitor>();
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+
+		for ( final IServer member : members ) {
+			final MemberProgressMonitor memberMonitor = new MemberProgressMonitor( monitor );
+
+			memberMonitors.add( memberMonitor );
+
+			results.add( getMemberPool().submit( new Callable<Object>() {
+
+				public Object call() throws Exception {
+					return operation.run( member, getMemberConnection( member ), memberMonitor );
+				}
+			} ) );
+		}
+
+		MultiStatus errors =
+			new MultiStatus( LiferayServerCorePlugin.PLUGIN_ID, 0, taskName + " failed on some servers.", null );
+
+		for ( int i = 0; i < results.size(); i++ ) {
+			Future<Object> result = results.get( i );
+			String memberName = members.get( i ).getName();
+
+			try {
+				Object error = null;
+
+				while ( true ) {
+					monitor.subTask( describeProgress( taskName, members, memberMonitors ) );
+
+					try {
+						error = result.get( PROGRESS_REFRESH_DELAY, TimeUnit.MILLISECONDS );
+						break;
+					}
+					catch ( TimeoutException e ) {
+						// still running, refresh the progress of every member
+					}
+				}
+
+				if ( error != null ) {
+					errors.add( LiferayServerCorePlugin.createErrorStatus( memberName + ": " + error ) );
+				}
+			}
+			catch ( ExecutionException e ) {
+				errors.add(
+					LiferayServerCorePlugin.createErrorStatus( memberName + ": " + e.getCause().getMessage() ) );
+			}
+			catch ( InterruptedException e ) {
+				errors.add( LiferayServerCorePlugin.createErrorStatus( memberName + ": interrupted" ) );
+			}
+		}
+
+		if ( errors.getChildren().length > 0 ) {
+			throw new CoreException( errors );
+		}
+	}
+
+	protected IRemoteConnection getMemberConnection( IServer member ) {
+		return LiferayServerCorePlugin.getRemoteConnection( RemoteUtil.getRemoteServer( member ) );
+	}
+
+	/**
+	 * Returns the plugin states of each reachable member, keyed by member name.
+	 */
+	protected Map<String, Map<String, RemotePluginState>> getMemberPluginStates() {
+		Map<String, Map<String, RemotePluginState>> retval =
+			new LinkedHashMap<String, Map<String, RemotePluginState>>();
+
+		List<String> appNames = getModuleAppNames();
+
+		for ( IServer member : getMemberServers() ) {
+			IRemoteConnection connection = getMemberConnection( member );
+
+			try {
+				if ( connection.isAlive() ) {
+					retval.put( member.getName(), connection.getLiferayPluginStates( appNames ) );
+				}
+			}
+			catch ( Exception e ) {
+				// member is down, it does not count towards the group state
+			}
+		}
+
+		return retval;
+	}
+
+	protected List<IServer> getMemberServers() {
+		RemoteServerGroup group = (RemoteServerGroup) getServer().loadAdapter( RemoteServerGroup.class, null );
+
+		return group != null ? group.getMemberServers() : new ArrayList<IServer>();
+	}
+
+	@Override
+	protected Map<String, RemotePluginState> getPluginStates() {
+		if ( pluginStates == null ) {
+			pluginStates = mergePluginStates( getMemberPluginStates() );
+		}
+
+		return pluginStates;
+	}
+
+	@Override
+	protected void launchServer( IProgressMonitor monitor ) {
+		// the member servers own the log consoles and debug connections
+	}
+
+	@Override
+	protected void pollRemoteServerState( IProgressMonitor monitor ) {
+		// make sure the server has not been deleted
+		if ( !( getServer().equals( ServerCore.findServer( getServer().getId() ) ) ) ) {
+			RemoteServerUpdateScheduler.getDefault().unregister( this );
+			return;
+		}
+
+		int state = getServer().getServerState();
+
+		if ( state == IServer.STATE_STARTING || state == IServer.STATE_STOPPING ) {
+			return;
+		}
+
+		Map<String, Map<String, RemotePluginState>> memberStates = getMemberPluginStates();
+
+		if ( memberStates.isEmpty() ) {
+			setServerState( IServer.STATE_STOPPED );
+			return;
+		}
+
+		setServerState( IServer.STATE_STARTED );
+
+		pluginStates = mergePluginStates( memberStates );
+
+		IModule[] modules = getServer().getModules();
+
+		if ( CoreUtil.isNullOrEmpty( modules ) ) {
+			return;
+		}
+
+		for ( IModule module : modules ) {
+			if ( !ServerUtil.isLiferayProject( module.getProject() ) ) {
+				continue;
+			}
+
+			IModule[] module2 = new IModule[] { module };
+			String appName = module.getProject().getName();
+			int started = 0;
+
+			for ( Map<String, RemotePluginState> states : memberStates.values() ) {
+				RemotePluginState memberState = states.get( appName );
+
+				if ( memberState != null && memberState.isStarted() ) {
+					started++;
+				}
+			}
+
+			if ( started == memberStates.size() ) {
+				setModuleState( module2, IServer.STATE_STARTED );
+				setModuleStatus( module2, null );
+			}
+			else if ( started > 0 ) {
+				setModuleState( module2, IServer.STATE_STARTED );
+				setModuleStatus( module2, LiferayServerCorePlugin.createWarningStatus( "Started on " + started +
+					" of " + memberStates.size() + " servers" ) );
+			}
+			else {
+				setModuleState( module2, IServer.STATE_UNKNOWN );
+				setModuleStatus( module2, null );
+			}
+		}
+	}
+
+	@Override
+	protected int installModuleWar( IModule[] module, final File warFile, IProgressMonitor monitor )
+		throws CoreException {
+
+		if ( monitor == null ) {
+			monitor = new NullProgressMonitor();
+		}
+
+		final String appName = module[0].getProject().getName();
+
+		setModuleStatus( module, LiferayServerCorePlugin.createInfoStatus( "Installing..." ) );
+
+		try {
+			fanOut( "Publishing " + appName, new MemberOperation() {
+
+				public Object run( IServer member, IRemoteConnection connection, IProgressMonitor monitor ) {
+					if ( connection.isAppInstalled( appName ) ) {
+						return connection.updateApplication( appName, warFile.getAbsolutePath(), monitor );
+					}
+
+					return connection.installApplication( warFile.getAbsolutePath(), appName, monitor );
+				}
+			}, monitor );
+		}
+		catch ( CoreException e ) {
+			setModuleStatus( module, null );
+			setModuleState( module, IServer.STATE_UNKNOWN );
+			throw e;
+		}
+
+		setModuleStatus( module, null );
+		setModuleState( module, IServer.STATE_STARTED );
+
+		return IServer.PUBLISH_STATE_NONE;
+	}
+
+	@Override
+	protected int publishModuleDelta( IModule[] module, IProgressMonitor monitor ) throws CoreException {
+		if ( monitor == null ) {
+			monitor = new NullProgressMonitor();
+		}
+
+		IModuleResourceDelta[] delta = getPublishedResourceDelta( module );
+
+		if ( shouldPublishModuleFull( delta ) ) {
+			return publishModuleFull( module, CHANGED, monitor );
+		}
+
+		final String appName = module[0].getProject().getName();
+
+		PartialArchiveWriter partialArchive = PartialArchiveWriter.forDeltas( delta, "liferay", "", true );
+
+		if ( partialArchive.requiresZip64() ) {
+			return publishModuleFull( module, CHANGED, monitor );
+		}
+
+		monitor.subTask( "Creating partial " + appName + " update archive..." );
+
+		// written to disk once instead of being compressed again for every member, below a folder of this group so
+		// other groups publishing the same module at the same time do not write over it
+		String groupFolder = "partial-war/" + getServer().getId().replaceAll( "[^\\w.-]", "_" );
+		final File partialWar = LiferayServerCorePlugin.getTempLocation( groupFolder, appName + ".war" ).toFile();
+		partialWar.getParentFile().mkdirs();
+
+		try {
+			OutputStream out = new BufferedOutputStream( new FileOutputStream( partialWar ) );
+
+			try {
+				partialArchive.write( out );
+			}
+			finally {
+				out.close();
+			}
+
+			if ( monitor.isCanceled() ) {
+				return IServer.PUBLISH_STATE_UNKNOWN;
+			}
+
+			fanOut( "Updating " + appName, new MemberOperation() {
+
+				public Object run( IServer member, IRemoteConnection connection, IProgressMonitor monitor ) {
+					return connection.updateApplication( appName, partialWar.getAbsolutePath(), monitor );
+				}
+			}, monitor );
+		}
+		catch ( IOException e ) {
+			throw new CoreException( LiferayServerCorePlugin.createErrorStatus( e ) );
+		}
+		finally {
+			partialWar.delete();
+			partialWar.getParentFile().delete();
+		}
+
+		return IServer.PUBLISH_STATE_NONE;
+	}
+
+	@Override
+	protected int publishModuleManifest( IModule[] module, IProgressMonitor monitor ) {
+		// members can be out of step with each other, a single full WAR brings them all to the same content
+		return -1;
+	}
+
+	@Override
+	protected int removeModule( IModule[] module, IProgressMonitor monitor ) throws CoreException {
+		if ( module == null || module.length != 1 || module[0].getProject() == null ) {
+			return super.removeModule( module, monitor );
+		}
+
+		final String appName = module[0].getProject().getName();
+
+		setModuleStatus( module, LiferayServerCorePlugin.createInfoStatus( "Uninstalling..." ) );
+
+		fanOut( "Uninstalling " + appName, new MemberOperation() {
+
+			public Object run( IServer member, IRemoteConnection connection, IProgressMonitor monitor ) {
+				return connection.uninstallApplication( appName, monitor );
+			}
+		}, monitor == null ? new NullProgressMonitor() : monitor );
+
+		setModuleStatus( module, null );
+
+		return IServer.PUBLISH_STATE_NONE;
+	}
+
+	@Override
+	protected IStatus updateModuleState( IModule module ) {
+		RemotePluginState state = getPluginStates().get( module.getProject().getName() );
+
+		return updateModuleState( module, state != null && state.isStarted() );
+	}
+
+	private String describeProgress(
+		String taskName, List<IServer> members, List<MemberProgressMonitor> memberMonitors ) {
+
+		StringBuilder sb = new StringBuilder( taskName );
+
+		for ( int i = 0; i < members.size(); i++ ) {
+			String memberTask = memberMonitors.get( i ).getTaskName();
+
+			sb.append( i == 0 ? " - " : "; " );
+			sb.append( members.get( i ).getName() );
+			sb.append( ": " );
+			sb.append( memberTask != null ? memberTask : "waiting" );
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * A plugin counts as installed or started on the group only when it is on every reachable member, so a member
+	 * that missed a publish gets the full WAR next time.
+	 */
+	private Map<String, RemotePluginState> mergePluginStates(
+		Map<String, Map<String, RemotePluginState>> memberStates ) {
+
+		Map<String, RemotePluginState> retval = new HashMap<String, RemotePluginState>();
+
+		if ( memberStates.isEmpty() ) {
+			return retval;
+		}
+
+		for ( String appName : getModuleAppNames() ) {
+			boolean installed = true;
+			boolean started = true;
+
+			for ( Map<String, RemotePluginState> states : memberStates.values() ) {
+				RemotePluginState state = states.get( appName );
+
+				installed = installed && state != null && state.isInstalled();
+				started = started && state != null && state.isStarted();
+			}
+
+			if ( installed ) {
+				retval.put( appName, new RemotePluginState( true, started ) );
+			}
+		}
+
+		return retval;
+	}
+
+	public interface MemberOperation {
+
+		/**
+		 * @return null on success, otherwise an error message
+		 */
+		Object run( IServer member, IRemoteConnection connection, IProgressMonitor monitor ) throws Exception;
+
+	}
+
+	/**
+	 * Progress monitors are not thread safe, so each member only records its current task for the publish thread to
+	 * display.
+	 */
+	private static class MemberProgressMonitor extends NullProgressMonitor {
+
+		private final IProgressMonitor parent;
+		private volatile String taskName;
+
+		public MemberProgressMonitor( IProgressMonitor parent ) {
+			this.parent = parent;
+		}
+
+		public String getTaskName() {
+			return taskName;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return parent.isCanceled();
+		}
+
+		@Override
+		public void subTask( String name ) {
+			taskName = name;
+		}
+
+	}
+
+}
@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.wst.server.core.IServer;
+
+/**
+ * Polls the state of all remote servers from one shared dispatch job. Each server gets its own interval which backs
+ * off exponentially while the host is unreachable, shortens for a while after a publish or start, is stretched when
+ * the observed poll cost of the host is high and is jittered so servers do not poll in lock step. Servers are not
+ * polled while a publish is running against them.
+ * 
+ * @author Greg Amerson
+ */
+public class RemoteServerUpdateScheduler {
+
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	public static final long FAST_POLL_DELAY = _defaultPrefs.getLong( "remote.fast.poll.delay", 1000 );
+
+	public static final long FAST_POLL_WINDOW = _defaultPrefs.getLong( "remote.fast.poll.window", 30000 );
+
+	public static final long MAX_POLL_DELAY = _defaultPrefs.getLong( "remote.max.poll.delay", 60000 );
+
+	public static final int POLL_COST_FACTOR = _defaultPrefs.getInt( "remote.poll.cost.factor", 10 );
+
+	public static final int POLL_JITTER_PERCENT = _defaultPrefs.getInt( "remote.poll.jitter.percent", 10 );
+
+	private static RemoteServerUpdateScheduler instance;
+
+	public static synchronized RemoteServerUpdateScheduler getDefault() {
+		if ( instance == null ) {
+			instance = new RemoteServerUpdateScheduler();
+		}
+
+		return instance;
+	}
+
+	private final Job dispatchJob;
+
+	private final Map<RemoteServerBehavior, PollEntry> entries = new HashMap<RemoteServerBehavior, PollEntry>();
+
+	private final Map<String, Long> hostPollCosts = new HashMap<String, Long>();
+
+	private final Random random = new Random();
+
+	private RemoteServerUpdateScheduler() {
+		dispatchJob = new Job( "Remote server update." ) {
+
+			@Override
+			protected IStatus run( IProgressMonitor monitor ) {
+				dispatch();
+
+				return Status.OK_STATUS;
+			}
+		};
+
+		dispatchJob.setSystem( true );
+	}
+
+	/**
+	 * Returns the average cost in milliseconds of one status poll against the given host, or -1 if it has not been
+	 * polled yet.
+	 */
+	public synchronized long getHostPollCost( String host ) {
+		Long cost = hostPollCosts.get( host );
+
+		return cost != null ? cost : -1;
+	}
+
+	/**
+	 * Polls the server right away and keeps polling it at the fast rate for a while, used after a publish or after
+	 * the server has come up.
+	 */
+	public synchronized void pollSoon( RemoteServerBehavior behavior ) {
+		PollEntry entry = entries.get( behavior );
+
+		if ( entry != null ) {
+			entry.fastUntil = System.currentTimeMillis() + FAST_POLL_WINDOW;
+			entry.failures = 0;
+			entry.nextPoll = Math.min( entry.nextPoll, System.currentTimeMillis() + FAST_POLL_DELAY );
+			reschedule();
+		}
+	}
+
+	public synchronized void register( RemoteServerBehavior behavior ) {
+		if ( !entries.containsKey( behavior ) ) {
+			entries.put( behavior, new PollEntry( behavior ) );
+			reschedule();
+		}
+	}
+
+	public synchronized void resume( RemoteServerBehavior behavior ) {
+		PollEntry entry = entries.get( behavior );
+
+		if ( entry != null && entry.suspended ) {
+			entry.suspended = false;
+			reschedule();
+		}
+	}
+
+	public synchronized void suspend( RemoteServerBehavior behavior ) {
+		PollEntry entry = entries.get( behavior );
+
+		if ( entry != null ) {
+			entry.suspended = true;
+		}
+	}
+
+	public synchronized void unregister( RemoteServerBehavior behavior ) {
+		PollEntry entry = entries.remove( behavior );
+
+		if ( entry != null ) {
+			entry.pollJob.cancel();
+		}
+
+		if ( entries.isEmpty() ) {
+			dispatchJob.cancel();
+		}
+		else {
+			reschedule();
+		}
+	}
+
+	protected long computeDelay( PollEntry entry, boolean reachable ) {
+		long now = System.currentTimeMillis();
+		long delay = entry.behavior.getRemoteServerUpdateDelay();
+
+		if ( !reachable ) {
+			// exponential back-off while the host is down
+			int shift = Math.min( entry.failures, 16 );
+			delay = Math.min( delay << shift, MAX_POLL_DELAY );
+		}
+		else if ( now < entry.fastUntil ) {
+			delay = FAST_POLL_DELAY;
+		}
+
+		// never spend more than a fraction of the time polling a slow host
+		long averageCost = getHostPollCost( entry.host );
+
+		if ( averageCost > 0 ) {
+			delay = Math.max( delay, averageCost * POLL_COST_FACTOR );
+		}
+
+		delay = Math.min( delay, Math.max( MAX_POLL_DELAY, FAST_POLL_DELAY ) );
+
+		long jitter = delay * POLL_JITTER_PERCENT / 100;
+
+		if ( jitter > 0 ) {
+			delay += ( random.nextLong() % jitter );
+		}
+
+		return Math.max( delay, 0 );
+	}
+
+	protected void dispatch() {
+		List<PollEntry> due = new ArrayList<PollEntry>();
+
+		synchronized( this ) {
+			long now = System.currentTimeMillis();
+
+			for ( PollEntry entry : entries.values() ) {
+				if ( !entry.suspended && !entry.polling && entry.nextPoll <= now ) {
+					entry.polling = true;
+					due.add( entry );
+				}
+			}
+		}
+
+		for ( PollEntry entry : due ) {
+			entry.pollJob.schedule();
+		}
+
+		synchronized( this ) {
+			reschedule();
+		}
+	}
+
+	protected synchronized void pollFinished( PollEntry entry, boolean reachable, long cost ) {
+		entry.polling = false;
+
+		if ( !entries.containsKey( entry.behavior ) ) {
+			return;
+		}
+
+		if ( reachable ) {
+			entry.failures = 0;
+
+			// exponential moving average of the poll cost per host
+			Long averageCost = hostPollCosts.get( entry.host );
+			hostPollCosts.put( entry.host, averageCost == null ? cost : ( averageCost * 3 + cost ) / 4 );
+		}
+		else {
+			entry.failures++;
+		}
+
+		entry.nextPoll = System.currentTimeMillis() + computeDelay( entry, reachable );
+
+		reschedule();
+	}
+
+	private void reschedule() {
+		long next = Long.MAX_VALUE;
+
+		for ( PollEntry entry : entries.values() ) {
+			if ( !entry.suspended && !entry.polling ) {
+				next = Math.min( next, entry.nextPoll );
+			}
+		}
+
+		if ( next != Long.MAX_VALUE ) {
+			dispatchJob.cancel();
+			dispatchJob.schedule( Math.max( 0, next - System.currentTimeMillis() ) );
+		}
+	}
+
+	protected class PollEntry {
+
+		final RemoteServerBehavior behavior;
+		int failures = 0;
+		long fastUntil = 0;
+		final String host;
+		long nextPoll = System.currentTimeMillis();
+		final Job pollJob;
+		boolean polling = false;
+		boolean suspended = false;
+
+		PollEntry( RemoteServerBehavior remoteBehavior ) {
+			this.behavior = remoteBehavior;
+			this.host = remoteBehavior.getServer().getHost();
+			this.pollJob = new Job( "Remote server update." ) {
+
+				@Override
+				protected IStatus run( IProgressMonitor monitor ) {
+					long start = System.currentTimeMillis();
+					boolean reachable = false;
+
+					try {
+						behavior.pollRemoteServerState( monitor );
+
+						int state = behavior.getServer().getServerState();
+						reachable = state == IServer.STATE_STARTED;
+					}
+					catch ( Exception e ) {
+						LiferayServerCorePlugin.logError( e );
+					}
+					finally {
+						pollFinished( PollEntry.this, reachable, System.currentTimeMillis() - start );
+					}
+
+					return Status.OK_STATUS;
+				}
+			};
+
+			this.pollJob.setSystem( true );
+		}
+
+	}
+
+}
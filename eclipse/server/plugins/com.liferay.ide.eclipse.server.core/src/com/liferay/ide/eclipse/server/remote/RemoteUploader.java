@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.remote;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Client side of the server manager chunked upload protocol. A session is opened with the size and checksum of the
+ * whole file, then the file is sent as fixed size chunks each carrying its own checksum. After a dropped connection the
+ * uploader asks the server for the last acknowledged offset and continues from there; opening a session for a file the
+ * server already holds a partial upload of resumes that upload as well. Failed requests, including the query for the
+ * offset, are retried with a growing delay, and the retries only start over once the server acknowledges an offset
+ * past the last one. Only a server that does not know the upload request at all is taken for one without chunked
+ * upload support.
+ * 
+ * @author Greg Amerson
+ */
+public class RemoteUploader {
+
+	@SuppressWarnings( "deprecation" )
+	public static final IEclipsePreferences _defaultPrefs =
+		new DefaultScope().getNode( LiferayServerCorePlugin.PLUGIN_ID );
+
+	public static final int UPLOAD_CHUNK_SIZE = _defaultPrefs.getInt( "remote.upload.chunk.size", 1024 * 1024 );
+
+	public static final boolean UPLOAD_GZIP = _defaultPrefs.getBoolean( "remote.upload.gzip", false );
+
+	public static final int UPLOAD_RETRIES = _defaultPrefs.getInt( "remote.upload.retries", 5 );
+
+	public static final long UPLOAD_RETRY_DELAY = _defaultPrefs.getLong( "remote.upload.retry.delay", 1000 );
+
+	private static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-Checksum";
+
+	// progress is counted in KB so files over 2 GB still fit the int work of a monitor
+	private static final int WORK_UNIT = 1024;
+
+	static String formatProgress( String taskName, long sent, long total ) {
+		return taskName + " (" + ( sent / 1024 ) + " of " + ( total / 1024 ) + " KB)";
+	}
+
+	private final String appName;
+	private final RemoteConnection connection;
+	private final File file;
+	private final IProgressMonitor monitor;
+	private String sessionURI;
+
+	public RemoteUploader( RemoteConnection connection, String appName, File file, IProgressMonitor monitor ) {
+		this.connection = connection;
+		this.appName = appName;
+		this.file = file;
+		this.monitor = monitor == null ? new NullProgressMonitor() : monitor;
+	}
+
+	/**
+	 * Uploads the file and asks the server to install or update the plugin with it.
+	 * 
+	 * @return null on success, otherwise an error message
+	 * @throws UnsupportedOperationException if the server manager does not support chunked uploads
+	 */
+	public Object upload( boolean install ) throws IOException {
+		long length = file.length();
+
+		String taskName = "Uploading " + file.getName();
+
+		monitor.beginTask( taskName, (int) ( length / WORK_UNIT ) + 1 );
+
+		try {
+			long offset = openSession( length );
+			long reported = 0;
+
+			RandomAccessFile in = new RandomAccessFile( file, "r" );
+
+			try {
+				byte[] buffer = new byte[UPLOAD_CHUNK_SIZE];
+				int retries = 0;
+				boolean resync = false;
+
+				while ( offset < length ) {
+					if ( monitor.isCanceled() ) {
+						return "Upload canceled.";
+					}
+
+					if ( offset > reported ) {
+						monitor.worked( (int) ( offset / WORK_UNIT - reported / WORK_UNIT ) );
+						reported = offset;
+					}
+
+					monitor.subTask( formatProgress( taskName, offset, length ) );
+
+					if ( resync ) {
+						// the chunk may or may not have arrived, continue from whatever the server acknowledged
+						try {
+							offset = queryOffset();
+							resync = false;
+						}
+						catch ( IOException e ) {
+							backOff( e, ++retries, "GET", sessionURI );
+						}
+
+						continue;
+					}
+
+					int chunkLength = (int) Math.min( buffer.length, length - offset );
+
+					in.seek( offset );
+					in.readFully( buffer, 0, chunkLength );
+
+					try {
+						long acknowledged = sendChunk( offset, buffer, chunkLength );
+
+						if ( acknowledged > offset ) {
+							retries = 0;
+						}
+						else {
+							// a server that keeps acknowledging the same offset must not keep the upload going
+							backOff(
+								new IOException( "Upload of " + file.getName() + " did not advance past offset " +
+									acknowledged + "." ), ++retries, "PUT", sessionURI );
+						}
+
+						offset = acknowledged;
+					}
+					catch ( IOException e ) {
+						// only a chunk that got through resets the retries, so a server that stays away ends the upload
+						backOff( e, ++retries, "PUT", sessionURI );
+
+						resync = true;
+					}
+				}
+
+				monitor.worked( (int) ( length / WORK_UNIT - reported / WORK_UNIT ) );
+				monitor.subTask( formatProgress( taskName, length, length ) );
+			}
+			finally {
+				in.close();
+			}
+
+			return completeSession( install );
+		}
+		finally {
+			monitor.done();
+		}
+	}
+
+	private void backOff( IOException e, int retries, String methodName, String uri ) throws IOException {
+		if ( e instanceof InterruptedIOException || retries > UPLOAD_RETRIES ) {
+			throw e;
+		}
+
+		connection.recordRetry( methodName, uri );
+
+		sleep( UPLOAD_RETRY_DELAY << ( retries - 1 ) );
+	}
+
+	private Object completeSession( boolean install ) throws IOException {
+		PostMethod method = new PostMethod( sessionURI + "/complete?install=" + install );
+
+		try {
+			JSONObject json = connection.invokeJSONMethod( method );
+
+			if ( json == null || !connection.isSuccess( json ) ) {
+				return "Could not complete upload of " + file.getName();
+			}
+		}
+		catch ( Exception e ) {
+			return e.getMessage();
+		}
+
+		return null;
+	}
+
+	private byte[] gzip( byte[] bytes, int length ) throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream( length );
+		GZIPOutputStream gzipOut = new GZIPOutputStream( bytesOut );
+		gzipOut.write( bytes, 0, length );
+		gzipOut.close();
+
+		return bytesOut.toByteArray();
+	}
+
+	private long openSession( long length ) throws IOException {
+		String uri =
+			connection.getPluginURI( appName ) + "/upload?size=" + length + "&checksum=" + FileUtil.checksum( file );
+		int retries = 0;
+
+		while ( true ) {
+			if ( monitor.isCanceled() ) {
+				throw new InterruptedIOException( "Upload canceled." );
+			}
+
+			PostMethod method = new PostMethod( uri );
+			JSONObject json = null;
+
+			try {
+				json = connection.invokeJSONMethod( method );
+			}
+			catch ( JSONException e ) {
+				// older server managers answer with a page that is not json
+				throw new UnsupportedOperationException( "Chunked upload is not supported by this server manager." );
+			}
+			catch ( IOException e ) {
+				backOff( e, ++retries, "POST", uri );
+
+				continue;
+			}
+
+			if ( json == null ) {
+				if ( connection.isNotSupported( method ) ) {
+					throw new UnsupportedOperationException(
+						"Chunked upload is not supported by this server manager." );
+				}
+
+				backOff(
+					new IOException( "Upload of " + file.getName() + " failed: " + method.getStatusLine() ), ++retries,
+					"POST", uri );
+
+				continue;
+			}
+
+			try {
+				if ( !connection.isSuccess( json ) ) {
+					// the server knows the request and turned it down, asking again will not change that
+					throw new IOException( "Could not start upload of " + file.getName() );
+				}
+
+				JSONObject session = new JSONObject( connection.getJSONOutput( json ) );
+
+				sessionURI = connection.getPluginURI( appName ) + "/upload/" + session.getString( "id" );
+
+				return session.optLong( "offset", 0 );
+			}
+			catch ( JSONException e ) {
+				throw new IOException( "Could not read the upload session of " + file.getName() );
+			}
+		}
+	}
+
+	private long queryOffset() throws IOException {
+		try {
+			JSONObject json = connection.invokeJSONMethod( new GetMethod( sessionURI ) );
+
+			if ( json != null && connection.isSuccess( json ) ) {
+				return new JSONObject( connection.getJSONOutput( json ) ).getLong( "offset" );
+			}
+		}
+		catch ( Exception e ) {
+		}
+
+		throw new IOException( "Could not resume upload of " + file.getName() );
+	}
+
+	private long sendChunk( long offset, byte[] buffer, int length ) throws IOException {
+		PutMethod method = new PutMethod( sessionURI + "?offset=" + offset );
+		method.setRequestHeader( CHUNK_CHECKSUM_HEADER, FileUtil.checksum( buffer, 0, length ) );
+
+		if ( UPLOAD_GZIP ) {
+			method.setRequestHeader( "Content-Encoding", "gzip" );
+			method.setRequestEntity( new ByteArrayRequestEntity( gzip( buffer, length ), "application/octet-stream" ) );
+		}
+		else {
+			byte[] chunk = buffer;
+
+			if ( length != buffer.length ) {
+				chunk = new byte[length];
+				System.arraycopy( buffer, 0, chunk, 0, length );
+			}
+
+			method.setRequestEntity( new ByteArrayRequestEntity( chunk, "application/octet-stream" ) );
+		}
+
+		try {
+			JSONObject json = connection.invokeJSONMethod( method );
+
+			if ( json != null && connection.isSuccess( json ) ) {
+				return new JSONObject( connection.getJSONOutput( json ) ).getLong( "offset" );
+			}
+		}
+		catch ( IOException e ) {
+			throw e;
+		}
+		catch ( Exception e ) {
+		}
+
+		// checksum mismatch or rejected chunk, let the caller resync with the server
+		throw new IOException( "Chunk at offset " + offset + " of " + file.getName() + " was not acknowledged." );
+	}
+
+	/**
+	 * Sleeps for the given delay, returning early once the monitor is canceled.
+	 */
+	private void sleep( long delay ) throws InterruptedIOException {
+		long end = System.currentTimeMillis() + delay;
+
+		try {
+			for ( long left = delay; left > 0 && !monitor.isCanceled(); left = end - System.currentTimeMillis() ) {
+				Thread.sleep( Math.min( left, 100 ) );
+			}
+		}
+		catch ( InterruptedException e ) {
+			throw new InterruptedIOException( "Upload interrupted." );
+		}
+	}
+
+}
@@ -0,0 +1,688 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the values of static fields straight from a class file, without loading the class. The static initializer is
+ * run by a small interpreter that only knows straight-line code: constants, string concatenation, array initializers
+ * and static field stores. Calls into other classes give unknown values, and anything else, like a branch, stops the
+ * interpreter. Then the class is reported as not recognized and callers fall back to loading it in a separate JVM.
+ * <p>
+ * That covers the portal classes the IDE needs to look into, like ReleaseInfo and HookHotDeployListener, whose static
+ * state is plain constants.
+ *
+ * @author Greg Amerson
+ */
+public class ClassConstantReader {
+
+	private static final Object UNKNOWN = new Object();
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+	/**
+	 * Reads a class out of a jar.
+	 *
+	 * @param className fully qualified name of the class
+	 * @return the reader, or null if the jar does not contain the class
+	 */
+	public static ClassConstantReader read( File jarFile, String className ) throws IOException {
+		ZipFile zipFile = new ZipFile( jarFile );
+
+		try {
+			ZipEntry entry = zipFile.getEntry( className.replace( '.', '/' ) + ".class" );
+
+			if ( entry == null ) {
+				return null;
+			}
+
+			InputStream in = zipFile.getInputStream( entry );
+
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read = 0;
+
+				while ( ( read = in.read( buffer ) ) != -1 ) {
+					bytes.write( buffer, 0, read );
+				}
+
+				return new ClassConstantReader( bytes.toByteArray() );
+			}
+			finally {
+				in.close();
+			}
+		}
+		finally {
+			zipFile.close();
+		}
+	}
+
+	private String className;
+	private Map<String, Object> constantStatics = new HashMap<String, Object>();
+	private Map<String, byte[]> methods = new HashMap<String, byte[]>();
+	private Object[] pool;
+	private Map<String, Object> statics;
+	private int[] tags;
+
+	/**
+	 * @throws IOException if the bytes are not a well-formed class file
+	 */
+	public ClassConstantReader( byte[] classBytes ) throws IOException {
+		try {
+			parse( new DataInputStream( new ByteArrayInputStream( classBytes ) ) );
+		}
+		catch ( RuntimeException e ) {
+			// bad pool indexes or tags of a damaged or newer class file
+			IOException ioe = new IOException( "Malformed class file" );
+			ioe.initCause( e );
+
+			throw ioe;
+		}
+	}
+
+	public String getClassName() {
+		return className.replace( '/', '.' );
+	}
+
+	/**
+	 * Returns the value of a static String array field, or null if it is not a String array of known values.
+	 */
+	public String[] getStaticStringArray( String fieldName ) {
+		Object value = getStatics().get( fieldName );
+
+		if ( !( value instanceof Object[] ) ) {
+			return null;
+		}
+
+		Object[] array = (Object[]) value;
+		String[] retval = new String[array.length];
+
+		for ( int i = 0; i < array.length; i++ ) {
+			if ( !( array[i] instanceof String ) ) {
+				return null;
+			}
+
+			retval[i] = (String) array[i];
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Runs a static method without parameters that returns a String, like ReleaseInfo.getVersion().
+	 *
+	 * @return the returned String, or null if the method or its value is not recognized
+	 */
+	public String invokeStaticGetter( String methodName ) {
+		byte[] code = methods.get( methodName + "()Ljava/lang/String;" );
+
+		if ( code == null ) {
+			return null;
+		}
+
+		try {
+			Object value = execute( code, getStatics() );
+
+			return value instanceof String ? (String) value : null;
+		}
+		catch ( UnrecognizedCodeException e ) {
+			return null;
+		}
+	}
+
+	private String[] getRef( int index ) {
+		int[] ref = (int[]) pool[index];
+		int[] nameAndType = (int[]) pool[ref[1]];
+
+		return new String[] { getClassName( ref[0] ), (String) pool[nameAndType[0]], (String) pool[nameAndType[1]] };
+	}
+
+	private String getClassName( int classIndex ) {
+		return (String) pool[(Integer) pool[classIndex]];
+	}
+
+	private Object getConstant( int index ) {
+		switch ( tags[index] ) {
+		case CONSTANT_STRING:
+			return pool[(Integer) pool[index]];
+
+		case CONSTANT_INTEGER:
+			return pool[index];
+
+		default:
+			return UNKNOWN;
+		}
+	}
+
+	private synchronized Map<String, Object> getStatics() {
+		if ( statics == null ) {
+			Map<String, Object> values = new HashMap<String, Object>( constantStatics );
+			byte[] clinit = methods.get( "<clinit>()V" );
+
+			try {
+				if ( clinit != null ) {
+					execute( clinit, values );
+				}
+
+				statics = values;
+			}
+			catch ( UnrecognizedCodeException e ) {
+				statics = new HashMap<String, Object>();
+			}
+		}
+
+		return statics;
+	}
+
+	private void parse( DataInputStream in ) throws IOException {
+		if ( in.readInt() != 0xCAFEBABE ) {
+			throw new IOException( "Not a class file" );
+		}
+
+		in.readUnsignedShort();
+		in.readUnsignedShort();
+
+		int poolCount = in.readUnsignedShort();
+
+		pool = new Object[poolCount];
+		tags = new int[poolCount];
+
+		for ( int i = 1; i < poolCount; i++ ) {
+			int tag = in.readUnsignedByte();
+			tags[i] = tag;
+
+			switch ( tag ) {
+			case CONSTANT_UTF8:
+				pool[i] = in.readUTF();
+				break;
+
+			case CONSTANT_INTEGER:
+				pool[i] = in.readInt();
+				break;
+
+			case CONSTANT_FLOAT:
+				pool[i] = in.readFloat();
+				break;
+
+			case CONSTANT_LONG:
+				pool[i] = in.readLong();
+				i++;
+				break;
+
+			case CONSTANT_DOUBLE:
+				pool[i] = in.readDouble();
+				i++;
+				break;
+
+			case CONSTANT_CLASS:
+			case CONSTANT_STRING:
+			case CONSTANT_METHOD_TYPE:
+				pool[i] = in.readUnsignedShort();
+				break;
+
+			case CONSTANT_METHOD_HANDLE:
+				in.readUnsignedByte();
+				in.readUnsignedShort();
+				break;
+
+			case CONSTANT_INVOKE_DYNAMIC:
+			default:
+				// field, method and interface method refs, name and types, and invoke dynamic are all two shorts
+				if ( tag < 9 || tag > CONSTANT_INVOKE_DYNAMIC ) {
+					throw new IOException( "Unknown constant pool tag " + tag );
+				}
+
+				pool[i] = new int[] { in.readUnsignedShort(), in.readUnsignedShort() };
+				break;
+			}
+		}
+
+		in.readUnsignedShort();
+		className = getClassName( in.readUnsignedShort() );
+		in.readUnsignedShort();
+
+		int interfaceCount = in.readUnsignedShort();
+
+		for ( int i = 0; i < interfaceCount; i++ ) {
+			in.readUnsignedShort();
+		}
+
+		int fieldCount = in.readUnsignedShort();
+
+		for ( int i = 0; i < fieldCount; i++ ) {
+			in.readUnsignedShort();
+			String name = (String) pool[in.readUnsignedShort()];
+			in.readUnsignedShort();
+
+			int attributeCount = in.readUnsignedShort();
+
+			for ( int j = 0; j < attributeCount; j++ ) {
+				String attributeName = (String) pool[in.readUnsignedShort()];
+				int length = in.readInt();
+
+				if ( "ConstantValue".equals( attributeName ) ) {
+					// static final constants are not assigned in the static initializer
+					constantStatics.put( name, getConstant( in.readUnsignedShort() ) );
+				}
+				else {
+					in.readFully( new byte[length] );
+				}
+			}
+		}
+
+		int methodCount = in.readUnsignedShort();
+
+		for ( int i = 0; i < methodCount; i++ ) {
+			in.readUnsignedShort();
+			String name = (String) pool[in.readUnsignedShort()];
+			String descriptor = (String) pool[in.readUnsignedShort()];
+
+			int attributeCount = in.readUnsignedShort();
+
+			for ( int j = 0; j < attributeCount; j++ ) {
+				String attributeName = (String) pool[in.readUnsignedShort()];
+				byte[] attribute = new byte[in.readInt()];
+				in.readFully( attribute );
+
+				if ( "Code".equals( attributeName ) ) {
+					// max stack (2), max locals (2), code length (4), code
+					int codeLength =
+						( ( attribute[4] & 0xff ) << 24 ) | ( ( attribute[5] & 0xff ) << 16 ) |
+							( ( attribute[6] & 0xff ) << 8 ) | ( attribute[7] & 0xff );
+
+					byte[] code = new byte[codeLength];
+					System.arraycopy( attribute, 8, code, 0, codeLength );
+
+					methods.put( name + descriptor, code );
+				}
+			}
+		}
+	}
+
+	private Object execute( byte[] code, Map<String, Object> values ) throws UnrecognizedCodeException {
+		LinkedList<Object> stack = new LinkedList<Object>();
+		Map<Integer, Object> locals = new HashMap<Integer, Object>();
+
+		int pc = 0;
+
+		try {
+			while ( pc < code.length ) {
+				int op = code[pc] & 0xff;
+
+				switch ( op ) {
+				case 0x00: // nop
+					pc++;
+					break;
+
+				case 0x01: // aconst_null
+					stack.push( null );
+					pc++;
+					break;
+
+				case 0x02: // iconst_m1 to iconst_5
+				case 0x03:
+				case 0x04:
+				case 0x05:
+				case 0x06:
+				case 0x07:
+				case 0x08:
+					stack.push( op - 0x03 );
+					pc++;
+					break;
+
+				case 0x09: // lconst, fconst and dconst
+				case 0x0a:
+				case 0x0b:
+				case 0x0c:
+				case 0x0d:
+				case 0x0e:
+				case 0x0f:
+					stack.push( UNKNOWN );
+					pc++;
+					break;
+
+				case 0x10: // bipush
+					stack.push( (int) code[pc + 1] );
+					pc += 2;
+					break;
+
+				case 0x11: // sipush
+					stack.push( (int) (short) ( ( code[pc + 1] << 8 ) | ( code[pc + 2] & 0xff ) ) );
+					pc += 3;
+					break;
+
+				case 0x12: // ldc
+					stack.push( getConstant( code[pc + 1] & 0xff ) );
+					pc += 2;
+					break;
+
+				case 0x13: // ldc_w and ldc2_w
+				case 0x14:
+					stack.push( getConstant( readShort( code, pc + 1 ) ) );
+					pc += 3;
+					break;
+
+				case 0x15: // iload and aload
+				case 0x19:
+					stack.push( locals.get( code[pc + 1] & 0xff ) );
+					pc += 2;
+					break;
+
+				case 0x1a: // iload_0 to iload_3
+				case 0x1b:
+				case 0x1c:
+				case 0x1d:
+					stack.push( locals.get( op - 0x1a ) );
+					pc++;
+					break;
+
+				case 0x2a: // aload_0 to aload_3
+				case 0x2b:
+				case 0x2c:
+				case 0x2d:
+					stack.push( locals.get( op - 0x2a ) );
+					pc++;
+					break;
+
+				case 0x36: // istore and astore
+				case 0x3a:
+					locals.put( code[pc + 1] & 0xff, stack.pop() );
+					pc += 2;
+					break;
+
+				case 0x3b: // istore_0 to istore_3
+				case 0x3c:
+				case 0x3d:
+				case 0x3e:
+					locals.put( op - 0x3b, stack.pop() );
+					pc++;
+					break;
+
+				case 0x4b: // astore_0 to astore_3
+				case 0x4c:
+				case 0x4d:
+				case 0x4e:
+					locals.put( op - 0x4b, stack.pop() );
+					pc++;
+					break;
+
+				case 0x53: { // aastore
+					Object value = stack.pop();
+					Object index = stack.pop();
+					Object array = stack.pop();
+
+					if ( array instanceof Object[] && index instanceof Integer ) {
+						( (Object[]) array )[(Integer) index] = value;
+					}
+
+					pc++;
+					break;
+				}
+
+				case 0x57: // pop
+					stack.pop();
+					pc++;
+					break;
+
+				case 0x59: // dup
+					stack.push( stack.peek() );
+					pc++;
+					break;
+
+				case 0xac: // ireturn and areturn
+				case 0xb0:
+					return stack.pop();
+
+				case 0xb1: // return
+					return null;
+
+				case 0xb2: { // getstatic
+					String[] ref = getRef( readShort( code, pc + 1 ) );
+
+					if ( className.equals( ref[0] ) && values.containsKey( ref[1] ) ) {
+						stack.push( values.get( ref[1] ) );
+					}
+					else {
+						stack.push( UNKNOWN );
+					}
+
+					pc += 3;
+					break;
+				}
+
+				case 0xb3: { // putstatic
+					String[] ref = getRef( readShort( code, pc + 1 ) );
+					Object value = stack.pop();
+
+					if ( className.equals( ref[0] ) ) {
+						values.put( ref[1], value );
+					}
+
+					pc += 3;
+					break;
+				}
+
+				case 0xb4: // getfield
+					stack.pop();
+					stack.push( UNKNOWN );
+					pc += 3;
+					break;
+
+				case 0xb5: // putfield
+					stack.pop();
+					stack.pop();
+					pc += 3;
+					break;
+
+				case 0xb6: // invokevirtual, invokespecial and invokestatic
+				case 0xb7:
+				case 0xb8:
+					invoke( op, getRef( readShort( code, pc + 1 ) ), stack );
+					pc += 3;
+					break;
+
+				case 0xb9: // invokeinterface
+					invoke( op, getRef( readShort( code, pc + 1 ) ), stack );
+					pc += 5;
+					break;
+
+				case 0xbb: { // new
+					String type = getClassName( readShort( code, pc + 1 ) );
+
+					stack.push( isStringBuilder( type ) ? new StringBuilderValue() : new Object() );
+					pc += 3;
+					break;
+				}
+
+				case 0xbc: // newarray
+					stack.pop();
+					stack.push( UNKNOWN );
+					pc += 2;
+					break;
+
+				case 0xbd: { // anewarray
+					Object count = stack.pop();
+
+					if ( !( count instanceof Integer ) ) {
+						throw new UnrecognizedCodeException();
+					}
+
+					stack.push( new Object[(Integer) count] );
+					pc += 3;
+					break;
+				}
+
+				case 0xc0: // checkcast
+					pc += 3;
+					break;
+
+				default:
+					// branches, exceptions, arithmetic and everything else we do not follow
+					throw new UnrecognizedCodeException();
+				}
+			}
+		}
+		catch ( RuntimeException e ) {
+			// stack underflow, bad indexes and the like mean we misread the code
+			throw new UnrecognizedCodeException();
+		}
+
+		throw new UnrecognizedCodeException();
+	}
+
+	private void invoke( int op, String[] ref, LinkedList<Object> stack ) {
+		String owner = ref[0];
+		String name = ref[1];
+		String descriptor = ref[2];
+
+		char[] argTypes = getArgumentTypes( descriptor );
+		Object[] args = new Object[argTypes.length];
+
+		for ( int i = args.length - 1; i >= 0; i-- ) {
+			args[i] = stack.pop();
+		}
+
+		Object receiver = op == 0xb8 ? null : stack.pop();
+		boolean returnsValue = !descriptor.endsWith( ")V" );
+
+		if ( receiver instanceof StringBuilderValue ) {
+			StringBuilderValue builder = (StringBuilderValue) receiver;
+
+			if ( "<init>".equals( name ) ) {
+				// new StringBuilder(String), the capacity of new StringBuilder(int) is not content
+				if ( args.length == 1 && argTypes[0] == 'L' ) {
+					builder.append( args[0], 'L' );
+				}
+			}
+			else if ( "append".equals( name ) && args.length == 1 ) {
+				builder.append( args[0], argTypes[0] );
+			}
+			else if ( "toString".equals( name ) ) {
+				stack.push( builder.isKnown() ? builder.toString() : UNKNOWN );
+
+				return;
+			}
+			else {
+				builder.append( UNKNOWN, 'L' );
+			}
+
+			if ( "append".equals( name ) ) {
+				stack.push( builder );
+
+				return;
+			}
+		}
+		else if ( "java/lang/String".equals( owner ) && "valueOf".equals( name ) && args.length == 1 &&
+			argTypes[0] == 'L' && args[0] != UNKNOWN && !( args[0] instanceof StringBuilderValue ) ) {
+
+			stack.push( String.valueOf( args[0] ) );
+
+			return;
+		}
+
+		if ( returnsValue ) {
+			stack.push( UNKNOWN );
+		}
+	}
+
+	private boolean isStringBuilder( String type ) {
+		return "java/lang/StringBuilder".equals( type ) || "java/lang/StringBuffer".equals( type );
+	}
+
+	private int readShort( byte[] code, int offset ) {
+		return ( ( code[offset] & 0xff ) << 8 ) | ( code[offset + 1] & 0xff );
+	}
+
+	/**
+	 * Returns the first character of every parameter type in a method descriptor, with 'L' for objects and arrays.
+	 */
+	private static char[] getArgumentTypes( String descriptor ) {
+		StringBuffer retval = new StringBuffer();
+		int i = 1;
+
+		while ( descriptor.charAt( i ) != ')' ) {
+			char type = descriptor.charAt( i );
+
+			while ( descriptor.charAt( i ) == '[' ) {
+				i++;
+			}
+
+			if ( descriptor.charAt( i ) == 'L' ) {
+				i = descriptor.indexOf( ';', i );
+			}
+
+			retval.append( type == '[' ? 'L' : type );
+			i++;
+		}
+
+		return retval.toString().toCharArray();
+	}
+
+	private static class StringBuilderValue {
+
+		private StringBuffer buffer = new StringBuffer();
+		private boolean known = true;
+
+		void append( Object value, char type ) {
+			if ( value == UNKNOWN || value instanceof StringBuilderValue ||
+				( value != null && !( value instanceof String ) && !( value instanceof Integer ) ) ) {
+
+				known = false;
+			}
+			else if ( type == 'C' && value instanceof Integer ) {
+				buffer.append( (char) ( (Integer) value ).intValue() );
+			}
+			else {
+				buffer.append( value );
+			}
+		}
+
+		boolean isKnown() {
+			return known;
+		}
+
+		@Override
+		public String toString() {
+			return buffer.toString();
+		}
+	}
+
+	private static class UnrecognizedCodeException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+	}
+
+}
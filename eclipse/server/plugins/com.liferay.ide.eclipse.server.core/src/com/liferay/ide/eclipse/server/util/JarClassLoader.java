@@ -33,10 +33,20 @@ public class JarClassLoader extends MultiClassLoader
 
     public JarClassLoader (String jarName)
 	{
-	// Create the JarResource and suck in the .jar file.
+	// The JarResource only indexes the .jar file, classes are read when they are loaded.
 	jarResources = new JarResources (jarName);
 	}
 
+    /**
+     * Closes the jar. Classes that were already loaded stay usable, new ones
+     * can not be loaded any more. Close a loader as soon as it is done, an
+     * open jar can not be deleted or replaced on Windows.
+     */
+    public void close ()
+	{
+	jarResources.close ();
+	}
+
     protected byte[] loadClassBytes (String className)
 	{
 	// Support the MultiClassLoader's class name munging facility.
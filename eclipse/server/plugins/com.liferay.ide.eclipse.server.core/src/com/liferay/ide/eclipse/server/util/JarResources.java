@@ -15,173 +15,118 @@
 
 package com.liferay.ide.eclipse.server.util;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 /**
- * JarResources: JarResources maps all resources included in a
- * Zip or Jar file. Additionaly, it provides a method to extract one
- * as a blob.
+ * The resources of a jar or zip file. Only the central directory of the jar is read up front, by the ZipFile that is
+ * kept open; the bytes of a resource are read when it is asked for, so a large jar costs no more heap than its index.
+ * The jar stays open until {@link #close()} is called.
  */
 public final class JarResources {
 
-   // external debug flag
-   public boolean debugOn=false;
-
-   // jar resource mapping tables
-   private Hashtable htSizes=new Hashtable();  
-   private Hashtable htJarContents=new Hashtable();
-
-   // a jar file
-   private String jarFileName;
-
-   /**
-    * creates a JarResources. It extracts all resources from a Jar
-    * into an internal hashtable, keyed by resource names.
-    * @param jarFileName a jar or zip file
-    */
-   public JarResources(String jarFileName) {
-      this.jarFileName=jarFileName;
-      init();
-   }
-
-   /**
-    * Extracts a jar resource as a blob.
-    * @param name a resource name.
-    */
-   public byte[] getResource(String name) {
-      return (byte[])htJarContents.get(name);
-   }
-
-   /**
-    * initializes internal hash tables with Jar file resources.
-    */
-   private void init() {
-      try {
-          // extracts just sizes only. 
-          ZipFile zf=new ZipFile(jarFileName);
-          Enumeration e=zf.entries();
-          while (e.hasMoreElements()) {
-              ZipEntry ze=(ZipEntry)e.nextElement();
-              if (debugOn) {
-                 System.out.println(dumpZipEntry(ze));
-              }
-              htSizes.put(ze.getName(),new Integer((int)ze.getSize()));
-          }
-          zf.close();
-
-          // extract resources and put them into the hashtable.
-          FileInputStream fis=new FileInputStream(jarFileName);
-          BufferedInputStream bis=new BufferedInputStream(fis);
-          ZipInputStream zis=new ZipInputStream(bis);
-          ZipEntry ze=null;
-          while ((ze=zis.getNextEntry())!=null) {
-             if (ze.isDirectory()) {
-                continue;
-             }
-             if (debugOn) {
-                System.out.println(
-                   "ze.getName()="+ze.getName()+","+"getSize()="+ze.getSize()
-                   );
-             }
-             int size=(int)ze.getSize();
-             // -1 means unknown size. 
-             if (size==-1) {
-                size=((Integer)htSizes.get(ze.getName())).intValue();
-             }
-             byte[] b=new byte[(int)size];
-             int rb=0;
-             int chunk=0;
-             while (((int)size - rb) > 0) {
-                 chunk=zis.read(b,rb,(int)size - rb);
-                 if (chunk==-1) {
-                    break;
-                 }
-                 rb+=chunk;
-             }
-             // add to internal resource hashtable
-             htJarContents.put(ze.getName(),b);
-             if (debugOn) {
-                System.out.println(
-                   ze.getName()+"  rb="+rb+
-                   ",size="+size+
-                   ",csize="+ze.getCompressedSize()
-                   );
-             }
-          }
-       } catch (NullPointerException e) {
-          System.out.println("done.");
-       } catch (FileNotFoundException e) {
-          e.printStackTrace();
-       } catch (IOException e) {
-          e.printStackTrace();
-       }
-   }
-
-   /**
-    * Dumps a zip entry into a string.
-    * @param ze a ZipEntry
-    */
-   private String dumpZipEntry(ZipEntry ze) {
-       StringBuffer sb=new StringBuffer();
-       if (ze.isDirectory()) {
-          sb.append("d "); 
-       } else {
-          sb.append("f "); 
-       }
-       if (ze.getMethod()==ZipEntry.STORED) {
-          sb.append("stored   "); 
-       } else {
-          sb.append("defalted ");
-       }
-       sb.append(ze.getName());
-       sb.append("\t");
-       sb.append(""+ze.getSize());
-       if (ze.getMethod()==ZipEntry.DEFLATED) {
-          sb.append("/"+ze.getCompressedSize());
-       }
-       return (sb.toString());
-   }
-
-   /**
-    * Is a test driver. Given a jar file and a resource name, it trys to
-    * extract the resource and then tells us whether it could or not.
-    *
-    * <strong>Example</strong>
-    * Let's say you have a JAR file which jarred up a bunch of gif image
-    * files. Now, by using JarResources, you could extract, create, and display
-    * those images on-the-fly.
-    * <pre>
-    *     ...
-    *     JarResources JR=new JarResources("GifBundle.jar");
-    *     Image image=Toolkit.createImage(JR.getResource("logo.gif");
-    *     Image logo=Toolkit.getDefaultToolkit().createImage(
-    *                   JR.getResources("logo.gif")
-    *                   );
-    *     ...
-    * </pre>
-    */
-   public static void main(String[] args) throws IOException {
-       if (args.length!=2) {
-          System.err.println(
-             "usage: java JarResources <jar file name> <resource name>"
-             );
-          System.exit(1);
-       }
-       JarResources jr=new JarResources(args[0]);
-       byte[] buff=jr.getResource(args[1]);
-       if (buff==null) {
-          System.out.println("Could not find "+args[1]+".");
-       } else {
-          System.out.println("Found "+args[1]+ " (length="+buff.length+").");
-       }
-   }
-
-}	// End of JarResources class.
+	private final String jarFileName;
+
+	private boolean closed = false;
+
+	private ZipFile zipFile;
+
+	/**
+	 * Creates the resources of a jar, the jar is opened on the first lookup.
+	 *
+	 * @param jarFileName a jar or zip file
+	 */
+	public JarResources( String jarFileName ) {
+		this.jarFileName = jarFileName;
+	}
+
+	public synchronized void close() {
+		closed = true;
+
+		if ( zipFile != null ) {
+			try {
+				zipFile.close();
+			}
+			catch ( IOException e ) {
+			}
+
+			zipFile = null;
+		}
+	}
+
+	public String getJarFileName() {
+		return jarFileName;
+	}
+
+	/**
+	 * Extracts a jar resource as a blob.
+	 *
+	 * @param name a resource name.
+	 * @return the bytes of the resource, or null if the jar does not contain it or can not be read
+	 */
+	public synchronized byte[] getResource( String name ) {
+		ZipFile zip = getZipFile();
+
+		if ( zip == null ) {
+			return null;
+		}
+
+		ZipEntry entry = zip.getEntry( name );
+
+		if ( entry == null || entry.isDirectory() ) {
+			return null;
+		}
+
+		InputStream in = null;
+
+		try {
+			in = zip.getInputStream( entry );
+
+			long size = entry.getSize();
+
+			// -1 means unknown size
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream( size > 0 ? (int) size : 8192 );
+			byte[] buffer = new byte[8192];
+			int read = 0;
+
+			while ( ( read = in.read( buffer ) ) != -1 ) {
+				bytes.write( buffer, 0, read );
+			}
+
+			return bytes.toByteArray();
+		}
+		catch ( IOException e ) {
+			LiferayServerCorePlugin.logError( "Could not read " + name + " from " + jarFileName, e );
+
+			return null;
+		}
+		finally {
+			if ( in != null ) {
+				try {
+					in.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+	}
+
+	private ZipFile getZipFile() {
+		if ( zipFile == null && !closed ) {
+			try {
+				zipFile = new ZipFile( jarFileName );
+			}
+			catch ( IOException e ) {
+				LiferayServerCorePlugin.logError( "Could not open " + jarFileName, e );
+			}
+		}
+
+		return zipFile;
+	}
+
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.util;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+
+/**
+ * Assembles a plugin WAR in process by streaming the published module resources straight into a zip, instead of
+ * forking an Ant JVM for the SDK war target.
+ * 
+ * @author Greg Amerson
+ */
+public class ModuleWarBuilder {
+
+	// shared SDK build files whose war target only compiles and zips the docroot
+	private static final String[] PLAIN_BUILD_FILES = {
+		"build-common-hook.xml", "build-common-layouttpl.xml", "build-common-portlet.xml", "build-common-web.xml" };
+
+	/**
+	 * Returns true if the project uses the stock SDK build.xml, which only imports one of the shared build files that
+	 * package the docroot as it is. Projects that define their own targets may customize the war and must keep going
+	 * through Ant, as must themes, whose war merges the parent theme with <code>_diffs</code>, and Ext plugins.
+	 */
+	public static boolean canBuildInProcess( IProject project ) {
+		if ( ServerUtil.isThemeProject( project ) || ServerUtil.isExtProject( project ) ) {
+			return false;
+		}
+
+		IFile buildXml = project.getFile( "build.xml" );
+
+		if ( !buildXml.exists() || buildXml.getLocation() == null ) {
+			return false;
+		}
+
+		String contents = FileUtil.readContents( buildXml.getLocation().toFile() );
+
+		if ( contents == null || contents.contains( "<target" ) ) {
+			return false;
+		}
+
+		for ( String buildFile : PLAIN_BUILD_FILES ) {
+			if ( contents.contains( "/" + buildFile + "\"" ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private final IModuleResource[] resources;
+
+	public ModuleWarBuilder( IModuleResource[] resources ) {
+		this.resources = resources;
+	}
+
+	public IStatus build( File warFile, IProgressMonitor monitor ) {
+		if ( monitor == null ) {
+			monitor = new NullProgressMonitor();
+		}
+
+		warFile.getParentFile().mkdirs();
+
+		ZipOutputStream zip = null;
+
+		try {
+			zip = new ZipOutputStream( new FileOutputStream( warFile ) );
+
+			addResources( resources, zip, monitor );
+
+			if ( monitor.isCanceled() ) {
+				return Status.CANCEL_STATUS;
+			}
+		}
+		catch ( IOException e ) {
+			return LiferayServerCorePlugin.createErrorStatus( e );
+		}
+		finally {
+			if ( zip != null ) {
+				try {
+					zip.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+
+		return Status.OK_STATUS;
+	}
+
+	private void addResources( IModuleResource[] members, ZipOutputStream zip, IProgressMonitor monitor )
+		throws IOException {
+
+		if ( members == null ) {
+			return;
+		}
+
+		for ( IModuleResource resource : members ) {
+			if ( monitor.isCanceled() ) {
+				return;
+			}
+
+			IPath path = resource.getModuleRelativePath().append( resource.getName() ).makeRelative();
+
+			if ( resource instanceof IModuleFolder ) {
+				IModuleResource[] children = ( (IModuleFolder) resource ).members();
+
+				if ( children == null || children.length == 0 ) {
+					zip.putNextEntry( new ZipEntry( path.toPortableString() + "/" ) );
+				}
+				else {
+					addResources( children, zip, monitor );
+				}
+			}
+			else if ( resource instanceof IModuleFile ) {
+				File file = ServerUtil.getFile( (IModuleFile) resource );
+
+				if ( file == null || !file.exists() ) {
+					continue;
+				}
+
+				ZipEntry zipEntry = new ZipEntry( path.toPortableString() );
+				zipEntry.setTime( file.lastModified() );
+
+				zip.putNextEntry( zipEntry );
+
+				InputStream in = new FileInputStream( file );
+
+				try {
+					IOUtils.copy( in, zip );
+				}
+				finally {
+					in.close();
+				}
+
+				zip.closeEntry();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,724 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.util;
+
+import com.liferay.ide.eclipse.core.util.CoreUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+
+/**
+ * Writes a partial WAR or EAR straight to an output stream, for example the body of an upload request. Small entries
+ * are read and deflated in parallel on a shared worker pool and written in order, larger ones are streamed through on
+ * the writing thread so no whole file is held in memory; content that is already compressed is stored as is. The GMT
+ * adjusted entry time is computed once per archive.
+ * <p>
+ * Archives are written without ZIP64 records. One that would need them, with more than 65535 entries or more than
+ * 4 GB of data, is reported by {@link #requiresZip64()} so the caller can publish the module in full instead, and is
+ * never written corrupt.
+ * 
+ * @author Greg Amerson
+ */
+public class PartialArchiveWriter {
+
+	private static final String[] COMPRESSED_EXTENSIONS = { ".gif", ".jar", ".jpeg", ".jpg", ".png", ".war", ".zip" };
+
+	private static final int MAX_PENDING_ENTRIES = Runtime.getRuntime().availableProcessors() * 4;
+
+	// entries up to this size are deflated in memory on the worker pool
+	private static final long STREAM_THRESHOLD = 1024 * 1024;
+
+	private static ExecutorService deflaterPool;
+
+	public static PartialArchiveWriter forDeltas(
+		IModuleResourceDelta[] deltas, String deletePrefix, String deltaPrefix, boolean adjustGMTOffset )
+		throws CoreException {
+
+		PartialArchiveWriter writer = new PartialArchiveWriter( deletePrefix, adjustGMTOffset );
+		writer.addResourceDeltas( deltas, deltaPrefix );
+
+		return writer;
+	}
+
+	public static PartialArchiveWriter forFiles(
+		Map<String, File> files, List<String> removedPaths, String deletePrefix, boolean adjustGMTOffset ) {
+
+		PartialArchiveWriter writer = new PartialArchiveWriter( deletePrefix, adjustGMTOffset );
+
+		for ( String path : files.keySet() ) {
+			writer.entries.put( path, files.get( path ) );
+		}
+
+		if ( !CoreUtil.isNullOrEmpty( removedPaths ) ) {
+			for ( String removedPath : removedPaths ) {
+				writer.addRemovedPath( "", removedPath );
+			}
+		}
+
+		return writer;
+	}
+
+	private static synchronized ExecutorService getDeflaterPool() {
+		if ( deflaterPool == null ) {
+			deflaterPool = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "Liferay archive deflater" );
+					thread.setDaemon( true );
+
+					return thread;
+				}
+			} );
+		}
+
+		return deflaterPool;
+	}
+
+	private static long getGMTAdjustedTime() {
+		TimeZone currentTimeZone = TimeZone.getDefault();
+		Calendar currentDt = new GregorianCalendar( currentTimeZone, Locale.getDefault() );
+
+		// Get the Offset from GMT taking current TZ into account
+		int gmtOffset =
+			currentTimeZone.getOffset(
+				currentDt.get( Calendar.ERA ), currentDt.get( Calendar.YEAR ), currentDt.get( Calendar.MONTH ),
+				currentDt.get( Calendar.DAY_OF_MONTH ), currentDt.get( Calendar.DAY_OF_WEEK ),
+				currentDt.get( Calendar.MILLISECOND ) );
+
+		return System.currentTimeMillis() + ( gmtOffset * -1 );
+	}
+
+	private static boolean isCompressed( String path ) {
+		String lowerCasePath = path.toLowerCase();
+
+		for ( String extension : COMPRESSED_EXTENSIONS ) {
+			if ( lowerCasePath.endsWith( extension ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static String removeArchive( String archive ) {
+		int index = Math.max( archive.lastIndexOf( ".war" ), archive.lastIndexOf( ".jar" ) );
+
+		if ( index >= 0 ) {
+			return archive.substring( 0, index + 5 );
+		}
+
+		return "";
+	}
+
+	private static long toDosTime( long time ) {
+		Calendar calendar = new GregorianCalendar();
+		calendar.setTimeInMillis( time );
+
+		int year = calendar.get( Calendar.YEAR );
+
+		if ( year < 1980 ) {
+			return ( 1 << 21 ) | ( 1 << 16 );
+		}
+
+		return ( year - 1980 ) << 25 | ( calendar.get( Calendar.MONTH ) + 1 ) << 21 |
+			calendar.get( Calendar.DAY_OF_MONTH ) << 16 | calendar.get( Calendar.HOUR_OF_DAY ) << 11 |
+			calendar.get( Calendar.MINUTE ) << 5 | calendar.get( Calendar.SECOND ) >> 1;
+	}
+
+	private final boolean adjustGMTOffset;
+	private final Map<String, StringBuilder> deleteEntries = new LinkedHashMap<String, StringBuilder>();
+	private final String deletePrefix;
+
+	// archive path to IFile or File
+	private final Map<String, Object> entries = new LinkedHashMap<String, Object>();
+
+	private PartialArchiveWriter( String deletePrefix, boolean adjustGMTOffset ) {
+		this.deletePrefix = deletePrefix;
+		this.adjustGMTOffset = adjustGMTOffset;
+	}
+
+	public int getEntryCount() {
+		return entries.size() + deleteEntries.size();
+	}
+
+	/**
+	 * Returns whether the archive would exceed the limits of the zip format without ZIP64 records. The compressed
+	 * size is estimated from the size of the files, allowing for the little that deflating can add.
+	 */
+	public boolean requiresZip64() {
+		if ( getEntryCount() > ZipWriter.MAX_ENTRIES ) {
+			return true;
+		}
+
+		long total = 0;
+
+		for ( String path : entries.keySet() ) {
+			long size = Math.max( getSize( entries.get( path ) ), 0 );
+
+			// local and central headers, data descriptor and worst case deflate overhead
+			total += 128 + path.length() * 6 + size + size / 1000;
+
+			if ( size > ZipWriter.MAX_SIZE || total > ZipWriter.MAX_SIZE ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @throws java.util.zip.ZipException if the archive would need ZIP64 records, see {@link #requiresZip64()}
+	 */
+	public void write( OutputStream out ) throws IOException {
+		long entryTime = adjustGMTOffset ? getGMTAdjustedTime() : System.currentTimeMillis();
+		int dosTime = (int) toDosTime( entryTime );
+
+		ZipWriter zip = new ZipWriter( out, dosTime );
+
+		LinkedList<Future<CompressedEntry>> pending = new LinkedList<Future<CompressedEntry>>();
+
+		ExecutorService pool = getDeflaterPool();
+
+		try {
+			for ( final String path : entries.keySet() ) {
+				final Object source = entries.get( path );
+				long size = getSize( source );
+
+				if ( size < 0 || size > STREAM_THRESHOLD ) {
+					// keep the entries in order
+					while ( !pending.isEmpty() ) {
+						zip.writeEntry( getResult( pending.removeFirst() ) );
+					}
+
+					writeStreamed( zip, path, source );
+
+					continue;
+				}
+
+				pending.add( pool.submit( new Callable<CompressedEntry>() {
+
+					public CompressedEntry call() throws Exception {
+						return compress( path, openStream( source ) );
+					}
+				} ) );
+
+				// bound the memory held by entries compressed ahead of the writer
+				if ( pending.size() >= MAX_PENDING_ENTRIES ) {
+					zip.writeEntry( getResult( pending.removeFirst() ) );
+				}
+			}
+
+			while ( !pending.isEmpty() ) {
+				zip.writeEntry( getResult( pending.removeFirst() ) );
+			}
+		}
+		finally {
+			for ( Future<CompressedEntry> future : pending ) {
+				future.cancel( true );
+			}
+		}
+
+		for ( String path : deleteEntries.keySet() ) {
+			byte[] bytes = deleteEntries.get( path ).toString().getBytes();
+
+			zip.writeEntry( compress( path, new ByteArrayInputStream( bytes ) ) );
+		}
+
+		zip.finish();
+	}
+
+	private void addRemovedPath( String archive, String file ) {
+		String entryPath = archive + "META-INF/" + deletePrefix + "-partialapp-delete.props";
+
+		StringBuilder existingFiles = deleteEntries.get( entryPath );
+
+		if ( existingFiles == null ) {
+			existingFiles = new StringBuilder();
+			deleteEntries.put( entryPath, existingFiles );
+		}
+
+		existingFiles.append( file ).append( "\n" );
+	}
+
+	private void addResource( IPath path, IResource resource ) throws CoreException {
+		switch ( resource.getType() ) {
+		case IResource.FILE:
+			entries.put( path.toString(), resource );
+
+			break;
+
+		case IResource.FOLDER:
+		case IResource.PROJECT:
+			IContainer container = (IContainer) resource;
+
+			IResource[] members = container.members();
+
+			for ( IResource res : members ) {
+				addResource( path.append( res.getName() ), res );
+			}
+		}
+	}
+
+	private void addResourceDeltas( IModuleResourceDelta[] deltas, String deltaPrefix ) throws CoreException {
+		for ( IModuleResourceDelta delta : deltas ) {
+			int deltaKind = delta.getKind();
+
+			IResource deltaResource = (IResource) delta.getModuleResource().getAdapter( IResource.class );
+
+			IProject deltaProject = deltaResource.getProject();
+
+			IFolder docroot = CoreUtil.getDocroot( deltaProject );
+
+			IPath deltaPath =
+				new Path( deltaPrefix + deltaResource.getFullPath().makeRelativeTo( docroot.getFullPath() ) );
+
+			if ( deltaKind == IModuleResourceDelta.ADDED || deltaKind == IModuleResourceDelta.CHANGED ) {
+				addResource( deltaPath, deltaResource );
+			}
+			else if ( deltaKind == IModuleResourceDelta.REMOVED ) {
+				String archive = removeArchive( deltaPath.toPortableString() );
+
+				String file = deltaPath.toPortableString().substring( archive.length() );
+
+				if ( deltaResource.getType() == IResource.FOLDER ) {
+					file += "/.*";
+				}
+
+				addRemovedPath( archive, file );
+			}
+			else if ( deltaKind == IModuleResourceDelta.NO_CHANGE ) {
+				addResourceDeltas( delta.getAffectedChildren(), deltaPrefix );
+			}
+		}
+	}
+
+	private CompressedEntry compress( String path, InputStream in ) throws IOException {
+		byte[] bytes = null;
+
+		try {
+			bytes = IOUtils.toByteArray( in );
+		}
+		finally {
+			in.close();
+		}
+
+		CompressedEntry entry = new CompressedEntry();
+		entry.path = path;
+		entry.size = bytes.length;
+
+		CRC32 crc = new CRC32();
+		crc.update( bytes );
+		entry.crc = crc.getValue();
+
+		if ( isCompressed( path ) ) {
+			entry.method = ZipWriter.STORED;
+			entry.data = bytes;
+		}
+		else {
+			Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+
+			try {
+				deflater.setInput( bytes );
+				deflater.finish();
+
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream( Math.max( 64, bytes.length / 2 ) );
+				byte[] buffer = new byte[8192];
+
+				while ( !deflater.finished() ) {
+					int count = deflater.deflate( buffer );
+					compressed.write( buffer, 0, count );
+				}
+
+				entry.method = ZipWriter.DEFLATED;
+				entry.data = compressed.toByteArray();
+			}
+			finally {
+				deflater.end();
+			}
+		}
+
+		return entry;
+	}
+
+	private CompressedEntry getResult( Future<CompressedEntry> future ) throws IOException {
+		try {
+			return future.get();
+		}
+		catch ( InterruptedException e ) {
+			throw new InterruptedIOException( "Archive creation interrupted." );
+		}
+		catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+
+			if ( cause instanceof IOException ) {
+				throw (IOException) cause;
+			}
+
+			IOException ioe = new IOException( cause.getMessage() );
+			ioe.initCause( cause );
+
+			throw ioe;
+		}
+	}
+
+	/**
+	 * @return the size of the file, or -1 if it is not known up front
+	 */
+	private long getSize( Object source ) {
+		if ( source instanceof IFile ) {
+			IPath location = ( (IFile) source ).getLocation();
+
+			return location != null ? location.toFile().length() : -1;
+		}
+
+		return ( (File) source ).length();
+	}
+
+	private InputStream openStream( Object source ) throws IOException, CoreException {
+		if ( source instanceof IFile ) {
+			return ( (IFile) source ).getContents();
+		}
+
+		return new FileInputStream( (File) source );
+	}
+
+	private InputStream openStreamUnchecked( Object source ) throws IOException {
+		try {
+			return openStream( source );
+		}
+		catch ( CoreException e ) {
+			IOException ioe = new IOException( e.getMessage() );
+			ioe.initCause( e );
+
+			throw ioe;
+		}
+	}
+
+	/**
+	 * Streams a large entry into the archive. Content that is already compressed is read twice, once for its checksum
+	 * so the entry can be stored with its sizes in the header; anything else is deflated on the fly and followed by a
+	 * data descriptor.
+	 */
+	private void writeStreamed( ZipWriter zip, String path, Object source ) throws IOException {
+		byte[] buffer = new byte[8192];
+		CRC32 crc = new CRC32();
+		long size = 0;
+		int count;
+
+		if ( isCompressed( path ) ) {
+			InputStream in = openStreamUnchecked( source );
+
+			try {
+				while ( ( count = in.read( buffer ) ) != -1 ) {
+					crc.update( buffer, 0, count );
+					size += count;
+				}
+			}
+			finally {
+				in.close();
+			}
+
+			zip.putEntry( path, ZipWriter.STORED, crc.getValue(), size, size );
+
+			long written = 0;
+
+			in = openStreamUnchecked( source );
+
+			try {
+				while ( ( count = in.read( buffer ) ) != -1 ) {
+					zip.write( buffer, 0, count );
+					written += count;
+				}
+			}
+			finally {
+				in.close();
+			}
+
+			if ( written != size ) {
+				throw new IOException( path + " changed while it was added to the archive." );
+			}
+
+			zip.closeEntry( crc.getValue(), size, size );
+
+			return;
+		}
+
+		zip.putStreamedEntry( path );
+
+		Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+		byte[] compressed = new byte[8192];
+		long compressedSize = 0;
+
+		InputStream in = openStreamUnchecked( source );
+
+		try {
+			while ( ( count = in.read( buffer ) ) != -1 ) {
+				crc.update( buffer, 0, count );
+				size += count;
+
+				deflater.setInput( buffer, 0, count );
+
+				while ( !deflater.needsInput() ) {
+					int deflated = deflater.deflate( compressed );
+					zip.write( compressed, 0, deflated );
+					compressedSize += deflated;
+				}
+			}
+
+			deflater.finish();
+
+			while ( !deflater.finished() ) {
+				int deflated = deflater.deflate( compressed );
+				zip.write( compressed, 0, deflated );
+				compressedSize += deflated;
+			}
+		}
+		finally {
+			in.close();
+			deflater.end();
+		}
+
+		zip.closeEntry( crc.getValue(), compressedSize, size );
+	}
+
+	private static class CompressedEntry {
+
+		long crc;
+		byte[] data;
+		int method;
+		String path;
+		long size;
+
+	}
+
+	/**
+	 * Minimal zip format writer without ZIP64 support. It refuses to write past the limits of the format rather than
+	 * produce an archive that readers would misread.
+	 */
+	private static class ZipWriter {
+
+		static final int DEFLATED = 8;
+		static final int MAX_ENTRIES = 0xffff;
+		static final long MAX_SIZE = 0xffffffffL;
+		static final int STORED = 0;
+
+		private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+		private static final int FLAG_UTF8 = 0x0800;
+
+		private final List<byte[]> centralDirectory = new ArrayList<byte[]>();
+		private final int dosTime;
+		private int entryFlags;
+		private long entryOffset;
+		private int entryMethod;
+		private byte[] entryName;
+		private long offset = 0;
+		private final DataOutputStream out;
+
+		ZipWriter( OutputStream out, int dosTime ) {
+			this.out = new DataOutputStream( out );
+			this.dosTime = dosTime;
+		}
+
+		/**
+		 * Ends the current entry, writing its data descriptor if it was streamed, and adds it to the central directory.
+		 */
+		void closeEntry( long crc, long compressedSize, long size ) throws IOException {
+			if ( compressedSize > MAX_SIZE || size > MAX_SIZE ) {
+				throw new ZipException( "Archive entry is larger than 4 GB, which needs ZIP64." );
+			}
+
+			if ( ( entryFlags & FLAG_DATA_DESCRIPTOR ) != 0 ) {
+				ensureCapacity( 16 );
+
+				writeInt( out, 0x08074b50L );
+				writeInt( out, crc );
+				writeInt( out, compressedSize );
+				writeInt( out, size );
+
+				offset += 16;
+			}
+
+			ByteArrayOutputStream header = new ByteArrayOutputStream( 46 + entryName.length );
+			DataOutputStream headerOut = new DataOutputStream( header );
+
+			writeInt( headerOut, 0x02014b50L );
+			writeShort( headerOut, 20 );
+			writeShort( headerOut, 20 );
+			writeShort( headerOut, entryFlags );
+			writeShort( headerOut, entryMethod );
+			writeInt( headerOut, dosTime );
+			writeInt( headerOut, crc );
+			writeInt( headerOut, compressedSize );
+			writeInt( headerOut, size );
+			writeShort( headerOut, entryName.length );
+			writeShort( headerOut, 0 );
+			writeShort( headerOut, 0 );
+			writeShort( headerOut, 0 );
+			writeShort( headerOut, 0 );
+			writeInt( headerOut, 0 );
+			writeInt( headerOut, entryOffset );
+			headerOut.write( entryName );
+
+			centralDirectory.add( header.toByteArray() );
+
+			entryName = null;
+		}
+
+		void finish() throws IOException {
+			long centralOffset = offset;
+			long centralSize = 0;
+
+			for ( byte[] header : centralDirectory ) {
+				centralSize += header.length;
+			}
+
+			ensureCapacity( centralSize );
+
+			for ( byte[] header : centralDirectory ) {
+				out.write( header );
+			}
+
+			writeInt( out, 0x06054b50L );
+			writeShort( out, 0 );
+			writeShort( out, 0 );
+			writeShort( out, centralDirectory.size() );
+			writeShort( out, centralDirectory.size() );
+			writeInt( out, centralSize );
+			writeInt( out, centralOffset );
+			writeShort( out, 0 );
+
+			out.flush();
+		}
+
+		/**
+		 * Starts an entry whose checksum and sizes are known up front.
+		 */
+		void putEntry( String path, int method, long crc, long compressedSize, long size ) throws IOException {
+			if ( compressedSize > MAX_SIZE || size > MAX_SIZE ) {
+				throw new ZipException( path + " is larger than 4 GB, which needs ZIP64." );
+			}
+
+			startEntry( path, method, FLAG_UTF8, crc, compressedSize, size );
+		}
+
+		/**
+		 * Starts a deflated entry whose checksum and sizes follow its data in a data descriptor.
+		 */
+		void putStreamedEntry( String path ) throws IOException {
+			startEntry( path, DEFLATED, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, 0, 0, 0 );
+		}
+
+		void write( byte[] bytes, int off, int length ) throws IOException {
+			ensureCapacity( length );
+
+			out.write( bytes, off, length );
+			offset += length;
+		}
+
+		void writeEntry( CompressedEntry entry ) throws IOException {
+			putEntry( entry.path, entry.method, entry.crc, entry.data.length, entry.size );
+			write( entry.data, 0, entry.data.length );
+			closeEntry( entry.crc, entry.data.length, entry.size );
+		}
+
+		private void ensureCapacity( long length ) throws ZipException {
+			if ( offset + length > MAX_SIZE ) {
+				throw new ZipException( "Archive is larger than 4 GB, which needs ZIP64." );
+			}
+		}
+
+		private void startEntry( String path, int method, int flags, long crc, long compressedSize, long size )
+			throws IOException {
+
+			if ( centralDirectory.size() >= MAX_ENTRIES ) {
+				throw new ZipException( "Archive has more than " + MAX_ENTRIES + " entries, which needs ZIP64." );
+			}
+
+			byte[] name = path.getBytes( "UTF-8" );
+
+			ensureCapacity( 30 + name.length );
+
+			entryFlags = flags;
+			entryMethod = method;
+			entryName = name;
+			entryOffset = offset;
+
+			writeInt( out, 0x04034b50L );
+			writeShort( out, 20 );
+			writeShort( out, flags );
+			writeShort( out, method );
+			writeInt( out, dosTime );
+			writeInt( out, crc );
+			writeInt( out, compressedSize );
+			writeInt( out, size );
+			writeShort( out, name.length );
+			writeShort( out, 0 );
+			out.write( name );
+
+			offset += 30 + name.length;
+		}
+
+		// zip headers are little endian
+		private void writeInt( DataOutputStream stream, long value ) throws IOException {
+			stream.write( (int) ( value & 0xff ) );
+			stream.write( (int) ( ( value >>> 8 ) & 0xff ) );
+			stream.write( (int) ( ( value >>> 16 ) & 0xff ) );
+			stream.write( (int) ( ( value >>> 24 ) & 0xff ) );
+		}
+
+		private void writeShort( DataOutputStream stream, int value ) throws IOException {
+			stream.write( value & 0xff );
+			stream.write( ( value >>> 8 ) & 0xff );
+		}
+
+	}
+
+}
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.util;
+
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.core.runtime.IPath;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Facts the hook editor looks up in the descriptors of a portal: the servlet filter names of liferay-web.xml, the
+ * struts action paths of struts-config.xml and the uris of the portal taglibs. There is one instance per portal
+ * directory, so all editors and services of the same runtime share it. Every fact remembers the sizes and
+ * modification times of the files it was read from and is only read again, with a streaming parse that keeps nothing
+ * but the collected values, after one of them has changed or a file has been added or removed.
+ *
+ * @author Greg Amerson
+ */
+public class PortalDescriptorFacts {
+
+	private static final Map<String, PortalDescriptorFacts> facts = new HashMap<String, PortalDescriptorFacts>();
+
+	private static final FileFilter tldFilter = new FileFilter() {
+
+		public boolean accept( File file ) {
+			return file.isFile() && file.getName().endsWith( ".tld" );
+		}
+	};
+
+	public static PortalDescriptorFacts getFacts( IPath portalDir ) {
+		String key = portalDir.toPortableString();
+
+		synchronized ( facts ) {
+			PortalDescriptorFacts retval = facts.get( key );
+
+			if ( retval == null ) {
+				retval = new PortalDescriptorFacts( portalDir.toFile() );
+				facts.put( key, retval );
+			}
+
+			return retval;
+		}
+	}
+
+	private final Fact servletFilterNames;
+
+	private final Fact strutsActionPaths;
+
+	private final Fact tldUris;
+
+	private PortalDescriptorFacts( final File portalDir ) {
+		this.servletFilterNames = new Fact( null, "filter-name", null ) {
+
+			@Override
+			File[] getSources() {
+				File filtersWebXml = new File( portalDir, "WEB-INF/liferay-web.xml" );
+
+				if ( !filtersWebXml.exists() ) {
+					filtersWebXml = new File( portalDir, "WEB-INF/web.xml" );
+				}
+
+				return new File[] { filtersWebXml };
+			}
+		};
+
+		this.strutsActionPaths = new Fact( null, "action", "path" ) {
+
+			@Override
+			File[] getSources() {
+				return new File[] { new File( portalDir, "WEB-INF/struts-config.xml" ) };
+			}
+		};
+
+		this.tldUris = new Fact( "taglib", "uri", null ) {
+
+			@Override
+			File[] getSources() {
+				File[] tlds = new File( portalDir, "WEB-INF/tld" ).listFiles( tldFilter );
+
+				if ( tlds == null ) {
+					return new File[0];
+				}
+
+				Arrays.sort( tlds );
+
+				return tlds;
+			}
+		};
+	}
+
+	public String[] getServletFilterNames() {
+		return servletFilterNames.getValues();
+	}
+
+	public String[] getStrutsActionPaths() {
+		return strutsActionPaths.getValues();
+	}
+
+	public String[] getTldUris() {
+		return tldUris.getValues();
+	}
+
+	/**
+	 * The values of one element, or of one attribute of it, collected from a set of descriptors.
+	 */
+	private abstract static class Fact {
+
+		private final String attribute;
+		private final String element;
+		private final String parent;
+		private String stamp;
+		private String[] values;
+
+		Fact( String parent, String element, String attribute ) {
+			this.parent = parent;
+			this.element = element;
+			this.attribute = attribute;
+		}
+
+		abstract File[] getSources();
+
+		synchronized String[] getValues() {
+			File[] sources = getSources();
+			String newStamp = getStamp( sources );
+
+			if ( values == null || !newStamp.equals( stamp ) ) {
+				Set<String> collected = new TreeSet<String>();
+
+				for ( File source : sources ) {
+					if ( source.exists() ) {
+						collect( source, collected );
+					}
+				}
+
+				values = collected.toArray( new String[collected.size()] );
+				stamp = newStamp;
+			}
+
+			return values.clone();
+		}
+
+		private void collect( File source, final Set<String> collected ) {
+			DefaultHandler handler = new DefaultHandler() {
+
+				private int depth = 0;
+				private int parentDepth = -1;
+				private StringBuffer text = null;
+
+				@Override
+				public void characters( char[] ch, int start, int length ) {
+					if ( text != null ) {
+						text.append( ch, start, length );
+					}
+				}
+
+				@Override
+				public void endElement( String uri, String localName, String qName ) {
+					if ( text != null ) {
+						add( text.toString() );
+						text = null;
+					}
+
+					depth--;
+
+					if ( depth == parentDepth ) {
+						parentDepth = -1;
+					}
+				}
+
+				@Override
+				public InputSource resolveEntity( String publicId, String systemId ) {
+					// the doctypes of the portal descriptors point to dtds on the web, which are not needed to read them
+					return new InputSource( new StringReader( "" ) );
+				}
+
+				@Override
+				public void startElement( String uri, String localName, String qName, Attributes attributes ) {
+					String name = localName.length() > 0 ? localName : qName;
+
+					if ( parent != null && parentDepth == -1 && parent.equals( name ) ) {
+						parentDepth = depth;
+					}
+					else if ( element.equals( name ) && ( parent == null || parentDepth == depth - 1 ) ) {
+						if ( attribute == null ) {
+							text = new StringBuffer();
+						}
+						else {
+							add( attributes.getValue( attribute ) );
+						}
+					}
+
+					depth++;
+				}
+
+				private void add( String value ) {
+					if ( value != null && value.trim().length() > 0 ) {
+						collected.add( value.trim() );
+					}
+				}
+			};
+
+			try {
+				SAXParserFactory factory = SAXParserFactory.newInstance();
+				factory.setNamespaceAware( true );
+				factory.setValidating( false );
+
+				SAXParser parser = factory.newSAXParser();
+				parser.parse( source, handler );
+			}
+			catch ( Exception e ) {
+				LiferayServerCorePlugin.logError( "Could not read " + source, e );
+			}
+		}
+
+		private String getStamp( File[] sources ) {
+			StringBuffer retval = new StringBuffer();
+
+			for ( File source : sources ) {
+				retval.append( source.getPath() ).append( ':' ).append( source.length() ).append( ':' ).append(
+					source.lastModified() ).append( ';' );
+			}
+
+			return retval.toString();
+		}
+	}
+
+}
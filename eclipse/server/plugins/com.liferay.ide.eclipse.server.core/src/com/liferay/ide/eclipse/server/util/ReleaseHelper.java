@@ -25,9 +25,9 @@ import org.eclipse.core.runtime.IPath;
 
 public class ReleaseHelper {
 
-	protected File serviceJarFile;
+	private static final String RELEASE_INFO_CLASS = "com.liferay.portal.kernel.util.ReleaseInfo";
 
-	protected JarClassLoader loader;
+	protected File serviceJarFile;
 
 	public ReleaseHelper(IPath serviceJarPath) {
 		if (!serviceJarPath.toFile().exists()) {
@@ -35,8 +35,6 @@ public class ReleaseHelper {
 		}
 
 		serviceJarFile = serviceJarPath.toFile();
-
-		loader = new JarClassLoader(serviceJarFile.getAbsolutePath());
 	}
 
 	public String getVersion()
@@ -45,16 +43,35 @@ public class ReleaseHelper {
 		String retval = null;
 
 		try {
-			Class infoClass = loader.loadClass("com.liferay.portal.kernel.util.ReleaseInfo");
+			// try the class file first, loading ReleaseInfo pulls in half the portal kernel
+			ClassConstantReader reader = ClassConstantReader.read(serviceJarFile, RELEASE_INFO_CLASS);
+
+			if (reader != null) {
+				retval = reader.invokeStaticGetter("getVersion");
+			}
 
-			Object o = infoClass.newInstance();
+			if (retval != null) {
+				return retval;
+			}
+
+			// a loader of its own that is closed right away, so the jar is not kept open and locked
+			JarClassLoader loader = new JarClassLoader(serviceJarFile.getAbsolutePath());
+
+			try {
+				Class infoClass = loader.loadClass(RELEASE_INFO_CLASS);
 
-			Method m = infoClass.getMethod("getVersion");
+				Object o = infoClass.newInstance();
 
-			Object result = m.invoke(o);
+				Method m = infoClass.getMethod("getVersion");
 
-			if (result != null) {
-				retval = result.toString();
+				Object result = m.invoke(o);
+
+				if (result != null) {
+					retval = result.toString();
+				}
+			}
+			finally {
+				loader.close();
 			}
 		}
 		catch (ClassNotFoundException e) {
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.util;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Content hashes of files keyed by (path, size, last modified) so unchanged files are never read twice. The cache is
+ * stored as a properties file, usually somewhere below the plugin state location.
+ * 
+ * @author Greg Amerson
+ */
+public class ResourceHashCache {
+
+	private boolean dirty = false;
+	private final File cacheFile;
+	private final Properties entries = new Properties();
+
+	public ResourceHashCache( File cacheFile ) {
+		this.cacheFile = cacheFile;
+
+		if ( cacheFile.exists() ) {
+			InputStream in = null;
+
+			try {
+				in = new FileInputStream( cacheFile );
+				entries.load( in );
+			}
+			catch ( IOException e ) {
+				// a damaged cache only costs a rehash
+				entries.clear();
+			}
+			finally {
+				close( in );
+			}
+		}
+	}
+
+	public String getHash( String path, File file ) throws IOException {
+		String stamp = file.length() + ":" + file.lastModified() + ":";
+
+		String entry = entries.getProperty( path );
+
+		if ( entry != null && entry.startsWith( stamp ) ) {
+			return entry.substring( stamp.length() );
+		}
+
+		String hash = FileUtil.checksum( file );
+
+		entries.setProperty( path, stamp + hash );
+		dirty = true;
+
+		return hash;
+	}
+
+	public void retainAll( Collection<String> paths ) {
+		if ( entries.keySet().retainAll( paths ) ) {
+			dirty = true;
+		}
+	}
+
+	public void save() {
+		if ( !dirty ) {
+			return;
+		}
+
+		cacheFile.getParentFile().mkdirs();
+
+		File tempFile = new File( cacheFile.getPath() + ".tmp" );
+
+		OutputStream out = null;
+
+		try {
+			out = new FileOutputStream( tempFile );
+			entries.store( out, null );
+			out.close();
+			out = null;
+
+			cacheFile.delete();
+
+			if ( tempFile.renameTo( cacheFile ) ) {
+				dirty = false;
+			}
+		}
+		catch ( IOException e ) {
+			LiferayServerCorePlugin.logError( "Could not save hash cache " + cacheFile, e );
+		}
+		finally {
+			close( out );
+		}
+	}
+
+	private void close( Closeable closeable ) {
+		if ( closeable != null ) {
+			try {
+				closeable.close();
+			}
+			catch ( IOException e ) {
+			}
+		}
+	}
+
+}
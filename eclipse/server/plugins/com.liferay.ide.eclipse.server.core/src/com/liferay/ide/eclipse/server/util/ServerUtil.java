@@ -20,32 +20,22 @@ import com.liferay.ide.eclipse.sdk.ISDKConstants;
 import com.liferay.ide.eclipse.server.core.ILiferayRuntime;
 import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.configuration.PropertiesConfiguration;
-import org.apache.commons.io.IOUtils;
-import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.DebugPlugin;
@@ -67,6 +57,7 @@ import org.eclipse.wst.server.core.IServer;
 import org.eclipse.wst.server.core.IServerType;
 import org.eclipse.wst.server.core.IServerWorkingCopy;
 import org.eclipse.wst.server.core.ServerCore;
+import org.eclipse.wst.server.core.model.IModuleFile;
 import org.eclipse.wst.server.core.model.IModuleResourceDelta;
 
 /**
@@ -81,85 +72,6 @@ public class ServerUtil {
 
 	protected static final IStatus invalidInstallDirStatus = createErrorStatus("Invalid installation directory.");
 
-	private static void addRemoveProps(
-		IPath deltaPath, IResource deltaResource, ZipOutputStream zip, Map<ZipEntry, String> deleteEntries,
-		String deletePrefix )
-		throws IOException {
-
-		String archive = removeArchive( deltaPath.toPortableString() );
-
-		ZipEntry zipEntry = null;
-
-		// check to see if we already have an entry for this archive
-		for ( ZipEntry entry : deleteEntries.keySet() ) {
-			if ( entry.getName().startsWith( archive ) ) {
-				zipEntry = entry;
-			}
-		}
-
-		if ( zipEntry == null ) {
-			zipEntry = new ZipEntry( archive + "META-INF/" + deletePrefix + "-partialapp-delete.props" );
-		}
-
-		String existingFiles = deleteEntries.get( zipEntry );
-
-		// String file = encodeRemovedPath(deltaPath.toPortableString().substring(archive.length()));
-		String file = deltaPath.toPortableString().substring( archive.length() );
-
-		if ( deltaResource.getType() == IResource.FOLDER ) {
-			file += "/.*";
-		}
-
-		deleteEntries.put( zipEntry, ( existingFiles != null ? existingFiles : "" ) + ( file + "\n" ) );
-	}
-
-	private static void addToZip( IPath path, IResource resource, ZipOutputStream zip, boolean adjustGMTOffset )
-		throws IOException,
-		CoreException {
-
-		switch ( resource.getType() ) {
-		case IResource.FILE:
-			ZipEntry zipEntry = new ZipEntry( path.toString() );
-
-			zip.putNextEntry( zipEntry );
-
-			InputStream contents = ( (IFile) resource ).getContents();
-
-			if ( adjustGMTOffset ) {
-				TimeZone currentTimeZone = TimeZone.getDefault();
-				Calendar currentDt = new GregorianCalendar( currentTimeZone, Locale.getDefault() );
-
-				// Get the Offset from GMT taking current TZ into account
-				int gmtOffset =
-						currentTimeZone.getOffset(
-							currentDt.get( Calendar.ERA ), currentDt.get( Calendar.YEAR ),
-							currentDt.get( Calendar.MONTH ), currentDt.get( Calendar.DAY_OF_MONTH ),
-							currentDt.get( Calendar.DAY_OF_WEEK ), currentDt.get( Calendar.MILLISECOND ) );
-
-				zipEntry.setTime( System.currentTimeMillis() + ( gmtOffset * -1 ) );
-			}
-
-			try {
-				IOUtils.copy( contents, zip );
-			}
-			finally {
-				contents.close();
-			}
-
-			break;
-
-		case IResource.FOLDER:
-		case IResource.PROJECT:
-			IContainer container = (IContainer) resource;
-
-			IResource[] members = container.members();
-
-			for ( IResource res : members ) {
-				addToZip( path.append( res.getName() ), res, zip, adjustGMTOffset );
-			}
-		}
-	}
-
 	public static Map<String, String> configureAppServerProperties( ILiferayRuntime appServer ) {
 		Map<String, String> properties = new HashMap<String, String>();
 
@@ -203,90 +115,31 @@ public class ServerUtil {
 	public static File createPartialEAR(
 		String archiveName, IModuleResourceDelta[] deltas, String deletePrefix, String deltaPrefix,
 		boolean adjustGMTOffset ) {
-		IPath path = LiferayServerCorePlugin.getTempLocation( "partial-ear", archiveName );
-
-		FileOutputStream outputStream = null;
-		ZipOutputStream zip = null;
-		File file = path.toFile();
-
-		file.getParentFile().mkdirs();
 
 		try {
-			outputStream = new FileOutputStream( file );
-			zip = new ZipOutputStream( outputStream );
-
-			Map<ZipEntry, String> deleteEntries = new HashMap<ZipEntry, String>();
-
-			processResourceDeltasZip( deltas, zip, deleteEntries, deletePrefix, deltaPrefix, adjustGMTOffset );
-
-			for ( ZipEntry entry : deleteEntries.keySet() ) {
-				zip.putNextEntry( entry );
-				zip.write( deleteEntries.get( entry ).getBytes() );
-			}
-
-			// if ((removedResources != null) && (removedResources.size() > 0)) {
-			// writeRemovedResources(removedResources, zip);
-			// }
+			return writePartialArchive(
+				"partial-ear", archiveName,
+				PartialArchiveWriter.forDeltas( deltas, deletePrefix, deltaPrefix, adjustGMTOffset ) );
 		}
-		catch ( Exception ex ) {
-			ex.printStackTrace();
-		}
-		finally {
-			if ( zip != null ) {
-				try {
-					zip.close();
-				}
-				catch ( IOException localIOException1 ) {
-
-				}
-			}
+		catch ( CoreException e ) {
+			e.printStackTrace();
 		}
 
-		return file;
+		return LiferayServerCorePlugin.getTempLocation( "partial-ear", archiveName ).toFile();
 	}
 
 	public static File createPartialWAR(
 		String archiveName, IModuleResourceDelta[] deltas, String deletePrefix, boolean adjustGMTOffset ) {
-		IPath path = LiferayServerCorePlugin.getTempLocation( "partial-war", archiveName );
-
-		FileOutputStream outputStream = null;
-		ZipOutputStream zip = null;
-		File file = path.toFile();
-
-		file.getParentFile().mkdirs();
 
 		try {
-			outputStream = new FileOutputStream( file );
-			zip = new ZipOutputStream( outputStream );
-
-			Map<ZipEntry, String> deleteEntries = new HashMap<ZipEntry, String>();
-
-			processResourceDeltasZip( deltas, zip, deleteEntries, deletePrefix, "", adjustGMTOffset );
-
-			for ( ZipEntry entry : deleteEntries.keySet() ) {
-				zip.putNextEntry( entry );
-				zip.write( deleteEntries.get( entry ).getBytes() );
-			}
-
-			// if ((removedResources != null) && (removedResources.size() > 0)) {
-			// writeRemovedResources(removedResources, zip);
-			// }
-		}
-		catch ( Exception ex ) {
-			ex.printStackTrace();
+			return writePartialArchive(
+				"partial-war", archiveName, PartialArchiveWriter.forDeltas( deltas, deletePrefix, "", adjustGMTOffset ) );
 		}
-		finally {
-			if ( zip != null ) {
-				try {
-					zip.close();
-				}
-				catch ( IOException localIOException1 ) {
-
-				}
-			}
+		catch ( CoreException e ) {
+			e.printStackTrace();
 		}
 
-		return file;
+		return LiferayServerCorePlugin.getTempLocation( "partial-war", archiveName ).toFile();
 	}
 
 	public static IServerWorkingCopy createServerForRuntime(IRuntime runtime) {
@@ -309,6 +162,23 @@ public class ServerUtil {
 		return runtime != null ? runtime.getAppServerDir() : null;
 	}
 
+	/**
+	 * Returns the file system location of a module file, or null if it has none.
+	 */
+	public static File getFile( IModuleFile moduleFile ) {
+		File file = (File) moduleFile.getAdapter( File.class );
+
+		if ( file == null ) {
+			IFile iFile = (IFile) moduleFile.getAdapter( IFile.class );
+
+			if ( iFile != null && iFile.getLocation() != null ) {
+				file = iFile.getLocation().toFile();
+			}
+		}
+
+		return file;
+	}
+
 	public static IFacetedProject getFacetedProject( IProject project ) {
 		try {
 			return ProjectFacetsManager.create( project );
@@ -571,6 +441,10 @@ public class ServerUtil {
 		return getLiferayRuntime(server) != null;
 	}
 
+	public static boolean isThemeProject( IProject project ) {
+		return hasFacet( project, ProjectFacetsManager.getProjectFacet( "liferay.theme" ) );
+	}
+
 	public static boolean isValidPropertiesFile(File file) {
 		if (file == null || !file.exists()) {
 			return false;
@@ -587,44 +461,33 @@ public class ServerUtil {
 
 	}
 
-	private static void processResourceDeltasZip(
-		IModuleResourceDelta[] deltas, ZipOutputStream zip, Map<ZipEntry, String> deleteEntries, String deletePrefix,
-		String deltaPrefix, boolean adjustGMTOffset )
-		throws IOException, CoreException {
-
-		for ( IModuleResourceDelta delta : deltas ) {
-			int deltaKind = delta.getKind();
+	private static File writePartialArchive( String prefix, String archiveName, PartialArchiveWriter writer ) {
+		IPath path = LiferayServerCorePlugin.getTempLocation( prefix, archiveName );
 
-			IResource deltaResource = (IResource) delta.getModuleResource().getAdapter( IResource.class );
-
-			IProject deltaProject = deltaResource.getProject();
+		OutputStream outputStream = null;
+		File file = path.toFile();
 
-			IFolder docroot = CoreUtil.getDocroot( deltaProject );
+		file.getParentFile().mkdirs();
 
-			IPath deltaPath =
-				new Path( deltaPrefix + deltaResource.getFullPath().makeRelativeTo( docroot.getFullPath() ) );
+		try {
+			outputStream = new BufferedOutputStream( new FileOutputStream( file ) );
 
-			if ( deltaKind == IModuleResourceDelta.ADDED || deltaKind == IModuleResourceDelta.CHANGED ) {
-				addToZip( deltaPath, deltaResource, zip, adjustGMTOffset );
-			}
-			else if ( deltaKind == IModuleResourceDelta.REMOVED ) {
-				addRemoveProps( deltaPath, deltaResource, zip, deleteEntries, deletePrefix );
-			}
-			else if ( deltaKind == IModuleResourceDelta.NO_CHANGE ) {
-				IModuleResourceDelta[] children = delta.getAffectedChildren();
-				processResourceDeltasZip( children, zip, deleteEntries, deletePrefix, deltaPrefix, adjustGMTOffset );
-			}
+			writer.write( outputStream );
 		}
-	}
-
-	private static String removeArchive( String archive ) {
-		int index = Math.max( archive.lastIndexOf( ".war" ), archive.lastIndexOf( ".jar" ) );
-
-		if ( index >= 0 ) {
-			return archive.substring( 0, index + 5 );
+		catch ( Exception ex ) {
+			ex.printStackTrace();
+		}
+		finally {
+			if ( outputStream != null ) {
+				try {
+					outputStream.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
 		}
 
-		return "";
+		return file;
 	}
 
 	public static void terminateLaunchesForConfig( ILaunchConfigurationWorkingCopy config ) throws DebugException {
@@ -37,5 +37,12 @@ public interface ILiferayTomcatConstants {
 
 	String[] LIB_EXCLUDES = _defaultPrefs.get("tomcat.lib.excludes", "").split(",");
 
+	int PUBLISH_COPY_THREADS =
+		Math.max( 1, _defaultPrefs.getInt( "publish.copy.threads", Runtime.getRuntime().availableProcessors() * 2 ) );
+
+	int PUBLISH_QUIET_WINDOW = _defaultPrefs.getInt( "publish.quiet.window", 1000 );
+
+	int STARTUP_TIMELINE_HISTORY = Math.max( 1, _defaultPrefs.getInt( "startup.timeline.history", 20 ) );
+
 	boolean PREVENT_MULTI_EXT_PLUGINS_DEPLOY = _defaultPrefs.getBoolean("prevent.multi.ext.plugins.deploy", false);
 }
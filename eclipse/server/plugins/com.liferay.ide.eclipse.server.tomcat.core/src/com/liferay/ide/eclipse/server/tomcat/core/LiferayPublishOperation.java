@@ -12,6 +12,9 @@ package com.liferay.ide.eclipse.server.tomcat.core;
 
 import com.liferay.ide.eclipse.core.util.CoreUtil;
 import com.liferay.ide.eclipse.project.core.util.ProjectUtil;
+import com.liferay.ide.eclipse.server.tomcat.core.util.DescriptorChangeClassifier;
+import com.liferay.ide.eclipse.server.tomcat.core.util.DescriptorChangeClassifier.Change;
+import com.liferay.ide.eclipse.server.tomcat.core.util.PublishCopyEngine;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
 import java.io.File;
@@ -52,7 +55,7 @@ public class LiferayPublishOperation extends PublishOperation {
 
 	private static final String LIFERAY_WEB_XML_PATH = "WEB-INF/liferay-web.xml";
 
-	private static final String WEB_XML_PATH = "WEB-INF/web.xml";
+	private static final String WEB_XML_PATH = DescriptorChangeClassifier.WEB_XML_PATH;
 
 	protected LiferayTomcatServerBehavior server;
 	protected IModule[] module;
@@ -144,6 +147,7 @@ public class LiferayPublishOperation extends PublishOperation {
 
 	private void publishDir(IModule module2, List status, IProgressMonitor monitor) throws CoreException {
 		IPath path = server.getModuleDeployDirectory(module2);
+		DescriptorChangeClassifier classifier = new DescriptorChangeClassifier( module2.getName() );
 		
 		// Remove if requested or if previously published and are now serving without publishing
 		if (kind == IServer.PUBLISH_CLEAN || deltaKind == ServerBehaviourDelegate.REMOVED
@@ -177,6 +181,8 @@ public class LiferayPublishOperation extends PublishOperation {
 				IStatus[] stat = PublishHelper.deleteDirectory(f, monitor);
 				addArrayToList(status, stat);
 			}
+
+			classifier.clear();
 			
 			if (deltaKind == ServerBehaviourDelegate.REMOVED
 					|| server.getTomcatServer().isServeModulesWithoutPublish())
@@ -189,12 +195,20 @@ public class LiferayPublishOperation extends PublishOperation {
 		
 		if (kind == IServer.PUBLISH_CLEAN || kind == IServer.PUBLISH_FULL) {
 			IModuleResource[] mr = server.getResources(module);
-			IStatus[] stat = helper.publishFull(mr, path, monitor);
+			IStatus[] stat = new PublishCopyEngine().publishFull(mr, path, monitor);
 			addArrayToList(status, stat);
+
+			if (monitor != null && monitor.isCanceled()) {
+				// the copy is incomplete, do not hand it to the deployer
+				return;
+			}
 			
 			clearWebXmlDescriptors(module2.getProject(), path, monitor);
 			
-			server.moveContextToAutoDeployDir(module2, path, baseDir, autoDeployDir, true, serverStopped);
+			IStatus deployStatus =
+				server.moveContextToAutoDeployDir(module2, path, baseDir, autoDeployDir, true, serverStopped);
+
+			recordDeployed( classifier, module2, deployStatus, status );
 
 			return;
 		}
@@ -208,23 +222,88 @@ public class LiferayPublishOperation extends PublishOperation {
 		}
 
 		// check to see if we need to re-invoke the liferay plugin deployer
-		String[] paths =
-			new String[] { WEB_XML_PATH, "WEB-INF/portlet.xml", "WEB-INF/liferay-portlet.xml",
-				"WEB-INF/liferay-display.xml", "WEB-INF/liferay-look-and-feel.xml", "WEB-INF/liferay-hook.xml",
-				"WEB-INF/liferay-layout-templates.xml", "WEB-INF/liferay-plugin-package.properties",
-				"WEB-INF/liferay-plugin-package.xml", "WEB-INF/server-config.wsdd", };
+		boolean descriptorChanged = false;
+		boolean hookChanged = false;
+		boolean webXmlChanged = false;
 
 		for ( IModuleResourceDelta del : delta )
 		{
-			if ( CoreUtil.containsMember( del, paths ) || isHookProjectDelta( del ) )
+			if ( CoreUtil.containsMember( del, DescriptorChangeClassifier.DESCRIPTOR_PATHS ) )
 			{
-				clearWebXmlDescriptors(module2.getProject(), path, monitor);
+				descriptorChanged = true;
+			}
 
+			if ( CoreUtil.containsMember( del, new String[] { WEB_XML_PATH } ) )
+			{
+				webXmlChanged = true;
+			}
+
+			if ( isHookProjectDelta( del ) )
+			{
+				hookChanged = true;
+			}
+		}
+
+		Change change = Change.NONE;
+
+		if ( descriptorChanged )
+		{
+			change = classifier.classify( CoreUtil.getDocroot( module2.getProject() ) );
+		}
+
+		// the delta has just copied the web.xml of the project over the one the deployer processed, so even a change
+		// that means nothing to the deployer has to go through it again
+		if ( webXmlChanged )
+		{
+			change = Change.REDEPLOY;
+		}
+
+		if ( hookChanged || change == Change.REDEPLOY )
+		{
+			clearWebXmlDescriptors(module2.getProject(), path, monitor);
+
+			IStatus deployStatus =
 				server.moveContextToAutoDeployDir( module2, path, baseDir, autoDeployDir, true, serverStopped );
-				break;
+
+			recordDeployed( classifier, module2, deployStatus, status );
+		}
+		else if ( descriptorChanged )
+		{
+			if ( change == Change.RELOAD && !serverStopped )
+			{
+				reloadContext( path );
 			}
+
+			classifier.update( CoreUtil.getDocroot( module2.getProject() ) );
+		}
+	}
+
+	private void recordDeployed(
+		DescriptorChangeClassifier classifier, IModule module2, IStatus deployStatus, List status )
+	{
+		if ( deployStatus == null || deployStatus.isOK() )
+		{
+			classifier.update( CoreUtil.getDocroot( module2.getProject() ) );
+		}
+		else
+		{
+			// without fingerprints the next publish redeploys again
+			classifier.clear();
+
+			status.add( deployStatus );
 		}
+	}
+
+	private void reloadContext( IPath path )
+	{
+		// tomcat watches the deployed web.xml and reloads the context when it is touched, which runs the liferay hot
+		// deploy listeners again without going through the plugin deployer
+		File webXmlFile = path.append( WEB_XML_PATH ).toFile();
 
+		if ( webXmlFile.exists() && !webXmlFile.setLastModified( System.currentTimeMillis() ) )
+		{
+			LiferayTomcatPlugin.logError( "Could not touch " + webXmlFile + " to reload the context.", null );
+		}
 	}
 
 	private void clearWebXmlDescriptors(IProject project, IPath path, IProgressMonitor monitor)
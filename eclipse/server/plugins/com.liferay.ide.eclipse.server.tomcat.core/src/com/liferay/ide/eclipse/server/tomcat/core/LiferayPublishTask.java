@@ -21,11 +21,18 @@ public class LiferayPublishTask extends PublishTask {
 		LiferayTomcatServerBehavior tomcatServer =
 			(LiferayTomcatServerBehavior) server.loadAdapter(LiferayTomcatServerBehavior.class, null);
 
+		PublishCoalescer coalescer = tomcatServer.getPublishCoalescer();
+
 		List tasks = new ArrayList();
 		int size = modules.size();
 		for (int i = 0; i < size; i++) {
 			IModule[] module = (IModule[]) modules.get(i);
 			Integer in = (Integer) kindList.get(i);
+
+			if (coalescer.defer(kind, module, in.intValue(), tomcatServer.getUncoalescedResourceDelta(module))) {
+				continue;
+			}
+
 			tasks.add(new LiferayPublishOperation(tomcatServer, kind, module, in.intValue()));
 		}
 
@@ -17,27 +17,24 @@ import static com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin.war
 
 import com.liferay.ide.eclipse.core.ILiferayConstants;
 import com.liferay.ide.eclipse.core.util.CoreUtil;
-import com.liferay.ide.eclipse.core.util.FileUtil;
 import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
 import com.liferay.ide.eclipse.server.tomcat.core.util.LiferayTomcatUtil;
 import com.liferay.ide.eclipse.server.util.JavaUtil;
-import com.liferay.ide.eclipse.server.util.PortalSupportHelper;
+import com.liferay.ide.eclipse.server.util.PortalDescriptorFacts;
 import com.liferay.ide.eclipse.server.util.ReleaseHelper;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.net.URL;
 import java.text.MessageFormat;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
@@ -185,6 +182,10 @@ public class LiferayTomcatRuntime extends TomcatRuntime implements ILiferayTomca
 		return LiferayTomcatUtil.getCategories(getRuntimeLocation(), getPortalDir());
 	}
 
+	public Properties getPortletCategories(Locale locale) {
+		return LiferayTomcatUtil.getCategories(getRuntimeLocation(), getPortalDir(), locale);
+	}
+
 	protected ReleaseHelper getReleaseHelper(IPath serviceJar) {
 		if (releaseHelpers == null) {
 			releaseHelpers = new HashMap<IPath, ReleaseHelper>();
@@ -208,61 +209,14 @@ public class LiferayTomcatRuntime extends TomcatRuntime implements ILiferayTomca
 	}
 
 	public String getServerInfo() {
-		// check for existing server info
-		IPath location = getRuntime().getLocation();
-
-		IPath serverInfosPath = LiferayTomcatPlugin.getDefault().getStateLocation().append("serverInfos.properties");
-
-		String locationKey = location.toPortableString().replaceAll("\\/", "_");
-
-		File serverInfosFile = serverInfosPath.toFile();
-
-		Properties properties = new Properties();
-
-		if (serverInfosFile.exists()) {
-			try {
-				properties.load(new FileInputStream(serverInfosFile));
-				String serverInfo = (String) properties.get(locationKey);
-
-				if (!CoreUtil.isNullOrEmpty(serverInfo)) {
-					return serverInfo;
-				}
-			}
-			catch (Exception e) {
-			}
-		}
-
-		File serverInfoFile = LiferayTomcatPlugin.getDefault().getStateLocation().append("serverInfo.txt").toFile();
-
-		if (serverInfoFile.exists()) {
-			FileUtil.clearContents(serverInfoFile);
-		}
-
-		IPath errorPath = LiferayTomcatPlugin.getDefault().getStateLocation().append("serverInfoError.log");
-
-		File errorFile = errorPath.toFile();
-
-		loadServerInfoFile(location, serverInfoFile, errorFile);
-
-		String serverInfoString = FileUtil.readContents(serverInfoFile);
-
-		if (!CoreUtil.isNullOrEmpty(serverInfoString)) {
-			properties.put(locationKey, serverInfoString);
-			try {
-				properties.store(new FileOutputStream(serverInfosFile), "");
-			}
-			catch (Exception e) {
-			}
-		}
-
-		return serverInfoString;
+		return LiferayTomcatUtil.getServerInfo(getRuntimeLocation(), getPortalDir());
 	}
 
 	public String[] getServletFilterNames()
 	{
 		try
 		{
-			return LiferayTomcatUtil.getServletFilterNames( getPortalDir() );
+			return PortalDescriptorFacts.getFacts( getPortalDir() ).getServletFilterNames();
 		}
 		catch ( Exception e )
 		{
@@ -319,29 +273,6 @@ public class LiferayTomcatRuntime extends TomcatRuntime implements ILiferayTomca
 		return null;
 	}
 
-	protected void loadServerInfoFile(IPath location, File versionInfoFile, File errorFile) {
-		String portalSupportClass = "com.liferay.ide.eclipse.server.core.support.ReleaseInfoGetServerInfo";
-
-		IPath[] libRoots = new IPath[] { location.append("lib"), location.append("lib/ext") };
-
-		IPath portalDir = getPortalDir();
-
-		try {
-			URL[] supportUrls =
-				new URL[] { FileLocator.toFileURL(LiferayServerCorePlugin.getDefault().getBundle().getEntry(
-					"portal-support/portal-support.jar")) };
-
-			PortalSupportHelper helper =
-				new PortalSupportHelper(
-					libRoots, portalDir, portalSupportClass, versionInfoFile, errorFile, supportUrls, new String[] {});
-
-			helper.launch(null);
-		}
-		catch (Exception e) {
-			LiferayTomcatPlugin.logError(e);
-		}
-	}
-
 	public void setBundleZipLocation(IPath path) {
 		if (path != null) {
 			setAttribute(PROP_BUNDLE_ZIP_LOCATION, path.toPortableString());
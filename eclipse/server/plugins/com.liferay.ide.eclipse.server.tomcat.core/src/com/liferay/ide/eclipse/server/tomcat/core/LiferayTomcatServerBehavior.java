@@ -30,6 +30,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.jdt.launching.IJavaLaunchConfigurationConstants;
 import org.eclipse.jst.server.tomcat.core.internal.Messages;
 import org.eclipse.jst.server.tomcat.core.internal.TomcatPlugin;
@@ -53,14 +54,41 @@ import org.w3c.dom.Document;
 @SuppressWarnings("restriction")
 public class LiferayTomcatServerBehavior extends TomcatServerBehaviour implements ILiferayServerBehavior {
 
+	private PublishCoalescer publishCoalescer;
+
 	public LiferayTomcatServerBehavior() {
 		super();
 	}
-	
+
+	@Override
+	public void dispose() {
+		if (publishCoalescer != null) {
+			publishCoalescer.dispose();
+		}
+
+		super.dispose();
+	}
+
+	@Override
+	protected void addProcessListener(IProcess newProcess) {
+		super.addProcessListener(newProcess);
+
+		if (newProcess != null) {
+			new StartupTimelineRecorder(getServer(), newProcess).start();
+		}
+	}
+
 	@Override
 	protected void publishModule(int kind, int deltaKind, IModule[] moduleTree, IProgressMonitor monitor)
 			throws CoreException {
-		
+
+		if (kind == IServer.PUBLISH_AUTO && getPublishCoalescer().isDeferred(moduleTree)) {
+			// the coalesced publish will pick it up once the quiet window has passed, an explicit publish goes ahead
+			// with the pending delta folded in
+			setModulePublishState(moduleTree, IServer.PUBLISH_STATE_INCREMENTAL);
+			return;
+		}
+
 		boolean shouldPublishModule =
 			LiferayPublishHelper.prePublishModule(
 				this, kind, deltaKind, moduleTree, getPublishedResourceDelta(moduleTree), monitor);
@@ -77,6 +105,16 @@ public class LiferayTomcatServerBehavior extends TomcatServerBehaviour implement
 			// wasn't able to publish module, should set to needs full publish
 			setModulePublishState(moduleTree, IServer.PUBLISH_STATE_FULL);
 		}
+
+		getPublishCoalescer().published(moduleTree);
+	}
+
+	public synchronized PublishCoalescer getPublishCoalescer() {
+		if (publishCoalescer == null) {
+			publishCoalescer = new PublishCoalescer(this);
+		}
+
+		return publishCoalescer;
 	}
 	
 	public LiferayTomcatServer getLiferayTomcatServer() {
@@ -84,6 +122,10 @@ public class LiferayTomcatServerBehavior extends TomcatServerBehaviour implement
 	}
 	
 	public IModuleResourceDelta[] getPublishedResourceDelta(IModule[] module) {
+		return getPublishCoalescer().getResourceDelta(module, super.getPublishedResourceDelta(module));
+	}
+
+	public IModuleResourceDelta[] getUncoalescedResourceDelta(IModule[] module) {
 		return super.getPublishedResourceDelta(module);
 	}
 
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core;
+
+import com.liferay.ide.eclipse.server.tomcat.core.util.CoalescedResourceDelta;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
+
+/**
+ * Holds back auto publishes of changed modules until no new change has come in for the quiet window. The resource
+ * deltas of the held back publishes are folded into one delta per module, and when the window has passed a single
+ * incremental publish copies the net changes, so saving several files in a row runs the Liferay deployer at most once.
+ * While a module is held back its publish state is incremental, which the Servers view shows as needing a republish.
+ *
+ * @author Greg Amerson
+ */
+public class PublishCoalescer {
+
+	private final LiferayTomcatServerBehavior behavior;
+
+	private final Set<String> deferred = new HashSet<String>();
+
+	private final Map<String, Map<IPath, CoalescedResourceDelta>> pending =
+		new HashMap<String, Map<IPath, CoalescedResourceDelta>>();
+
+	private final Job publishJob;
+
+	public PublishCoalescer( LiferayTomcatServerBehavior behavior ) {
+		this.behavior = behavior;
+
+		this.publishJob = new Job( "Publishing coalesced changes" ) {
+
+			@Override
+			protected IStatus run( IProgressMonitor monitor ) {
+				synchronized ( PublishCoalescer.this ) {
+					deferred.clear();
+				}
+
+				IServer server = PublishCoalescer.this.behavior.getServer();
+
+				if ( server == null ) {
+					return Status.OK_STATUS;
+				}
+
+				return server.publish( IServer.PUBLISH_INCREMENTAL, monitor );
+			}
+		};
+
+		this.publishJob.setSystem( true );
+	}
+
+	public static boolean isEnabled() {
+		return ILiferayTomcatConstants.PUBLISH_QUIET_WINDOW > 0;
+	}
+
+	public void dispose() {
+		publishJob.cancel();
+
+		synchronized ( this ) {
+			deferred.clear();
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Holds back the publish of a module if it is an auto publish of changed resources. The module's current resource
+	 * delta is folded into its pending delta and the coalesced publish is pushed back by the quiet window.
+	 *
+	 * @return true if the module should not be published now
+	 */
+	public boolean defer( int kind, IModule[] module, int deltaKind, IModuleResourceDelta[] delta ) {
+		if ( !isEnabled() || kind != IServer.PUBLISH_AUTO || module.length != 1 ) {
+			return false;
+		}
+
+		String key = getKey( module );
+
+		synchronized ( this ) {
+			if ( deltaKind == ServerBehaviourDelegate.NO_CHANGE ) {
+				// nothing new, but do not publish a module that is still waiting for its quiet window
+				return deferred.contains( key );
+			}
+
+			if ( deltaKind != ServerBehaviourDelegate.CHANGED ) {
+				return false;
+			}
+
+			Map<IPath, CoalescedResourceDelta> moduleDelta = pending.get( key );
+
+			if ( moduleDelta == null ) {
+				moduleDelta = new LinkedHashMap<IPath, CoalescedResourceDelta>();
+				pending.put( key, moduleDelta );
+			}
+
+			CoalescedResourceDelta.merge( moduleDelta, delta );
+
+			deferred.add( key );
+		}
+
+		// a sleeping job is moved to the new delay, so this is where the window restarts
+		publishJob.schedule( ILiferayTomcatConstants.PUBLISH_QUIET_WINDOW );
+
+		return true;
+	}
+
+	public synchronized boolean isDeferred( IModule[] module ) {
+		return deferred.contains( getKey( module ) );
+	}
+
+	/**
+	 * Returns the pending delta of the module with <code>current</code> folded in, without changing the pending delta.
+	 */
+	public synchronized IModuleResourceDelta[] getResourceDelta( IModule[] module, IModuleResourceDelta[] current ) {
+		Map<IPath, CoalescedResourceDelta> moduleDelta = pending.get( getKey( module ) );
+
+		if ( moduleDelta == null ) {
+			return current;
+		}
+
+		Map<IPath, CoalescedResourceDelta> retval = new LinkedHashMap<IPath, CoalescedResourceDelta>();
+
+		CoalescedResourceDelta.merge( retval, CoalescedResourceDelta.toArray( moduleDelta ) );
+		CoalescedResourceDelta.merge( retval, current );
+
+		return CoalescedResourceDelta.toArray( retval );
+	}
+
+	/**
+	 * Forgets the pending delta of a module once it has been published.
+	 */
+	public synchronized void published( IModule[] module ) {
+		String key = getKey( module );
+
+		pending.remove( key );
+		deferred.remove( key );
+	}
+
+	private String getKey( IModule[] module ) {
+		StringBuffer key = new StringBuffer();
+
+		for ( IModule m : module ) {
+			key.append( m.getId() ).append( '/' );
+		}
+
+		return key.toString();
+	}
+
+}
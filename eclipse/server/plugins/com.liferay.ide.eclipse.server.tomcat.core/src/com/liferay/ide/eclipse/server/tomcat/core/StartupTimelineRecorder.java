@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core;
+
+import com.liferay.ide.eclipse.server.tomcat.core.util.StartupTimeline;
+import com.liferay.ide.eclipse.server.tomcat.core.util.StartupTimelineParser;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.IDebugEventSetListener;
+import org.eclipse.debug.core.IStreamListener;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IStreamMonitor;
+import org.eclipse.debug.core.model.IStreamsProxy;
+import org.eclipse.wst.server.core.IServer;
+
+/**
+ * Records the {@link StartupTimeline} of one launch of a server from the output and error streams of its process.
+ * The timeline is written to the history of the server in the plugin state location as soon as Tomcat reports its
+ * startup, compared with the one of the previous launch, and anything that became much slower is logged as a warning.
+ * Then the recorder stops listening, so the console output of a running server is not parsed any more.
+ *
+ * @author Greg Amerson
+ */
+public class StartupTimelineRecorder implements IDebugEventSetListener {
+
+	private static final String HISTORY_FOLDER = "startup-timelines";
+
+	private static final String HISTORY_SUFFIX = ".timeline";
+
+	private static final double REGRESSION_FACTOR = 1.5;
+
+	private static final long REGRESSION_MINIMUM = 5000;
+
+	private static File getHistoryDir( IServer server ) {
+		String key = server.getId().replaceAll( "[^\\w.-]", "_" );
+
+		return LiferayTomcatPlugin.getDefault().getStateLocation().append( HISTORY_FOLDER ).append( key ).toFile();
+	}
+
+	private static File[] getHistoryFiles( File historyDir ) {
+		File[] retval = historyDir.listFiles( new FileFilter() {
+
+			public boolean accept( File file ) {
+				return file.isFile() && file.getName().endsWith( HISTORY_SUFFIX );
+			}
+		} );
+
+		if ( retval == null ) {
+			return new File[0];
+		}
+
+		// the files are named after the launch time, latest first
+		Arrays.sort( retval, new Comparator<File>() {
+
+			public int compare( File file1, File file2 ) {
+				long time1 = getLaunchTime( file1 );
+				long time2 = getLaunchTime( file2 );
+
+				return time1 < time2 ? 1 : ( time1 == time2 ? 0 : -1 );
+			}
+		} );
+
+		return retval;
+	}
+
+	private static long getLaunchTime( File file ) {
+		String name = file.getName();
+
+		try {
+			return Long.parseLong( name.substring( 0, name.length() - HISTORY_SUFFIX.length() ) );
+		}
+		catch ( NumberFormatException e ) {
+			return 0;
+		}
+	}
+
+	private final StringBuffer errorLine = new StringBuffer();
+
+	private final File historyDir;
+
+	private final File historyFile;
+
+	private final Map<IStreamMonitor, IStreamListener> listeners = new HashMap<IStreamMonitor, IStreamListener>();
+
+	private final StringBuffer outputLine = new StringBuffer();
+
+	private final StartupTimelineParser parser;
+
+	private final IProcess process;
+
+	private volatile boolean started = false;
+
+	public StartupTimelineRecorder( IServer server, IProcess process ) {
+		long launchTime = System.currentTimeMillis();
+
+		this.process = process;
+		this.parser = new StartupTimelineParser( new StartupTimeline( launchTime ) );
+		this.historyDir = getHistoryDir( server );
+		this.historyFile = new File( historyDir, launchTime + HISTORY_SUFFIX );
+	}
+
+	/**
+	 * Starts reading the streams of the process, including what it has written before.
+	 */
+	public void start() {
+		IStreamsProxy streams = process.getStreamsProxy();
+
+		if ( streams == null ) {
+			return;
+		}
+
+		DebugPlugin.getDefault().addDebugEventListener( this );
+
+		// tomcat logs to the error stream and the portal to the output stream
+		listen( streams.getOutputStreamMonitor(), outputLine );
+		listen( streams.getErrorStreamMonitor(), errorLine );
+
+		if ( process.isTerminated() ) {
+			finish();
+		}
+	}
+
+	public void handleDebugEvents( DebugEvent[] events ) {
+		for ( DebugEvent event : events ) {
+			if ( event.getSource() == process && event.getKind() == DebugEvent.TERMINATE ) {
+				finish();
+			}
+		}
+	}
+
+	private synchronized void append( StringBuffer line, String text ) {
+		// nothing after the startup is recorded
+		for ( int i = 0; i < text.length() && !started; i++ ) {
+			char c = text.charAt( i );
+
+			if ( c == '\n' || c == '\r' ) {
+				if ( line.length() > 0 ) {
+					parseLine( line.toString() );
+					line.setLength( 0 );
+				}
+			}
+			else {
+				line.append( c );
+			}
+		}
+	}
+
+	private synchronized void detach() {
+		DebugPlugin.getDefault().removeDebugEventListener( this );
+
+		for ( Map.Entry<IStreamMonitor, IStreamListener> entry : listeners.entrySet() ) {
+			entry.getKey().removeListener( entry.getValue() );
+		}
+
+		listeners.clear();
+	}
+
+	private synchronized void finish() {
+		detach();
+
+		// the last lines may not end with a line break, a launch that never came up is not stored
+		if ( outputLine.length() > 0 && !started ) {
+			parseLine( outputLine.toString() );
+		}
+
+		if ( errorLine.length() > 0 && !started ) {
+			parseLine( errorLine.toString() );
+		}
+
+		outputLine.setLength( 0 );
+		errorLine.setLength( 0 );
+	}
+
+	private void listen( IStreamMonitor monitor, final StringBuffer line ) {
+		if ( monitor == null ) {
+			return;
+		}
+
+		IStreamListener listener = new IStreamListener() {
+
+			public void streamAppended( String text, IStreamMonitor streamMonitor ) {
+				append( line, text );
+			}
+		};
+
+		// the monitor appends under its own lock, so nothing is missed or read twice between the two calls
+		synchronized ( monitor ) {
+			String contents = monitor.getContents();
+
+			if ( contents != null ) {
+				append( line, contents );
+			}
+
+			// the startup may have been read from the other stream in the meantime
+			synchronized ( this ) {
+				if ( !started ) {
+					listeners.put( monitor, listener );
+					monitor.addListener( listener );
+				}
+			}
+		}
+	}
+
+	private void logRegressions() {
+		StartupTimeline timeline = parser.getTimeline();
+
+		for ( File file : getHistoryFiles( historyDir ) ) {
+			if ( file.equals( historyFile ) ) {
+				continue;
+			}
+
+			try {
+				List<String> regressions =
+					timeline.getRegressions( StartupTimeline.load( file ), REGRESSION_MINIMUM, REGRESSION_FACTOR );
+
+				if ( !regressions.isEmpty() ) {
+					StringBuffer msg = new StringBuffer( "Server startup became slower than on the previous launch:" );
+
+					for ( String regression : regressions ) {
+						msg.append( "\n  " ).append( regression );
+					}
+
+					msg.append( "\nThe timeline of this launch is " ).append( historyFile.getAbsolutePath() );
+
+					LiferayTomcatPlugin.getDefault().getLog().log( LiferayTomcatPlugin.warning( msg.toString() ) );
+				}
+			}
+			catch ( IOException e ) {
+				LiferayTomcatPlugin.logError( "Could not read startup timeline " + file, e );
+			}
+
+			// only the latest launch is compared
+			break;
+		}
+	}
+
+	private void parseLine( String line ) {
+		StartupTimeline.Kind kind = parser.parseLine( line );
+
+		if ( kind == StartupTimeline.Kind.SERVER_STARTUP && !started ) {
+			started = true;
+
+			logRegressions();
+			store();
+			detach();
+		}
+	}
+
+	private void store() {
+		if ( !historyDir.exists() ) {
+			historyDir.mkdirs();
+		}
+
+		try {
+			parser.getTimeline().store( historyFile );
+		}
+		catch ( IOException e ) {
+			LiferayTomcatPlugin.logError( "Could not write startup timeline " + historyFile, e );
+		}
+
+		File[] files = getHistoryFiles( historyDir );
+
+		for ( int i = ILiferayTomcatConstants.STARTUP_TIMELINE_HISTORY; i < files.length; i++ ) {
+			files[i].delete();
+		}
+	}
+
+}
@@ -15,17 +15,23 @@
 
 package com.liferay.ide.eclipse.server.tomcat.core;
 
+import com.liferay.ide.eclipse.core.util.FileUtil;
 import com.liferay.ide.eclipse.project.core.util.ProjectUtil;
 import com.liferay.ide.eclipse.sdk.SDK;
 import com.liferay.ide.eclipse.sdk.util.SDKUtil;
 import com.liferay.ide.eclipse.server.core.AbstractPluginPublisher;
+import com.liferay.ide.eclipse.server.core.ILiferayRuntime;
+import com.liferay.ide.eclipse.server.tomcat.core.util.ExtDeployPlanner;
 import com.liferay.ide.eclipse.server.tomcat.core.util.LiferayTomcatUtil;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -39,6 +45,25 @@ import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
  */
 public class TomcatExtPluginPublisher extends AbstractPluginPublisher {
 
+	private static final String EXT_DEPLOY_FOLDER = "ext-deploy";
+
+	/**
+	 * Forgets what was deployed to a portal, so the next publish of an Ext plugin deploys it in full. Needed whenever
+	 * the portal is replaced behind the back of the publisher, for example by cleaning the app server.
+	 */
+	public static void clearDeployedState(IPath portalDir) {
+		FileUtil.deleteDir(getDeployedStateDir(portalDir), true);
+	}
+
+	/**
+	 * The deployed state is kept per portal, so the same plugin on another runtime is deployed in full the first time.
+	 */
+	protected static File getDeployedStateDir(IPath portalDir) {
+		String portalKey = portalDir.toFile().getAbsolutePath().replaceAll("[^\\w.-]", "_");
+
+		return LiferayTomcatPlugin.getDefault().getStateLocation().append(EXT_DEPLOY_FOLDER).append(portalKey).toFile();
+	}
+
 	public TomcatExtPluginPublisher() {
 		super();
 	}
@@ -81,7 +106,7 @@ public class TomcatExtPluginPublisher extends AbstractPluginPublisher {
 
 		try {
 			if (deltaKind == ServerBehaviourDelegate.ADDED || deltaKind == ServerBehaviourDelegate.CHANGED) {
-				addExtModule(delegate, moduleTree[0], monitor);
+				addExtModule(delegate, moduleTree[0], deltaKind, monitor);
 			}
 			else if (deltaKind == ServerBehaviourDelegate.REMOVED) {
 				// nothing to do right now
@@ -96,31 +121,59 @@ public class TomcatExtPluginPublisher extends AbstractPluginPublisher {
 		return true;
 	}
 
-	protected void addExtModule(ServerBehaviourDelegate delegate, IModule module, IProgressMonitor monitor)
+	protected void addExtModule(
+		ServerBehaviourDelegate delegate, IModule module, int deltaKind, IProgressMonitor monitor)
 		throws CoreException {
 
-		SDK sdk = null;
 		IProject project = module.getProject();
+		ExtDeployPlanner planner = createPlanner(delegate.getServer(), project);
+		ExtDeployPlanner.Plan plan = null;
 
-		sdk = SDKUtil.getSDK( project );
-
-		if (sdk == null) {
+		try {
+			plan = planner.plan();
+		}
+		catch (IOException e) {
 			throw new CoreException(
-				LiferayTomcatPlugin.createErrorStatus("No SDK for project configured. Could not deploy ext module"));
+				LiferayTomcatPlugin.createErrorStatus(
+					LiferayTomcatPlugin.PLUGIN_ID, "Could not read the deployed state of " + project.getName(), e));
 		}
 
-		String mode =
-			delegate.getServer().getServerState() == IServer.STATE_STARTED ? delegate.getServer().getMode() : null;
+		if (deltaKind == ServerBehaviourDelegate.ADDED || plan.isFullDeployRequired()) {
+			fullDeployExtModule(delegate, project, monitor);
 
-		if (mode != null) {
-			LiferayTomcatUtil.syncStopServer(delegate.getServer());
+			try {
+				planner.recordDeployed();
+			}
+			catch (IOException e) {
+				// the next publish will simply deploy everything again
+				LiferayTomcatPlugin.logError("Could not record the deployed state of " + project.getName(), e);
+			}
+
+			return;
 		}
 
-		Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
+		if (plan.isEmpty()) {
+			return;
+		}
 
-		IStatus status = sdk.directDeploy( project, null, true, appServerProperties );
+		String mode = null;
 
-		assertStatus(status);
+		if (plan.isRestartRequired()) {
+			mode = delegate.getServer().getServerState() == IServer.STATE_STARTED ? delegate.getServer().getMode() : null;
+		}
+
+		if (mode != null) {
+			LiferayTomcatUtil.syncStopServer(delegate.getServer());
+		}
+
+		try {
+			planner.execute(plan);
+		}
+		catch (IOException e) {
+			throw new CoreException(
+				LiferayTomcatPlugin.createErrorStatus(
+					LiferayTomcatPlugin.PLUGIN_ID, "Could not deploy changes of ext module " + project.getName(), e));
+		}
 
 		if (mode != null) {
 			delegate.getServer().start(mode, monitor);
@@ -139,6 +192,52 @@ public class TomcatExtPluginPublisher extends AbstractPluginPublisher {
 		}
 	}
 
+	protected ExtDeployPlanner createPlanner(IServer server, IProject project)
+		throws CoreException {
+
+		ILiferayRuntime liferayRuntime = ServerUtil.getLiferayRuntime(server);
+
+		if (liferayRuntime == null) {
+			throw new CoreException(
+				LiferayTomcatPlugin.createErrorStatus("No Liferay runtime for server. Could not deploy ext module"));
+		}
+
+		File docroot = project.getFolder("docroot").getLocation().toFile();
+		File portalDir = liferayRuntime.getPortalDir().toFile();
+		File stateFile = new File(getDeployedStateDir(liferayRuntime.getPortalDir()), project.getName() + ".properties");
+
+		return new ExtDeployPlanner(
+			docroot, project.getName(), portalDir, liferayRuntime.getLibGlobalDir().toFile(), stateFile);
+	}
+
+	protected void fullDeployExtModule(ServerBehaviourDelegate delegate, IProject project, IProgressMonitor monitor)
+		throws CoreException {
+
+		SDK sdk = SDKUtil.getSDK( project );
+
+		if (sdk == null) {
+			throw new CoreException(
+				LiferayTomcatPlugin.createErrorStatus("No SDK for project configured. Could not deploy ext module"));
+		}
+
+		String mode =
+			delegate.getServer().getServerState() == IServer.STATE_STARTED ? delegate.getServer().getMode() : null;
+
+		if (mode != null) {
+			LiferayTomcatUtil.syncStopServer(delegate.getServer());
+		}
+
+		Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
+
+		IStatus status = sdk.directDeploy( project, null, true, appServerProperties );
+
+		assertStatus(status);
+
+		if (mode != null) {
+			delegate.getServer().start(mode, monitor);
+		}
+	}
+
 	protected void removeExtModule(ServerBehaviourDelegate delegate, IModule module, IProgressMonitor monitor)
 		throws CoreException {
 
@@ -15,13 +15,18 @@
 
 package com.liferay.ide.eclipse.server.tomcat.core.job;
 
+import com.liferay.ide.eclipse.sdk.ISDKConstants;
 import com.liferay.ide.eclipse.sdk.job.SDKJob;
 import com.liferay.ide.eclipse.server.tomcat.core.ILiferayTomcatRuntime;
 import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin;
 import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatServerBehavior;
+import com.liferay.ide.eclipse.server.tomcat.core.TomcatExtPluginPublisher;
+import com.liferay.ide.eclipse.server.tomcat.core.util.AppServerSnapshot;
 import com.liferay.ide.eclipse.server.tomcat.core.util.LiferayTomcatUtil;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
@@ -29,6 +34,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IRuntime;
@@ -40,6 +46,8 @@ import org.eclipse.wst.server.core.IServer;
 @SuppressWarnings("restriction")
 public class CleanAppServerJob extends SDKJob {
 
+	private static final String SNAPSHOTS_FOLDER = "bundle-snapshots";
+
 	public CleanAppServerJob(IProject project) {
 		super("Clean App Server");
 
@@ -85,9 +93,14 @@ public class CleanAppServerJob extends SDKJob {
 
 			Map<String, String> appServerProperties = ServerUtil.configureAppServerProperties( project );
 
-			IStatus status = getSDK().cleanAppServer( project, bundleZipLocation, appServerProperties );
+			if (!restoreFromSnapshot(bundleZipLocation, appServerProperties, monitor)) {
+				IStatus status = getSDK().cleanAppServer( project, bundleZipLocation, appServerProperties );
+
+				assertStatus(status);
+			}
 
-			assertStatus(status);
+			// the portal is the one of the bundle again, whatever an ext plugin deployed to it before is gone
+			TomcatExtPluginPublisher.clearDeployedState(portalTomcatRuntime.getPortalDir());
 
 			for (IServer server : servers) {
 				// need to mark all other server modules at needing republishing since ext will wipe out webapps folder
@@ -116,4 +129,58 @@ public class CleanAppServerJob extends SDKJob {
 		return retval;
 	}
 
+	/**
+	 * Puts the app server back into the state of the bundle from a snapshot of the extracted bundle, which only has to
+	 * copy the files that changed since. The bundle zip is extracted into the snapshot the first time.
+	 *
+	 * @return false if the bundle can not be restored this way and has to be extracted by the SDK
+	 */
+	protected boolean restoreFromSnapshot(
+		IPath bundleZipLocation, Map<String, String> appServerProperties, IProgressMonitor monitor) {
+
+		String appServerDir = appServerProperties.get( ISDKConstants.PROPERTY_APP_SERVER_DIR );
+
+		if (bundleZipLocation == null || appServerDir == null || !bundleZipLocation.toFile().isFile()) {
+			return false;
+		}
+
+		// the same folder the SDK extracts the bundle to
+		IPath appServerPath = new Path(appServerDir);
+		File workDir = appServerPath.removeLastSegments(2).toFile();
+
+		try {
+			if (monitor != null) {
+				monitor.subTask("Preparing snapshot of " + bundleZipLocation.lastSegment());
+			}
+
+			File snapshotsDir = LiferayTomcatPlugin.getDefault().getStateLocation().append(SNAPSHOTS_FOLDER).toFile();
+			AppServerSnapshot snapshot = AppServerSnapshot.getSnapshot(bundleZipLocation.toFile(), snapshotsDir);
+
+			File bundleAppServerDir =
+				new Path(snapshot.getSnapshotDir().getAbsolutePath()).append(
+					appServerPath.removeFirstSegments(appServerPath.segmentCount() - 2)).toFile();
+
+			if (!bundleAppServerDir.isDirectory()) {
+				LiferayTomcatPlugin.getDefault().getLog().log(
+					LiferayTomcatPlugin.warning("The app server of " + bundleZipLocation.toOSString() +
+						" is not laid out as the SDK expects, cleaning it with the SDK."));
+
+				return false;
+			}
+
+			if (monitor != null) {
+				monitor.subTask("Restoring app server from snapshot");
+			}
+
+			snapshot.restore(workDir);
+
+			return true;
+		}
+		catch (IOException e) {
+			LiferayTomcatPlugin.logError("Could not restore app server from snapshot, cleaning it with the SDK.", e);
+
+			return false;
+		}
+	}
+
 }
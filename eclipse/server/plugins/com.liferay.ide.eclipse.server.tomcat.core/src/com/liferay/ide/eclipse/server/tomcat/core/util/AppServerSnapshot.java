@@ -0,0 +1,439 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A pristine copy of a Liferay bundle zip, extracted once and used to put an app server back into the state of the
+ * bundle without extracting the zip again. Snapshots are kept in a folder per zip content, so a zip that is replaced
+ * under the same name gets a snapshot of its own.
+ * <p>
+ * Restoring mirrors every top level folder of the bundle into the work folder: files that are not in the bundle are
+ * removed and files of the bundle are copied back unless they still have the size and time stamp of the snapshot.
+ * After a clean only the files the portal or a deploy wrote to are copied, everything else is left as it is. Files
+ * are copied rather than linked so that a running server can never write through into the snapshot.
+ * <p>
+ * The executable flag of the bundle files, like the one of the startup scripts, is kept on the files of the snapshot
+ * and given back to the restored files. That takes Java 6, on Java 5 the flag is left as it is.
+ *
+ * @author Greg Amerson
+ */
+public class AppServerSnapshot {
+
+	private static final Map<String, String> bundleHashes = new HashMap<String, String>();
+
+	/**
+	 * Part of the snapshot folder name, bumped whenever snapshots hold more of the bundle, so older ones are extracted
+	 * again.
+	 */
+	private static final String FORMAT = "2";
+
+	private static final int MAX_SNAPSHOTS = 3;
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final int UNIX_EXECUTABLE = 0111;
+
+	private static final int UNIX_HOST = 3;
+
+	private static final int ZIP_CENTRAL_HEADER = 0x02014b50;
+
+	private static final int ZIP_END_HEADER = 0x06054b50;
+
+	private static final int ZIP_END_MAX_SIZE = 22 + 0xffff;
+
+	// File.canExecute() and File.setExecutable(boolean, boolean), null before Java 6
+	private static Method canExecuteMethod;
+
+	private static Method setExecutableMethod;
+
+	static {
+		try {
+			canExecuteMethod = File.class.getMethod( "canExecute" );
+			setExecutableMethod = File.class.getMethod( "setExecutable", boolean.class, boolean.class );
+		}
+		catch ( NoSuchMethodException e ) {
+			canExecuteMethod = null;
+			setExecutableMethod = null;
+		}
+	}
+
+	/**
+	 * Returns the snapshot of a bundle zip, extracting the zip if there is no snapshot of its content yet. Only the
+	 * {@value #MAX_SNAPSHOTS} snapshots used last are kept.
+	 *
+	 * @param bundleZip the Liferay bundle zip
+	 * @param snapshotsDir the folder that holds the snapshots of all bundles
+	 */
+	public static synchronized AppServerSnapshot getSnapshot( File bundleZip, File snapshotsDir ) throws IOException {
+		File snapshotDir = new File( snapshotsDir, getBundleHash( bundleZip ) + "-" + FORMAT );
+
+		if ( !snapshotDir.isDirectory() ) {
+			File tempDir = new File( snapshotsDir, snapshotDir.getName() + TEMP_SUFFIX );
+
+			// an extraction that was interrupted is started over
+			FileUtil.deleteDir( tempDir, true );
+
+			extract( bundleZip, tempDir );
+
+			if ( !tempDir.renameTo( snapshotDir ) ) {
+				FileUtil.deleteDir( tempDir, true );
+
+				throw new IOException( "Could not create snapshot " + snapshotDir );
+			}
+		}
+
+		snapshotDir.setLastModified( System.currentTimeMillis() );
+
+		pruneSnapshots( snapshotsDir );
+
+		return new AppServerSnapshot( snapshotDir );
+	}
+
+	private static boolean canExecute( File file ) {
+		if ( canExecuteMethod == null ) {
+			return false;
+		}
+
+		try {
+			return Boolean.TRUE.equals( canExecuteMethod.invoke( file ) );
+		}
+		catch ( Exception e ) {
+			return false;
+		}
+	}
+
+	private static void copy( File source, File target ) throws IOException {
+		FileChannel in = new FileInputStream( source ).getChannel();
+
+		try {
+			// writing into an existing file keeps its permissions, which java can not set
+			FileChannel out = new FileOutputStream( target ).getChannel();
+
+			try {
+				long size = in.size();
+
+				for ( long position = 0; position < size; ) {
+					position += in.transferTo( position, size - position, out );
+				}
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		target.setLastModified( source.lastModified() );
+	}
+
+	private static void delete( File file ) {
+		if ( file.isDirectory() ) {
+			FileUtil.deleteDir( file, true );
+		}
+		else {
+			file.delete();
+		}
+	}
+
+	private static void extract( File bundleZip, File targetDir ) throws IOException {
+		String targetPath = targetDir.getCanonicalPath() + File.separator;
+		Map<String, Integer> modes = getUnixModes( bundleZip );
+		ZipFile zip = new ZipFile( bundleZip );
+
+		try {
+			for ( Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+				ZipEntry entry = entries.nextElement();
+				File target = new File( targetDir, entry.getName() );
+
+				if ( !target.getCanonicalPath().startsWith( targetPath ) ) {
+					throw new IOException( "Bundle entry " + entry.getName() + " is outside of the bundle" );
+				}
+
+				if ( entry.isDirectory() ) {
+					target.mkdirs();
+
+					continue;
+				}
+
+				target.getParentFile().mkdirs();
+
+				FileUtil.writeFileFromStream( target, zip.getInputStream( entry ) );
+
+				if ( entry.getTime() != -1 ) {
+					target.setLastModified( entry.getTime() );
+				}
+
+				if ( isExecutable( entry.getName(), modes ) ) {
+					setExecutable( target );
+				}
+			}
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	private static String getBundleHash( File bundleZip ) throws IOException {
+		// hashing a bundle takes a while, so it is done once per version of the zip
+		String key = bundleZip.getAbsolutePath() + ":" + bundleZip.length() + ":" + bundleZip.lastModified();
+		String retval = bundleHashes.get( key );
+
+		if ( retval == null ) {
+			retval = FileUtil.checksum( bundleZip );
+
+			bundleHashes.put( key, retval );
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Returns the unix file modes of the entries of a zip, which java.util.zip does not expose, from the external
+	 * attributes of its central directory. Entries that were not zipped on unix have no mode, and a zip64 archive or
+	 * one that can not be read gives no modes at all.
+	 */
+	private static Map<String, Integer> getUnixModes( File zipFile ) {
+		Map<String, Integer> retval = new HashMap<String, Integer>();
+		RandomAccessFile in = null;
+
+		try {
+			in = new RandomAccessFile( zipFile, "r" );
+
+			int endSize = (int) Math.min( in.length(), ZIP_END_MAX_SIZE );
+			byte[] end = new byte[endSize];
+
+			in.seek( in.length() - endSize );
+			in.readFully( end );
+
+			int endOffset = endSize - 22;
+
+			while ( endOffset >= 0 && readInt( end, endOffset ) != ZIP_END_HEADER ) {
+				endOffset--;
+			}
+
+			if ( endOffset < 0 ) {
+				return retval;
+			}
+
+			long directorySize = readInt( end, endOffset + 12 ) & 0xffffffffL;
+			long directoryOffset = readInt( end, endOffset + 16 ) & 0xffffffffL;
+
+			if ( directoryOffset == 0xffffffffL || directoryOffset + directorySize > in.length() ) {
+				return retval;
+			}
+
+			byte[] directory = new byte[(int) directorySize];
+
+			in.seek( directoryOffset );
+			in.readFully( directory );
+
+			for ( int offset = 0; offset + 46 <= directory.length &&
+				readInt( directory, offset ) == ZIP_CENTRAL_HEADER; ) {
+
+				int host = directory[offset + 5] & 0xff;
+				int nameLength = readShort( directory, offset + 28 );
+				int extraLength = readShort( directory, offset + 30 );
+				int commentLength = readShort( directory, offset + 32 );
+				int attributes = readInt( directory, offset + 38 );
+
+				if ( host == UNIX_HOST ) {
+					// zip entry names are decoded as UTF-8, the same as ZipFile does
+					String name = new String( directory, offset + 46, nameLength, "UTF-8" );
+
+					retval.put( name, ( attributes >>> 16 ) & 0xffff );
+				}
+
+				offset += 46 + nameLength + extraLength + commentLength;
+			}
+		}
+		catch ( IOException e ) {
+			retval.clear();
+		}
+		finally {
+			if ( in != null ) {
+				try {
+					in.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private static boolean isExecutable( String entryName, Map<String, Integer> modes ) {
+		Integer mode = modes.get( entryName );
+
+		if ( mode != null ) {
+			return ( mode & UNIX_EXECUTABLE ) != 0;
+		}
+
+		// zips made without unix modes, the SDK makes the scripts executable when it extracts a bundle
+		return entryName.endsWith( ".sh" );
+	}
+
+	private static void pruneSnapshots( File snapshotsDir ) {
+		File[] snapshotDirs = snapshotsDir.listFiles( new FileFilter() {
+
+			public boolean accept( File file ) {
+				return file.isDirectory() && !file.getName().endsWith( TEMP_SUFFIX );
+			}
+		} );
+
+		if ( snapshotDirs == null || snapshotDirs.length <= MAX_SNAPSHOTS ) {
+			return;
+		}
+
+		Arrays.sort( snapshotDirs, new Comparator<File>() {
+
+			public int compare( File file1, File file2 ) {
+				long time1 = file1.lastModified();
+				long time2 = file2.lastModified();
+
+				return time1 < time2 ? 1 : ( time1 == time2 ? 0 : -1 );
+			}
+		} );
+
+		for ( int i = MAX_SNAPSHOTS; i < snapshotDirs.length; i++ ) {
+			FileUtil.deleteDir( snapshotDirs[i], true );
+		}
+	}
+
+	private static int readInt( byte[] bytes, int offset ) {
+		return ( bytes[offset] & 0xff ) | ( bytes[offset + 1] & 0xff ) << 8 | ( bytes[offset + 2] & 0xff ) << 16 |
+			( bytes[offset + 3] & 0xff ) << 24;
+	}
+
+	private static int readShort( byte[] bytes, int offset ) {
+		return ( bytes[offset] & 0xff ) | ( bytes[offset + 1] & 0xff ) << 8;
+	}
+
+	private static void setExecutable( File file ) {
+		if ( setExecutableMethod == null ) {
+			return;
+		}
+
+		try {
+			// executable for everybody, the same as the chmod of the SDK
+			setExecutableMethod.invoke( file, true, false );
+		}
+		catch ( Exception e ) {
+		}
+	}
+
+	private int copied;
+
+	private final File snapshotDir;
+
+	private AppServerSnapshot( File snapshotDir ) {
+		this.snapshotDir = snapshotDir;
+	}
+
+	/**
+	 * Returns the number of files the last {@link #restore(File)} had to copy.
+	 */
+	public int getCopiedFiles() {
+		return copied;
+	}
+
+	public File getSnapshotDir() {
+		return snapshotDir;
+	}
+
+	/**
+	 * Puts every top level folder of the bundle in the work folder back into the state of the bundle, the same as
+	 * deleting those folders and extracting the bundle zip into the work folder would. Other content of the work
+	 * folder is left alone.
+	 */
+	public synchronized void restore( File workDir ) throws IOException {
+		copied = 0;
+
+		File[] sources = snapshotDir.listFiles();
+
+		if ( sources == null ) {
+			throw new IOException( "Snapshot " + snapshotDir + " has been removed" );
+		}
+
+		for ( File source : sources ) {
+			mirror( source, new File( workDir, source.getName() ) );
+		}
+	}
+
+	private void mirror( File source, File target ) throws IOException {
+		if ( source.isFile() ) {
+			if ( target.isDirectory() ) {
+				delete( target );
+			}
+
+			if ( !target.isFile() || target.length() != source.length() ||
+				target.lastModified() != source.lastModified() ) {
+
+				copy( source, target );
+				copied++;
+			}
+
+			if ( canExecute( source ) && !canExecute( target ) ) {
+				setExecutable( target );
+			}
+
+			return;
+		}
+
+		if ( target.isFile() ) {
+			target.delete();
+		}
+
+		if ( !target.isDirectory() && !target.mkdirs() ) {
+			throw new IOException( "Could not create " + target );
+		}
+
+		String[] sourceNames = source.list();
+		Set<String> names = new HashSet<String>( Arrays.asList( sourceNames ) );
+
+		for ( File file : target.listFiles() ) {
+			if ( !names.contains( file.getName() ) ) {
+				delete( file );
+			}
+		}
+
+		for ( String name : sourceNames ) {
+			mirror( new File( source, name ), new File( target, name ) );
+		}
+	}
+
+}
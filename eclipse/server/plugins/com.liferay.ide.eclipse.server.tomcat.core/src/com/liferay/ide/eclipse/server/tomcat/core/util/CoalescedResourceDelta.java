@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+
+/**
+ * A resource delta that several publish deltas of the same module have been folded into. Folding keeps the net
+ * effect: a resource that was added and changed is still added, a resource that was added and removed again drops out,
+ * and a resource that was removed and added back is changed. A folder that was removed and added back keeps its old
+ * children as removed, so the files that did not come back with it are still deleted. The folded resource is always
+ * the one of the latest delta, so a publish copies the current content once.
+ *
+ * @author Greg Amerson
+ */
+public class CoalescedResourceDelta implements IModuleResourceDelta {
+
+	private static final IModuleResourceDelta[] EMPTY_DELTA = new IModuleResourceDelta[0];
+
+	/**
+	 * Folds <code>deltas</code> into the root deltas <code>roots</code>, keyed by the module relative path of their
+	 * resources.
+	 */
+	public static void merge( Map<IPath, CoalescedResourceDelta> roots, IModuleResourceDelta[] deltas ) {
+		if ( deltas == null ) {
+			return;
+		}
+
+		for ( IModuleResourceDelta delta : deltas ) {
+			IPath key = getKey( delta );
+			CoalescedResourceDelta existing = roots.get( key );
+
+			if ( existing == null ) {
+				roots.put( key, new CoalescedResourceDelta( delta ) );
+			}
+			else if ( !existing.merge( delta ) ) {
+				roots.remove( key );
+			}
+		}
+	}
+
+	public static IModuleResourceDelta[] toArray( Map<IPath, CoalescedResourceDelta> roots ) {
+		if ( roots == null || roots.isEmpty() ) {
+			return EMPTY_DELTA;
+		}
+
+		return roots.values().toArray( new IModuleResourceDelta[roots.size()] );
+	}
+
+	private static IPath getKey( IModuleResourceDelta delta ) {
+		IModuleResource resource = delta.getModuleResource();
+
+		return resource.getModuleRelativePath().append( resource.getName() );
+	}
+
+	private Map<IPath, CoalescedResourceDelta> children = new LinkedHashMap<IPath, CoalescedResourceDelta>();
+	private int kind;
+	private IModuleResource resource;
+
+	public CoalescedResourceDelta( IModuleResourceDelta delta ) {
+		this.resource = delta.getModuleResource();
+		this.kind = delta.getKind();
+
+		merge( children, delta.getAffectedChildren() );
+	}
+
+	public IModuleResourceDelta[] getAffectedChildren() {
+		return toArray( children );
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	public IModuleResource getModuleResource() {
+		return resource;
+	}
+
+	public IPath getModuleRelativePath() {
+		return resource.getModuleRelativePath();
+	}
+
+	/**
+	 * Folds a later delta of the same resource into this one.
+	 *
+	 * @return false if the two deltas cancel each other out
+	 */
+	private boolean merge( IModuleResourceDelta delta ) {
+		int newKind = delta.getKind();
+
+		if ( kind == ADDED && newKind == REMOVED ) {
+			return false;
+		}
+
+		// an added resource stays added whatever happens to it afterwards
+		if ( kind == NO_CHANGE ) {
+			kind = newKind;
+		}
+		else if ( kind == REMOVED && newKind != REMOVED && newKind != NO_CHANGE ) {
+			kind = CHANGED;
+		}
+		else if ( kind == CHANGED && newKind == REMOVED ) {
+			kind = REMOVED;
+		}
+
+		resource = delta.getModuleResource();
+
+		if ( kind == REMOVED ) {
+			// removing a folder removes everything below it, which has to stay known in case the folder comes back
+			removeChildren();
+		}
+
+		merge( children, delta.getAffectedChildren() );
+
+		return true;
+	}
+
+	private void removeChildren() {
+		Iterator<CoalescedResourceDelta> iterator = children.values().iterator();
+
+		while ( iterator.hasNext() ) {
+			CoalescedResourceDelta child = iterator.next();
+
+			if ( child.kind == ADDED ) {
+				// never published, nothing to delete
+				iterator.remove();
+			}
+			else {
+				child.kind = REMOVED;
+				child.removeChildren();
+			}
+		}
+	}
+
+}
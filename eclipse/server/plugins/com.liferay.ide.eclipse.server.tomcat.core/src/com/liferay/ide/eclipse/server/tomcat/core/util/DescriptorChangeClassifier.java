@@ -0,0 +1,441 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.runtime.IPath;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * Decides what a change to the Liferay descriptors of a plugin needs on the server. Every descriptor is reduced to two
+ * fingerprints: one over its whole semantic content and one over only the parts the Liferay plugin deployer acts on
+ * (the web.xml, the portlet names that get servlet mappings, the dependency jars and tlds). Comments, whitespace,
+ * attribute order and entry order never reach a fingerprint, so reformatting a descriptor needs nothing. A change to
+ * the deployer facts needs a redeploy through the auto deploy directory, any other change only needs the context to be
+ * reloaded so the hot deploy listeners read the descriptors again. The deployed web.xml is the one the deployer
+ * rewrote, so a publisher that copies the web.xml of the project over it has to redeploy whatever this class says.
+ * <p>
+ * The fingerprints of the last publish are kept per module in the plugin state location so the decision survives a
+ * restart of the IDE. They are only stored through {@link #update(IFolder)}, once the change has been applied, so a
+ * redeploy that failed is tried again on the next publish. A module without stored fingerprints is always
+ * redeployed.
+ *
+ * @author Greg Amerson
+ */
+public class DescriptorChangeClassifier {
+
+	public enum Change {
+		NONE, RELOAD, REDEPLOY
+	}
+
+	public static final String WEB_XML_PATH = "WEB-INF/web.xml";
+
+	public static final String[] DESCRIPTOR_PATHS =
+		new String[] { WEB_XML_PATH, "WEB-INF/portlet.xml", "WEB-INF/liferay-portlet.xml",
+			"WEB-INF/liferay-display.xml", "WEB-INF/liferay-look-and-feel.xml", "WEB-INF/liferay-hook.xml",
+			"WEB-INF/liferay-layout-templates.xml", "WEB-INF/liferay-plugin-package.properties",
+			"WEB-INF/liferay-plugin-package.xml", "WEB-INF/server-config.wsdd", };
+
+	// plugin package settings the deployer uses to rewrite the plugin
+	private static final Set<String> DEPLOYER_PACKAGE_KEYS =
+		new HashSet<String>( Arrays.asList( new String[] { "portal-dependency-jars", "portal-dependency-tlds",
+			"required-deployment-contexts", "speed-filters-enabled", "security-manager-enabled" } ) );
+
+	private static final Set<String> DEPLOYER_PORTLET_ELEMENTS =
+		new HashSet<String>( Arrays.asList( new String[] { "portlet-name" } ) );
+
+	private static final String FINGERPRINTS_FOLDER = "descriptor-fingerprints";
+
+	private static final String SEPARATOR = ":";
+
+	private final File fingerprintsFile;
+
+	public DescriptorChangeClassifier( String moduleName ) {
+		IPath stateLocation = LiferayTomcatPlugin.getDefault().getStateLocation();
+
+		this.fingerprintsFile =
+			stateLocation.append( FINGERPRINTS_FOLDER ).append( moduleName.replaceAll( "[^\\w.-]", "_" ) +
+				".properties" ).toFile();
+	}
+
+	/**
+	 * Compares the descriptors in the docroot with the fingerprints of the last publish.
+	 */
+	public Change classify( IFolder docroot ) {
+		Properties oldFingerprints = loadFingerprints();
+		boolean hadFingerprints = fingerprintsFile.exists();
+		Properties newFingerprints = computeFingerprints( docroot );
+
+		Change retval = Change.NONE;
+
+		for ( String path : DESCRIPTOR_PATHS ) {
+			Change change = classify( oldFingerprints.getProperty( path ), newFingerprints.getProperty( path ) );
+
+			if ( change.compareTo( retval ) > 0 ) {
+				retval = change;
+			}
+		}
+
+		if ( !hadFingerprints ) {
+			retval = Change.REDEPLOY;
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Records the descriptors as published, once the change they needed has been applied.
+	 */
+	public void update( IFolder docroot ) {
+		storeFingerprints( computeFingerprints( docroot ) );
+	}
+
+	public void clear() {
+		if ( fingerprintsFile.exists() ) {
+			fingerprintsFile.delete();
+		}
+	}
+
+	private Change classify( String oldFingerprint, String newFingerprint ) {
+		if ( oldFingerprint == null && newFingerprint == null ) {
+			return Change.NONE;
+		}
+
+		// a descriptor was added or removed
+		if ( oldFingerprint == null || newFingerprint == null ) {
+			return Change.REDEPLOY;
+		}
+
+		if ( oldFingerprint.equals( newFingerprint ) ) {
+			return Change.NONE;
+		}
+
+		String oldDeployerFacts = oldFingerprint.substring( oldFingerprint.indexOf( SEPARATOR ) + 1 );
+		String newDeployerFacts = newFingerprint.substring( newFingerprint.indexOf( SEPARATOR ) + 1 );
+
+		return oldDeployerFacts.equals( newDeployerFacts ) ? Change.RELOAD : Change.REDEPLOY;
+	}
+
+	private Properties computeFingerprints( IFolder docroot ) {
+		Properties retval = new Properties();
+
+		if ( docroot == null || docroot.getLocation() == null ) {
+			return retval;
+		}
+
+		File docrootDir = docroot.getLocation().toFile();
+
+		for ( String path : DESCRIPTOR_PATHS ) {
+			File descriptor = new File( docrootDir, path );
+
+			String fingerprint = descriptor.isFile() ? fingerprint( path, descriptor ) : null;
+
+			if ( fingerprint != null ) {
+				retval.setProperty( path, fingerprint );
+			}
+		}
+
+		return retval;
+	}
+
+	private String fingerprint( String path, File descriptor ) {
+		byte[] bytes = readBytes( descriptor );
+
+		if ( bytes == null ) {
+			return null;
+		}
+
+		MessageDigest content = FileUtil.newMessageDigest();
+		MessageDigest deployerFacts = FileUtil.newMessageDigest();
+
+		try {
+			if ( path.endsWith( ".properties" ) ) {
+				digestProperties( bytes, content, deployerFacts );
+			}
+			else {
+				digestXml( path, bytes, content, deployerFacts );
+			}
+		}
+		catch ( Exception e ) {
+			// a descriptor that does not parse is compared byte for byte and redeployed on any change
+			content.reset();
+			content.update( bytes );
+			deployerFacts.reset();
+			deployerFacts.update( bytes );
+		}
+
+		return FileUtil.toHexString( content.digest() ) + SEPARATOR + FileUtil.toHexString( deployerFacts.digest() );
+	}
+
+	private void digestProperties( byte[] bytes, MessageDigest content, MessageDigest deployerFacts )
+		throws IOException {
+
+		Properties properties = new Properties();
+		properties.load( new ByteArrayInputStream( bytes ) );
+
+		TreeMap<String, String> sorted = new TreeMap<String, String>();
+
+		for ( Object key : properties.keySet() ) {
+			sorted.put( key.toString(), properties.getProperty( key.toString() ).trim() );
+		}
+
+		for ( String key : sorted.keySet() ) {
+			String entry = key + "=" + sorted.get( key ) + "\n";
+
+			content.update( entry.getBytes( "UTF-8" ) );
+
+			if ( DEPLOYER_PACKAGE_KEYS.contains( key ) ) {
+				deployerFacts.update( entry.getBytes( "UTF-8" ) );
+			}
+		}
+	}
+
+	private void digestXml( String path, byte[] bytes, MessageDigest content, MessageDigest deployerFacts )
+		throws Exception {
+
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware( false );
+		factory.setValidating( false );
+		factory.setIgnoringComments( true );
+		factory.setCoalescing( true );
+
+		DocumentBuilder builder = factory.newDocumentBuilder();
+
+		// never go out to the network for the dtds of the liferay descriptors
+		builder.setEntityResolver( new EntityResolver() {
+
+			public InputSource resolveEntity( String publicId, String systemId ) {
+				return new InputSource( new StringReader( "" ) );
+			}
+		} );
+
+		Document document = builder.parse( new ByteArrayInputStream( bytes ) );
+		Element root = document.getDocumentElement();
+
+		digestNode( root, content );
+
+		if ( WEB_XML_PATH.equals( path ) ) {
+			digestNode( root, deployerFacts );
+		}
+		else if ( path.endsWith( "/portlet.xml" ) ) {
+			digestElements( root, DEPLOYER_PORTLET_ELEMENTS, deployerFacts );
+		}
+		else if ( path.endsWith( "/liferay-plugin-package.xml" ) ) {
+			digestElements( root, DEPLOYER_PACKAGE_KEYS, deployerFacts );
+		}
+	}
+
+	private void digestElements( Element element, Set<String> names, MessageDigest digest ) throws IOException {
+		// collect into a sorted set so reordering the elements is not a deployer change
+		Set<String> values = new TreeSet<String>();
+
+		collectElements( element, names, values );
+
+		for ( String value : values ) {
+			digest.update( value.getBytes( "UTF-8" ) );
+			digest.update( (byte) 0 );
+		}
+	}
+
+	private void collectElements( Node node, Set<String> names, Set<String> values ) {
+		for ( Node child = node.getFirstChild(); child != null; child = child.getNextSibling() ) {
+			if ( child.getNodeType() == Node.ELEMENT_NODE ) {
+				if ( names.contains( child.getNodeName() ) ) {
+					values.add( child.getNodeName() + "=" + child.getTextContent().trim() );
+				}
+				else {
+					collectElements( child, names, values );
+				}
+			}
+		}
+	}
+
+	private void digestNode( Node node, MessageDigest digest ) throws IOException {
+		switch ( node.getNodeType() ) {
+		case Node.ELEMENT_NODE:
+			digest.update( ( "<" + node.getNodeName() ).getBytes( "UTF-8" ) );
+
+			NamedNodeMap attributes = node.getAttributes();
+			Set<String> sortedAttributes = new TreeSet<String>();
+
+			for ( int i = 0; i < attributes.getLength(); i++ ) {
+				Attr attribute = (Attr) attributes.item( i );
+				sortedAttributes.add( attribute.getName() + "=" + attribute.getValue() );
+			}
+
+			for ( String attribute : sortedAttributes ) {
+				digest.update( ( " " + attribute ).getBytes( "UTF-8" ) );
+			}
+
+			digest.update( (byte) '>' );
+
+			for ( Node child = node.getFirstChild(); child != null; child = child.getNextSibling() ) {
+				digestNode( child, digest );
+			}
+
+			digest.update( (byte) '/' );
+			break;
+
+		case Node.TEXT_NODE:
+		case Node.CDATA_SECTION_NODE:
+			String text = node.getNodeValue().trim();
+
+			if ( text.length() > 0 ) {
+				digest.update( text.getBytes( "UTF-8" ) );
+			}
+
+			break;
+
+		default:
+			// comments, processing instructions and entity references carry no meaning for the portal
+			break;
+		}
+	}
+
+	private byte[] readBytes( File file ) {
+		InputStream in = null;
+
+		try {
+			in = new FileInputStream( file );
+
+			byte[] bytes = new byte[(int) file.length()];
+			int offset = 0;
+
+			while ( offset < bytes.length ) {
+				int read = in.read( bytes, offset, bytes.length - offset );
+
+				if ( read < 0 ) {
+					break;
+				}
+
+				offset += read;
+			}
+
+			if ( offset < bytes.length ) {
+				byte[] read = new byte[offset];
+				System.arraycopy( bytes, 0, read, 0, offset );
+				bytes = read;
+			}
+
+			return bytes;
+		}
+		catch ( IOException e ) {
+			return null;
+		}
+		finally {
+			if ( in != null ) {
+				try {
+					in.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+	}
+
+	private Properties loadFingerprints() {
+		Properties retval = new Properties();
+
+		if ( fingerprintsFile.exists() ) {
+			InputStream in = null;
+
+			try {
+				in = new FileInputStream( fingerprintsFile );
+				retval.load( in );
+			}
+			catch ( IOException e ) {
+				LiferayTomcatPlugin.logError( "Could not read descriptor fingerprints.", e );
+			}
+			finally {
+				if ( in != null ) {
+					try {
+						in.close();
+					}
+					catch ( IOException e ) {
+					}
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private void storeFingerprints( Properties fingerprints ) {
+		File dir = fingerprintsFile.getParentFile();
+
+		if ( !dir.exists() ) {
+			dir.mkdirs();
+		}
+
+		File tempFile = new File( dir, fingerprintsFile.getName() + ".tmp" );
+		OutputStream out = null;
+
+		try {
+			out = new FileOutputStream( tempFile );
+			fingerprints.store( out, null );
+			out.close();
+			out = null;
+
+			if ( fingerprintsFile.exists() ) {
+				fingerprintsFile.delete();
+			}
+
+			if ( !tempFile.renameTo( fingerprintsFile ) ) {
+				tempFile.delete();
+			}
+		}
+		catch ( IOException e ) {
+			LiferayTomcatPlugin.logError( "Could not save descriptor fingerprints.", e );
+		}
+		finally {
+			if ( out != null ) {
+				try {
+					out.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+	}
+
+}
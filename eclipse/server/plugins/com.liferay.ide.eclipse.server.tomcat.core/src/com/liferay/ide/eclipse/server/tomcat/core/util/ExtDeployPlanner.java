@@ -0,0 +1,543 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.core.util.FileUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Works out what a changed Ext plugin needs on a Tomcat bundle without running the SDK's direct-deploy. The files the
+ * plugin contributes are compared with the ones recorded at its last deploy and sorted into the parts of an Ext
+ * plugin:
+ * <ul>
+ * <li>the classes of ext-impl and ext-util-bridges, -java and -taglib become jars in the portal's WEB-INF/lib,</li>
+ * <li>the classes of ext-service become a jar in the global lib/ext,</li>
+ * <li>the jars of ext-lib/portal and ext-lib/global are copied to those two folders as they are,</li>
+ * <li>the files of ext-web/docroot are laid over the portal webapp.</li>
+ * </ul>
+ * Only the portal webapp files outside of WEB-INF can be picked up by a running portal, everything else needs a
+ * restart. A changed web.xml has to be merged with the portal's one by the SDK, so it asks for a full deploy, as does
+ * a plugin that was never deployed to this portal.
+ * <p>
+ * Source files are compared by size and modification time first and by checksum only when those differ, and a file
+ * is not copied when the deployed copy already has the same checksum.
+ *
+ * @author Greg Amerson
+ */
+public class ExtDeployPlanner {
+
+	public enum Category {
+		EXT_IMPL, EXT_SERVICE, EXT_UTIL, EXT_LIB, EXT_WEB
+	}
+
+	/**
+	 * The steps that bring a portal up to date with an Ext plugin.
+	 */
+	public static class Plan {
+
+		private final List<Step> steps = new ArrayList<Step>();
+
+		private String fullDeployReason;
+
+		private final Map<String, String> snapshot;
+
+		Plan( Map<String, String> snapshot ) {
+			this.snapshot = snapshot;
+		}
+
+		public Set<Category> getChangedCategories() {
+			Set<Category> retval = EnumSet.noneOf( Category.class );
+
+			for ( Step step : steps ) {
+				retval.add( step.category );
+			}
+
+			return retval;
+		}
+
+		/**
+		 * Returns why the SDK's direct-deploy is needed, or null if the steps are enough.
+		 */
+		public String getFullDeployReason() {
+			return fullDeployReason;
+		}
+
+		public List<Step> getSteps() {
+			return Collections.unmodifiableList( steps );
+		}
+
+		public boolean isEmpty() {
+			return fullDeployReason == null && steps.isEmpty();
+		}
+
+		public boolean isFullDeployRequired() {
+			return fullDeployReason != null;
+		}
+
+		/**
+		 * A restart is needed when a jar of the portal or global class loader or a portal descriptor changes.
+		 */
+		public boolean isRestartRequired() {
+			if ( isFullDeployRequired() ) {
+				return true;
+			}
+
+			for ( Step step : steps ) {
+				if ( step.restart ) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	public static class Step {
+
+		private final Category category;
+		private final boolean delete;
+		private final boolean restart;
+		private final File source;
+		private final File target;
+
+		Step( Category category, File source, File target, boolean delete, boolean restart ) {
+			this.category = category;
+			this.source = source;
+			this.target = target;
+			this.delete = delete;
+			this.restart = restart;
+		}
+
+		public Category getCategory() {
+			return category;
+		}
+
+		/**
+		 * The classes folder of a jar or the file to copy.
+		 */
+		public File getSource() {
+			return source;
+		}
+
+		public File getTarget() {
+			return target;
+		}
+
+		public boolean isDelete() {
+			return delete;
+		}
+
+		public boolean isJar() {
+			return source.isDirectory();
+		}
+
+		@Override
+		public String toString() {
+			return category + ( delete ? " delete " : " " + source + " -> " ) + target;
+		}
+	}
+
+	private static final String EXT_LIB_GLOBAL = "WEB-INF/ext-lib/global/";
+
+	private static final String EXT_LIB_PORTAL = "WEB-INF/ext-lib/portal/";
+
+	private static final String EXT_WEB = "WEB-INF/ext-web/docroot/";
+
+	private static final String EXT_WEB_XML = EXT_WEB + "WEB-INF/web.xml";
+
+	/**
+	 * The class folders of the plugin and the names their jars are deployed with, after the plugin name.
+	 */
+	private static final String[][] JARS = {
+		{ "WEB-INF/ext-impl/classes/", "impl" }, { "WEB-INF/ext-service/classes/", "service" },
+		{ "WEB-INF/ext-util-bridges/classes/", "util-bridges" }, { "WEB-INF/ext-util-java/classes/", "util-java" },
+		{ "WEB-INF/ext-util-taglib/classes/", "util-taglib" } };
+
+	/**
+	 * The fixed time of all jar entries, so a jar only differs when its classes do.
+	 */
+	private static final long JAR_ENTRY_TIME = 315532800000L;
+
+	private final File docroot;
+
+	private final File globalLibDir;
+
+	private final String pluginName;
+
+	private final File portalDir;
+
+	private final File stateFile;
+
+	/**
+	 * @param docroot the docroot of the Ext plugin project
+	 * @param pluginName the name the SDK deploys the plugin with, the name of the project
+	 * @param portalDir the portal webapp of the Tomcat bundle
+	 * @param globalLibDir the lib/ext folder of the Tomcat bundle
+	 * @param stateFile where the files of the last deploy are recorded
+	 */
+	public ExtDeployPlanner( File docroot, String pluginName, File portalDir, File globalLibDir, File stateFile ) {
+		this.docroot = docroot;
+		this.pluginName = pluginName;
+		this.portalDir = portalDir;
+		this.globalLibDir = globalLibDir;
+		this.stateFile = stateFile;
+	}
+
+	/**
+	 * Runs the steps of a plan that does not need a full deploy and records the plugin as deployed.
+	 */
+	public void execute( Plan plan ) throws IOException {
+		if ( plan.isFullDeployRequired() ) {
+			throw new IllegalArgumentException( plan.getFullDeployReason() );
+		}
+
+		for ( Step step : plan.steps ) {
+			if ( step.delete ) {
+				step.target.delete();
+			}
+			else if ( step.isJar() ) {
+				writeJar( step.source, step.target );
+			}
+			else if ( !isSameContent( step.source, step.target ) ) {
+				copy( step.source, step.target );
+			}
+		}
+
+		store( plan.snapshot );
+	}
+
+	/**
+	 * Compares the plugin with its last deploy.
+	 */
+	public Plan plan() throws IOException {
+		Properties deployed = load();
+		Map<String, String> current = snapshot( deployed );
+		Plan retval = new Plan( current );
+
+		if ( deployed.isEmpty() ) {
+			retval.fullDeployReason = "The plugin has not been deployed to " + portalDir + " yet";
+
+			return retval;
+		}
+
+		Map<String, String> changed = new TreeMap<String, String>();
+
+		for ( Map.Entry<String, String> entry : current.entrySet() ) {
+			String before = deployed.getProperty( entry.getKey() );
+
+			if ( before == null || !getHash( before ).equals( getHash( entry.getValue() ) ) ) {
+				changed.put( entry.getKey(), entry.getValue() );
+			}
+		}
+
+		for ( Enumeration<?> names = deployed.propertyNames(); names.hasMoreElements(); ) {
+			String path = names.nextElement().toString();
+
+			if ( !current.containsKey( path ) ) {
+				changed.put( path, null );
+			}
+		}
+
+		if ( changed.containsKey( EXT_WEB_XML ) ) {
+			retval.fullDeployReason = "The web.xml of the plugin has to be merged into the one of the portal";
+
+			return retval;
+		}
+
+		Set<String> jars = new HashSet<String>();
+
+		for ( Map.Entry<String, String> entry : changed.entrySet() ) {
+			String path = entry.getKey();
+			boolean removed = entry.getValue() == null;
+			String[] jar = getJar( path );
+
+			if ( jar != null ) {
+				if ( jars.add( jar[0] ) ) {
+					File classes = new File( docroot, jar[0] );
+					boolean global = jar[1].equals( "service" );
+					File libDir = global ? globalLibDir : new File( portalDir, "WEB-INF/lib" );
+					File target = new File( libDir, "ext-" + pluginName + "-" + jar[1] + ".jar" );
+					Category category =
+						global ? Category.EXT_SERVICE : ( jar[1].equals( "impl" ) ? Category.EXT_IMPL : Category.EXT_UTIL );
+
+					retval.steps.add( new Step( category, classes, target, !classes.isDirectory(), true ) );
+				}
+			}
+			else if ( path.startsWith( EXT_LIB_GLOBAL ) || path.startsWith( EXT_LIB_PORTAL ) ) {
+				boolean global = path.startsWith( EXT_LIB_GLOBAL );
+				File libDir = global ? globalLibDir : new File( portalDir, "WEB-INF/lib" );
+				String name = path.substring( ( global ? EXT_LIB_GLOBAL : EXT_LIB_PORTAL ).length() );
+
+				retval.steps.add(
+					new Step( Category.EXT_LIB, new File( docroot, path ), new File( libDir, name ), removed, true ) );
+			}
+			else if ( path.startsWith( EXT_WEB ) && !removed ) {
+				// a removed file is left in place, the portal file it was laid over is gone anyway
+				String name = path.substring( EXT_WEB.length() );
+				boolean descriptor = name.startsWith( "WEB-INF/" );
+
+				retval.steps.add(
+					new Step( Category.EXT_WEB, new File( docroot, path ), new File( portalDir, name ), false, descriptor ) );
+			}
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Records the current files of the plugin as deployed, after a full deploy by the SDK.
+	 */
+	public void recordDeployed() throws IOException {
+		store( snapshot( load() ) );
+	}
+
+	/**
+	 * Collects the folders and files below <code>dir</code> in name order, folders map to null.
+	 */
+	private void collectJarEntries( File dir, String prefix, Map<String, File> entries ) {
+		File[] children = dir.listFiles();
+
+		if ( children == null ) {
+			return;
+		}
+
+		Arrays.sort( children );
+
+		for ( File child : children ) {
+			String name = prefix + child.getName();
+
+			if ( child.isDirectory() ) {
+				entries.put( name + "/", null );
+				collectJarEntries( child, name + "/", entries );
+			}
+			else if ( !name.equals( JarFile.MANIFEST_NAME ) ) {
+				entries.put( name, child );
+			}
+		}
+	}
+
+	private void copy( File source, File target ) throws IOException {
+		target.getParentFile().mkdirs();
+
+		InputStream in = new FileInputStream( source );
+
+		try {
+			FileUtil.writeFileFromStream( target, in );
+		}
+		finally {
+			in.close();
+		}
+
+		target.setLastModified( source.lastModified() );
+	}
+
+	private String getHash( String entry ) {
+		return entry.substring( entry.lastIndexOf( ':' ) + 1 );
+	}
+
+	private String[] getJar( String path ) {
+		for ( String[] jar : JARS ) {
+			if ( path.startsWith( jar[0] ) ) {
+				return jar;
+			}
+		}
+
+		return null;
+	}
+
+	private boolean isSameContent( File source, File target ) throws IOException {
+		return target.exists() && target.length() == source.length() &&
+			FileUtil.checksum( target ).equals( FileUtil.checksum( source ) );
+	}
+
+	private Properties load() {
+		Properties retval = new Properties();
+
+		if ( stateFile.exists() ) {
+			InputStream in = null;
+
+			try {
+				in = new FileInputStream( stateFile );
+				retval.load( in );
+			}
+			catch ( IOException e ) {
+				// without a record the next deploy is a full one
+				retval.clear();
+			}
+			finally {
+				if ( in != null ) {
+					try {
+						in.close();
+					}
+					catch ( IOException e ) {
+					}
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Returns <code>size:modified:checksum</code> of every file the plugin deploys, keyed by its path in the docroot.
+	 * Checksums are taken from <code>previous</code> for files whose size and modification time did not change.
+	 */
+	private Map<String, String> snapshot( Properties previous ) throws IOException {
+		Map<String, String> retval = new TreeMap<String, String>();
+
+		for ( String[] jar : JARS ) {
+			snapshot( jar[0], previous, retval );
+		}
+
+		snapshot( EXT_LIB_GLOBAL, previous, retval );
+		snapshot( EXT_LIB_PORTAL, previous, retval );
+		snapshot( EXT_WEB, previous, retval );
+
+		return retval;
+	}
+
+	private void snapshot( String path, Properties previous, Map<String, String> snapshot ) throws IOException {
+		File file = new File( docroot, path );
+
+		if ( file.isDirectory() ) {
+			File[] children = file.listFiles();
+
+			if ( children != null ) {
+				for ( File child : children ) {
+					snapshot( path + child.getName() + ( child.isDirectory() ? "/" : "" ), previous, snapshot );
+				}
+			}
+		}
+		else if ( file.isFile() ) {
+			String stamp = file.length() + ":" + file.lastModified() + ":";
+			String entry = previous.getProperty( path );
+
+			if ( entry == null || !entry.startsWith( stamp ) ) {
+				entry = stamp + FileUtil.checksum( file );
+			}
+
+			snapshot.put( path, entry );
+		}
+	}
+
+	private void store( Map<String, String> snapshot ) throws IOException {
+		Properties state = new Properties();
+		state.putAll( snapshot );
+
+		stateFile.getParentFile().mkdirs();
+
+		File tempFile = new File( stateFile.getParentFile(), stateFile.getName() + ".tmp" );
+		OutputStream out = new FileOutputStream( tempFile );
+
+		try {
+			state.store( out, "Files of the last deploy of " + pluginName + " to " + portalDir );
+		}
+		finally {
+			out.close();
+		}
+
+		if ( !tempFile.renameTo( stateFile ) ) {
+			stateFile.delete();
+
+			if ( !tempFile.renameTo( stateFile ) ) {
+				throw new IOException( "Could not write " + stateFile );
+			}
+		}
+	}
+
+	private void writeJar( File classes, File target ) throws IOException {
+		target.getParentFile().mkdirs();
+
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+
+		Map<String, File> entries = new LinkedHashMap<String, File>();
+		collectJarEntries( classes, "", entries );
+
+		File tempFile = new File( target.getParentFile(), target.getName() + ".tmp" );
+		JarOutputStream out = new JarOutputStream( new FileOutputStream( tempFile ), manifest );
+
+		try {
+			byte[] buffer = new byte[8192];
+
+			for ( Map.Entry<String, File> entry : entries.entrySet() ) {
+				JarEntry jarEntry = new JarEntry( entry.getKey() );
+				jarEntry.setTime( JAR_ENTRY_TIME );
+				out.putNextEntry( jarEntry );
+
+				if ( entry.getValue() != null ) {
+					InputStream in = new FileInputStream( entry.getValue() );
+
+					try {
+						int read = 0;
+
+						while ( ( read = in.read( buffer ) ) != -1 ) {
+							out.write( buffer, 0, read );
+						}
+					}
+					finally {
+						in.close();
+					}
+				}
+
+				out.closeEntry();
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		if ( isSameContent( tempFile, target ) ) {
+			tempFile.delete();
+
+			return;
+		}
+
+		if ( !tempFile.renameTo( target ) ) {
+			target.delete();
+
+			if ( !tempFile.renameTo( target ) ) {
+				tempFile.delete();
+
+				throw new IOException( "Could not write " + target );
+			}
+		}
+	}
+
+}
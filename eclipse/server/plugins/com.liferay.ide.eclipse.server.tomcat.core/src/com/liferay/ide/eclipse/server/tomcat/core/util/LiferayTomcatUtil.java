@@ -17,7 +17,6 @@ package com.liferay.ide.eclipse.server.tomcat.core.util;
 
 import com.liferay.ide.eclipse.core.util.CoreUtil;
 import com.liferay.ide.eclipse.core.util.FileListing;
-import com.liferay.ide.eclipse.core.util.FileUtil;
 import com.liferay.ide.eclipse.project.core.util.ProjectUtil;
 import com.liferay.ide.eclipse.server.core.ILiferayRuntime;
 import com.liferay.ide.eclipse.server.core.IPluginPublisher;
@@ -28,7 +27,6 @@ import com.liferay.ide.eclipse.server.tomcat.core.ILiferayTomcatServer;
 import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin;
 import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatRuntime70;
 import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatServerBehavior;
-import com.liferay.ide.eclipse.server.util.PortalSupportHelper;
 import com.liferay.ide.eclipse.server.util.ServerUtil;
 import com.liferay.ide.eclipse.ui.util.UIUtil;
 
@@ -37,19 +35,14 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
-import java.util.jar.JarFile;
-
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
@@ -69,9 +62,6 @@ import org.eclipse.wst.server.core.IServerListener;
 import org.eclipse.wst.server.core.ServerCore;
 import org.eclipse.wst.server.core.ServerEvent;
 import org.osgi.framework.Version;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * @author Greg Amerson
@@ -115,33 +105,11 @@ public class LiferayTomcatUtil {
 	}
 
 	public static Properties getCategories(IPath runtimeLocation, IPath portalDir) {
-		Properties retval = null;
-
-		File implJar = portalDir.append("WEB-INF/lib/portal-impl.jar").toFile();
-
-		if (implJar.exists()) {
-			try {
-				JarFile jar = new JarFile(implJar);
-				Properties categories = new Properties();
-				Properties props = new Properties();
-				props.load(jar.getInputStream(jar.getEntry("content/Language.properties")));
-				Enumeration<?> names = props.propertyNames();
-
-				while (names.hasMoreElements()) {
-					String name = names.nextElement().toString();
-					if (name.startsWith("category.")) {
-						categories.put(name, props.getProperty(name));
-					}
-				}
-				retval = categories;
-
-			}
-			catch (IOException e) {
-				LiferayTomcatPlugin.logError(e);
-			}
-		}
+		return PortalMetadataCache.getCache(runtimeLocation, portalDir).getCategories();
+	}
 
-		return retval;
+	public static Properties getCategories(IPath runtimeLocation, IPath portalDir, Locale locale) {
+		return PortalMetadataCache.getCache(runtimeLocation, portalDir).getCategories(locale);
 	}
 
 	public static ILiferayTomcatRuntime getLiferayTomcatRuntime(IRuntime runtime) {
@@ -156,88 +124,20 @@ public class LiferayTomcatUtil {
 		return appServerDir.append("/webapps/ROOT");
 	}
 
+	public static String getServerInfo(IPath runtimeLocation, IPath portalDir) {
+		return PortalMetadataCache.getCache(runtimeLocation, portalDir).getServerInfo();
+	}
+
 	public static String[] getSupportedHookProperties(IPath runtimeLocation, IPath portalDir)
 		throws IOException {
 
-		IPath hookPropertiesPath =
-			LiferayTomcatPlugin.getDefault().getStateLocation().append("hook_properties").append(
-				runtimeLocation.toPortableString().replaceAll("\\/", "_") + "_hook_properties.txt");
-
-		IPath errorPath = LiferayTomcatPlugin.getDefault().getStateLocation().append("hookError.log");
-
-		File hookPropertiesFile = hookPropertiesPath.toFile();
-
-		File errorFile = errorPath.toFile();
-
-		if (!hookPropertiesFile.exists()) {
-			loadHookPropertiesFile(runtimeLocation, portalDir, hookPropertiesFile, errorFile);
-		}
-
-		String[] hookProperties = FileUtil.readLinesFromFile(hookPropertiesFile);
-
-		if (hookProperties.length == 0) {
-			loadHookPropertiesFile(runtimeLocation, portalDir, hookPropertiesFile, errorFile);
-
-			hookProperties = FileUtil.readLinesFromFile(hookPropertiesFile);
-		}
-
-		return hookProperties;
+		return PortalMetadataCache.getCache(runtimeLocation, portalDir).getSupportedHookProperties();
 	}
 
 	public static String getVersion(IPath location, IPath portalDir)
 		throws IOException {
 
-		IPath versionsInfoPath = LiferayTomcatPlugin.getDefault().getStateLocation().append("version.properties");
-
-		String locationKey = location.toPortableString().replaceAll("\\/", "_");
-
-		File versionInfoFile = versionsInfoPath.toFile();
-
-		Properties properties = new Properties();
-
-		if (versionInfoFile.exists()) {
-			try {
-				properties.load(new FileInputStream(versionInfoFile));
-				String version = (String) properties.get(locationKey);
-
-				if (!CoreUtil.isNullOrEmpty(version)) {
-					return version;
-				}
-			}
-			catch (Exception e) {
-			}
-		}
-
-		File versionFile = LiferayTomcatPlugin.getDefault().getStateLocation().append("version.txt").toFile();
-
-		if (versionFile.exists()) {
-			FileUtil.clearContents(versionFile);
-		}
-
-		IPath errorPath = LiferayTomcatPlugin.getDefault().getStateLocation().append("versionError.log");
-
-		File errorFile = errorPath.toFile();
-
-		loadVersionInfoFile(location, portalDir, versionFile, errorFile);
-
-		Version version = CoreUtil.readVersionFile(versionFile);
-
-		if (version.equals(Version.emptyVersion)) {
-			loadVersionInfoFile(location, portalDir, versionInfoFile, errorFile);
-
-			version = CoreUtil.readVersionFile(versionInfoFile);
-		}
-
-		if (!version.equals(Version.emptyVersion)) {
-			properties.put(locationKey, version.toString());
-			try {
-				properties.store(new FileOutputStream(versionInfoFile), "");
-			}
-			catch (Exception e) {
-			}
-		}
-
-		return version.toString();
+		return PortalMetadataCache.getCache(location, portalDir).getVersion();
 	}
 
 	public static boolean isExtProjectContext(Context context) {
@@ -291,55 +191,6 @@ public class LiferayTomcatUtil {
 		return context;
 	}
 
-	public static void loadHookPropertiesFile(
-		IPath runtimeLocation, IPath portalDir, File hookPropertiesFile, File errorFile)
-		throws IOException {
-
-		String portalSupportClass = "com.liferay.ide.eclipse.server.core.support.GetSupportedHookProperties";
-
-		IPath[] libRoots = new IPath[] { runtimeLocation.append("lib"), runtimeLocation.append("lib/ext") };
-
-		URL[] urls = new URL[] {
-				FileLocator.toFileURL(LiferayServerCorePlugin.getDefault().getBundle().getEntry(
-					"portal-support/portal-support.jar"))
-		};
-
-		PortalSupportHelper helper =
-			new PortalSupportHelper(
-				libRoots, portalDir, portalSupportClass, hookPropertiesFile, errorFile, urls, new String[] {});
-
-		try {
-			helper.launch(null);
-		}
-		catch (CoreException e) {
-			LiferayTomcatPlugin.logError(e);
-		}
-	}
-
-	public static void loadVersionInfoFile(IPath runtimeLocation, IPath portalDir, File versionInfoFile, File errorFile)
-		throws IOException {
-
-		String portalSupportClass = "com.liferay.ide.eclipse.server.core.support.ReleaseInfoGetVersion";
-
-		IPath[] libRoots = new IPath[] { runtimeLocation.append("lib"), runtimeLocation.append("lib/ext") };
-
-		URL[] urls = new URL[] {
-				FileLocator.toFileURL(LiferayServerCorePlugin.getDefault().getBundle().getEntry(
-					"portal-support/portal-support.jar"))
-		};
-
-		PortalSupportHelper helper =
-			new PortalSupportHelper(
-				libRoots, portalDir, portalSupportClass, versionInfoFile, errorFile, urls, new String[] {});
-
-		try {
-			helper.launch(null);
-		}
-		catch (CoreException e) {
-			LiferayTomcatPlugin.logError(e);
-		}
-	}
-
 	public static IPath modifyLocationForBundle(IPath currentLocation) {
 		IPath modifiedLocation = null;
 
@@ -667,37 +518,4 @@ public class LiferayTomcatUtil {
 
 		return file;
 	}
-
-	public static String[] getServletFilterNames( IPath portalDir ) throws Exception
-	{
-		List<String> retval = new ArrayList<String>();
-
-		File filtersWebXmlFile = portalDir.append( "WEB-INF/liferay-web.xml" ).toFile();
-
-		if ( !filtersWebXmlFile.exists() )
-		{
-			filtersWebXmlFile = portalDir.append( "WEB-INF/web.xml" ).toFile();
-		}
-
-		if ( filtersWebXmlFile.exists() )
-		{
-			Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( filtersWebXmlFile );
-
-			NodeList filterNameElements = document.getElementsByTagName( "filter-name" );
-
-			for ( int i = 0; i < filterNameElements.getLength(); i++ )
-			{
-				Node filterNameElement = filterNameElements.item( i );
-
-				String content = filterNameElement.getTextContent();
-
-				if ( !CoreUtil.isNullOrEmpty( content ) )
-				{
-					retval.add( content.trim() );
-				}
-			}
-		}
-
-		return retval.toArray( new String[0] );
-	}
 }
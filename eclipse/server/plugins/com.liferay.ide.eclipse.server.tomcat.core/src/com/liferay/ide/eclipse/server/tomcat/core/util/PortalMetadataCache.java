@@ -0,0 +1,510 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.core.util.CoreUtil;
+import com.liferay.ide.eclipse.core.util.FileUtil;
+import com.liferay.ide.eclipse.server.core.LiferayServerCorePlugin;
+import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin;
+import com.liferay.ide.eclipse.server.util.ClassConstantReader;
+import com.liferay.ide.eclipse.server.util.PortalSupportHelper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IPath;
+import org.osgi.framework.Version;
+
+/**
+ * Facts about the portal of one runtime that can only be read by loading portal classes or scanning its files: the
+ * version, the server info, the supported hook properties and the portlet categories. The first three are collected
+ * together, straight from the class files when the reader recognizes them and otherwise with a single forked JVM, and
+ * kept under a fingerprint of portal-impl.jar and portal-service.jar made of their sizes, modification times and
+ * content hashes. The facts are persisted in the plugin state location so a restart of the IDE does not collect them
+ * again; the cache file is written next to its final name and renamed into place, so a reader only ever sees a
+ * complete file. The categories need no JVM, they are read from the language bundles of portal-impl.jar on their own.
+ * <p>
+ * Lookups compare the sizes and modification times of the jars with the ones the facts were collected for and
+ * otherwise answer from memory, also when some facts could not be collected, so a portal that fails to report them
+ * does not cost a forked JVM on every lookup. The content hashes are only computed when one of those has changed, so
+ * touching the jars does not trigger a new collection.
+ *
+ * @author Greg Amerson
+ */
+public class PortalMetadataCache {
+
+	public static final String PORTAL_SUPPORT_CLASS = "com.liferay.ide.eclipse.server.core.support.GetPortalMetadata";
+
+	private static final String CACHE_FOLDER = "portal-metadata";
+
+	private static final String HOOK_LISTENER_CLASS = "com.liferay.portal.deploy.hot.HookHotDeployListener";
+
+	/**
+	 * Bumped whenever the set of collected facts changes, so facts persisted by an older version are collected again.
+	 */
+	private static final String FORMAT = "2";
+
+	private static final String KEY_FORMAT = "ide.format";
+
+	private static final String KEY_HASH = "ide.jars.hash";
+
+	private static final String KEY_HOOK_PROPERTIES = "hook.properties";
+
+	private static final String KEY_SERVER_INFO = "server.info";
+
+	private static final String KEY_STAMP = "ide.jars.stamp";
+
+	private static final String KEY_VERSION = "version";
+
+	private static final String LIST_SEPARATOR = ",";
+
+	private static final String RELEASE_INFO_CLASS = "com.liferay.portal.kernel.util.ReleaseInfo";
+
+	private static final Map<String, PortalMetadataCache> caches = new HashMap<String, PortalMetadataCache>();
+
+	public static PortalMetadataCache getCache( IPath runtimeLocation, IPath portalDir ) {
+		String key = getLocationKey( runtimeLocation );
+
+		synchronized ( caches ) {
+			PortalMetadataCache cache = caches.get( key );
+
+			if ( cache == null || !cache.portalDir.equals( portalDir ) ) {
+				cache = new PortalMetadataCache( runtimeLocation, portalDir );
+				caches.put( key, cache );
+			}
+
+			return cache;
+		}
+	}
+
+	private static String getLocationKey( IPath location ) {
+		return location.toPortableString().replaceAll( "[^\\w.-]", "_" );
+	}
+
+	private static String[] split( String list ) {
+		if ( CoreUtil.isNullOrEmpty( list ) ) {
+			return new String[0];
+		}
+
+		return list.split( LIST_SEPARATOR );
+	}
+
+	private final File cacheFile;
+
+	private volatile Categories categories;
+
+	private final File[] jars;
+
+	private final IPath portalDir;
+
+	private final IPath runtimeLocation;
+
+	private volatile Snapshot snapshot;
+
+	private PortalMetadataCache( IPath runtimeLocation, IPath portalDir ) {
+		this.runtimeLocation = runtimeLocation;
+		this.portalDir = portalDir;
+
+		this.jars =
+			new File[] { portalDir.append( "WEB-INF/lib/portal-impl.jar" ).toFile(),
+				runtimeLocation.append( "lib/ext/portal-service.jar" ).toFile() };
+
+		this.cacheFile =
+			LiferayTomcatPlugin.getDefault().getStateLocation().append( CACHE_FOLDER ).append(
+				getLocationKey( runtimeLocation ) + ".properties" ).toFile();
+	}
+
+	public Properties getCategories() {
+		return getCategories( null );
+	}
+
+	/**
+	 * Returns the portlet categories with their names for a locale, see
+	 * {@link PortletCategoryCatalog#getCategories(Properties, Locale)}.
+	 */
+	public Properties getCategories( Locale locale ) {
+		return PortletCategoryCatalog.getCategories( getCatalog(), locale );
+	}
+
+	public String getServerInfo() {
+		return getSnapshot().facts.getProperty( KEY_SERVER_INFO, "" );
+	}
+
+	public String[] getSupportedHookProperties() {
+		return getSnapshot().hookProperties.clone();
+	}
+
+	public String getVersion() {
+		return getSnapshot().facts.getProperty( KEY_VERSION, Version.emptyVersion.toString() );
+	}
+
+	private Properties collectFacts() {
+		Properties retval = new Properties();
+
+		IPath stateLocation = LiferayTomcatPlugin.getDefault().getStateLocation().append( CACHE_FOLDER );
+		String locationKey = getLocationKey( runtimeLocation );
+
+		File outputFile = stateLocation.append( locationKey + ".out" ).toFile();
+		File errorFile = stateLocation.append( locationKey + ".err" ).toFile();
+
+		if ( !collectFactsFromBytecode( retval ) ) {
+			retval.clear();
+
+			if ( launch( PORTAL_SUPPORT_CLASS, outputFile, errorFile ) ) {
+				retval.putAll( loadProperties( outputFile ) );
+			}
+
+			if ( CoreUtil.isNullOrEmpty( retval.getProperty( KEY_VERSION ) ) ) {
+				// the combined run failed, ask for every fact on its own so one that can not be read costs only itself
+				collectFactsSeparately( retval, outputFile, errorFile );
+			}
+
+			outputFile.delete();
+		}
+
+		String version = retval.getProperty( KEY_VERSION );
+
+		if ( version != null ) {
+			try {
+				retval.setProperty( KEY_VERSION, Version.parseVersion( version.trim() ).toString() );
+			}
+			catch ( IllegalArgumentException e ) {
+				retval.remove( KEY_VERSION );
+			}
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Reads the facts the support classes would report from the class files of ReleaseInfo and HookHotDeployListener,
+	 * which takes milliseconds instead of the seconds of a forked JVM.
+	 *
+	 * @return false if one of the classes has code the reader does not recognize
+	 */
+	private boolean collectFactsFromBytecode( Properties facts ) {
+		File implJar = jars[0];
+		File serviceJar = jars[1];
+
+		try {
+			ClassConstantReader releaseInfo =
+				serviceJar.exists() ? ClassConstantReader.read( serviceJar, RELEASE_INFO_CLASS ) : null;
+
+			ClassConstantReader hookListener =
+				implJar.exists() ? ClassConstantReader.read( implJar, HOOK_LISTENER_CLASS ) : null;
+
+			if ( releaseInfo == null || hookListener == null ) {
+				return false;
+			}
+
+			String version = releaseInfo.invokeStaticGetter( "getVersion" );
+			String serverInfo = releaseInfo.invokeStaticGetter( "getServerInfo" );
+			String[] hookProperties = hookListener.getStaticStringArray( "SUPPORTED_PROPERTIES" );
+
+			if ( CoreUtil.isNullOrEmpty( version ) || CoreUtil.isNullOrEmpty( serverInfo ) ||
+				CoreUtil.isNullOrEmpty( hookProperties ) ) {
+
+				return false;
+			}
+
+			facts.setProperty( KEY_VERSION, version );
+			facts.setProperty( KEY_SERVER_INFO, serverInfo );
+			facts.setProperty( KEY_HOOK_PROPERTIES, join( hookProperties ) );
+
+			return true;
+		}
+		catch ( IOException e ) {
+			return false;
+		}
+	}
+
+	private void collectFactsSeparately( Properties facts, File outputFile, File errorFile ) {
+		String supportPackage = "com.liferay.ide.eclipse.server.core.support.";
+
+		if ( launch( supportPackage + "ReleaseInfoGetVersion", outputFile, errorFile ) ) {
+			facts.setProperty( KEY_VERSION, FileUtil.readContents( outputFile ) );
+		}
+
+		if ( launch( supportPackage + "ReleaseInfoGetServerInfo", outputFile, errorFile ) ) {
+			facts.setProperty( KEY_SERVER_INFO, FileUtil.readContents( outputFile ) );
+		}
+
+		if ( launch( supportPackage + "GetSupportedHookProperties", outputFile, errorFile ) ) {
+			facts.setProperty( KEY_HOOK_PROPERTIES, join( FileUtil.readLinesFromFile( outputFile ) ) );
+		}
+	}
+
+	private String computeHash() throws IOException {
+		StringBuffer retval = new StringBuffer();
+
+		for ( File jar : jars ) {
+			retval.append( jar.exists() ? FileUtil.checksum( jar ) : "-" ).append( LIST_SEPARATOR );
+		}
+
+		return retval.toString();
+	}
+
+	private String computeStamp( File... files ) {
+		StringBuffer retval = new StringBuffer();
+
+		for ( File jar : files ) {
+			retval.append( jar.length() ).append( ':' ).append( jar.lastModified() ).append( LIST_SEPARATOR );
+		}
+
+		return retval.toString();
+	}
+
+	private Properties getCatalog() {
+		String stamp = computeStamp( jars[0] );
+		Categories retval = categories;
+
+		if ( retval != null && retval.stamp.equals( stamp ) ) {
+			return retval.catalog;
+		}
+
+		synchronized ( this ) {
+			retval = categories;
+
+			if ( retval == null || !retval.stamp.equals( stamp ) ) {
+				Properties catalog = PortletCategoryCatalog.read( jars[0] );
+
+				retval = new Categories( stamp, catalog != null ? catalog : new Properties() );
+				categories = retval;
+			}
+
+			return retval.catalog;
+		}
+	}
+
+	private Snapshot getSnapshot() {
+		String stamp = computeStamp( jars );
+		Snapshot retval = snapshot;
+
+		if ( retval != null && retval.stamp.equals( stamp ) ) {
+			return retval;
+		}
+
+		synchronized ( this ) {
+			retval = snapshot;
+
+			if ( retval == null || !retval.stamp.equals( stamp ) ) {
+				// facts that could not be collected are only tried again once the jars change
+				retval = loadSnapshot( stamp );
+				snapshot = retval;
+			}
+
+			return retval;
+		}
+	}
+
+	private String join( String[] values ) {
+		StringBuffer retval = new StringBuffer();
+
+		if ( values != null ) {
+			for ( String value : values ) {
+				if ( !CoreUtil.isNullOrEmpty( value ) ) {
+					if ( retval.length() > 0 ) {
+						retval.append( LIST_SEPARATOR );
+					}
+
+					retval.append( value.trim() );
+				}
+			}
+		}
+
+		return retval.toString();
+	}
+
+	private boolean launch( String portalSupportClass, File outputFile, File errorFile ) {
+		outputFile.getParentFile().mkdirs();
+
+		if ( outputFile.exists() ) {
+			FileUtil.clearContents( outputFile );
+		}
+
+		IPath[] libRoots = new IPath[] { runtimeLocation.append( "lib" ), runtimeLocation.append( "lib/ext" ) };
+
+		try {
+			URL[] supportUrls =
+				new URL[] { FileLocator.toFileURL( LiferayServerCorePlugin.getDefault().getBundle().getEntry(
+					"portal-support/portal-support.jar" ) ) };
+
+			PortalSupportHelper helper =
+				new PortalSupportHelper(
+					libRoots, portalDir, portalSupportClass, outputFile, errorFile, supportUrls, new String[] {} );
+
+			helper.launch( null );
+
+			return outputFile.exists();
+		}
+		catch ( Exception e ) {
+			LiferayTomcatPlugin.logError( e );
+
+			return false;
+		}
+	}
+
+	private Properties loadProperties( File file ) {
+		Properties retval = new Properties();
+
+		if ( file.exists() ) {
+			InputStream in = null;
+
+			try {
+				in = new FileInputStream( file );
+				retval.load( in );
+			}
+			catch ( IOException e ) {
+				retval.clear();
+			}
+			finally {
+				if ( in != null ) {
+					try {
+						in.close();
+					}
+					catch ( IOException e ) {
+					}
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private Snapshot loadSnapshot( String stamp ) {
+		Properties persisted = loadProperties( cacheFile );
+
+		if ( !FORMAT.equals( persisted.getProperty( KEY_FORMAT ) ) ) {
+			persisted.clear();
+		}
+
+		if ( stamp.equals( persisted.getProperty( KEY_STAMP ) ) ) {
+			return new Snapshot( stamp, persisted );
+		}
+
+		String hash = null;
+
+		try {
+			hash = computeHash();
+		}
+		catch ( IOException e ) {
+			LiferayTomcatPlugin.logError( "Could not compute the fingerprint of the portal jars", e );
+		}
+
+		Properties facts = null;
+
+		if ( hash != null && hash.equals( persisted.getProperty( KEY_HASH ) ) ) {
+			// the jars were touched but not changed
+			facts = persisted;
+		}
+		else {
+			facts = collectFacts();
+		}
+
+		Snapshot retval = new Snapshot( stamp, facts );
+
+		if ( hash != null && retval.isComplete() ) {
+			facts.setProperty( KEY_STAMP, stamp );
+			facts.setProperty( KEY_HASH, hash );
+			facts.setProperty( KEY_FORMAT, FORMAT );
+
+			storeProperties( facts );
+		}
+
+		return retval;
+	}
+
+	private void storeProperties( Properties facts ) {
+		File dir = cacheFile.getParentFile();
+
+		if ( !dir.exists() ) {
+			dir.mkdirs();
+		}
+
+		File tempFile = new File( dir, cacheFile.getName() + "." + Thread.currentThread().getId() + ".tmp" );
+		OutputStream out = null;
+
+		try {
+			out = new FileOutputStream( tempFile );
+			facts.store( out, "Portal metadata of " + runtimeLocation.toOSString() );
+			out.close();
+			out = null;
+
+			// rename is atomic where the target may exist, elsewhere readers briefly see no file and collect again
+			if ( !tempFile.renameTo( cacheFile ) ) {
+				cacheFile.delete();
+
+				if ( !tempFile.renameTo( cacheFile ) ) {
+					tempFile.delete();
+				}
+			}
+		}
+		catch ( IOException e ) {
+			LiferayTomcatPlugin.logError( "Could not save portal metadata to " + cacheFile, e );
+
+			tempFile.delete();
+		}
+		finally {
+			if ( out != null ) {
+				try {
+					out.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+	}
+
+	private static class Categories {
+
+		final Properties catalog;
+		final String stamp;
+
+		Categories( String stamp, Properties catalog ) {
+			this.stamp = stamp;
+			this.catalog = catalog;
+		}
+	}
+
+	private static class Snapshot {
+
+		final Properties facts;
+		final String[] hookProperties;
+		final String stamp;
+
+		Snapshot( String stamp, Properties facts ) {
+			this.stamp = stamp;
+			this.facts = facts;
+			this.hookProperties = split( facts.getProperty( KEY_HOOK_PROPERTIES ) );
+		}
+
+		boolean isComplete() {
+			return !CoreUtil.isNullOrEmpty( facts.getProperty( KEY_VERSION ) ) &&
+				!CoreUtil.isNullOrEmpty( facts.getProperty( KEY_SERVER_INFO ) ) && hookProperties.length > 0;
+		}
+	}
+
+}
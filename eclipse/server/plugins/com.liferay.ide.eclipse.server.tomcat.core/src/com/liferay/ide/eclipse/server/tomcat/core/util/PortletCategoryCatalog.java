@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The portlet categories of a portal, read from the language bundles in portal-impl.jar. The catalog is made of the
+ * <code>category.*</code> keys of content/Language.properties and of every Language_xx.properties next to it; all
+ * other keys are skipped line by line while the bundles are streamed, so the rest of the several thousand messages
+ * of a bundle is never held in memory. The keys of a localized bundle are stored with the locale and a colon in
+ * front, for example <code>de:category.cms</code>, so the whole catalog fits into one properties file.
+ *
+ * @author Greg Amerson
+ */
+public class PortletCategoryCatalog {
+
+	public static final String CATEGORY_PREFIX = "category.";
+
+	private static final String ENCODING = "ISO-8859-1";
+
+	private static final Pattern LANGUAGE_ENTRY = Pattern.compile( "content/Language(?:_(\\w+))?\\.properties" );
+
+	private static final char LOCALE_SEPARATOR = ':';
+
+	/**
+	 * Returns the categories of the catalog for a locale: the default names, overridden by the ones of the language
+	 * bundle of the locale and then by the ones of its country bundle.
+	 *
+	 * @param catalog a catalog read by {@link #read(File)}
+	 * @param locale the locale or null for the default names only
+	 */
+	public static Properties getCategories( Properties catalog, Locale locale ) {
+		Properties retval = new Properties();
+
+		copyCategories( catalog, "", retval );
+
+		if ( locale != null && locale.getLanguage().length() > 0 ) {
+			copyCategories( catalog, locale.getLanguage() + LOCALE_SEPARATOR, retval );
+
+			if ( locale.getCountry().length() > 0 ) {
+				copyCategories( catalog, locale.getLanguage() + "_" + locale.getCountry() + LOCALE_SEPARATOR, retval );
+			}
+		}
+
+		return retval;
+	}
+
+	/**
+	 * Reads the category names of all language bundles of a portal-impl.jar with a single pass over its entries.
+	 *
+	 * @return the catalog or null if the jar does not exist or can not be read
+	 */
+	public static Properties read( File implJar ) {
+		if ( !implJar.exists() ) {
+			return null;
+		}
+
+		Properties retval = new Properties();
+		ZipFile jar = null;
+
+		try {
+			jar = new ZipFile( implJar );
+
+			for ( Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+				ZipEntry entry = entries.nextElement();
+				Matcher matcher = LANGUAGE_ENTRY.matcher( entry.getName() );
+
+				if ( matcher.matches() ) {
+					String locale = matcher.group( 1 );
+					String keyPrefix = locale == null ? "" : locale + LOCALE_SEPARATOR;
+
+					readCategories( jar.getInputStream( entry ), keyPrefix, retval );
+				}
+			}
+		}
+		catch ( IOException e ) {
+			LiferayTomcatPlugin.logError( "Could not read the portlet categories of " + implJar, e );
+
+			return null;
+		}
+		finally {
+			if ( jar != null ) {
+				try {
+					jar.close();
+				}
+				catch ( IOException e ) {
+				}
+			}
+		}
+
+		return retval;
+	}
+
+	private static void copyCategories( Properties catalog, String keyPrefix, Properties categories ) {
+		String prefix = keyPrefix + CATEGORY_PREFIX;
+
+		for ( Enumeration<?> names = catalog.propertyNames(); names.hasMoreElements(); ) {
+			String name = names.nextElement().toString();
+
+			if ( name.startsWith( prefix ) ) {
+				categories.put( name.substring( keyPrefix.length() ), catalog.getProperty( name ) );
+			}
+		}
+	}
+
+	private static boolean isComment( String line ) {
+		String trimmed = line.trim();
+
+		return trimmed.startsWith( "#" ) || trimmed.startsWith( "!" );
+	}
+
+	private static boolean isContinued( String line ) {
+		int slashes = 0;
+
+		for ( int i = line.length() - 1; i >= 0 && line.charAt( i ) == '\\'; i-- ) {
+			slashes++;
+		}
+
+		return slashes % 2 == 1;
+	}
+
+	private static void readCategories( InputStream in, String keyPrefix, Properties catalog ) throws IOException {
+		BufferedReader reader = new BufferedReader( new InputStreamReader( in, ENCODING ) );
+
+		try {
+			StringBuffer logicalLine = new StringBuffer();
+			String line = null;
+
+			while ( ( line = reader.readLine() ) != null ) {
+				if ( logicalLine.length() == 0 && isComment( line ) ) {
+					// a comment ends with its line even if that ends with a backslash
+					continue;
+				}
+
+				logicalLine.append( line ).append( '\n' );
+
+				if ( isContinued( line ) ) {
+					continue;
+				}
+
+				String entry = logicalLine.toString();
+				logicalLine.setLength( 0 );
+
+				// other keys are dropped without being parsed
+				if ( !entry.trim().startsWith( CATEGORY_PREFIX ) ) {
+					continue;
+				}
+
+				Properties parsed = new Properties();
+				parsed.load( new ByteArrayInputStream( entry.getBytes( ENCODING ) ) );
+
+				for ( Enumeration<?> names = parsed.propertyNames(); names.hasMoreElements(); ) {
+					String name = names.nextElement().toString();
+
+					catalog.setProperty( keyPrefix + name, parsed.getProperty( name ) );
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+}
@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.server.tomcat.core.ILiferayTomcatConstants;
+import com.liferay.ide.eclipse.server.tomcat.core.LiferayTomcatPlugin;
+import com.liferay.ide.eclipse.server.util.ServerUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+
+/**
+ * Full publish copy that replaces the one file at a time copy of the WTP PublishHelper. Files are copied on a bounded
+ * pool with FileChannel.transferTo, and files whose target already has the same size and modification time are
+ * skipped. Like the PublishHelper every file is written next to its target first and then renamed, so the server never
+ * sees a half written file, and the target gets the modification time of the source.
+ * 
+ * @author Greg Amerson
+ */
+public class PublishCopyEngine {
+
+	private static final IStatus[] EMPTY_STATUS = new IStatus[0];
+
+	private static final String TEMP_SUFFIX = ".publish-tmp";
+
+	private static ExecutorService copyPool;
+
+	private static synchronized ExecutorService getCopyPool() {
+		if ( copyPool == null ) {
+			copyPool = Executors.newFixedThreadPool( ILiferayTomcatConstants.PUBLISH_COPY_THREADS, new ThreadFactory() {
+
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "Liferay publish copy" );
+					thread.setDaemon( true );
+
+					return thread;
+				}
+			} );
+		}
+
+		return copyPool;
+	}
+
+	private int copiedCount = 0;
+	private int skippedCount = 0;
+
+	public int getCopiedCount() {
+		return copiedCount;
+	}
+
+	public int getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * Copies the resources below <code>path</code>. Extra files already in <code>path</code> are left alone, the same
+	 * as PublishHelper.publishFull.
+	 * 
+	 * @return one status per file that could not be copied, and {@link Status#CANCEL_STATUS} if the monitor was
+	 *         canceled, in which case the copies already running have finished before this returns
+	 */
+	public IStatus[] publishFull( IModuleResource[] resources, IPath path, IProgressMonitor monitor ) {
+		if ( resources == null ) {
+			return EMPTY_STATUS;
+		}
+
+		if ( monitor == null ) {
+			monitor = new NullProgressMonitor();
+		}
+
+		List<IStatus> status = new ArrayList<IStatus>();
+		List<IModuleFile> files = new ArrayList<IModuleFile>();
+		List<File> targets = new ArrayList<File>();
+
+		// folders are created up front so the copy tasks never race on mkdirs
+		collect( resources, path, files, targets, status );
+
+		monitor.beginTask( "Publishing " + files.size() + " files...", files.size() );
+
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>( files.size() );
+
+		for ( int i = 0; i < files.size(); i++ ) {
+			final IModuleFile file = files.get( i );
+			final File target = targets.get( i );
+
+			results.add( getCopyPool().submit( new Callable<Boolean>() {
+
+				public Boolean call() throws Exception {
+					return copy( file, target );
+				}
+			} ) );
+		}
+
+		for ( int i = 0; i < results.size(); i++ ) {
+			Future<Boolean> result = results.get( i );
+
+			if ( monitor.isCanceled() ) {
+				for ( int j = i; j < results.size(); j++ ) {
+					results.get( j ).cancel( false );
+				}
+
+				// copies that had already started must not go on writing into the deploy directory after this returns
+				for ( int j = i; j < results.size(); j++ ) {
+					if ( !results.get( j ).isCancelled() ) {
+						try {
+							results.get( j ).get();
+						}
+						catch ( ExecutionException e ) {
+						}
+						catch ( InterruptedException e ) {
+							break;
+						}
+					}
+				}
+
+				status.add( Status.CANCEL_STATUS );
+
+				break;
+			}
+
+			try {
+				if ( result.get() ) {
+					copiedCount++;
+				}
+				else {
+					skippedCount++;
+				}
+			}
+			catch ( ExecutionException e ) {
+				Throwable cause = e.getCause();
+
+				if ( cause instanceof CoreException ) {
+					status.add( ( (CoreException) cause ).getStatus() );
+				}
+				else {
+					status.add( createCopyErrorStatus( files.get( i ), targets.get( i ), cause ) );
+				}
+			}
+			catch ( InterruptedException e ) {
+				status.add( createCopyErrorStatus( files.get( i ), targets.get( i ), e ) );
+				break;
+			}
+
+			monitor.worked( 1 );
+		}
+
+		monitor.done();
+
+		return status.toArray( new IStatus[status.size()] );
+	}
+
+	protected boolean copy( IModuleFile moduleFile, File target ) throws CoreException {
+		File source = ServerUtil.getFile( moduleFile );
+		long modificationTime = source != null ? source.lastModified() : -1;
+
+		if ( source != null && isUpToDate( source, target, modificationTime ) ) {
+			return false;
+		}
+
+		File temp = new File( target.getParentFile(), target.getName() + TEMP_SUFFIX );
+
+		try {
+			if ( source != null ) {
+				transfer( source, temp );
+			}
+			else {
+				IFile file = (IFile) moduleFile.getAdapter( IFile.class );
+
+				if ( file == null ) {
+					throw new IOException( "Module file has no content." );
+				}
+
+				modificationTime = file.getLocalTimeStamp();
+
+				copy( file.getContents(), temp );
+			}
+
+			if ( target.exists() && !target.delete() ) {
+				throw new IOException( "Could not delete " + target );
+			}
+
+			if ( !temp.renameTo( target ) ) {
+				throw new IOException( "Could not rename " + temp + " to " + target );
+			}
+
+			if ( modificationTime > 0 ) {
+				target.setLastModified( modificationTime );
+			}
+		}
+		catch ( IOException e ) {
+			temp.delete();
+
+			throw new CoreException( createCopyErrorStatus( moduleFile, target, e ) );
+		}
+
+		return true;
+	}
+
+	private void collect(
+		IModuleResource[] resources, IPath path, List<IModuleFile> files, List<File> targets, List<IStatus> status ) {
+
+		for ( IModuleResource resource : resources ) {
+			IPath targetPath = path.append( resource.getModuleRelativePath() ).append( resource.getName() );
+
+			if ( resource instanceof IModuleFolder ) {
+				File dir = targetPath.toFile();
+
+				if ( !dir.exists() && !dir.mkdirs() ) {
+					status.add( LiferayTomcatPlugin.createErrorStatus( "Could not create directory " + dir ) );
+					continue;
+				}
+
+				collect( ( (IModuleFolder) resource ).members(), path, files, targets, status );
+			}
+			else if ( resource instanceof IModuleFile ) {
+				File target = targetPath.toFile();
+
+				if ( !target.getParentFile().exists() ) {
+					target.getParentFile().mkdirs();
+				}
+
+				files.add( (IModuleFile) resource );
+				targets.add( target );
+			}
+		}
+	}
+
+	private void copy( InputStream in, File target ) throws IOException {
+		FileOutputStream out = null;
+
+		try {
+			out = new FileOutputStream( target );
+
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ( ( read = in.read( buffer ) ) != -1 ) {
+				out.write( buffer, 0, read );
+			}
+		}
+		finally {
+			in.close();
+
+			if ( out != null ) {
+				out.close();
+			}
+		}
+	}
+
+	private IStatus createCopyErrorStatus( IModuleFile moduleFile, File target, Throwable t ) {
+		return LiferayTomcatPlugin.createErrorStatus( LiferayTomcatPlugin.PLUGIN_ID, "Error copying file " +
+			moduleFile.getName() + " to " + target.getAbsolutePath() + ": " + t.getMessage(), t );
+	}
+
+	/**
+	 * File systems differ in how precisely they keep modification times, so they are compared in whole seconds.
+	 */
+	private boolean isUpToDate( File source, File target, long modificationTime ) {
+		return target.exists() && target.length() == source.length() &&
+			target.lastModified() / 1000 == modificationTime / 1000;
+	}
+
+	private void transfer( File source, File target ) throws IOException {
+		FileInputStream in = new FileInputStream( source );
+		FileOutputStream out = null;
+
+		try {
+			out = new FileOutputStream( target );
+
+			FileChannel inChannel = in.getChannel();
+			FileChannel outChannel = out.getChannel();
+
+			long size = inChannel.size();
+			long position = 0;
+
+			// transferTo may move fewer bytes than asked for
+			while ( position < size ) {
+				long transferred = inChannel.transferTo( position, size - position, outChannel );
+
+				if ( transferred <= 0 ) {
+					// no progress, copy the rest through a buffer instead of spinning
+					ByteBuffer buffer = ByteBuffer.allocate( 8192 );
+
+					inChannel.position( position );
+
+					while ( inChannel.read( buffer ) != -1 ) {
+						buffer.flip();
+
+						while ( buffer.hasRemaining() ) {
+							outChannel.write( buffer );
+						}
+
+						buffer.clear();
+					}
+
+					break;
+				}
+
+				position += transferred;
+			}
+		}
+		finally {
+			in.close();
+
+			if ( out != null ) {
+				out.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Where the time of one launch of a Liferay Tomcat server went: Tomcat's own initialization, the start of every web
+ * context, the Liferay hot deploy of every plugin and the startup as a whole. Times are milliseconds from the first
+ * time stamp of the server output.
+ * <p>
+ * A timeline is stored as plain text with one entry per line, <code>kind start duration name</code>, so the history
+ * kept in the state location can be read as well as compared.
+ *
+ * @author Greg Amerson
+ */
+public class StartupTimeline {
+
+	public enum Kind {
+
+		TOMCAT_INIT( "tomcat-init" ), CONTEXT( "context" ), HOT_DEPLOY( "hot-deploy" ), SERVER_STARTUP( "startup" );
+
+		public static Kind fromId( String id ) {
+			for ( Kind kind : values() ) {
+				if ( kind.id.equals( id ) ) {
+					return kind;
+				}
+			}
+
+			return null;
+		}
+
+		private final String id;
+
+		private Kind( String id ) {
+			this.id = id;
+		}
+
+		public String getId() {
+			return id;
+		}
+	}
+
+	public static class Entry {
+
+		private long end;
+		private final Kind kind;
+		private final String name;
+		private final long start;
+
+		Entry( Kind kind, String name, long start, long end ) {
+			this.kind = kind;
+			this.name = name;
+			this.start = start;
+			this.end = end;
+		}
+
+		public long getDuration() {
+			return end - start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		/**
+		 * An entry whose end has not been seen yet.
+		 */
+		public boolean isOpen() {
+			return end < start;
+		}
+
+		void setEnd( long end ) {
+			this.end = end;
+		}
+	}
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final String LAUNCHED = "# launched ";
+
+	/**
+	 * Reads a timeline stored by {@link #store(File)}.
+	 */
+	public static StartupTimeline load( File file ) throws IOException {
+		BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), ENCODING ) );
+
+		try {
+			String line = reader.readLine();
+			long launchTime = file.lastModified();
+
+			if ( line != null && line.startsWith( LAUNCHED ) ) {
+				try {
+					launchTime = Long.parseLong( line.substring( LAUNCHED.length() ).split( " " )[0] );
+				}
+				catch ( NumberFormatException e ) {
+				}
+			}
+
+			StartupTimeline retval = new StartupTimeline( launchTime );
+
+			for ( ; line != null; line = reader.readLine() ) {
+				if ( line.startsWith( "#" ) ) {
+					continue;
+				}
+
+				String[] parts = line.trim().split( "\\s+", 4 );
+
+				if ( parts.length < 3 ) {
+					continue;
+				}
+
+				Kind kind = Kind.fromId( parts[0] );
+
+				if ( kind != null ) {
+					try {
+						long start = Long.parseLong( parts[1] );
+						long duration = Long.parseLong( parts[2] );
+
+						retval.add( kind, parts.length > 3 ? parts[3] : "", start, start + duration );
+					}
+					catch ( NumberFormatException e ) {
+						// skip damaged lines
+					}
+				}
+			}
+
+			return retval;
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	private final long launchTime;
+
+	public StartupTimeline( long launchTime ) {
+		this.launchTime = launchTime;
+	}
+
+	/**
+	 * Returns the latest entry of a kind and name, a plugin that is redeployed during a launch has one entry for every
+	 * deploy.
+	 */
+	public synchronized Entry getEntry( Kind kind, String name ) {
+		for ( int i = entries.size() - 1; i >= 0; i-- ) {
+			Entry entry = entries.get( i );
+
+			if ( entry.kind == kind && entry.name.equals( name ) ) {
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+	public synchronized List<Entry> getEntries() {
+		return Collections.unmodifiableList( new ArrayList<Entry>( entries ) );
+	}
+
+	public long getLaunchTime() {
+		return launchTime;
+	}
+
+	/**
+	 * Returns a line for every finished entry that took at least <code>minimum</code> milliseconds and either did not
+	 * happen in the previous timeline or took more than <code>factor</code> times as long there.
+	 */
+	public List<String> getRegressions( StartupTimeline previous, long minimum, double factor ) {
+		List<String> retval = new ArrayList<String>();
+
+		for ( Entry entry : getEntries() ) {
+			if ( entry.isOpen() || entry.getDuration() < minimum ) {
+				continue;
+			}
+
+			Entry before = previous.getEntry( entry.kind, entry.name );
+
+			if ( before == null || before.isOpen() ) {
+				retval.add( describe( entry ) + " (new)" );
+			}
+			else if ( entry.getDuration() > before.getDuration() * factor ) {
+				retval.add( describe( entry ) + " (was " + before.getDuration() + " ms)" );
+			}
+		}
+
+		return retval;
+	}
+
+	public synchronized boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public synchronized void store( File file ) throws IOException {
+		Writer writer = new OutputStreamWriter( new FileOutputStream( file ), ENCODING );
+
+		try {
+			writer.write( LAUNCHED + launchTime + " " + new Date( launchTime ) + "\n" );
+			writer.write( toString() );
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuffer retval = new StringBuffer();
+
+		for ( Entry entry : entries ) {
+			if ( entry.isOpen() ) {
+				continue;
+			}
+
+			retval.append( pad( entry.kind.getId(), 12, false ) );
+			retval.append( pad( String.valueOf( entry.start ), 9, true ) ).append( ' ' );
+			retval.append( pad( String.valueOf( entry.getDuration() ), 9, true ) );
+
+			if ( entry.name.length() > 0 ) {
+				retval.append( ' ' ).append( entry.name );
+			}
+
+			retval.append( '\n' );
+		}
+
+		return retval.toString();
+	}
+
+	synchronized Entry add( Kind kind, String name, long start, long end ) {
+		Entry retval = new Entry( kind, name, start, end );
+
+		entries.add( retval );
+
+		return retval;
+	}
+
+	private String describe( Entry entry ) {
+		String retval = entry.kind.getId();
+
+		if ( entry.name.length() > 0 ) {
+			retval += " " + entry.name;
+		}
+
+		return retval + " took " + entry.getDuration() + " ms";
+	}
+
+	private String pad( String value, int width, boolean left ) {
+		StringBuffer retval = new StringBuffer();
+
+		for ( int i = value.length(); i < width; i++ ) {
+			retval.append( ' ' );
+		}
+
+		return left ? retval.append( value ).toString() : value + retval.toString();
+	}
+
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+
+package com.liferay.ide.eclipse.server.tomcat.core.util;
+
+import com.liferay.ide.eclipse.server.tomcat.core.util.StartupTimeline.Entry;
+import com.liferay.ide.eclipse.server.tomcat.core.util.StartupTimeline.Kind;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a {@link StartupTimeline} from the console output of a Liferay Tomcat server. The parser only looks at the
+ * lines it is given, so feeding it the lines of a captured log gives the same timeline as watching the server.
+ * <p>
+ * Time stamps are taken from the log4j lines of the portal (<code>10:11:12,345 INFO ...</code>) as well as from the
+ * java.util.logging lines of Tomcat, whose time stamp is either on the line itself or on the header line before the
+ * message. Lines without a time stamp happened at the last time stamp seen. The web contexts are started one after the
+ * other, so a context is taken to be starting until the next context or the connectors start; the portal itself is
+ * the ROOT context.
+ *
+ * @author Greg Amerson
+ */
+public class StartupTimelineParser {
+
+	private static final Pattern CONNECTORS_START = Pattern.compile( "Starting (?:ProtocolHandler|Coyote)" );
+
+	private static final Pattern CONTEXT_START =
+		Pattern.compile( "Deploying (?:configuration descriptor|web application (?:directory|archive)) (\\S+)" );
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	private static final Pattern HOT_DEPLOY_END =
+		Pattern.compile(
+			"(?:\\bfor (\\S+) (?:is|are) available for use|Extension environment for (\\S+) has been applied)" );
+
+	private static final Pattern HOT_DEPLOY_QUEUED = Pattern.compile( "Deploying (\\S+) from queue" );
+
+	private static final Pattern HOT_DEPLOY_START = Pattern.compile( "\\bRegistering [\\w ]+? for (\\S+)" );
+
+	private static final Pattern HOT_UNDEPLOY = Pattern.compile( "\\bUnregistering [\\w ]+? for (\\S+)" );
+
+	private static final Pattern SERVER_STARTUP = Pattern.compile( "Server startup in (\\d+) ms" );
+
+	private static final Pattern TIME =
+		Pattern.compile( "(\\d{1,2}):(\\d{2}):(\\d{2})(?:[,.](\\d{3}))?(?:\\s+([AP]M)\\b)?" );
+
+	/**
+	 * Only this many characters at the start of a line are searched for its time stamp.
+	 */
+	private static final int TIME_PREFIX = 40;
+
+	private static final Pattern TOMCAT_INIT = Pattern.compile( "Initialization processed in (\\d+) ms" );
+
+	/**
+	 * Returns the timeline of a captured server output.
+	 */
+	public static StartupTimeline parse( List<String> lines ) {
+		StartupTimelineParser parser = new StartupTimelineParser( new StartupTimeline( 0 ) );
+
+		for ( String line : lines ) {
+			parser.parseLine( line );
+		}
+
+		return parser.getTimeline();
+	}
+
+	private static String getContextName( String path ) {
+		String retval = path.replace( '\\', '/' );
+
+		if ( retval.endsWith( "/" ) ) {
+			retval = retval.substring( 0, retval.length() - 1 );
+		}
+
+		retval = retval.substring( retval.lastIndexOf( '/' ) + 1 );
+
+		if ( retval.endsWith( ".xml" ) || retval.endsWith( ".war" ) ) {
+			retval = retval.substring( 0, retval.length() - 4 );
+		}
+
+		return retval;
+	}
+
+	private static String getPluginName( Matcher matcher ) {
+		String retval = matcher.group( 1 );
+
+		if ( retval == null && matcher.groupCount() > 1 ) {
+			retval = matcher.group( 2 );
+		}
+
+		while ( retval.endsWith( "." ) ) {
+			retval = retval.substring( 0, retval.length() - 1 );
+		}
+
+		return retval;
+	}
+
+	private static long parseTime( String line ) {
+		if ( line.length() == 0 ) {
+			return -1;
+		}
+
+		char firstChar = line.charAt( 0 );
+
+		// a time stamp starts the line, with the date or month name before it
+		if ( !Character.isDigit( firstChar ) && !Character.isUpperCase( firstChar ) ) {
+			return -1;
+		}
+
+		Matcher matcher = TIME.matcher( line.length() > TIME_PREFIX ? line.substring( 0, TIME_PREFIX ) : line );
+
+		if ( !matcher.find() ) {
+			return -1;
+		}
+
+		int hours = Integer.parseInt( matcher.group( 1 ) );
+		int minutes = Integer.parseInt( matcher.group( 2 ) );
+		int seconds = Integer.parseInt( matcher.group( 3 ) );
+		int millis = matcher.group( 4 ) != null ? Integer.parseInt( matcher.group( 4 ) ) : 0;
+		String amPm = matcher.group( 5 );
+
+		if ( amPm != null ) {
+			hours = hours % 12 + ( "PM".equals( amPm ) ? 12 : 0 );
+		}
+
+		return ( ( hours * 60L + minutes ) * 60L + seconds ) * 1000L + millis;
+	}
+
+	private Entry context;
+
+	private long dayOffset = 0;
+
+	private long first = -1;
+
+	private long last = -1;
+
+	private final StartupTimeline timeline;
+
+	private final Set<String> undeployed = new HashSet<String>();
+
+	public StartupTimelineParser( StartupTimeline timeline ) {
+		this.timeline = timeline;
+	}
+
+	public StartupTimeline getTimeline() {
+		return timeline;
+	}
+
+	/**
+	 * Takes the next line of the server output into account.
+	 *
+	 * @return the kind of entry the line finished or null
+	 */
+	public Kind parseLine( String line ) {
+		long time = parseTime( line );
+
+		if ( time >= 0 ) {
+			// the log4j time stamps of the portal have no date, so going back by more than half a day is midnight
+			if ( last >= 0 && time + dayOffset < last - DAY / 2 ) {
+				dayOffset += DAY;
+			}
+
+			last = time + dayOffset;
+
+			if ( first < 0 ) {
+				first = last;
+			}
+		}
+
+		if ( last < 0 ) {
+			return null;
+		}
+
+		long now = last - first;
+		Matcher matcher = null;
+
+		if ( ( matcher = TOMCAT_INIT.matcher( line ) ).find() ) {
+			timeline.add( Kind.TOMCAT_INIT, "", Math.max( 0, now - Long.parseLong( matcher.group( 1 ) ) ), now );
+
+			return Kind.TOMCAT_INIT;
+		}
+
+		if ( ( matcher = CONTEXT_START.matcher( line ) ).find() ) {
+			Kind retval = endContext( now );
+
+			context = timeline.add( Kind.CONTEXT, getContextName( matcher.group( 1 ) ), now, now - 1 );
+
+			return retval;
+		}
+
+		if ( CONNECTORS_START.matcher( line ).find() ) {
+			return endContext( now );
+		}
+
+		if ( ( matcher = SERVER_STARTUP.matcher( line ) ).find() ) {
+			endContext( now );
+
+			timeline.add( Kind.SERVER_STARTUP, "", Math.max( 0, now - Long.parseLong( matcher.group( 1 ) ) ), now );
+
+			return Kind.SERVER_STARTUP;
+		}
+
+		if ( ( matcher = HOT_DEPLOY_QUEUED.matcher( line ) ).find() ) {
+			startHotDeploy( getPluginName( matcher ), now, true );
+		}
+		else if ( ( matcher = HOT_UNDEPLOY.matcher( line ) ).find() ) {
+			undeployed.add( getPluginName( matcher ) );
+		}
+		else if ( ( matcher = HOT_DEPLOY_START.matcher( line ) ).find() ) {
+			startHotDeploy( getPluginName( matcher ), now, false );
+		}
+		else if ( ( matcher = HOT_DEPLOY_END.matcher( line ) ).find() ) {
+			String name = getPluginName( matcher );
+			Entry entry = timeline.getEntry( Kind.HOT_DEPLOY, name );
+
+			if ( entry == null ) {
+				timeline.add( Kind.HOT_DEPLOY, name, now, now );
+			}
+			else {
+				// a plugin with portlets and a hook reports each of them, the deploy is done with the last one
+				entry.setEnd( now );
+			}
+
+			return Kind.HOT_DEPLOY;
+		}
+
+		return null;
+	}
+
+	private Kind endContext( long now ) {
+		if ( context == null ) {
+			return null;
+		}
+
+		context.setEnd( now );
+		context = null;
+
+		return Kind.CONTEXT;
+	}
+
+	/**
+	 * A plugin deploy starts with it being taken from the queue or, when the portal is already up, with its first
+	 * registration. Later registrations of the same deploy only start a new one after the plugin was unregistered.
+	 */
+	private void startHotDeploy( String name, long now, boolean queued ) {
+		Entry entry = timeline.getEntry( Kind.HOT_DEPLOY, name );
+
+		if ( entry != null && ( entry.isOpen() || ( !queued && !undeployed.contains( name ) ) ) ) {
+			return;
+		}
+
+		undeployed.remove( name );
+
+		timeline.add( Kind.HOT_DEPLOY, name, now, now - 1 );
+	}
+
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ *******************************************************************************/
+package com.liferay.ide.eclipse.server.ui;
+
+import com.liferay.ide.eclipse.server.remote.RemoteConnectionStats;
+import com.liferay.ide.eclipse.server.remote.RemoteConnectionStats.EndpointStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Read-only table of the request statistics collected by the remote server connections.
+ * 
+ * @author Greg Amerson
+ */
+public class RemoteConnectionStatsView extends ViewPart {
+
+	public static final String ID = "com.liferay.ide.eclipse.server.ui.remoteConnectionStatsView";
+
+	private static final String[] COLUMNS =
+		{ "Server", "Endpoint", "Calls", "Failures", "Retries", "Avg (ms)", "p50 (ms)", "p95 (ms)", "Max (ms)",
+			"Sent (KB)", "Received (KB)" };
+
+	private static final int[] COLUMN_WIDTHS = { 140, 240, 60, 60, 60, 70, 70, 70, 70, 80, 90 };
+
+	protected TableViewer viewer;
+
+	@Override
+	public void createPartControl( Composite parent ) {
+		viewer = new TableViewer( parent, SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL );
+
+		Table table = viewer.getTable();
+		table.setHeaderVisible( true );
+		table.setLinesVisible( true );
+
+		for ( int i = 0; i < COLUMNS.length; i++ ) {
+			TableColumn column = new TableColumn( table, i < 2 ? SWT.LEFT : SWT.RIGHT );
+			column.setText( COLUMNS[i] );
+			column.setWidth( COLUMN_WIDTHS[i] );
+		}
+
+		viewer.setContentProvider( new ArrayContentProvider() );
+		viewer.setLabelProvider( new StatsLabelProvider() );
+
+		IToolBarManager toolBar = getViewSite().getActionBars().getToolBarManager();
+
+		final Action enableAction = new Action( "Collect Statistics", IAction.AS_CHECK_BOX ) {
+
+			@Override
+			public void run() {
+				RemoteConnectionStats.setEnabled( isChecked() );
+			}
+		};
+		enableAction.setChecked( RemoteConnectionStats.isEnabled() );
+
+		toolBar.add( enableAction );
+
+		toolBar.add( new Action( "Refresh" ) {
+
+			@Override
+			public void run() {
+				enableAction.setChecked( RemoteConnectionStats.isEnabled() );
+				refresh();
+			}
+		} );
+
+		toolBar.add( new Action( "Reset" ) {
+
+			@Override
+			public void run() {
+				for ( RemoteConnectionStats stats : RemoteConnectionStats.getAll() ) {
+					stats.reset();
+				}
+
+				refresh();
+			}
+		} );
+
+		refresh();
+	}
+
+	@Override
+	public void setFocus() {
+		viewer.getControl().setFocus();
+	}
+
+	protected void refresh() {
+		List<Row> rows = new ArrayList<Row>();
+
+		for ( RemoteConnectionStats stats : RemoteConnectionStats.getAll() ) {
+			for ( EndpointStats endpoint : stats.getEndpoints() ) {
+				rows.add( new Row( stats.getLabel(), endpoint ) );
+			}
+		}
+
+		viewer.setInput( rows );
+	}
+
+	private static class Row {
+
+		final EndpointStats endpoint;
+		final String server;
+
+		Row( String server, EndpointStats endpoint ) {
+			this.server = server;
+			this.endpoint = endpoint;
+		}
+
+	}
+
+	private static class StatsLabelProvider extends LabelProvider implements ITableLabelProvider {
+
+		public Image getColumnImage( Object element, int columnIndex ) {
+			return null;
+		}
+
+		public String getColumnText( Object element, int columnIndex ) {
+			Row row = (Row) element;
+			EndpointStats endpoint = row.endpoint;
+
+			switch ( columnIndex ) {
+			case 0:
+				return row.server;
+			case 1:
+				return endpoint.getName();
+			case 2:
+				return String.valueOf( endpoint.getCalls() );
+			case 3:
+				return String.valueOf( endpoint.getFailures() );
+			case 4:
+				return String.valueOf( endpoint.getRetries() );
+			case 5:
+				return String.valueOf( endpoint.getAverageMillis() );
+			case 6:
+				return String.valueOf( endpoint.getPercentileMillis( 50 ) );
+			case 7:
+				return String.valueOf( endpoint.getPercentileMillis( 95 ) );
+			case 8:
+				return String.valueOf( endpoint.getMaxMillis() );
+			case 9:
+				return String.valueOf( endpoint.getBytesSent() / 1024 );
+			case 10:
+				return String.valueOf( endpoint.getBytesReceived() / 1024 );
+			default:
+				return "";
+			}
+		}
+
+	}
+
+}
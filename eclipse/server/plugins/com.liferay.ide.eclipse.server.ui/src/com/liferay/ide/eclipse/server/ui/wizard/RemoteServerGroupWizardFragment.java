@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2000-2011 Liferay, Inc. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of the Liferay Enterprise
+ * Subscription License ("License"). You may not use this file except in
+ * compliance with the License. You can obtain a copy of the License by
+ * contacting Liferay, Inc. See the License for the specific language governing
+ * permissions and limitations under the License, including but not limited to
+ * distribution rights of the Software.
+ */
+
+package com.liferay.ide.eclipse.server.ui.wizard;
+
+import com.liferay.ide.eclipse.server.remote.RemoteServerGroup;
+import com.liferay.ide.eclipse.server.ui.LiferayServerUIPlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jface.dialogs.IMessageProvider;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.CheckStateChangedEvent;
+import org.eclipse.jface.viewers.CheckboxTableViewer;
+import org.eclipse.jface.viewers.ICheckStateListener;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.IServerWorkingCopy;
+import org.eclipse.wst.server.core.ServerCore;
+import org.eclipse.wst.server.core.TaskModel;
+import org.eclipse.wst.server.ui.wizard.IWizardHandle;
+import org.eclipse.wst.server.ui.wizard.WizardFragment;
+
+/**
+ * @author Greg Amerson
+ */
+public class RemoteServerGroupWizardFragment extends WizardFragment {
+
+	protected CheckboxTableViewer membersViewer;
+
+	protected IWizardHandle wizard;
+
+	public RemoteServerGroupWizardFragment() {
+		super();
+	}
+
+	@Override
+	public Composite createComposite( Composite parent, IWizardHandle wizard ) {
+		this.wizard = wizard;
+
+		wizard.setTitle( "Remote Liferay Server Group" );
+		wizard.setDescription( "Select the remote Liferay servers that plugins are published to together." );
+		wizard.setImageDescriptor( ImageDescriptor.createFromURL( LiferayServerUIPlugin.getDefault().getBundle().getEntry(
+			"/icons/wizban/server_wiz.png" ) ) );
+
+		Composite composite = new Composite( parent, SWT.NONE );
+		composite.setLayout( new GridLayout( 1, false ) );
+
+		Label label = new Label( composite, SWT.NONE );
+		label.setText( "Member servers:" );
+
+		membersViewer = CheckboxTableViewer.newCheckList( composite, SWT.BORDER );
+		membersViewer.getTable().setLayoutData( new GridData( SWT.FILL, SWT.FILL, true, true ) );
+		membersViewer.setContentProvider( new ArrayContentProvider() );
+		membersViewer.setLabelProvider( new LabelProvider() {
+
+			@Override
+			public String getText( Object element ) {
+				IServer server = (IServer) element;
+
+				return server.getName() + " (" + server.getHost() + ")";
+			}
+		} );
+		membersViewer.addCheckStateListener( new ICheckStateListener() {
+
+			public void checkStateChanged( CheckStateChangedEvent event ) {
+				updateMembers();
+			}
+		} );
+
+		return composite;
+	}
+
+	@Override
+	public void enter() {
+		if ( membersViewer != null && !membersViewer.getTable().isDisposed() ) {
+			List<IServer> candidates = new ArrayList<IServer>();
+
+			for ( IServer server : ServerCore.getServers() ) {
+				if ( RemoteServerGroup.isMemberCandidate( server ) ) {
+					candidates.add( server );
+				}
+			}
+
+			membersViewer.setInput( candidates );
+
+			RemoteServerGroup group = getRemoteServerGroupWC();
+
+			if ( group != null ) {
+				membersViewer.setCheckedElements( group.getMemberServers().toArray() );
+			}
+
+			validate();
+		}
+	}
+
+	@Override
+	public boolean hasComposite() {
+		return true;
+	}
+
+	@Override
+	public boolean isComplete() {
+		RemoteServerGroup group = getRemoteServerGroupWC();
+
+		return group != null && group.validate( null ).isOK();
+	}
+
+	protected RemoteServerGroup getRemoteServerGroupWC() {
+		IServerWorkingCopy serverWC = getServerWorkingCopy();
+
+		if ( serverWC == null ) {
+			return null;
+		}
+
+		return (RemoteServerGroup) serverWC.loadAdapter( RemoteServerGroup.class, null );
+	}
+
+	protected IServerWorkingCopy getServerWorkingCopy() {
+		return (IServerWorkingCopy) getTaskModel().getObject( TaskModel.TASK_SERVER );
+	}
+
+	protected void updateMembers() {
+		RemoteServerGroup group = getRemoteServerGroupWC();
+
+		if ( group != null ) {
+			List<String> ids = new ArrayList<String>();
+
+			for ( Object checked : membersViewer.getCheckedElements() ) {
+				ids.add( ( (IServer) checked ).getId() );
+			}
+
+			group.setMemberServerIds( ids );
+		}
+
+		validate();
+	}
+
+	protected void validate() {
+		RemoteServerGroup group = getRemoteServerGroupWC();
+
+		if ( group == null ) {
+			return;
+		}
+
+		IStatus status = group.validate( null );
+
+		wizard.setMessage( status.isOK() ? null : status.getMessage(), status.isOK() ? IMessageProvider.NONE
+			: IMessageProvider.ERROR );
+		wizard.update();
+	}
+
+}